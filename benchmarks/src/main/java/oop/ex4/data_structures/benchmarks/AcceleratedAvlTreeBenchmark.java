@@ -0,0 +1,138 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AcceleratedAvlTree;
+import oop.ex4.data_structures.AvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in an AcceleratedAvlTree against the same lookups in an AvlTree: keys that are not in the tree
+ * (which the Bloom filter answers), keys spread over the whole tree, and keys from a small hot set (which
+ * the cache answers).
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AcceleratedAvlTreeBenchmark {
+
+	/* The number of probe keys cycled through by the benchmarks, a power of 2 */
+	private static final int PROBES = 1 << 16;
+
+	/* The number of distinct keys in the hot set, which fits the default cache */
+	private static final int HOT_KEYS = 512;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the tree. */
+	@Param({"100000", "1000000"})
+	public int size;
+
+	/* The trees under test, with the same keys */
+	private AvlTree tree;
+	private AcceleratedAvlTree accelerated;
+
+	/* Keys that are in the tree, keys that are not, and keys of the hot set, in random order */
+	private int[] hits, misses, hot;
+
+	/* The position in the probe arrays */
+	private int next;
+
+	/**
+	 * Builds both trees from random keys.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		int[] keys = KeyDistribution.RANDOM.keys(size, SEED);
+		tree = new AvlTree(keys);
+		accelerated = new AcceleratedAvlTree(keys);
+		hits = KeyDistribution.probes(size, PROBES, true, SEED + 1);
+		misses = KeyDistribution.probes(size, PROBES, false, SEED + 2);
+		int[] hotKeys = KeyDistribution.probes(size, HOT_KEYS, true, SEED + 3);
+		hot = new int[PROBES];
+		Random random = new Random(SEED + 4);
+		for (int i = 0; i < PROBES; i++){
+			hot[i] = hotKeys[random.nextInt(HOT_KEYS)];
+		}
+	}
+
+	/*
+	 * @return the index of the next probe key.
+	 */
+	private int nextProbe(){
+		int current = next;
+		next = (current + 1) & (PROBES - 1);
+		return current;
+	}
+
+	/**
+	 * Looks up a key that is not in the AvlTree.
+	 * @return -1.
+	 */
+	@Benchmark
+	public int treeContainsMiss(){
+		return tree.contains(misses[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key that is not in the AcceleratedAvlTree.
+	 * @return -1.
+	 */
+	@Benchmark
+	public int acceleratedContainsMiss(){
+		return accelerated.contains(misses[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a random key of the AvlTree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int treeContainsHit(){
+		return tree.contains(hits[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a random key of the AcceleratedAvlTree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int acceleratedContainsHit(){
+		return accelerated.contains(hits[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key of the hot set in the AvlTree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int treeContainsHot(){
+		return tree.contains(hot[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key of the hot set in the AcceleratedAvlTree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int acceleratedContainsHot(){
+		return accelerated.contains(hot[nextProbe()]);
+	}
+}
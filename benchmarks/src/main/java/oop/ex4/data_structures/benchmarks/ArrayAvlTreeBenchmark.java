@@ -0,0 +1,140 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.ArrayAvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AvlTreeBenchmark operations on the array-backed ArrayAvlTree, for a side by side comparison.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ArrayAvlTreeBenchmark {
+
+	/* The number of probe keys cycled through by the lookup and update benchmarks, a power of 2 */
+	private static final int PROBES = 1 << 16;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the tree. */
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int size;
+
+	/** The order in which the keys are inserted into the tree. */
+	@Param({"SEQUENTIAL", "RANDOM", "ADVERSARIAL"})
+	public KeyDistribution distribution;
+
+	/* The keys of the tree, in insertion order */
+	private int[] keys;
+
+	/* The tree under test */
+	private ArrayAvlTree tree;
+
+	/* Keys that are in the tree and keys that are not, in random order */
+	private int[] hits, misses;
+
+	/* The position in the probe arrays */
+	private int next;
+
+	/**
+	 * Builds the tree by adding the keys one by one in the distribution's order.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		keys = distribution.keys(size, SEED);
+		tree = new ArrayAvlTree();
+		for (int key : keys){
+			tree.add(key);
+		}
+		hits = KeyDistribution.probes(size, PROBES, true, SEED + 1);
+		misses = KeyDistribution.probes(size, PROBES, false, SEED + 2);
+	}
+
+	/*
+	 * @return the index of the next probe key.
+	 */
+	private int nextProbe(){
+		int current = next;
+		next = (current + 1) & (PROBES - 1);
+		return current;
+	}
+
+	/**
+	 * Looks up a key that is in the tree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int containsHit(){
+		return tree.contains(hits[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key that is not in the tree.
+	 * @return -1.
+	 */
+	@Benchmark
+	public int containsMiss(){
+		return tree.contains(misses[nextProbe()]);
+	}
+
+	/**
+	 * Adds a missing key and deletes it again.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean addThenDelete(){
+		int key = misses[nextProbe()];
+		return tree.add(key) & tree.delete(key);
+	}
+
+	/**
+	 * Iterates over the whole tree in ascending order with the primitive iterator.
+	 * @return the sum of the keys.
+	 */
+	@Benchmark
+	public long iterateInt(){
+		long sum = 0;
+		PrimitiveIterator.OfInt iterator = tree.intIterator();
+		while (iterator.hasNext()){
+			sum += iterator.nextInt();
+		}
+		return sum;
+	}
+
+	/**
+	 * Builds a new tree with the ArrayAvlTree(int[]) constructor.
+	 * @return the new tree.
+	 */
+	@Benchmark
+	public ArrayAvlTree constructFromArray(){
+		return new ArrayAvlTree(keys);
+	}
+
+	/**
+	 * Copies the tree with the copy constructor.
+	 * @return the copy.
+	 */
+	@Benchmark
+	public ArrayAvlTree copy(){
+		return new ArrayAvlTree(tree);
+	}
+}
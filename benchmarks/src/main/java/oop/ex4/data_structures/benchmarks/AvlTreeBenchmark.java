@@ -0,0 +1,255 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.OptionalInt;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded benchmarks of the AvlTree API: lookups, updates, iteration and the two bulk
+ * constructors, over tree sizes from 1K to 10M keys and over the different key distributions.
+ * The update benchmarks restore the tree after every operation so the tree size stays fixed during a run.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AvlTreeBenchmark {
+
+	/* The number of probe keys cycled through by the lookup and update benchmarks, a power of 2 */
+	private static final int PROBES = 1 << 16;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the tree. */
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int size;
+
+	/** The order in which the keys are inserted into the tree. */
+	@Param({"SEQUENTIAL", "RANDOM", "ADVERSARIAL"})
+	public KeyDistribution distribution;
+
+	/* The keys of the tree, in insertion order */
+	private int[] keys;
+
+	/* The tree under test */
+	private AvlTree tree;
+
+	/* Keys that are in the tree and keys that are not, in random order */
+	private int[] hits, misses;
+
+	/* The position in the probe arrays */
+	private int next;
+
+	/**
+	 * Builds the tree by adding the keys one by one in the distribution's order.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		keys = distribution.keys(size, SEED);
+		tree = new AvlTree();
+		for (int key : keys){
+			tree.add(key);
+		}
+		hits = KeyDistribution.probes(size, PROBES, true, SEED + 1);
+		misses = KeyDistribution.probes(size, PROBES, false, SEED + 2);
+	}
+
+	/*
+	 * @return the index of the next probe key.
+	 */
+	private int nextProbe(){
+		int current = next;
+		next = (current + 1) & (PROBES - 1);
+		return current;
+	}
+
+	/**
+	 * Looks up a key that is in the tree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int containsHit(){
+		return tree.contains(hits[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key that is not in the tree.
+	 * @return -1.
+	 */
+	@Benchmark
+	public int containsMiss(){
+		return tree.contains(misses[nextProbe()]);
+	}
+
+	/**
+	 * Finds the rank of a key that is in the tree.
+	 * @return the key's rank.
+	 */
+	@Benchmark
+	public int rank(){
+		return tree.rank(hits[nextProbe()]);
+	}
+
+	/**
+	 * Finds the key of a rank; the keys are even numbers from 0, so a key's rank is half of it.
+	 * @return the key.
+	 */
+	@Benchmark
+	public int select(){
+		return tree.select(hits[nextProbe()] >>> 1);
+	}
+
+	/**
+	 * Counts the keys in a range of about 1000 keys that starts at a key of the tree.
+	 * @return the number of keys in the range.
+	 */
+	@Benchmark
+	public int countInRange(){
+		int low = hits[nextProbe()];
+		return tree.countInRange(low, low + 2000);
+	}
+
+	/**
+	 * Finds the greatest key below a key that is not in the tree.
+	 * @return the key found.
+	 */
+	@Benchmark
+	public OptionalInt floor(){
+		return tree.floor(misses[nextProbe()]);
+	}
+
+	/**
+	 * Finds the least key above a key that is not in the tree.
+	 * @return the key found.
+	 */
+	@Benchmark
+	public OptionalInt ceiling(){
+		return tree.ceiling(misses[nextProbe()]);
+	}
+
+	/**
+	 * Scans a range of up to 100 keys with the range iterator.
+	 * @return the sum of the keys in the range.
+	 */
+	@Benchmark
+	public long rangeScan(){
+		int low = hits[nextProbe()];
+		long sum = 0;
+		PrimitiveIterator.OfInt iterator = tree.rangeIterator(low, true, low + 200, false);
+		while (iterator.hasNext()){
+			sum += iterator.nextInt();
+		}
+		return sum;
+	}
+
+	/**
+	 * Adds a missing key and deletes it again.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean addThenDelete(){
+		int key = misses[nextProbe()];
+		return tree.add(key) & tree.delete(key);
+	}
+
+	/**
+	 * Deletes a key of the tree and adds it back.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean deleteThenAdd(){
+		int key = hits[nextProbe()];
+		return tree.delete(key) & tree.add(key);
+	}
+
+	/**
+	 * Iterates over the whole tree in ascending order.
+	 * @param blackhole consumes every key.
+	 */
+	@Benchmark
+	public void iterate(Blackhole blackhole){
+		for (Integer key : tree){
+			blackhole.consume(key);
+		}
+	}
+
+	/**
+	 * Iterates over the whole tree in ascending order with the primitive iterator.
+	 * @return the sum of the keys.
+	 */
+	@Benchmark
+	public long iterateInt(){
+		long sum = 0;
+		PrimitiveIterator.OfInt iterator = tree.intIterator();
+		while (iterator.hasNext()){
+			sum += iterator.nextInt();
+		}
+		return sum;
+	}
+
+	/**
+	 * Visits the whole tree in ascending order with forEachInt.
+	 * @param blackhole consumes every key.
+	 */
+	@Benchmark
+	public void forEachInt(Blackhole blackhole){
+		tree.forEachInt(blackhole::consume);
+	}
+
+	/**
+	 * Sums the whole tree through its IntStream.
+	 * @return the sum of the keys.
+	 */
+	@Benchmark
+	public long streamSum(){
+		return tree.stream().asLongStream().sum();
+	}
+
+	/**
+	 * Builds a new tree with the AvlTree(int[]) constructor.
+	 * @return the new tree.
+	 */
+	@Benchmark
+	public AvlTree constructFromArray(){
+		return new AvlTree(keys);
+	}
+
+	/**
+	 * Copies the tree with the AvlTree(AvlTree) copy constructor.
+	 * @return the copy.
+	 */
+	@Benchmark
+	public AvlTree copy(){
+		return new AvlTree(tree);
+	}
+
+	/**
+	 * Takes a copy-on-write snapshot of the tree and modifies it, which is when the nodes are copied.
+	 * @return the snapshot.
+	 */
+	@Benchmark
+	public AvlTree snapshotThenAdd(){
+		AvlTree snapshot = tree.snapshot();
+		snapshot.add(misses[nextProbe()]);
+		return snapshot;
+	}
+}
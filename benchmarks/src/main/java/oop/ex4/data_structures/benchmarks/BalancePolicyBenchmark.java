@@ -0,0 +1,114 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import oop.ex4.data_structures.BalancePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The balancing policies side by side: AVL, weak AVL and red-black trees built by adding the same keys, under
+ * a write-only churn (every key in twice the tree's key range is deleted if it is in the tree and added
+ * otherwise, so the size stays around its initial value), under deletions of keys that are immediately
+ * added back, and under successful lookups, which show the cost of the deeper trees.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BalancePolicyBenchmark {
+
+	/* The number of pre-generated keys, a power of 2 */
+	private static final int PROBES = 1 << 16;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The initial number of keys in the tree. */
+	@Param({"1000000"})
+	public int size;
+
+	/** The balancing policy of the tree. */
+	@Param({"AVL", "WAVL", "RED_BLACK"})
+	public BalancePolicy policy;
+
+	/** The order in which the keys are added to the tree. */
+	@Param({"SEQUENTIAL", "RANDOM"})
+	public KeyDistribution distribution;
+
+	/* The tree under test */
+	private AvlTree tree;
+
+	/* Keys of the tree's range (hits and misses), and keys of the tree (hits) */
+	private int[] churnKeys, hitKeys;
+
+	/* The positions in the key arrays */
+	private int nextChurn, nextHit;
+
+	/**
+	 * Builds the tree by adding the keys one by one, so its shape is the policy's, and generates the keys.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		tree = new AvlTree(policy);
+		for (int key : distribution.keys(size, SEED)){
+			tree.add(key);
+		}
+		int[] hits = KeyDistribution.probes(size, PROBES, true, SEED + 1);
+		int[] misses = KeyDistribution.probes(size, PROBES, false, SEED + 2);
+		churnKeys = new int[PROBES];
+		for (int i = 0; i < PROBES; i++){
+			churnKeys[i] = (i & 1) == 0 ? hits[i] : misses[i];
+		}
+		hitKeys = KeyDistribution.probes(size, PROBES, true, SEED + 3);
+	}
+
+	/**
+	 * Deletes the next key if it is in the tree, and adds it otherwise.
+	 * @return whether the key was deleted.
+	 */
+	@Benchmark
+	public boolean churn(){
+		int key = churnKeys[nextChurn];
+		nextChurn = (nextChurn + 1) & (PROBES - 1);
+		return tree.delete(key) || !tree.add(key);
+	}
+
+	/**
+	 * Deletes the next key of the tree and adds it back.
+	 * @return whether the key was deleted.
+	 */
+	@Benchmark
+	public boolean deleteAndReinsert(){
+		int key = hitKeys[nextHit];
+		nextHit = (nextHit + 1) & (PROBES - 1);
+		boolean deleted = tree.delete(key);
+		tree.add(key);
+		return deleted;
+	}
+
+	/**
+	 * Looks up the next key of the tree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int contains(){
+		int key = hitKeys[nextHit];
+		nextHit = (nextHit + 1) & (PROBES - 1);
+		return tree.contains(key);
+	}
+}
@@ -0,0 +1,149 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the batch operations addAll, removeAll and containsAll against the same batch applied one
+ * key at a time, for batches of 10K to 1M sorted keys on a tree of 1M keys. Every invocation starts from a
+ * fresh copy of the tree (made outside the measurement), so each one applies the whole batch.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BatchBenchmark {
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the tree. */
+	@Param({"1000000"})
+	public int size;
+
+	/** The number of keys in a batch. */
+	@Param({"10000", "100000", "1000000"})
+	public int batch;
+
+	/* The tree every invocation starts from */
+	private AvlTree base;
+
+	/* The tree under test, a fresh copy of base */
+	private AvlTree tree;
+
+	/* Sorted keys that are not in the tree, and sorted keys that are */
+	private int[] missing, present;
+
+	/* The results of containsAll */
+	private boolean[] results;
+
+	/**
+	 * Builds the tree from random keys and picks the batches.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		base = new AvlTree(KeyDistribution.RANDOM.keys(size, SEED));
+		missing = KeyDistribution.probes(size, batch, false, SEED + 1);
+		present = KeyDistribution.probes(size, batch, true, SEED + 2);
+		Arrays.sort(missing);
+		Arrays.sort(present);
+		results = new boolean[batch];
+	}
+
+	/**
+	 * Copies the base tree, so every invocation changes a tree of the same size.
+	 */
+	@Setup(Level.Invocation)
+	public void copyTree(){
+		tree = new AvlTree(base);
+	}
+
+	/**
+	 * Adds the batch of missing keys with addAll.
+	 * @return the number of keys added.
+	 */
+	@Benchmark
+	public int addAll(){
+		return tree.addAll(missing);
+	}
+
+	/**
+	 * Adds the batch of missing keys one at a time.
+	 * @return the number of keys added.
+	 */
+	@Benchmark
+	public int addEach(){
+		int added = 0;
+		for (int key : missing){
+			if (tree.add(key)){
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Removes the batch of present keys with removeAll.
+	 * @return the number of keys removed.
+	 */
+	@Benchmark
+	public int removeAll(){
+		return tree.removeAll(present);
+	}
+
+	/**
+	 * Removes the batch of present keys one at a time.
+	 * @return the number of keys removed.
+	 */
+	@Benchmark
+	public int removeEach(){
+		int removed = 0;
+		for (int key : present){
+			if (tree.delete(key)){
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Looks up the batch of present keys with containsAll.
+	 * @return the number of keys found.
+	 */
+	@Benchmark
+	public int containsAll(){
+		return tree.containsAll(present, results);
+	}
+
+	/**
+	 * Looks up the batch of present keys one at a time.
+	 * @return the number of keys found.
+	 */
+	@Benchmark
+	public int containsEach(){
+		int found = 0;
+		for (int key : present){
+			if (tree.contains(key) >= 0){
+				found++;
+			}
+		}
+		return found;
+	}
+}
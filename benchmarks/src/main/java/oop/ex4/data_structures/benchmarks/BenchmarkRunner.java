@@ -0,0 +1,42 @@
+package oop.ex4.data_structures.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The entry point of the benchmarks jar. Accepts the regular JMH command line, and always attaches the GC
+ * profiler so every result comes with its allocation rate per operation (gc.alloc.rate.norm).
+ * @author shaharna13
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner(){
+	}
+
+	/**
+	 * Runs the benchmarks selected by the given JMH command line arguments.
+	 * @param args JMH command line arguments, for example "AvlTreeBenchmark.contains -p size=1000000".
+	 * @throws CommandLineOptionException if the arguments can't be parsed.
+	 * @throws RunnerException if a benchmark fails.
+	 * @throws IOException if the benchmark list can't be read.
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if (commandLine.shouldHelp() || commandLine.shouldList()){
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if (commandLine.getProfilers().isEmpty()){
+			options.addProfiler(GCProfiler.class);
+		}
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,116 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import oop.ex4.data_structures.ConcurrentAvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded benchmarks of ConcurrentAvlTree against an AvlTree behind one global lock, the way the
+ * tree had to be shared before. Each group runs 7 reader threads (contains) and 1 writer thread (an add
+ * or delete of a random key), and reports the throughput of each kind of thread. Run with -tg to change
+ * the thread counts, for example "-tg 15,1" or "-tg 6,2".
+ * @author shaharna13
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ConcurrentAvlTreeBenchmark {
+
+	/** The initial number of keys in the tree; the writer keeps it around this size. */
+	@Param({"10000", "1000000"})
+	public int size;
+
+	/* The trees under test */
+	private ConcurrentAvlTree concurrentTree;
+	private AvlTree lockedTree;
+
+	/* The lock of lockedTree */
+	private final Object globalLock = new Object();
+
+	/**
+	 * Builds both trees from the even keys below 2 * size.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		int[] keys = KeyDistribution.RANDOM.keys(size, 42);
+		concurrentTree = new ConcurrentAvlTree(keys);
+		lockedTree = new AvlTree(keys);
+	}
+
+	/*
+	 * @return a random key in twice the range of the tree's keys, so half of the lookups miss.
+	 */
+	private int randomKey(){
+		return ThreadLocalRandom.current().nextInt(2 * size);
+	}
+
+	/**
+	 * A lookup in the concurrent tree.
+	 * @return the key's depth, or -1.
+	 */
+	@Benchmark
+	@Group("concurrent")
+	@GroupThreads(7)
+	public int concurrentRead(){
+		return concurrentTree.contains(randomKey());
+	}
+
+	/**
+	 * An update of the concurrent tree: deletes the key if it is there, adds it otherwise.
+	 * @return whether the key was deleted.
+	 */
+	@Benchmark
+	@Group("concurrent")
+	@GroupThreads(1)
+	public boolean concurrentWrite(){
+		int key = randomKey();
+		return concurrentTree.delete(key) || !concurrentTree.add(key);
+	}
+
+	/**
+	 * A lookup in the globally locked tree.
+	 * @return the key's depth, or -1.
+	 */
+	@Benchmark
+	@Group("globalLock")
+	@GroupThreads(7)
+	public int lockedRead(){
+		int key = randomKey();
+		synchronized (globalLock){
+			return lockedTree.contains(key);
+		}
+	}
+
+	/**
+	 * An update of the globally locked tree: deletes the key if it is there, adds it otherwise.
+	 * @return whether the key was deleted.
+	 */
+	@Benchmark
+	@Group("globalLock")
+	@GroupThreads(1)
+	public boolean lockedWrite(){
+		int key = randomKey();
+		synchronized (globalLock){
+			return lockedTree.delete(key) || !lockedTree.add(key);
+		}
+	}
+}
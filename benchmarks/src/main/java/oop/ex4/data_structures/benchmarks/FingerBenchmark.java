@@ -0,0 +1,162 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * add and contains against fingerAdd and fingerContains on near-sequential keys: appends of ascending keys
+ * above the tree's maximum, keys that arrive in ascending blocks of 64 shuffled keys, and lookups that
+ * sweep the tree in small random steps. The tree is rebuilt before every iteration, so the appends start
+ * from the same size each time.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FingerBenchmark {
+
+	/* The number of keys in a block of the near-sequential stream, a power of 2 */
+	private static final int BLOCK = 64;
+
+	/* The longest step of the lookup sweep */
+	private static final int MAX_STEP = 16;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the tree before the appends. */
+	@Param({"1000000"})
+	public int size;
+
+	/* The tree under test */
+	private AvlTree tree;
+
+	/* The order of the keys in each block of the near-sequential stream */
+	private int[] blockOrder;
+
+	/* The steps of the lookup sweep, a power of 2 of them */
+	private int[] steps;
+
+	/* The next key to append, the number of near-sequential keys added, and the sweep's position */
+	private int nextKey, nearCount, sweep, nextStep;
+
+	/**
+	 * Prepares the random block order and sweep steps.
+	 */
+	@Setup(Level.Trial)
+	public void setUpTrial(){
+		Random random = new Random(SEED);
+		blockOrder = new int[BLOCK];
+		for (int i = 0; i < BLOCK; i++){
+			blockOrder[i] = i;
+		}
+		KeyDistribution.shuffle(blockOrder, random);
+		steps = new int[1 << 16];
+		for (int i = 0; i < steps.length; i++){
+			steps[i] = 1 + random.nextInt(MAX_STEP);
+		}
+	}
+
+	/**
+	 * Builds the tree of the sequential keys (the even numbers below 2 * size).
+	 */
+	@Setup(Level.Iteration)
+	public void setUpIteration(){
+		tree = new AvlTree(KeyDistribution.SEQUENTIAL.keys(size, SEED));
+		nextKey = Integer.MAX_VALUE / 2;
+		nearCount = 0;
+		sweep = 0;
+	}
+
+	/*
+	 * @return the next key of the near-sequential stream: the blocks of BLOCK keys ascend, and the keys
+	 * inside each block come in a shuffled order.
+	 */
+	private int nextNearKey(){
+		int count = nearCount++;
+		return Integer.MAX_VALUE / 2 + (count & ~(BLOCK - 1)) + blockOrder[count & (BLOCK - 1)];
+	}
+
+	/*
+	 * @return the next key of the sweep, a key of the tree; the sweep wraps around at the end of the tree.
+	 */
+	private int nextSweepKey(){
+		sweep += steps[nextStep];
+		nextStep = (nextStep + 1) & (steps.length - 1);
+		if (sweep >= size){
+			sweep -= size;
+		}
+		return 2 * sweep;
+	}
+
+	/**
+	 * Appends the next ascending key with add.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean appendAdd(){
+		return tree.add(nextKey++);
+	}
+
+	/**
+	 * Appends the next ascending key with fingerAdd.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean appendFingerAdd(){
+		return tree.fingerAdd(nextKey++);
+	}
+
+	/**
+	 * Adds the next near-sequential key with add.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean nearAdd(){
+		return tree.add(nextNearKey());
+	}
+
+	/**
+	 * Adds the next near-sequential key with fingerAdd.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean nearFingerAdd(){
+		return tree.fingerAdd(nextNearKey());
+	}
+
+	/**
+	 * Looks up the next key of the sweep with contains.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int sweepContains(){
+		return tree.contains(nextSweepKey());
+	}
+
+	/**
+	 * Looks up the next key of the sweep with fingerContains.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean sweepFingerContains(){
+		return tree.fingerContains(nextSweepKey());
+	}
+}
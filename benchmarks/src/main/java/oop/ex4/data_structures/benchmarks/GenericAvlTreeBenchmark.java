@@ -0,0 +1,156 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.GenericAvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AvlTreeBenchmark operations on GenericAvlTree, with the keys of LongAvlTreeBenchmark boxed as Long
+ * and ordered by a Comparator.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GenericAvlTreeBenchmark {
+
+	/* The number of probe keys cycled through by the lookup and update benchmarks, a power of 2 */
+	private static final int PROBES = 1 << 16;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/* The order of the keys, an explicit comparator rather than the natural ordering */
+	private static final Comparator<Long> ORDER = Long::compare;
+
+	/** The number of keys in the tree. */
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int size;
+
+	/** The order in which the keys are inserted into the tree. */
+	@Param({"SEQUENTIAL", "RANDOM", "ADVERSARIAL"})
+	public KeyDistribution distribution;
+
+	/* The keys of the tree, in insertion order */
+	private List<Long> keys;
+
+	/* The tree under test */
+	private GenericAvlTree<Long> tree;
+
+	/* Keys that are in the tree and keys that are not, in random order */
+	private List<Long> hits, misses;
+
+	/* The position in the probe arrays */
+	private int next;
+
+	/**
+	 * Builds the tree by adding the keys one by one in the distribution's order.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		keys = box(LongAvlTreeBenchmark.widen(distribution.keys(size, SEED)));
+		tree = new GenericAvlTree<>(ORDER);
+		for (Long key : keys){
+			tree.add(key);
+		}
+		hits = box(LongAvlTreeBenchmark.widen(KeyDistribution.probes(size, PROBES, true, SEED + 1)));
+		misses = box(LongAvlTreeBenchmark.widen(KeyDistribution.probes(size, PROBES, false, SEED + 2)));
+	}
+
+	/*
+	 * Boxes the given keys once, so the benchmarks measure the tree rather than boxing.
+	 */
+	private static List<Long> box(long[] keys){
+		List<Long> boxed = new ArrayList<>(keys.length);
+		for (long key : keys){
+			boxed.add(key);
+		}
+		return boxed;
+	}
+
+	/*
+	 * @return the index of the next probe key.
+	 */
+	private int nextProbe(){
+		int current = next;
+		next = (current + 1) & (PROBES - 1);
+		return current;
+	}
+
+	/**
+	 * Looks up a key that is in the tree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int containsHit(){
+		return tree.contains(hits.get(nextProbe()));
+	}
+
+	/**
+	 * Looks up a key that is not in the tree.
+	 * @return -1.
+	 */
+	@Benchmark
+	public int containsMiss(){
+		return tree.contains(misses.get(nextProbe()));
+	}
+
+	/**
+	 * Adds a missing key and deletes it again.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean addThenDelete(){
+		Long key = misses.get(nextProbe());
+		return tree.add(key) & tree.delete(key);
+	}
+
+	/**
+	 * Iterates over the whole tree in ascending order.
+	 * @return the sum of the keys.
+	 */
+	@Benchmark
+	public long iterate(){
+		long sum = 0;
+		for (Long key : tree){
+			sum += key;
+		}
+		return sum;
+	}
+
+	/**
+	 * Builds a new tree with the GenericAvlTree(Collection, Comparator) constructor.
+	 * @return the new tree.
+	 */
+	@Benchmark
+	public GenericAvlTree<Long> constructFromCollection(){
+		return new GenericAvlTree<>(keys, ORDER);
+	}
+
+	/**
+	 * Copies the tree with the copy constructor.
+	 * @return the copy.
+	 */
+	@Benchmark
+	public GenericAvlTree<Long> copy(){
+		return new GenericAvlTree<>(tree);
+	}
+}
@@ -0,0 +1,166 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import oop.ex4.data_structures.IntBPlusTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The B+ tree IntBPlusTree against AvlTree, side by side in one run: lookups, updates and full scans over
+ * the same keys, from 1K keys (which fit in the caches) to 10M (which don't).
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IntBPlusTreeBenchmark {
+
+	/* The number of probe keys cycled through by the lookup and update benchmarks, a power of 2 */
+	private static final int PROBES = 1 << 16;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the trees. */
+	@Param({"1000", "100000", "1000000", "10000000"})
+	public int size;
+
+	/** The order in which the keys are inserted into the trees. */
+	@Param({"SEQUENTIAL", "RANDOM"})
+	public KeyDistribution distribution;
+
+	/* The trees under test */
+	private IntBPlusTree bPlusTree;
+	private AvlTree avlTree;
+
+	/* Keys that are in the trees and keys that are not, in random order */
+	private int[] hits, misses;
+
+	/* The position in the probe arrays */
+	private int next;
+
+	/**
+	 * Builds both trees by adding the keys one by one in the distribution's order.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		bPlusTree = new IntBPlusTree();
+		avlTree = new AvlTree();
+		for (int key : distribution.keys(size, SEED)){
+			bPlusTree.add(key);
+			avlTree.add(key);
+		}
+		hits = KeyDistribution.probes(size, PROBES, true, SEED + 1);
+		misses = KeyDistribution.probes(size, PROBES, false, SEED + 2);
+	}
+
+	/*
+	 * @return the index of the next probe key.
+	 */
+	private int nextProbe(){
+		int current = next;
+		next = (current + 1) & (PROBES - 1);
+		return current;
+	}
+
+	/**
+	 * Looks up a key that is in the B+ tree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int bPlusContainsHit(){
+		return bPlusTree.contains(hits[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key that is in the AVL tree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int avlContainsHit(){
+		return avlTree.contains(hits[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key that is not in the B+ tree.
+	 * @return -1.
+	 */
+	@Benchmark
+	public int bPlusContainsMiss(){
+		return bPlusTree.contains(misses[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key that is not in the AVL tree.
+	 * @return -1.
+	 */
+	@Benchmark
+	public int avlContainsMiss(){
+		return avlTree.contains(misses[nextProbe()]);
+	}
+
+	/**
+	 * Adds a missing key to the B+ tree and deletes it again.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean bPlusAddThenDelete(){
+		int key = misses[nextProbe()];
+		return bPlusTree.add(key) & bPlusTree.delete(key);
+	}
+
+	/**
+	 * Adds a missing key to the AVL tree and deletes it again.
+	 * @return true.
+	 */
+	@Benchmark
+	public boolean avlAddThenDelete(){
+		int key = misses[nextProbe()];
+		return avlTree.add(key) & avlTree.delete(key);
+	}
+
+	/**
+	 * Scans the whole B+ tree in ascending order.
+	 * @return the sum of the keys.
+	 */
+	@Benchmark
+	public long bPlusScan(){
+		return sum(bPlusTree.intIterator());
+	}
+
+	/**
+	 * Scans the whole AVL tree in ascending order.
+	 * @return the sum of the keys.
+	 */
+	@Benchmark
+	public long avlScan(){
+		return sum(avlTree.intIterator());
+	}
+
+	/*
+	 * @return the sum of the iterator's values.
+	 */
+	private static long sum(PrimitiveIterator.OfInt iterator){
+		long sum = 0;
+		while (iterator.hasNext()){
+			sum += iterator.nextInt();
+		}
+		return sum;
+	}
+}
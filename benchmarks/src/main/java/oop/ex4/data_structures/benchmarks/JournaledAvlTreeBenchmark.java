@@ -0,0 +1,190 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import oop.ex4.data_structures.JournaledAvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * The cost of durability: a write-only churn (every key in twice the tree's key range is deleted if it is
+ * in the tree and added otherwise) on a JournaledAvlTree that syncs every change before returning, on one
+ * that syncs every millisecond in the background, and on an AvlTree behind a lock with no journal. Run by
+ * one thread and by eight concurrent writers, whose syncs the synchronous journal groups together.
+ * @author shaharna13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class JournaledAvlTreeBenchmark {
+
+	/** How the changes are made durable. */
+	public enum Durability {
+		/** An AvlTree behind a lock, with no journal. */
+		NONE,
+		/** A journal synced every millisecond in the background. */
+		INTERVAL,
+		/** A journal synced before every change returns, grouped with the other threads' changes. */
+		SYNC
+	}
+
+	/* The number of pre-generated keys, a power of 2 */
+	private static final int PROBES = 1 << 16;
+
+	/* The sync interval of the INTERVAL journal */
+	private static final long SYNC_INTERVAL_MICROS = 1000;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The initial number of keys in the tree. */
+	@Param({"1000000"})
+	public int size;
+
+	/** How the changes are made durable. */
+	@Param({"NONE", "INTERVAL", "SYNC"})
+	public Durability durability;
+
+	/* The tree under test: a journaled tree, or a plain one behind lock */
+	private JournaledAvlTree journaled;
+	private AvlTree plain;
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/* The directory of the journaled tree */
+	private Path directory;
+
+	/* Keys of the tree's range, hits and misses */
+	private int[] keys;
+
+	/* Hands every thread its own start in keys */
+	private final AtomicInteger threadCount = new AtomicInteger();
+
+	/**
+	 * The position of one thread in the keys.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		/* The next position */
+		private int next;
+
+		/**
+		 * Starts every thread at another position.
+		 * @param benchmark the shared state.
+		 */
+		@Setup(Level.Trial)
+		public void setUp(JournaledAvlTreeBenchmark benchmark){
+			next = benchmark.threadCount.getAndIncrement() * (PROBES / 8) & (PROBES - 1);
+		}
+	}
+
+	/**
+	 * Builds the tree. A journaled tree is filled in the background mode and compacted, so it reopens from a
+	 * snapshot.
+	 * @throws IOException if the journal can't be written.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		int[] initial = KeyDistribution.RANDOM.keys(size, SEED);
+		if (durability == Durability.NONE){
+			plain = new AvlTree(initial);
+		}
+		else {
+			directory = Files.createTempDirectory("avl-journal-benchmark");
+			try (JournaledAvlTree loader = new JournaledAvlTree(directory, SYNC_INTERVAL_MICROS, Long.MAX_VALUE)){
+				for (int key : initial){
+					loader.add(key);
+				}
+				loader.compact();
+			}
+			journaled = new JournaledAvlTree(directory, durability == Durability.SYNC ? 0 : SYNC_INTERVAL_MICROS,
+					Long.MAX_VALUE);
+		}
+		Random random = new Random(SEED + 1);
+		keys = new int[PROBES];
+		for (int i = 0; i < PROBES; i++){
+			keys[i] = random.nextInt(2 * size);
+		}
+	}
+
+	/**
+	 * Closes the journaled tree and deletes its files.
+	 * @throws IOException if the files can't be deleted.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		if (journaled != null){
+			journaled.close();
+			try (Stream<Path> files = Files.walk(directory)){
+				for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator){
+					Files.delete(file);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Deletes the key if it is in the tree, and adds it otherwise.
+	 */
+	private boolean churn(int key){
+		if (journaled != null){
+			return journaled.delete(key) || !journaled.add(key);
+		}
+		lock.lock();
+		try {
+			return plain.delete(key) || !plain.add(key);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * One thread's churn.
+	 * @param cursor the thread's position in the keys.
+	 * @return whether the key was deleted.
+	 */
+	@Benchmark
+	public boolean churn(Cursor cursor){
+		int key = keys[cursor.next];
+		cursor.next = (cursor.next + 1) & (PROBES - 1);
+		return churn(key);
+	}
+
+	/**
+	 * The churn of eight concurrent writers.
+	 * @param cursor the thread's position in the keys.
+	 * @return whether the key was deleted.
+	 */
+	@Benchmark
+	@Group("concurrentChurn")
+	@GroupThreads(8)
+	public boolean concurrentChurn(Cursor cursor){
+		return churn(cursor);
+	}
+}
@@ -0,0 +1,83 @@
+package oop.ex4.data_structures.benchmarks;
+
+import java.util.Random;
+
+/**
+ * The orders in which the benchmarks feed keys to the trees.
+ * All distributions produce the same set of keys, the even numbers 0, 2, ..., 2(n-1), so the odd numbers
+ * can always be used as keys that are missing from the tree.
+ * @author shaharna13
+ */
+public enum KeyDistribution {
+
+	/** Ascending keys, the typical order of timestamps and sequence ids. */
+	SEQUENTIAL {
+		@Override
+		int[] keys(int n, long seed) {
+			int[] keys = new int[n];
+			for (int i = 0; i < n; i++){
+				keys[i] = 2 * i;
+			}
+			return keys;
+		}
+	},
+
+	/** A uniformly shuffled permutation of the keys. */
+	RANDOM {
+		@Override
+		int[] keys(int n, long seed) {
+			int[] keys = SEQUENTIAL.keys(n, seed);
+			shuffle(keys, new Random(seed));
+			return keys;
+		}
+	},
+
+	/**
+	 * Keys taken alternately from both ends of the range and closing in on the middle. Every insert lands
+	 * next to the previous one on the opposite side of the tree, which keeps triggering double rotations.
+	 */
+	ADVERSARIAL {
+		@Override
+		int[] keys(int n, long seed) {
+			int[] keys = new int[n];
+			int low = 0, high = n - 1;
+			for (int i = 0; i < n; i++){
+				keys[i] = 2 * ((i % 2 == 0) ? low++ : high--);
+			}
+			return keys;
+		}
+	};
+
+	/**
+	 * Generates the keys of a tree of the given size in this distribution's order.
+	 * @param n the number of keys.
+	 * @param seed the seed for the randomized distributions.
+	 * @return the keys, in insertion order.
+	 */
+	abstract int[] keys(int n, long seed);
+
+	/*
+	 * Shuffles the given array in place (Fisher-Yates).
+	 */
+	static void shuffle(int[] values, Random random){
+		for (int i = values.length - 1; i > 0; i--){
+			int j = random.nextInt(i + 1);
+			int tmp = values[i];
+			values[i] = values[j];
+			values[j] = tmp;
+		}
+	}
+
+	/*
+	 * Returns the given number of keys picked at random from the tree's keys (hits) or from the odd numbers
+	 * in the same range (misses), in random order.
+	 */
+	static int[] probes(int treeSize, int count, boolean hits, long seed){
+		Random random = new Random(seed);
+		int[] probes = new int[count];
+		for (int i = 0; i < count; i++){
+			probes[i] = 2 * random.nextInt(treeSize) + (hits ? 0 : 1);
+		}
+		return probes;
+	}
+}
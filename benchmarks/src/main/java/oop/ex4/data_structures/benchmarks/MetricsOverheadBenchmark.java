@@ -0,0 +1,127 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import oop.ex4.data_structures.AvlTreeStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the AvlTree metrics: the same lookups and updates on a tree with an AvlTreeStats attached,
+ * in a JVM with the metrics disabled (the default, where they should cost nothing) and in one with them
+ * enabled. The system property is read once per JVM, so every variant runs in its own fork.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MetricsOverheadBenchmark {
+
+	/* The number of probe keys cycled through by the benchmarks, a power of 2 */
+	private static final int PROBES = 1 << 16;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/* The JVM options of the two variants */
+	private static final String DISABLED = "-Doop.ex4.data_structures.metrics=false";
+	private static final String ENABLED = "-Doop.ex4.data_structures.metrics=true";
+
+	/** The number of keys in the tree. */
+	@Param({"1000", "1000000"})
+	public int size;
+
+	/* The tree under test, with its statistics attached */
+	private AvlTree tree;
+	private AvlTreeStats stats;
+
+	/* Keys that are in the tree and keys that are not, in random order */
+	private int[] hits, misses;
+
+	/* The position in the probe arrays */
+	private int next;
+
+	/**
+	 * Builds the tree by adding random keys one by one and attaches the statistics.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		tree = new AvlTree();
+		for (int key : KeyDistribution.RANDOM.keys(size, SEED)){
+			tree.add(key);
+		}
+		stats = new AvlTreeStats(tree);
+		hits = KeyDistribution.probes(size, PROBES, true, SEED + 1);
+		misses = KeyDistribution.probes(size, PROBES, false, SEED + 2);
+	}
+
+	/*
+	 * @return the index of the next probe key.
+	 */
+	private int nextProbe(){
+		int current = next;
+		next = (current + 1) & (PROBES - 1);
+		return current;
+	}
+
+	/*
+	 * Adds a missing key and deletes it again, so the tree size stays fixed.
+	 */
+	private boolean addDelete(){
+		int key = misses[nextProbe()];
+		return tree.add(key) & tree.delete(key);
+	}
+
+	/**
+	 * Looks up a key that is in the tree, with the metrics disabled.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", DISABLED})
+	public int containsDisabled(){
+		return tree.contains(hits[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key that is in the tree, with the metrics enabled.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", ENABLED})
+	public int containsEnabled(){
+		return tree.contains(hits[nextProbe()]);
+	}
+
+	/**
+	 * Adds and deletes a missing key, with the metrics disabled.
+	 * @return true.
+	 */
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", DISABLED})
+	public boolean addDeleteDisabled(){
+		return addDelete();
+	}
+
+	/**
+	 * Adds and deletes a missing key, with the metrics enabled.
+	 * @return true.
+	 */
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", ENABLED})
+	public boolean addDeleteEnabled(){
+		return addDelete();
+	}
+}
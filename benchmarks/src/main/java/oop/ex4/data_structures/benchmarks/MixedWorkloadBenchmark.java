@@ -0,0 +1,97 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A mixed read/write workload over a tree of a fixed initial size. Every operation picks a random key in
+ * twice the tree's key range; reads call contains, writes delete the key if it is in the tree and add it
+ * otherwise, so the tree size stays around its initial value.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MixedWorkloadBenchmark {
+
+	/* The number of pre-generated operations, a power of 2 */
+	private static final int OPERATIONS = 1 << 16;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The initial number of keys in the tree. */
+	@Param({"1000", "100000", "1000000", "10000000"})
+	public int size;
+
+	/** The percentage of the operations that are reads. */
+	@Param({"50", "90", "99"})
+	public int readPercent;
+
+	/** The order in which the keys are inserted into the tree. */
+	@Param({"SEQUENTIAL", "RANDOM"})
+	public KeyDistribution distribution;
+
+	/* The tree under test */
+	private AvlTree tree;
+
+	/* The key of every operation, and whether it is a read */
+	private int[] opKeys;
+	private boolean[] opIsRead;
+
+	/* The position in the operation arrays */
+	private int next;
+
+	/**
+	 * Builds the tree and generates the operations.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		tree = new AvlTree();
+		for (int key : distribution.keys(size, SEED)){
+			tree.add(key);
+		}
+		Random random = new Random(SEED + 1);
+		opKeys = new int[OPERATIONS];
+		opIsRead = new boolean[OPERATIONS];
+		for (int i = 0; i < OPERATIONS; i++){
+			opKeys[i] = random.nextInt(2 * size);
+			opIsRead[i] = random.nextInt(100) < readPercent;
+		}
+	}
+
+	/**
+	 * Performs the next operation of the workload.
+	 * @return the result of the operation.
+	 */
+	@Benchmark
+	public int operation(){
+		int current = next;
+		next = (current + 1) & (OPERATIONS - 1);
+		int key = opKeys[current];
+		if (opIsRead[current]){
+			return tree.contains(key);
+		}
+		if (tree.delete(key)){
+			return 0;
+		}
+		return tree.add(key) ? 1 : -1;
+	}
+}
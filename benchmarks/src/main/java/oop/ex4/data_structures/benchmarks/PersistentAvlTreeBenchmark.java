@@ -0,0 +1,139 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import oop.ex4.data_structures.PersistentAvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded benchmarks of PersistentAvlTree: lookups, new versions made by add and delete (each one
+ * from the same base version, so the tree size stays fixed), iteration, and a snapshot followed by a change,
+ * which is O(logn) for the persistent tree and a copy of the whole tree for AvlTree.snapshot().
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PersistentAvlTreeBenchmark {
+
+	/* The number of probe keys cycled through by the lookup and update benchmarks, a power of 2 */
+	private static final int PROBES = 1 << 16;
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the tree. */
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	/* The trees under test */
+	private PersistentAvlTree tree;
+	private AvlTree mutableTree;
+
+	/* Keys that are in the tree and keys that are not, in random order */
+	private int[] hits, misses;
+
+	/* The position in the probe arrays */
+	private int next;
+
+	/**
+	 * Builds the trees by adding random keys one by one.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		tree = PersistentAvlTree.empty();
+		mutableTree = new AvlTree();
+		for (int key : KeyDistribution.RANDOM.keys(size, SEED)){
+			tree = tree.add(key);
+			mutableTree.add(key);
+		}
+		hits = KeyDistribution.probes(size, PROBES, true, SEED + 1);
+		misses = KeyDistribution.probes(size, PROBES, false, SEED + 2);
+	}
+
+	/*
+	 * @return the index of the next probe key.
+	 */
+	private int nextProbe(){
+		int current = next;
+		next = (current + 1) & (PROBES - 1);
+		return current;
+	}
+
+	/**
+	 * Looks up a key that is in the tree.
+	 * @return the key's depth.
+	 */
+	@Benchmark
+	public int containsHit(){
+		return tree.contains(hits[nextProbe()]);
+	}
+
+	/**
+	 * Looks up a key that is not in the tree.
+	 * @return -1.
+	 */
+	@Benchmark
+	public int containsMiss(){
+		return tree.contains(misses[nextProbe()]);
+	}
+
+	/**
+	 * Makes a new version with a missing key added.
+	 * @return the new version.
+	 */
+	@Benchmark
+	public PersistentAvlTree add(){
+		return tree.add(misses[nextProbe()]);
+	}
+
+	/**
+	 * Makes a new version with a key of the tree deleted.
+	 * @return the new version.
+	 */
+	@Benchmark
+	public PersistentAvlTree delete(){
+		return tree.delete(hits[nextProbe()]);
+	}
+
+	/**
+	 * Iterates over the whole tree in ascending order with the primitive iterator.
+	 * @return the sum of the keys.
+	 */
+	@Benchmark
+	public long iterateInt(){
+		long sum = 0;
+		PrimitiveIterator.OfInt iterator = tree.intIterator();
+		while (iterator.hasNext()){
+			sum += iterator.nextInt();
+		}
+		return sum;
+	}
+
+	/**
+	 * Keeps a snapshot of the AvlTree and changes the tree, which copies its nodes.
+	 * @return the snapshot.
+	 */
+	@Benchmark
+	public AvlTree mutableSnapshotThenAdd(){
+		AvlTree snapshot = mutableTree.snapshot();
+		snapshot.add(misses[nextProbe()]);
+		return snapshot;
+	}
+}
@@ -0,0 +1,115 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import oop.ex4.data_structures.AvlTreeSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of AvlTreeSerializer: writing a tree to a file and loading it back, against rebuilding the
+ * tree by adding the keys one by one (the way a tree was restored before). Dense keys take about one byte
+ * each on the disk and random ones about four.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SerializationBenchmark {
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the tree. */
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	/** Whether the keys are dense (0, 2, 4, ...) or spread over the whole int range. */
+	@Param({"true", "false"})
+	public boolean dense;
+
+	/* The keys, in random order */
+	private int[] keys;
+
+	/* The tree that is written */
+	private AvlTree tree;
+
+	/* The file the tree is written to and read from */
+	private Path file;
+
+	/**
+	 * Builds the tree and writes it once, so the read benchmark has a file to read.
+	 * @throws IOException if the file can't be written.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		keys = KeyDistribution.RANDOM.keys(size, SEED);
+		if (!dense){
+			for (int i = 0; i < keys.length; i++){
+				keys[i] *= 997;
+			}
+		}
+		tree = new AvlTree(keys);
+		file = Files.createTempFile("avl-benchmark", ".bin");
+		AvlTreeSerializer.write(tree, file);
+	}
+
+	/**
+	 * Deletes the file.
+	 * @throws IOException if the file can't be deleted.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Writes the tree to the file (including forcing it to the disk).
+	 * @throws IOException if the file can't be written.
+	 */
+	@Benchmark
+	public void write() throws IOException {
+		AvlTreeSerializer.write(tree, file);
+	}
+
+	/**
+	 * Loads the tree from the file.
+	 * @return the loaded tree.
+	 * @throws IOException if the file can't be read.
+	 */
+	@Benchmark
+	public AvlTree read() throws IOException {
+		return AvlTreeSerializer.read(file);
+	}
+
+	/**
+	 * Rebuilds the tree by adding the keys one by one.
+	 * @return the rebuilt tree.
+	 */
+	@Benchmark
+	public AvlTree replayAdds(){
+		AvlTree replayed = new AvlTree();
+		for (int key : keys){
+			replayed.add(key);
+		}
+		return replayed;
+	}
+}
@@ -0,0 +1,146 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the join-based union and intersection, sequential and parallel, against merging the
+ * trees value by value (adding each value of the smaller tree to the larger one, or looking each one up).
+ * The larger tree has 1M random keys and the smaller one 1K to 1M, half of them shared with the larger
+ * tree. The set operations consume their inputs, so every invocation works on fresh copies of the trees
+ * (made outside the measurement).
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SetAlgebraBenchmark {
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the larger tree. */
+	@Param({"1000000"})
+	public int size;
+
+	/** The number of keys in the smaller tree. */
+	@Param({"1000", "100000", "1000000"})
+	public int otherSize;
+
+	/* The trees every invocation starts from */
+	private AvlTree baseLarge, baseSmall;
+
+	/* The trees under test, fresh copies of the bases */
+	private AvlTree large, small;
+
+	/**
+	 * Builds the larger tree from random keys, and the smaller one from half keys of the larger tree and
+	 * half keys that are not in it.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		baseLarge = new AvlTree(KeyDistribution.RANDOM.keys(size, SEED));
+		int[] hits = KeyDistribution.probes(size, otherSize / 2, true, SEED + 1);
+		int[] misses = KeyDistribution.probes(size, otherSize - otherSize / 2, false, SEED + 2);
+		baseSmall = new AvlTree(hits);
+		for (int key : misses){
+			baseSmall.add(key);
+		}
+	}
+
+	/**
+	 * Copies the base trees, so every invocation starts from the same inputs.
+	 */
+	@Setup(Level.Invocation)
+	public void copyTrees(){
+		large = new AvlTree(baseLarge);
+		small = new AvlTree(baseSmall);
+	}
+
+	/**
+	 * The join-based union.
+	 * @return the union.
+	 */
+	@Benchmark
+	public AvlTree union(){
+		large.union(small);
+		return large;
+	}
+
+	/**
+	 * The join-based union, computed in parallel.
+	 * @return the union.
+	 */
+	@Benchmark
+	public AvlTree unionParallel(){
+		large.union(small, true);
+		return large;
+	}
+
+	/**
+	 * Adds the values of the smaller tree to the larger one by one.
+	 * @return the union.
+	 */
+	@Benchmark
+	public AvlTree unionByAdding(){
+		PrimitiveIterator.OfInt iterator = small.intIterator();
+		while (iterator.hasNext()){
+			large.add(iterator.nextInt());
+		}
+		return large;
+	}
+
+	/**
+	 * The join-based intersection.
+	 * @return the intersection.
+	 */
+	@Benchmark
+	public AvlTree intersection(){
+		large.intersection(small);
+		return large;
+	}
+
+	/**
+	 * The join-based intersection, computed in parallel.
+	 * @return the intersection.
+	 */
+	@Benchmark
+	public AvlTree intersectionParallel(){
+		large.intersection(small, true);
+		return large;
+	}
+
+	/**
+	 * Looks up the values of the smaller tree in the larger one, and builds a tree of those found.
+	 * @return the intersection.
+	 */
+	@Benchmark
+	public AvlTree intersectionByLookup(){
+		AvlTree result = new AvlTree();
+		PrimitiveIterator.OfInt iterator = small.intIterator();
+		while (iterator.hasNext()){
+			int key = iterator.nextInt();
+			if (large.contains(key) >= 0){
+				result.add(key);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,101 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.ConcurrentAvlTree;
+import oop.ex4.data_structures.ShardedAvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput of ShardedAvlTree against ConcurrentAvlTree, whose writers all take one lock: every
+ * thread deletes a random key in twice the tree's key range if it is in the tree and adds it otherwise, so
+ * the size stays around its initial value. Reported for one writer and for a group of 4 writers; run with
+ * -tg to change the group's size, for example "-tg 8" on an 8 core machine, and -p shards to match it.
+ * @author shaharna13
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ShardedAvlTreeBenchmark {
+
+	/** The initial number of keys in the tree. */
+	@Param({"1000000"})
+	public int size;
+
+	/** The number of shards of the sharded tree. */
+	@Param({"16"})
+	public int shards;
+
+	/** Whether the writers share a ShardedAvlTree, or a ConcurrentAvlTree. */
+	@Param({"true", "false"})
+	public boolean sharded;
+
+	/* The trees under test, one of them used */
+	private ShardedAvlTree shardedTree;
+	private ConcurrentAvlTree concurrentTree;
+
+	/**
+	 * Builds the tree from the even keys below 2 * size.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		int[] keys = KeyDistribution.RANDOM.keys(size, 42);
+		if (sharded){
+			shardedTree = new ShardedAvlTree(shards, keys);
+		}
+		else {
+			concurrentTree = new ConcurrentAvlTree(keys);
+		}
+	}
+
+	/*
+	 * Deletes a random key in twice the range of the tree's keys if it is in the tree, and adds it
+	 * otherwise.
+	 */
+	private boolean churn(){
+		int key = ThreadLocalRandom.current().nextInt(2 * size);
+		if (sharded){
+			return shardedTree.delete(key) || !shardedTree.add(key);
+		}
+		return concurrentTree.delete(key) || !concurrentTree.add(key);
+	}
+
+	/**
+	 * One writer.
+	 * @return whether the key was deleted.
+	 */
+	@Benchmark
+	@Group("singleWriter")
+	@GroupThreads(1)
+	public boolean singleWriter(){
+		return churn();
+	}
+
+	/**
+	 * One of a group of concurrent writers.
+	 * @return whether the key was deleted.
+	 */
+	@Benchmark
+	@Group("writers")
+	@GroupThreads(4)
+	public boolean writer(){
+		return churn();
+	}
+}
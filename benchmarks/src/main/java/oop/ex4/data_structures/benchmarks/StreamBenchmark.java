@@ -0,0 +1,120 @@
+package oop.ex4.data_structures.benchmarks;
+
+import oop.ex4.data_structures.AvlTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.PrimitiveIterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Full scans of an AvlTree: a sum and a filtered count, with the primitive iterator, with the tree's
+ * sequential and parallel streams, and with a parallel stream over the iterator (what stream() was before
+ * the tree had its own spliterator), which can only split by copying batches of values into arrays.
+ * @author shaharna13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class StreamBenchmark {
+
+	/* The seed used for all the random choices, so runs are comparable */
+	private static final long SEED = 42;
+
+	/** The number of keys in the tree. */
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	/* The tree under test */
+	private AvlTree tree;
+
+	/**
+	 * Builds the tree from random keys.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		tree = new AvlTree(KeyDistribution.RANDOM.keys(size, SEED));
+	}
+
+	/*
+	 * @return a stream over the tree's iterator, with its size.
+	 */
+	private IntStream iteratorStream(boolean parallel){
+		return StreamSupport.intStream(Spliterators.spliterator(tree.intIterator(), tree.size(), 0), parallel);
+	}
+
+	/**
+	 * Sums the keys with the primitive iterator.
+	 * @return the sum.
+	 */
+	@Benchmark
+	public long sumIterator(){
+		long sum = 0;
+		PrimitiveIterator.OfInt iterator = tree.intIterator();
+		while (iterator.hasNext()){
+			sum += iterator.nextInt();
+		}
+		return sum;
+	}
+
+	/**
+	 * Sums the keys with the tree's sequential stream.
+	 * @return the sum.
+	 */
+	@Benchmark
+	public long sumStream(){
+		return tree.stream().asLongStream().sum();
+	}
+
+	/**
+	 * Sums the keys with the tree's parallel stream.
+	 * @return the sum.
+	 */
+	@Benchmark
+	public long sumParallelStream(){
+		return tree.stream().parallel().asLongStream().sum();
+	}
+
+	/**
+	 * Sums the keys with a parallel stream over the iterator.
+	 * @return the sum.
+	 */
+	@Benchmark
+	public long sumParallelIteratorStream(){
+		return iteratorStream(true).asLongStream().sum();
+	}
+
+	/**
+	 * Counts the keys divisible by 3 with the tree's parallel stream.
+	 * @return the count.
+	 */
+	@Benchmark
+	public long filterCountParallelStream(){
+		return tree.stream().parallel().filter(key -> key % 3 == 0).count();
+	}
+
+	/**
+	 * Counts the keys divisible by 3 with a parallel stream over the iterator.
+	 * @return the count.
+	 */
+	@Benchmark
+	public long filterCountParallelIteratorStream(){
+		return iteratorStream(true).filter(key -> key % 3 == 0).count();
+	}
+}
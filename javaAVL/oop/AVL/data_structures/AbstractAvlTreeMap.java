@@ -0,0 +1,82 @@
+package oop.ex4.data_structures;
+
+/**
+ * The code shared by the ordered maps built on AvlTree: the keys are the tree's values, and each key's node
+ * is an entry that also holds the key's value. The subclasses define the entries (and so the type of the
+ * values) and the public get, put and remove of their value type; the searches for an entry, the adding and
+ * removing of entries and the copying of shared entries before a write are here.
+ * @param <E> the type of the map's entries.
+ * @author shaharna13
+ */
+abstract class AbstractAvlTreeMap<E extends Node> extends AvlTree {
+
+	/*
+	 * Creates an empty map.
+	 */
+	AbstractAvlTreeMap(){
+		super();
+	}
+
+	/*
+	 * A copy constructor that creates a deep copy of the given map, in the same structure.
+	 */
+	AbstractAvlTreeMap(AbstractAvlTreeMap<E> map){
+		super(map);
+	}
+
+	/*
+	 * Creates the entry of a new key, with the value of a key that was added by add(key).
+	 */
+	@Override
+	abstract E createNode(int data);
+
+	/**
+	 * Checks whether the given key is in the map.
+	 * @param key the key to look up.
+	 * @return true if the key is in the map, false otherwise.
+	 */
+	public boolean containsKey(int key){
+		return getNode(key) != null;
+	}
+
+	/*
+	 * @return the entry of the given key, or null if the key is not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	E getEntry(int key){
+		return (E) getNode(key);
+	}
+
+	/*
+	 * Returns the entry of the given key, after making sure its node is not shared with a snapshot (so its
+	 * value can be changed).
+	 * @return the key's entry, or null if the key is not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	E entryForWrite(int key){
+		Node node = getNode(key);
+		if (node != null && ensureExclusiveNodes()){
+			node = getNode(key);
+		}
+		return (E) node;
+	}
+
+	/*
+	 * Adds an entry for a key that is not in the map.
+	 * @return the new entry, with the value createNode gave it.
+	 */
+	@SuppressWarnings("unchecked")
+	E addEntry(int key){
+		return (E) addNode(key);
+	}
+
+	/*
+	 * Removes the given key from the map with a single search. The removed entry keeps its value, so the
+	 * caller can return it.
+	 * @return the removed entry, or null if the key was not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	E removeEntry(int key){
+		return (E) removeNode(key);
+	}
+}
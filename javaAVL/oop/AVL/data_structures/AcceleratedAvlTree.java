@@ -0,0 +1,476 @@
+package oop.ex4.data_structures;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * An AVL tree of int values with two filters in front of contains, for workloads that are mostly lookups.
+ * The values are kept in an AvlTree, so add and delete cost the same as the tree's, plus O(1).
+ * - A blocked Bloom filter of the values answers most lookups of missing values without touching the tree.
+ *   Added values are added to the filter. Deleted values can't be removed from a Bloom filter, so after
+ *   enough deletions (or when the tree outgrows the filter) the filter is rebuilt from the tree, in O(n).
+ * - A small CLOCK cache remembers the depth of recently found values. The depths move whenever the tree's
+ *   structure changes, so every add or delete that changes the tree invalidates the whole cache in O(1);
+ *   the cache pays off between writes.
+ * A lookup of a value that is in the tree but not in the cache pays for reading the filter and the cache on
+ * top of the search, so the filters suit workloads of mostly missing values or mostly hot values. The
+ * counters of each path (getFilterRejections, getCacheHits and so on) show how well they fit the workload.
+ * The tree is not thread safe.
+ * @author shaharna13
+ */
+public class AcceleratedAvlTree implements Iterable<Integer> {
+
+	/* Flag for the default value */
+	private static final int DEFAULT_RETURN_VALUE = -1;
+
+	/* The default size of the Bloom filter, in bits per value; about 1% false positives when it is full */
+	private static final int DEFAULT_BITS_PER_VALUE = 10;
+
+	/* The default number of values the cache holds */
+	private static final int DEFAULT_CACHE_SIZE = 1024;
+
+	/* The filter is sized for this many times the values it is built from, leaving room for growth */
+	private static final int FILTER_HEADROOM = 2;
+
+	/* The filter is rebuilt after deletions of 1/STALE_FRACTION of the values it was sized for */
+	private static final int STALE_FRACTION = 4;
+
+	/* The least number of values a filter is sized for */
+	private static final int MIN_FILTER_VALUES = 1 << 10;
+
+	/* The values */
+	private final AvlTree tree;
+
+	/* The filter's size in bits per value */
+	private final int bitsPerValue;
+
+	/* The filter of the tree's values, and the number of values it was sized for */
+	private BloomFilter filter;
+	private int filterCapacity;
+
+	/* The number of values deleted since the filter was built */
+	private int deletionsSinceRebuild;
+
+	/* The depths of recently found values */
+	private final DepthCache cache;
+
+	/* The counters of the lookup paths */
+	private long lookups, filterRejections, filterFalsePositives, cacheHits, cacheMisses, filterRebuilds;
+
+	/**
+	 * The default constructor, creates an empty tree with a filter of 10 bits per value and a cache of 1024
+	 * values.
+	 */
+	public AcceleratedAvlTree(){
+		this(new AvlTree(), DEFAULT_BITS_PER_VALUE, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * A constructor that builds the tree from the elements in the input array, like AvlTree(int[]).
+	 * @param data values to add to tree
+	 */
+	public AcceleratedAvlTree(int[] data){
+		this(new AvlTree(data), DEFAULT_BITS_PER_VALUE, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * A constructor that puts the filter and the cache in front of the given tree. From now on the tree must
+	 * only be changed through this object, or the filter would miss the values added to the tree directly.
+	 * @param tree the tree to accelerate.
+	 * @param bitsPerValue the size of the Bloom filter, in bits per value (when the tree fills the filter,
+	 * 10 give about 1% false positives and 15 about 0.1%; the filter is sized for twice the values it is
+	 * built from, so until the tree grows it does better).
+	 * @param cacheSize the number of found values whose depths the cache holds, 0 for no cache.
+	 * @throws IllegalArgumentException if bitsPerValue is not positive or cacheSize is negative.
+	 */
+	public AcceleratedAvlTree(AvlTree tree, int bitsPerValue, int cacheSize){
+		if (bitsPerValue <= 0){
+			throw new IllegalArgumentException("bitsPerValue must be positive: " + bitsPerValue);
+		}
+		if (cacheSize < 0){
+			throw new IllegalArgumentException("cacheSize can't be negative: " + cacheSize);
+		}
+		this.tree = tree;
+		this.bitsPerValue = bitsPerValue;
+		this.cache = new DepthCache(cacheSize);
+		rebuildFilter();
+	}
+
+	/*
+	 * Builds a new filter from the tree's values, sized for the tree to double.
+	 */
+	private void rebuildFilter(){
+		filterCapacity = Math.max(MIN_FILTER_VALUES, (int) Math.min(Integer.MAX_VALUE / 2,
+				(long) tree.size() * FILTER_HEADROOM));
+		BloomFilter newFilter = new BloomFilter((long) filterCapacity * bitsPerValue);
+		tree.forEachInt(newFilter::add);
+		filter = newFilter;
+		deletionsSinceRebuild = 0;
+		filterRebuilds++;
+	}
+
+	/**
+	 * This function adds the data provided to the tree, if it's not already there.
+	 * @param data To add to the tree
+	 * @return True if add successful, False if the data was already in the tree.
+	 */
+	public boolean add(int data){
+		if (!tree.add(data)){
+			return false;
+		}
+		if (tree.size() > filterCapacity){
+			rebuildFilter();
+		}
+		else {
+			filter.add(data);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the given value from the tree, if it is there.
+	 * @param toDelete the value to remove.
+	 * @return true if the value was in the tree and was removed.
+	 */
+	public boolean delete(int toDelete){
+		if (!tree.delete(toDelete)){
+			return false;
+		}
+		deletionsSinceRebuild++;
+		if (deletionsSinceRebuild >= filterCapacity / STALE_FRACTION){
+			rebuildFilter();
+		}
+		return true;
+	}
+
+	/**
+	 * Check whether the tree contains the given input value. A value the filter rules out is answered in
+	 * O(1), and so is a value whose depth is in the cache; other values are searched in the tree.
+	 * @param searchVal value to search for
+	 * @return if val is found in the tree, return the depth of the node (0 for the root) with the given
+	 * value if it was found in the tree, -1 otherwise
+	 */
+	public int contains(int searchVal){
+		lookups++;
+		if (!filter.mightContain(searchVal)){
+			filterRejections++;
+			return DEFAULT_RETURN_VALUE;
+		}
+		int version = tree.modCount;
+		int depth = cache.get(searchVal, version);
+		if (depth != DEFAULT_RETURN_VALUE){
+			cacheHits++;
+			return depth;
+		}
+		depth = tree.contains(searchVal);
+		if (depth == DEFAULT_RETURN_VALUE){
+			filterFalsePositives++;
+		}
+		else {
+			cacheMisses++;
+			cache.put(searchVal, depth, version);
+		}
+		return depth;
+	}
+
+	/**
+	 * Get the tree size
+	 * @return The number of values in the tree
+	 */
+	public int size(){
+		return tree.size();
+	}
+
+	/**
+	 * Returns an iterator over the tree's values in ascending order. The returned iterator does NOT
+	 * implement the remove() method.
+	 * @return an iterator for the tree.
+	 */
+	@Override
+	public Iterator<Integer> iterator(){
+		return tree.iterator();
+	}
+
+	/**
+	 * Returns a primitive iterator over the tree's values in ascending order.
+	 * @return a primitive iterator over the tree's values.
+	 */
+	public PrimitiveIterator.OfInt intIterator(){
+		return tree.intIterator();
+	}
+
+	/**
+	 * Performs the given action on each of the tree's values, in ascending order, without boxing them.
+	 * @param action the action to perform on each value.
+	 */
+	public void forEachInt(IntConsumer action){
+		tree.forEachInt(action);
+	}
+
+	/**
+	 * Returns a sequential stream of the tree's values in ascending order.
+	 * @return an IntStream of the tree's values.
+	 */
+	public IntStream stream(){
+		return tree.stream();
+	}
+
+	/**
+	 * @return the number of calls to contains.
+	 */
+	public long getLookups(){
+		return lookups;
+	}
+
+	/**
+	 * @return the number of lookups the filter answered: values that are certainly not in the tree.
+	 */
+	public long getFilterRejections(){
+		return filterRejections;
+	}
+
+	/**
+	 * @return the number of lookups the filter let through that were not in the tree after all.
+	 */
+	public long getFilterFalsePositives(){
+		return filterFalsePositives;
+	}
+
+	/**
+	 * @return the number of lookups the cache answered.
+	 */
+	public long getCacheHits(){
+		return cacheHits;
+	}
+
+	/**
+	 * @return the number of lookups of values in the tree that were not in the cache.
+	 */
+	public long getCacheMisses(){
+		return cacheMisses;
+	}
+
+	/**
+	 * @return the number of times the filter was built, including the first one.
+	 */
+	public long getFilterRebuilds(){
+		return filterRebuilds;
+	}
+
+	/**
+	 * @return the share of the missing values the filter let through, between 0 and 1.
+	 */
+	public double getFilterFalsePositiveRate(){
+		long negatives = filterRejections + filterFalsePositives;
+		return negatives == 0 ? 0 : (double) filterFalsePositives / negatives;
+	}
+
+	/**
+	 * @return the share of the lookups of values in the tree that the cache answered, between 0 and 1.
+	 */
+	public double getCacheHitRate(){
+		long positives = cacheHits + cacheMisses;
+		return positives == 0 ? 0 : (double) cacheHits / positives;
+	}
+
+	/**
+	 * Sets all the lookup counters back to zero.
+	 */
+	public void resetStatistics(){
+		lookups = filterRejections = filterFalsePositives = cacheHits = cacheMisses = filterRebuilds = 0;
+	}
+
+	/*
+	 * @return the given value's bits, mixed so that every bit of the result depends on all of them.
+	 */
+	private static long hash(int data){
+		long hash = data * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 29);
+	}
+
+	/*
+	 * A split block Bloom filter: every value sets one bit in each of the 8 longs of one 64 byte block, so
+	 * adding or testing a value touches a single cache line. The high half of the value's hash picks the
+	 * block (scaled to the number of blocks by a multiplication rather than a division), and its low half,
+	 * multiplied by a different odd constant for each long, picks the bits.
+	 */
+	private static final class BloomFilter {
+
+		/* The number of longs in a block */
+		private static final int BLOCK_LONGS = 8;
+
+		/* The bits of a block */
+		private static final int BLOCK_BITS = BLOCK_LONGS * Long.SIZE;
+
+		/* The most blocks a filter has: 1GB */
+		private static final long MAX_BLOCKS = 1 << 24;
+
+		/* The multipliers that pick a value's bit in each long of its block */
+		private static final int[] SALTS = {0x47B6137B, 0x44974D91, 0x8824AD5B, 0xA2B7289D, 0x705495C7,
+				0x2DF1424B, 0x9EFC4947, 0x5C6BFB31};
+
+		/* The blocks, one after the other */
+		private final long[] bits;
+
+		/* The number of blocks */
+		private final long blockCount;
+
+		/*
+		 * Creates an empty filter of at least the given number of bits.
+		 */
+		BloomFilter(long minBits){
+			blockCount = Math.min(Math.max(1, (minBits + BLOCK_BITS - 1) / BLOCK_BITS), MAX_BLOCKS);
+			bits = new long[(int) blockCount * BLOCK_LONGS];
+		}
+
+		/*
+		 * @return the index of the first long of the block of the value with the given hash.
+		 */
+		private int blockStart(long hash){
+			return (int) (((hash >>> 32) * blockCount) >>> 32) * BLOCK_LONGS;
+		}
+
+		/*
+		 * Adds the given value.
+		 */
+		void add(int data){
+			long hash = hash(data);
+			int block = blockStart(hash);
+			int key = (int) hash;
+			for (int i = 0; i < BLOCK_LONGS; i++){
+				bits[block + i] |= 1L << ((key * SALTS[i]) >>> 26);
+			}
+		}
+
+		/*
+		 * @return false if the given value was certainly not added, true if it may have been.
+		 */
+		boolean mightContain(int data){
+			long hash = hash(data);
+			int block = blockStart(hash);
+			int key = (int) hash;
+			for (int i = 0; i < BLOCK_LONGS; i++){
+				if ((bits[block + i] & (1L << ((key * SALTS[i]) >>> 26))) == 0){
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/*
+	 * A 4-way set associative cache of the depths of values. A value can only be in the 4 slots of the set
+	 * its hash picks, so a lookup reads 4 adjacent slots. Every entry holds the tree's modCount from when it
+	 * was stored, and is only valid while the tree still has the same one. A full set evicts by CLOCK: its
+	 * hand passes over the referenced slots, clearing their reference bits, and evicts the first slot that
+	 * was not referenced since the hand last passed it.
+	 */
+	private static final class DepthCache {
+
+		/* The number of slots in a set */
+		private static final int WAYS = 4;
+
+		/* The stamp of an empty slot; a modCount converted to a stamp is never negative */
+		private static final long EMPTY = -1;
+
+		/* The slots' values, depths and stamps (the modCount they were stored at) */
+		private final int[] values;
+		private final int[] depths;
+		private final long[] stamps;
+
+		/* The slots' CLOCK reference bits */
+		private final boolean[] referenced;
+
+		/* The CLOCK hand of each set: the next slot of the set to consider for eviction */
+		private final byte[] hands;
+
+		/* The number of sets minus one; the number of sets is a power of 2 (or 0, for no cache) */
+		private final int setMask;
+
+		/*
+		 * Creates an empty cache of about the given number of slots, rounded up to whole sets.
+		 */
+		DepthCache(int capacity){
+			int sets = 0;
+			if (capacity > 0){
+				// The number of sets, rounded up to a power of 2.
+				sets = Integer.highestOneBit(((capacity + WAYS - 1) / WAYS) * 2 - 1);
+			}
+			values = new int[sets * WAYS];
+			depths = new int[sets * WAYS];
+			stamps = new long[sets * WAYS];
+			Arrays.fill(stamps, EMPTY);
+			referenced = new boolean[sets * WAYS];
+			hands = new byte[sets];
+			setMask = sets - 1;
+		}
+
+		/*
+		 * @return the given modCount as a stamp.
+		 */
+		private static long stamp(int version){
+			return Integer.toUnsignedLong(version);
+		}
+
+		/*
+		 * @return the index of the first slot of the given value's set.
+		 */
+		private int setStart(int data){
+			return ((int) hash(data) & setMask) * WAYS;
+		}
+
+		/*
+		 * @return the depth of the given value stored at the given version, or -1 if it isn't in the cache.
+		 */
+		int get(int data, int version){
+			if (values.length == 0){
+				return DEFAULT_RETURN_VALUE;
+			}
+			long stamp = stamp(version);
+			int start = setStart(data);
+			for (int slot = start; slot < start + WAYS; slot++){
+				if (stamps[slot] == stamp && values[slot] == data){
+					referenced[slot] = true;
+					return depths[slot];
+				}
+			}
+			return DEFAULT_RETURN_VALUE;
+		}
+
+		/*
+		 * Stores the depth of the given value at the given version, in a slot that is empty or stale, or
+		 * else in the slot that CLOCK evicts.
+		 */
+		void put(int data, int depth, int version){
+			if (values.length == 0){
+				return;
+			}
+			long stamp = stamp(version);
+			int start = setStart(data);
+			int slot = -1;
+			for (int i = start; i < start + WAYS; i++){
+				if (stamps[i] != stamp){
+					slot = i;
+					break;
+				}
+			}
+			if (slot < 0){
+				int set = start / WAYS;
+				int hand = hands[set];
+				while (referenced[start + hand]){
+					referenced[start + hand] = false;
+					hand = (hand + 1) % WAYS;
+				}
+				slot = start + hand;
+				hands[set] = (byte) ((hand + 1) % WAYS);
+			}
+			values[slot] = data;
+			depths[slot] = depth;
+			stamps[slot] = stamp;
+			referenced[slot] = false;
+		}
+	}
+}
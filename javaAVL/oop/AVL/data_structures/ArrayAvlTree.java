@@ -0,0 +1,146 @@
+package oop.ex4.data_structures;
+
+import java.util.Arrays;
+
+/**
+ * An AVL tree of int values that keeps its nodes in parallel arrays instead of Node objects.
+ * A node is an index into the arrays of keys, left children, right children, parents and heights; the
+ * slots of deleted nodes are kept in a free list and reused by the next insertions.
+ * A node costs 17 bytes (plus the unused capacity), instead of the 40 bytes of a Node object, and the GC has
+ * only five arrays to trace however large the tree is.
+ * The tree supports the same operations as AvlTree, with the same results.
+ * @author shaharna13
+ */
+public class ArrayAvlTree extends IndexedAvlTree {
+
+	/* The capacity of an empty tree */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/* The nodes' values */
+	private int[] keys;
+
+	/* The nodes' left children, right children and parents, NIL if there is none */
+	private int[] left;
+	private int[] right;
+	private int[] parent;
+
+	/* The nodes' heights. An AVL tree of 2^31 nodes is less than 45 levels high, so a byte is enough */
+	private byte[] heights;
+
+	/**
+	 * The default constructor.
+	 */
+	public ArrayAvlTree(){
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * A constructor that builds the tree from the elements in the input array in linear time (after sorting),
+	 * like AvlTree(int[]). The tree is a set, so values that appear more than once are added only once.
+	 * @param data values to add to tree
+	 */
+	public ArrayAvlTree(int[] data){
+		int[] sorted = data == null ? new int[0] : AvlTree.sortedDistinct(data);
+		allocate(Math.max(sorted.length, DEFAULT_CAPACITY));
+		load(sorted);
+	}
+
+	/**
+	 * A copy constructor, the copy has the same structure as the given tree. Copying the arrays is linear,
+	 * and much cheaper than copying a tree of objects.
+	 * @param tree The tree to be copied.
+	 */
+	public ArrayAvlTree(ArrayAvlTree tree){
+		keys = tree.keys.clone();
+		left = tree.left.clone();
+		right = tree.right.clone();
+		parent = tree.parent.clone();
+		heights = tree.heights.clone();
+		root = tree.root;
+		size = tree.size;
+		used = tree.used;
+		freeHead = tree.freeHead;
+	}
+
+	/*
+	 * Creates the arrays with the given capacity.
+	 */
+	private void allocate(int capacity){
+		keys = new int[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		parent = new int[capacity];
+		heights = new byte[capacity];
+	}
+
+	@Override
+	int getKey(int node){
+		return keys[node];
+	}
+
+	@Override
+	void setKey(int node, int key){
+		keys[node] = key;
+	}
+
+	@Override
+	int getLeft(int node){
+		return left[node];
+	}
+
+	@Override
+	void setLeft(int node, int leftChild){
+		left[node] = leftChild;
+	}
+
+	@Override
+	int getRight(int node){
+		return right[node];
+	}
+
+	@Override
+	void setRight(int node, int rightChild){
+		right[node] = rightChild;
+	}
+
+	@Override
+	int getParent(int node){
+		return parent[node];
+	}
+
+	@Override
+	void setParent(int node, int parentNode){
+		parent[node] = parentNode;
+	}
+
+	@Override
+	int getHeight(int node){
+		return heights[node];
+	}
+
+	@Override
+	void setHeight(int node, int height){
+		heights[node] = (byte) height;
+	}
+
+	@Override
+	int capacity(){
+		return keys.length;
+	}
+
+	/*
+	 * Grows the arrays by half, or to the given number of slots if that is more.
+	 */
+	@Override
+	void ensureCapacity(int slots){
+		if (slots <= keys.length){
+			return;
+		}
+		int capacity = Math.max(slots, keys.length + (keys.length >> 1) + 1);
+		keys = Arrays.copyOf(keys, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		heights = Arrays.copyOf(heights, capacity);
+	}
+}
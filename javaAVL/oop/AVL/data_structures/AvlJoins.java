@@ -0,0 +1,272 @@
+package oop.ex4.data_structures;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * Join-based algorithms on AVL sub trees (Blelloch, Ferizovic and Sun, "Just Join for Parallel Ordered
+ * Sets"). Everything is built on join(left, middle, right), which links two AVL trees and a node between
+ * them into one AVL tree in O(|height(left) - height(right)|) time, by walking down the spine of the higher
+ * tree and rotating on the way back up like an insertion does. split cuts a tree around a value with
+ * O(logn) joins, and union, intersection and difference split one tree by the root of the other and
+ * recurse on both halves, which costs O(m log(n/m + 1)) for trees of m <= n nodes: linear when the trees
+ * have similar sizes, logarithmic when one is small.
+ * The algorithms reuse the nodes they are given, relinking them and refreshing their cached height and
+ * size, so the input trees are consumed. They don't touch the parent of the root they return.
+ * @author shaharna13
+ */
+final class AvlJoins {
+
+	/* The set operations */
+	enum Operation {
+		UNION, INTERSECTION, DIFFERENCE
+	}
+
+	/* Sub problems smaller than this (in total nodes) are not forked in parallel mode */
+	private static final int PARALLEL_GRAIN = 1 << 13;
+
+	/* the height of an empty tree */
+	private static final int EMPTY_HEIGHT = -1;
+
+	private AvlJoins(){
+	}
+
+	/*
+	 * The result of a split: the trees of the values below and above the splitting value, and the node of
+	 * the value itself if it was in the tree.
+	 */
+	static final class Split {
+
+		/* The tree of the values below the splitting value */
+		final Node left;
+
+		/* The node of the splitting value, or null if it was not in the tree */
+		final Node found;
+
+		/* The tree of the values above the splitting value */
+		final Node right;
+
+		Split(Node left, Node found, Node right){
+			this.left = left;
+			this.found = found;
+			this.right = right;
+		}
+	}
+
+	/*
+	 * @return the height of the given sub tree, -1 for an empty one.
+	 */
+	private static int height(Node node){
+		return node == null ? EMPTY_HEIGHT : node.getHeight();
+	}
+
+	/*
+	 * @return the number of nodes in the given sub tree.
+	 */
+	private static int size(Node node){
+		return node == null ? 0 : node.size();
+	}
+
+	/*
+	 * Links the given children under the given node and refreshes its metadata.
+	 * @return the node.
+	 */
+	private static Node link(Node left, Node middle, Node right){
+		middle.setLeftChild(left);
+		middle.setRightChild(right);
+		middle.updateMetadata();
+		return middle;
+	}
+
+	/*
+	 * Rotates the given sub tree left: its right child becomes its root.
+	 * @return the new root of the sub tree.
+	 */
+	private static Node rotateLeft(Node node){
+		Node rChild = node.getRightChild();
+		link(node.getLeftChild(), node, rChild.getLeftChild());
+		return link(node, rChild, rChild.getRightChild());
+	}
+
+	/*
+	 * Rotates the given sub tree right: its left child becomes its root.
+	 * @return the new root of the sub tree.
+	 */
+	private static Node rotateRight(Node node){
+		Node lChild = node.getLeftChild();
+		link(lChild.getRightChild(), node, node.getRightChild());
+		return link(lChild.getLeftChild(), lChild, node);
+	}
+
+	/*
+	 * Joins two AVL trees and a node between them into one AVL tree. Every value of left must be smaller
+	 * than the middle node's, and every value of right greater.
+	 * @param left an AVL tree, may be null.
+	 * @param middle a node that is not linked to any tree.
+	 * @param right an AVL tree, may be null.
+	 * @return the root of the joined tree.
+	 */
+	static Node join(Node left, Node middle, Node right){
+		if (height(left) > height(right) + 1){
+			return joinRight(left, middle, right);
+		}
+		if (height(right) > height(left) + 1){
+			return joinLeft(left, middle, right);
+		}
+		return link(left, middle, right);
+	}
+
+	/*
+	 * Joins when left is higher than right by more than one: walks down left's right spine to a sub tree
+	 * that is no more than one level higher than right, links it there, and rebalances on the way back up.
+	 */
+	private static Node joinRight(Node left, Node middle, Node right){
+		Node leftOfLeft = left.getLeftChild();
+		Node rightOfLeft = left.getRightChild();
+		if (height(rightOfLeft) <= height(right) + 1){
+			Node joined = link(rightOfLeft, middle, right);
+			if (height(joined) <= height(leftOfLeft) + 1){
+				return link(leftOfLeft, left, joined);
+			}
+			// The joined sub tree is two levels higher than its sibling: a double rotation.
+			return rotateLeft(link(leftOfLeft, left, rotateRight(joined)));
+		}
+		Node joined = joinRight(rightOfLeft, middle, right);
+		Node result = link(leftOfLeft, left, joined);
+		if (height(joined) <= height(leftOfLeft) + 1){
+			return result;
+		}
+		return rotateLeft(result);
+	}
+
+	/*
+	 * The mirror image of joinRight, when right is higher than left by more than one.
+	 */
+	private static Node joinLeft(Node left, Node middle, Node right){
+		Node leftOfRight = right.getLeftChild();
+		Node rightOfRight = right.getRightChild();
+		if (height(leftOfRight) <= height(left) + 1){
+			Node joined = link(left, middle, leftOfRight);
+			if (height(joined) <= height(rightOfRight) + 1){
+				return link(joined, right, rightOfRight);
+			}
+			return rotateRight(link(rotateLeft(joined), right, rightOfRight));
+		}
+		Node joined = joinLeft(left, middle, leftOfRight);
+		Node result = link(joined, right, rightOfRight);
+		if (height(joined) <= height(rightOfRight) + 1){
+			return result;
+		}
+		return rotateRight(result);
+	}
+
+	/*
+	 * Joins two AVL trees, every value of left smaller than every value of right, by taking the maximum of
+	 * left out as the middle node.
+	 * @return the root of the joined tree.
+	 */
+	static Node join(Node left, Node right){
+		if (left == null){
+			return right;
+		}
+		if (right == null){
+			return left;
+		}
+		Node[] last = new Node[1];
+		Node rest = splitLast(left, last);
+		return join(rest, last[0], right);
+	}
+
+	/*
+	 * Takes the maximum node out of the given tree.
+	 * @param last receives the maximum node, unlinked.
+	 * @return the root of the tree without the maximum.
+	 */
+	private static Node splitLast(Node node, Node[] last){
+		Node rChild = node.getRightChild();
+		if (rChild == null){
+			last[0] = node;
+			return node.getLeftChild();
+		}
+		Node rest = splitLast(rChild, last);
+		return join(node.getLeftChild(), node, rest);
+	}
+
+	/*
+	 * Splits the given tree around the given value, with O(logn) joins along the search path.
+	 * @param node the root of the tree.
+	 * @param data the value to split by.
+	 * @return the trees of the values below and above data, and data's node if it was in the tree.
+	 */
+	static Split split(Node node, int data){
+		if (node == null){
+			return new Split(null, null, null);
+		}
+		Node lChild = node.getLeftChild();
+		Node rChild = node.getRightChild();
+		int nodeData = node.getData();
+		if (data == nodeData){
+			return new Split(lChild, node, rChild);
+		}
+		if (data < nodeData){
+			Split parts = split(lChild, data);
+			return new Split(parts.left, parts.found, join(parts.right, node, rChild));
+		}
+		Split parts = split(rChild, data);
+		return new Split(join(lChild, node, parts.left), parts.found, parts.right);
+	}
+
+	/*
+	 * Computes the given set operation of two trees. Where a value is in both trees, the node of the first
+	 * tree is kept.
+	 * @param operation the operation.
+	 * @param first the root of the first tree; for a difference, the tree whose values are kept.
+	 * @param second the root of the second tree.
+	 * @param parallel true to compute large sub problems in parallel, in the common ForkJoinPool.
+	 * @return the root of the result.
+	 */
+	static Node combine(Operation operation, Node first, Node second, boolean parallel){
+		if (parallel && size(first) + size(second) >= PARALLEL_GRAIN){
+			return ForkJoinPool.commonPool().invoke(
+					ForkJoinTask.adapt(() -> combineRecursive(operation, first, second, true)));
+		}
+		return combineRecursive(operation, first, second, false);
+	}
+
+	/*
+	 * The recursion of combine: splits the first tree by the root of the second, combines the two lower
+	 * halves and the two upper halves (the lower ones in a forked task when parallel), and joins the results
+	 * around the root's value if the operation keeps it.
+	 */
+	private static Node combineRecursive(Operation operation, Node first, Node second, boolean parallel){
+		if (first == null){
+			return operation == Operation.UNION ? second : null;
+		}
+		if (second == null){
+			return operation == Operation.INTERSECTION ? null : first;
+		}
+		Node secondLeft = second.getLeftChild();
+		Node secondRight = second.getRightChild();
+		Split parts = split(first, second.getData());
+		Node left, right;
+		if (parallel && size(parts.left) + size(secondLeft) >= PARALLEL_GRAIN
+				&& size(parts.right) + size(secondRight) >= PARALLEL_GRAIN){
+			ForkJoinTask<Node> leftTask = ForkJoinTask.adapt(
+					() -> combineRecursive(operation, parts.left, secondLeft, true)).fork();
+			right = combineRecursive(operation, parts.right, secondRight, true);
+			left = leftTask.join();
+		}
+		else {
+			left = combineRecursive(operation, parts.left, secondLeft, parallel);
+			right = combineRecursive(operation, parts.right, secondRight, parallel);
+		}
+		switch (operation){
+			case UNION:
+				return join(left, parts.found != null ? parts.found : second, right);
+			case INTERSECTION:
+				return parts.found != null ? join(left, parts.found, right) : join(left, right);
+			default:
+				return join(left, right);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package oop.ex4.data_structures;
+
+/*
+ * Balances an AvlTree by the AVL rule: the heights of the two sub trees of every node differ by at most one.
+ * The balance is computed from the heights the nodes cache anyway, so the nodes' ranks are not used.
+ * @author shaharna13
+ */
+class AvlRebalancer extends Rebalancer {
+
+	/* All the indication flags needed for the different balance violations */
+	private enum Violation {
+		LL, LR, RR, RL, NONE
+	}
+
+	AvlRebalancer(AvlTree tree){
+		super(tree);
+	}
+
+	@Override
+	void inserted(Node node){
+		// The new node's own height and size are up to date, the balancing starts from its parent.
+		Node parent = node.getParent();
+		if (parent != null){
+			balanceTree(parent);
+		}
+	}
+
+	@Override
+	void removed(Node parent, boolean leftSide, int removedRank){
+		if (parent != null){
+			balanceTree(parent);
+		}
+	}
+
+	/*
+	 * This function receives the lowest node whose sub tree was changed and goes up to the root. As it goes
+	 * up it refreshes the cached height and size of every node, checks for unbalanced heights, and rotates
+	 * the nodes when needed. Once the height of a sub tree is the same as before the change, nothing above
+	 * it can be unbalanced, so only the sizes are refreshed for the rest of the way.
+	 * @param node The node from which the tree is potentially unbalanced.
+	 */
+	private void balanceTree(Node node){
+		Node curNode = node;
+		int pathLength = 0;
+		while (curNode != null){
+			if (AvlTreeListener.METRICS_ENABLED){
+				pathLength++;
+			}
+			int oldHeight = curNode.getHeight();
+			curNode.updateMetadata();
+			// Check what is the balance case sub-tree rooted under the node.
+			Violation balanceCase = getBalanceCase(curNode);
+			Node toRotate;
+			switch (balanceCase){
+				case LR:
+					toRotate = curNode.getLeftChild().getRightChild();
+					rotateUpTwice(toRotate);
+					break;
+				case RL:
+					toRotate = curNode.getRightChild().getLeftChild();
+					rotateUpTwice(toRotate);
+					break;
+				case LL:
+					toRotate = curNode.getLeftChild();
+					rotateUp(toRotate);
+					break;
+				case RR:
+					toRotate = curNode.getRightChild();
+					rotateUp(toRotate);
+					break;
+				default:
+					// default case - no balance needed
+					toRotate = curNode;
+					break;
+				}
+			if (balanceCase != Violation.NONE){
+				reportRotation(balanceCase == Violation.LL || balanceCase == Violation.LR,
+						balanceCase == Violation.LR || balanceCase == Violation.RL);
+			}
+			// toRotate is now the root of the sub tree that curNode used to root.
+			if (toRotate.getHeight() == oldHeight){
+				updateSizes(toRotate.getParent());
+				break;
+			}
+			// Move up the tree towards the root node.
+			curNode = toRotate.getParent();
+		}
+		reportWalk(pathLength);
+	}
+
+	/*
+	 * This function refreshes the cached sub tree size of the given node and all of its ancestors.
+	 * @param node The lowest node whose size may have changed.
+	 */
+	private static void updateSizes(Node node){
+		Node curNode = node;
+		while (curNode != null){
+			curNode.updateSize();
+			curNode = curNode.getParent();
+		}
+	}
+
+	/*
+	 * This function finds the correct unbalance case: LL, LR, RL, RR, if there is one
+	 * @param curNode The node from which to check
+	 * @return the balance case found: LL, RR, LR, RL, or no balance needed.
+	 */
+	private static Violation getBalanceCase(Node curNode) {
+		int nodeBalance = getBalance(curNode);
+		int rCBalance = getBalance(curNode.getRightChild());
+		int lCBalance = getBalance(curNode.getLeftChild());
+
+		if (nodeBalance == -2 && (lCBalance == 0 || lCBalance == -1)){
+			return Violation.LL;
+		}
+		else if (nodeBalance == -2 && lCBalance == 1){
+			return Violation.LR;
+		}
+
+		if (nodeBalance == 2 && (rCBalance == 0 || rCBalance == 1)){
+			return Violation.RR;
+		}
+		else if (nodeBalance == 2 && rCBalance == -1){
+			return Violation.RL;
+		}
+		return Violation.NONE; //default
+	}
+
+	/*
+	 * Calculate the avl tree balance indicator for the node given.
+	 * The balance will be -1 when the leftChild tree is higher  than the rightChild height by 1
+	 * @return The balance of the current Node
+	 */
+	private static int getBalance(Node node) {
+		// Node is null, no balancing needed.
+		if (node == null){
+			return 0;
+		}
+		return height(node.getRightChild()) - height(node.getLeftChild());
+	}
+}
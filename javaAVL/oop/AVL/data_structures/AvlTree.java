@@ -1,5 +1,8 @@
 package oop.ex4.data_structures;
 
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
 /**
  * This class is the complete and tested implementation of an AVL-tree. A AVL-tree is a self-balancing binary
  * search tree.
@@ -9,6 +12,8 @@ package oop.ex4.data_structures;
  * in
  * the tree prior to the operation. Insertions and deletions may require the tree to be rebalanced by one or
  * more tree rotations.
+ * The rebalancing is pluggable: a tree created with AvlTree(BalancePolicy) can instead keep itself balanced
+ * as a weak AVL or a red-black tree, which rotate a constant number of times per update.
  * @author yael.sarusi
  * @author shaharna13
  */
@@ -18,42 +23,173 @@ public class AvlTree extends BinarySearchTree {
 	private static final int ONLY_ROOT = 1;
 
 
-	/* All the indication flags needed for the different balance violations */
-	private enum Violation {
-		LL, LR, RR, RL, NONE
-	}
+	/* Arrays at least this long are sorted with Arrays.parallelSort when bulk loading */
+	private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
 
-	/* This flag indicates if rebalancing is needed at this point. */
-	private static final boolean REBALANCE_TREE = true;
+	/* A batch of at least 1/REBUILD_FRACTION of the tree's size is merged and rebuilt, not added one by one */
+	private static final int REBUILD_FRACTION = 4;
 
-	/* an indicator its a leaf */
-	private static final int LEAF = -1;
+	/* The way the tree keeps itself balanced, and the object that does it */
+	private final BalancePolicy policy;
+	private final Rebalancer rebalancer;
+
+	/*
+	 * The node of the value last passed to fingerAdd or fingerContains, and the modCount it was found at.
+	 * The node is only used while the tree's modCount is the same, as a change may have removed it.
+	 */
+	private Node finger;
+	private int fingerModCount;
 
+	/* The node of the tree's maximum, and the modCount it was found at; used like finger */
+	private Node maxNode;
+	private int maxModCount;
 
 	/**
 	 * The default constructor.
 	 */
 	public AvlTree(){
+		this(BalancePolicy.AVL);
+	}
+
+	/**
+	 * A constructor of an empty tree that keeps itself balanced by the given policy. The default is AVL;
+	 * WAVL and RED_BLACK trees rotate less on deletions, at the price of somewhat deeper trees (see
+	 * BalancePolicy). On other than AVL trees, split, join, union, intersection and difference merge the
+	 * values and rebuild the trees in linear time, rather than joining them in logarithmic time.
+	 * @param policy the balancing policy.
+	 */
+	public AvlTree(BalancePolicy policy){
 		super();
+		this.policy = policy;
+		this.rebalancer = policy.newRebalancer(this);
 	}
 
 	/**
 	 * A copy constructor that creates a deep copy of the given AvlTree.
-	 * The new tree contains all the values of the given tree, but not necessarily in the same structure.
+	 * The new tree contains all the values of the given tree, in the same structure and with the same
+	 * balancing policy. See snapshot() for a copy that is O(1) to create.
 	 * @param tree The AVL tree to be copied.
 	 */
 	public AvlTree(AvlTree tree){
 		super(tree);
-		}
+		this.policy = tree.policy;
+		this.rebalancer = policy.newRebalancer(this);
+	}
+
+	/**
+	 * Returns a copy of this tree in O(1). The copy shares this tree's nodes until either tree is modified;
+	 * the first of them to be modified then copies the nodes (in O(n)) before changing them, so changes to
+	 * one tree are never visible in the other.
+	 * @return a lazy copy of this tree.
+	 */
+	public AvlTree snapshot(){
+		AvlTree copy = newEmptyTree();
+		shareNodesWith(copy);
+		return copy;
+	}
+
+	/**
+	 * Returns an iterator over the tree's values as they are now, in ascending order. The iterator reads a
+	 * snapshot() of the tree, so the tree may be modified while it is used, and the iterator still returns
+	 * exactly the values the tree had when it was created. The first modification of the tree after this
+	 * call copies the tree's nodes (see snapshot()); if the tree is not modified, the iterator costs the same
+	 * as intIterator().
+	 * @return an iterator over a snapshot of the tree's values.
+	 */
+	public PrimitiveIterator.OfInt snapshotIterator(){
+		return snapshot().intIterator();
+	}
+
+	/**
+	 * @return the policy by which the tree keeps itself balanced.
+	 */
+	public BalancePolicy getBalancePolicy(){
+		return policy;
+	}
+
+	/**
+	 * Sets the listener that receives this tree's rotations, rebalancing walks and operation costs (see
+	 * AvlTreeListener). The events are only reported when AvlTreeListener.METRICS_ENABLED is true. Copies
+	 * and snapshots of the tree don't inherit the listener.
+	 * @param listener the listener, or null to stop reporting.
+	 */
+	public void setListener(AvlTreeListener listener){
+		this.listener = listener;
+	}
 
 	/**
-	 * A constructor that builds the tree by adding the elements in the input array one-by-one.
+	 * A constructor that builds the tree from the elements in the input array in linear time (after sorting).
 	 * The AVL tree is a set, so if the same values appears more than once in the list, it is  added
-	 * only once.
+	 * only once. A sorted array is used as is; otherwise a sorted copy is made first, in parallel for large
+	 * arrays. The tree is then built in one pass with no rotations, the middle value at the root.
+	 * The input array is not modified.
 	 * @param data values to add to tree
 	 */
 	public AvlTree(int[] data){
-		super(data);
+		this(BalancePolicy.AVL);
+		if (data != null){
+			int[] sorted = sortedDistinct(data);
+			root = buildBalanced(sorted, 0, sorted.length);
+		}
+	}
+
+	/*
+	 * Returns the distinct values of the given array in ascending order. Returns the array itself if it is
+	 * already strictly ascending, so a sorted input is neither copied nor sorted again.
+	 * @param data the values.
+	 * @return the distinct values, sorted.
+	 */
+	static int[] sortedDistinct(int[] data){
+		int length = data.length;
+		boolean ascending = true, strictlyAscending = true;
+		for (int i = 1; i < length && ascending; i++){
+			if (data[i - 1] >= data[i]){
+				strictlyAscending = false;
+				ascending = data[i - 1] == data[i];
+			}
+		}
+		if (strictlyAscending){
+			return data;
+		}
+		int[] sorted = Arrays.copyOf(data, length);
+		if (!ascending){
+			if (length >= PARALLEL_SORT_THRESHOLD){
+				Arrays.parallelSort(sorted);
+			}
+			else {
+				Arrays.sort(sorted);
+			}
+		}
+		// Remove the duplicates in place.
+		int distinct = 1;
+		for (int i = 1; i < length; i++){
+			if (sorted[i] != sorted[distinct - 1]){
+				sorted[distinct++] = sorted[i];
+			}
+		}
+		return distinct == length ? sorted : Arrays.copyOf(sorted, distinct);
+	}
+
+	/*
+	 * Builds a balanced tree of the given range of a sorted array of distinct values: the middle value is
+	 * the root, and the halves on its sides are built the same way as its sub trees. Each node is created
+	 * with its final children, so no rotation is needed, and the heights of the two sub trees of any node
+	 * differ by at most one.
+	 * @param sorted the values, in ascending order without duplicates.
+	 * @param from the first index of the range (inclusive).
+	 * @param to the last index of the range (exclusive).
+	 * @return the root of the new tree, or null if the range is empty.
+	 */
+	static Node buildBalanced(int[] sorted, int from, int to){
+		if (from >= to){
+			return null;
+		}
+		int middle = (from + to) >>> 1;
+		Node node = new Node(sorted[middle]);
+		node.setLeftChild(buildBalanced(sorted, from, middle));
+		node.setRightChild(buildBalanced(sorted, middle + 1, to));
+		node.updateMetadata();
+		return node;
 	}
 
 	/**
@@ -71,13 +207,31 @@ public class AvlTree extends BinarySearchTree {
 	 * @return True if add successful, False if the data was already in the tree.
 	 */
 	public boolean add (int data){
+		if (AvlTreeListener.METRICS_ENABLED && listener != null){
+			// The timed search is the one that counts the comparisons (see findNode(int, int[])).
+			int[] comparisons = new int[1];
+			long start = System.nanoTime();
+			boolean added = addAt(findNode(data, comparisons), data);
+			listener.operationCompleted(AvlTreeListener.Operation.ADD, comparisons[0],
+					System.nanoTime() - start);
+			return added;
+		}
 		// Returns the Node itself (if the data already exists in tree) or the parent of the new node.
 		// Returns null if tree is empty
-		Node potentialLoc = findNode(data);
+		return addAt(findNode(data), data);
+	}
 
-		// The AVL tree is empty, add node as the root.
+	/*
+	 * The body of add after the search, without the metrics.
+	 * @param potentialLoc the node findNode found for the data.
+	 * @param data the data to add.
+	 */
+	private boolean addAt(Node potentialLoc, int data){
+		// The AVL tree is empty, add node as the root (a map's root must be one of its entries too).
 		if (potentialLoc == null){
-			root = new Node(data);
+			ensureExclusiveNodes();
+			modCount++;
+			insertChild(null, createNode(data));
 			return true;
 		}
 		int potentialData = potentialLoc.getData();
@@ -86,131 +240,151 @@ public class AvlTree extends BinarySearchTree {
 		if (potentialData == data){
 			return false;
 		}
+		// The tree is about to change, stop sharing its nodes with snapshots.
+		if (ensureExclusiveNodes()){
+			potentialLoc = findNode(data);
+		}
 		// Otherwise, the PotentialLoc is the parent of the node, insert the data in the correct child.
-		Node newNode = new Node(data);
-		return insertChildInCorrectPlace(potentialLoc, newNode, REBALANCE_TREE);
+		modCount++;
+		insertChild(potentialLoc, createNode(data));
+		return true;
 	}
 
 	/*
-	 * This function receives a parent and a node, and inserts the node to the correct child:
-	 * rightChild if the new node's data is bigger than the parent's data, leftChild otherwise.
-	 * After insert, call balanceTree method to balance the AvlTree (if flag is true!).
-	 * @param parent A pointer to the parent's node
-	 * @param newNode A pointer to the new child node
-	 * @return true when successfully added node.
-	 */
-	private boolean insertChildInCorrectPlace(Node parent, Node newNode, boolean rebalanceNeeded) {
-		if (parent != null) {
-			if (parent.getData() > newNode.getData()){
-				parent.setLeftChild(newNode);
-			}
-			else {
-				parent.setRightChild(newNode);
-			}
-		} else {
-			root = newNode;
-			newNode.setParent(null);
-		}
+	 * Creates the node for a new value. Subclasses whose nodes carry more than the data (such as the values
+	 * of a map) override it to create their own kind of node.
+	 * @param data the new node's data.
+	 * @return a new leaf holding the data.
+	 */
+	Node createNode(int data){
+		return new Node(data);
+	}
 
-		if (rebalanceNeeded){
-			balanceTree(newNode);
-		}
+	/*
+	 * Adds a node for data that is known not to be in the tree.
+	 * @param data the data to add.
+	 * @return the new node.
+	 */
+	Node addNode(int data){
+		ensureExclusiveNodes();
+		modCount++;
+		Node newNode = createNode(data);
+		insertChild(findNode(data), newNode);
+		return newNode;
+	}
 
+	/**
+	 * Adds the given value to the tree, like add, but for streams of values that arrive in about ascending
+	 * (or descending) order, such as timestamps or sequence numbers. The search starts from the node of the
+	 * value last passed to fingerAdd or fingerContains rather than from the root (see containsAll), so
+	 * adding a value d values away from it takes O(log d) comparisons. A value greater than the tree's
+	 * maximum, the usual case of an ascending stream, is linked under the maximum's node with no search at
+	 * all. Balancing and the sub tree sizes are kept up as in add.
+	 * The finger and the maximum are remembered until the tree is changed by any other method.
+	 * @param data the value to add.
+	 * @return true if the value was added, false if it was already in the tree.
+	 */
+	public boolean fingerAdd(int data){
+		Node max = cachedMaxNode();
+		boolean newMax = max == null || data > max.getData();
+		Node potentialLoc = newMax ? max : findNodeFrom(validFinger(), data);
+		if (potentialLoc != null && potentialLoc.getData() == data){
+			setFinger(potentialLoc);
+			return false;
+		}
+		// The tree is about to change, stop sharing its nodes with snapshots.
+		if (ensureExclusiveNodes()){
+			potentialLoc = findNode(data);
+		}
+		modCount++;
+		Node newNode = createNode(data);
+		insertChild(potentialLoc, newNode);
+		setFinger(newNode);
+		if (newMax){
+			maxNode = newNode;
+			maxModCount = modCount;
+		}
 		return true;
 	}
 
-	/*
-	 * This function receives the last node to be added to the tree and goes up to the root. As it goes up
-	 * it checks for unbalanced heights, and rotates the nodes when needed.
-	 * @param node The node from which the tree is potentially unbalanced.
+	/**
+	 * Checks whether the given value is in the tree, searching from the node of the value last passed to
+	 * fingerAdd or fingerContains like fingerAdd does: O(log d) for a value d values away from it, and O(1)
+	 * for a value greater than the tree's maximum. Unlike contains it doesn't return the value's depth,
+	 * which would take a walk up to the root.
+	 * @param searchVal value to search for
+	 * @return true if the value is in the tree.
 	 */
-	private void balanceTree(Node node){
-		Node curNode = node;
-		while (curNode != null){
-			// Check what is the balance case sub-tree rooted under the node.
-			Violation balanceCase = getBalanceCase(curNode);
-			Node toRotate;
-			switch (balanceCase){
-				case LR:
-					toRotate = curNode.getLeftChild().getRightChild();
-					rotateLeft(toRotate);
-					rotateRight(toRotate);
-					break;
-				case RL:
-					toRotate = curNode.getRightChild().getLeftChild();
-					rotateRight(toRotate);
-					rotateLeft(toRotate);
-					break;
-				case LL:
-					toRotate = curNode.getLeftChild();
-					rotateRight(toRotate);
-					break;
-				case RR:
-					toRotate = curNode.getRightChild();
-					rotateLeft(toRotate);
-					break;
-				default:
-					// default case - no balance needed
-					break;
-				}
-			// Move up the tree towards the root node.
-			curNode = curNode.getParent();
+	public boolean fingerContains(int searchVal){
+		Node max = cachedMaxNode();
+		if (max == null || searchVal > max.getData()){
+			return false;
 		}
+		Node found = findNodeFrom(validFinger(), searchVal);
+		setFinger(found);
+		return found.getData() == searchVal;
 	}
 
 	/*
-	 * This function finds the correct unbalance case: LL, LR, RL, RR, if there is one
-	 * @param curNode The node from which to check
-	 * @return the balance case found: LL, RR, LR, RL, or no balance needed.
+	 * Forgets the finger and the maximum's node when the tree replaces shared nodes with its own copy: the
+	 * copy doesn't change modCount (the values are the same), but the remembered nodes now belong to the
+	 * snapshots, and linking a new node under them would change a snapshot instead of this tree.
 	 */
-	private Violation getBalanceCase(Node curNode) {
-		int nodeBalance = getBalance(curNode);
-		int rCBalance = getBalance(curNode.getRightChild());
-		int lCBalance = getBalance(curNode.getLeftChild());
-
-		if (nodeBalance == -2 && (lCBalance == 0 || lCBalance == -1)){
-			return Violation.LL;
-		}
-		else if (nodeBalance == -2 && lCBalance == 1){
-			return Violation.LR;
+	@Override
+	boolean ensureExclusiveNodes(){
+		if (!super.ensureExclusiveNodes()){
+			return false;
 		}
+		finger = null;
+		maxNode = null;
+		return true;
+	}
 
-		if (nodeBalance == 2 && (rCBalance == 0 || rCBalance == 1)){
-			return Violation.RR;
-		}
-		else if (nodeBalance == 2 && rCBalance == -1){
-			return Violation.RL;
-		}
-		return Violation.NONE; //default
+	/*
+	 * @return the finger if the tree didn't change since it was set, null otherwise.
+	 */
+	private Node validFinger(){
+		return fingerModCount == modCount ? finger : null;
 	}
 
 	/*
-	 * Calculate the avl tree balance indicator for the node given.
-	 * The balance will be -1 when the leftChild tree is higher  than the rightChild height by 1
-	 * @return The balance of the current Node
+	 * Remembers the given node as the finger.
 	 */
-	private int getBalance(Node node) {
-		// Node is null, no balancing needed.
-		if (node == null){
-			return 0;
-		}
+	private void setFinger(Node node){
+		finger = node;
+		fingerModCount = modCount;
+	}
 
-		Node rightChild = node.getRightChild();
-		Node leftChild = node.getLeftChild();
-		int rightHeight, leftHeight;
-		if (rightChild == null){
-			rightHeight = LEAF;
+	/*
+	 * @return the node of the tree's maximum, found again only if the tree changed since it was last found;
+	 * null if the tree is empty.
+	 */
+	private Node cachedMaxNode(){
+		if (maxNode == null || maxModCount != modCount){
+			maxNode = findMaxNode(root);
+			maxModCount = modCount;
 		}
-		else {
-			rightHeight = rightChild.getHeight();
+		return maxNode;
+	}
+
+	/*
+	 * This function receives a parent and a new leaf, and inserts the leaf to the correct child:
+	 * rightChild if the new node's data is bigger than the parent's data, leftChild otherwise, or as the root
+	 * if there is no parent. The tree's rebalancer then balances the tree.
+	 * @param parent A pointer to the parent's node, null if the tree is empty.
+	 * @param newNode A pointer to the new leaf.
+	 */
+	private void insertChild(Node parent, Node newNode){
+		if (parent == null){
+			root = newNode;
 		}
-		if (leftChild == null){
-			leftHeight = LEAF;
+		else if (parent.getData() > newNode.getData()){
+			parent.setLeftChild(newNode);
 		}
 		else {
-			leftHeight = leftChild.getHeight();
+			parent.setRightChild(newNode);
 		}
-		return rightHeight - leftHeight;
+		rebalancer.inserted(newNode);
 	}
 
 	/**
@@ -219,106 +393,599 @@ public class AvlTree extends BinarySearchTree {
 	 * @return true if the given value was found and deleted, false otherwise.
 	 */
 	public boolean delete(int toDelete){
-		Node toDeleteNode = findNode(toDelete);
+		return removeNode(toDelete) != null;
+	}
+
+	/*
+	 * Removes the node with the given value from the tree, like delete, with a single search. The removed
+	 * node keeps its data (and a map's entry its value), see deleteNode.
+	 * @param toDelete the value to remove from the tree.
+	 * @return the removed node, or null if the value was not in the tree.
+	 */
+	Node removeNode(int toDelete){
+		if (AvlTreeListener.METRICS_ENABLED && listener != null){
+			int[] comparisons = new int[1];
+			long start = System.nanoTime();
+			Node removed = deleteAt(findNode(toDelete, comparisons), toDelete);
+			listener.operationCompleted(AvlTreeListener.Operation.DELETE, comparisons[0],
+					System.nanoTime() - start);
+			return removed;
+		}
+		return deleteAt(findNode(toDelete), toDelete);
+	}
 
+	/*
+	 * The body of removeNode after the search, without the metrics.
+	 * @param toDeleteNode the node findNode found for the value.
+	 * @param toDelete the value to remove.
+	 */
+	private Node deleteAt(Node toDeleteNode, int toDelete){
 		// Tree is empty, nothing to delete.
 		if (toDeleteNode == null){
-			return false;
+			return null;
 		}
 
 		int potentialData = toDeleteNode.getData();
-		if (potentialData != toDelete){ // The node doesn't exist, return false (nothing to delete).
-			return false;
+		if (potentialData != toDelete){ // The node doesn't exist, return null (nothing to delete).
+			return null;
+		}
+		// The tree is about to change, stop sharing its nodes with snapshots.
+		if (ensureExclusiveNodes()){
+			toDeleteNode = findNode(toDelete);
 		}
-		Node parent = toDeleteNode.getParent();
-		if (toDeleteNode.getLeftChild() == null) {
-			if (toDeleteNode.getRightChild() == null){
-				return noSonsNodeToDelete(parent, toDeleteNode);
+		deleteNode(toDeleteNode);
+		return toDeleteNode;
+	}
+
+	/*
+	 * This function removes the given node from the tree and rebalances the tree. A node with at most one
+	 * child is replaced by that child. A node with two children is replaced by its successor: the successor
+	 * (which has no left child) is first replaced by its own right child, and then takes the deleted node's
+	 * place, children and rank. Nodes are relinked rather than their entries copied, so every remaining
+	 * value (and map value) stays in its node. The nodes must not be shared.
+	 * @param toDeleteNode the node of the value to delete.
+	 */
+	private void deleteNode(Node toDeleteNode){
+		modCount++;
+		Node removed = toDeleteNode.getLeftChild() == null || toDeleteNode.getRightChild() == null ?
+				toDeleteNode : findMinNode(toDeleteNode.getRightChild());
+		Node child = removed.getLeftChild() != null ? removed.getLeftChild() : removed.getRightChild();
+		Node parent = removed.getParent();
+		boolean leftSide = parent != null && parent.getLeftChild() == removed;
+		int removedRank = removed.getRank();
+		rebalancer.replaceChild(parent, removed, child);
+		if (removed != toDeleteNode){
+			if (parent == toDeleteNode){
+				parent = removed;
 			}
-			else {
-				// The node has only right child
-				return insertChildInCorrectPlace(parent, toDeleteNode.getRightChild(), REBALANCE_TREE);
+			removed.setLeftChild(toDeleteNode.getLeftChild());
+			removed.setRightChild(toDeleteNode.getRightChild());
+			removed.copyMetadata(toDeleteNode);
+			rebalancer.replaceChild(toDeleteNode.getParent(), toDeleteNode, removed);
+		}
+		rebalancer.removed(parent, leftSide, removedRank);
+	}
+
+	/**
+	 * Adds all the given values to the tree, like calling add for each of them, but faster.
+	 * The values must be sorted. A batch that is small compared to the tree is added one value at a time,
+	 * each search starting from the previous value's node (see containsAll) rather than from the root, so
+	 * neighbouring values share their search paths; rebalancing stops as soon as a sub tree's height is
+	 * unchanged, as in add. A batch of at least a quarter of the tree's size is merged with the tree's
+	 * values instead, and the tree is rebuilt balanced in one linear pass, with no rotations at all.
+	 * @param sorted the values to add, in ascending order (duplicates are added once).
+	 * @return the number of values added (the values that were not already in the tree).
+	 * @throws IllegalArgumentException if the values are not in ascending order.
+	 */
+	public int addAll(int[] sorted){
+		checkSorted(sorted);
+		if (sorted.length == 0){
+			return 0;
+		}
+		if ((long) sorted.length * REBUILD_FRACTION >= size()){
+			return mergeAndRebuild(sorted, true);
+		}
+		int added = 0;
+		Node finger = null;
+		for (int data : sorted){
+			Node potentialLoc = findNodeFrom(finger, data);
+			if (potentialLoc != null && potentialLoc.getData() == data){
+				finger = potentialLoc;
+				continue;
+			}
+			// The tree is about to change, stop sharing its nodes with snapshots.
+			if (ensureExclusiveNodes()){
+				potentialLoc = findNode(data);
 			}
+			modCount++;
+			finger = createNode(data);
+			insertChild(potentialLoc, finger);
+			added++;
 		}
-		else {
-			// The node has only left child.
-			if (toDeleteNode.getRightChild() == null){
-				return insertChildInCorrectPlace(parent, toDeleteNode.getLeftChild(), REBALANCE_TREE);
+		return added;
+	}
+
+	/**
+	 * Removes all the given values from the tree, like calling delete for each of them, but faster: a small
+	 * batch shares the search paths of neighbouring values, and a batch of at least a quarter of the tree's
+	 * size rebuilds the tree from the remaining values in one linear pass (see addAll).
+	 * @param sorted the values to remove, in ascending order (duplicates are allowed).
+	 * @return the number of values removed (the values that were in the tree).
+	 * @throws IllegalArgumentException if the values are not in ascending order.
+	 */
+	public int removeAll(int[] sorted){
+		checkSorted(sorted);
+		if (sorted.length == 0 || root == null){
+			return 0;
+		}
+		if ((long) sorted.length * REBUILD_FRACTION >= size()){
+			return mergeAndRebuild(sorted, false);
+		}
+		int removed = 0;
+		Node finger = null;
+		for (int data : sorted){
+			Node toDeleteNode = findNodeFrom(finger, data);
+			if (toDeleteNode == null){
+				return removed;
 			}
-			// Both children aren't null
-			else {
-				return twoSonsNodeDelete(toDeleteNode);
+			if (toDeleteNode.getData() != data){
+				finger = toDeleteNode;
+				continue;
+			}
+			// The tree is about to change, stop sharing its nodes with snapshots.
+			if (ensureExclusiveNodes()){
+				toDeleteNode = findNode(data);
+			}
+			// The deleted node's parent stays in the tree, so the search for the next value resumes there.
+			finger = toDeleteNode.getParent();
+			deleteNode(toDeleteNode);
+			removed++;
+		}
+		return removed;
+	}
+
+	/*
+	 * Merges the tree's nodes with the given values in one ascending pass, and relinks the resulting nodes
+	 * into a balanced tree. Existing nodes are reused rather than copied, so subclasses keep whatever their
+	 * nodes carry.
+	 * @param sorted the values to add or remove, in ascending order.
+	 * @param add true to add the values, false to remove them.
+	 * @return the number of values added or removed.
+	 */
+	private int mergeAndRebuild(int[] sorted, boolean add){
+		ensureExclusiveNodes();
+		modCount++;
+		int size = size();
+		Node[] merged = new Node[add ? size + sorted.length : size];
+		int count = 0, next = 0, changed = 0;
+		Node[] stack = new Node[root == null ? 0 : root.getHeight() + 1];
+		int top = 0;
+		Node curNode = root;
+		// Walk the tree in order with an explicit stack; each of its nodes is merged after the smaller values.
+		while (curNode != null || top > 0){
+			while (curNode != null){
+				stack[top++] = curNode;
+				curNode = curNode.getLeftChild();
 			}
+			Node visited = stack[--top];
+			curNode = visited.getRightChild();
+			int data = visited.getData();
+			while (next < sorted.length && sorted[next] < data){
+				if (add && (count == 0 || merged[count - 1].getData() != sorted[next])){
+					merged[count++] = createNode(sorted[next]);
+					changed++;
+				}
+				next++;
+			}
+			if (next < sorted.length && sorted[next] == data){
+				next++;
+				if (!add){
+					changed++;
+					continue;
+				}
+			}
+			merged[count++] = visited;
 		}
+		for (; add && next < sorted.length; next++){
+			if (count == 0 || merged[count - 1].getData() != sorted[next]){
+				merged[count++] = createNode(sorted[next]);
+				changed++;
+			}
+		}
+		root = linkBalanced(merged, 0, count);
+		if (root != null){
+			root.setParent(null);
+		}
+		rebalancer.initialize(root);
+		return changed;
 	}
 
 	/*
-	 * This function deletes a node that has no children.
-	 * @param toDelete The value of the node to be deleted.
-	 * @param parent The parent of the node to be deleted.
-	 * @return
-	 */
-	private boolean noSonsNodeToDelete(Node parent, Node toDelete) {
-		if (parent!=null) {
-			// Check if the node to delete was the right child or the left child of it's parent
-			if (toDelete.getData() > parent.getData()) {
-				parent.setRightChild(null);
-			} else {
-				parent.setLeftChild(null);
+	 * Links the given range of a sorted array of nodes into a balanced tree, like buildBalanced does with
+	 * values: the middle node is the root and the halves on its sides are its sub trees.
+	 * @param nodes the nodes, in ascending order of their data.
+	 * @param from the first index of the range (inclusive).
+	 * @param to the last index of the range (exclusive).
+	 * @return the root of the linked tree (whose parent is left for the caller to set), or null if the range
+	 * is empty.
+	 */
+	private static Node linkBalanced(Node[] nodes, int from, int to){
+		if (from >= to){
+			return null;
+		}
+		int middle = (from + to) >>> 1;
+		Node node = nodes[middle];
+		node.setLeftChild(linkBalanced(nodes, from, middle));
+		node.setRightChild(linkBalanced(nodes, middle + 1, to));
+		node.updateMetadata();
+		return node;
+	}
+
+	/**
+	 * Splits the tree in two in O(logn) time: the values greater than or equal to the given one are moved
+	 * to a new tree (of the same class and balancing policy as this one), and this tree keeps the smaller
+	 * values. Trees whose balancing policy is not AVL are split in O(n) time, by rebuilding both parts.
+	 * @param data the smallest value the new tree may hold; it doesn't have to be in this tree.
+	 * @return a tree of this tree's values that are >= data.
+	 */
+	public AvlTree split(int data){
+		ensureExclusiveNodes();
+		if (policy != BalancePolicy.AVL){
+			Node[] nodes = inOrderNodes();
+			int from = 0;
+			while (from < nodes.length && nodes[from].getData() < data){
+				from++;
 			}
-			balanceTree(parent);
+			rebuild(nodes, 0, from);
+			AvlTree tree = newEmptyTree();
+			tree.rebuild(nodes, from, nodes.length);
+			return tree;
+		}
+		AvlJoins.Split parts = AvlJoins.split(root, data);
+		Node upper = parts.found == null ? parts.right : AvlJoins.join(null, parts.found, parts.right);
+		setRoot(parts.left);
+		AvlTree tree = newEmptyTree();
+		tree.setRoot(upper);
+		return tree;
+	}
+
+	/**
+	 * Joins the given value and the values of the given tree to this tree, in O(|h1 - h2|) time for trees of
+	 * heights h1 and h2. All of this tree's values must be smaller than data, and all of right's greater.
+	 * The given tree is emptied. Unless both trees are AVL trees, they are merged and rebuilt in O(n + m)
+	 * time instead.
+	 * @param data the value between the two trees.
+	 * @param right a tree of the same class as this one, with values greater than data.
+	 * @throws IllegalArgumentException if the values are not in that order, or right is this tree or of
+	 * another class.
+	 */
+	public void join(int data, AvlTree right){
+		checkCombinable(right);
+		if ((root != null && last() >= data) || (right.root != null && right.first() <= data)){
+			throw new IllegalArgumentException("The trees' values are not ordered around " + data);
+		}
+		ensureExclusiveNodes();
+		right.ensureExclusiveNodes();
+		if (!joinsByHeight(right)){
+			Node[] left = inOrderNodes();
+			Node[] rightNodes = right.inOrderNodes();
+			Node[] nodes = Arrays.copyOf(left, left.length + 1 + rightNodes.length);
+			nodes[left.length] = createNode(data);
+			System.arraycopy(rightNodes, 0, nodes, left.length + 1, rightNodes.length);
+			rebuild(nodes, 0, nodes.length);
 		}
 		else {
-			// if parent is null, the node to delete is the tree root, so change the root to null
-			this.root = null;
+			setRoot(AvlJoins.join(root, createNode(data), right.root));
 		}
-		return true;
+		right.setRoot(null);
+	}
+
+	/**
+	 * Joins the values of the given tree to this tree, in O(logn) time. All of this tree's values must be
+	 * smaller than all of right's. The given tree is emptied. Unless both trees are AVL trees, they are
+	 * merged and rebuilt in O(n + m) time instead.
+	 * @param right a tree of the same class as this one, with values greater than this tree's.
+	 * @throws IllegalArgumentException if the values are not in that order, or right is this tree or of
+	 * another class.
+	 */
+	public void join(AvlTree right){
+		checkCombinable(right);
+		if (root != null && right.root != null && last() >= right.first()){
+			throw new IllegalArgumentException("The trees' values are not ordered");
+		}
+		ensureExclusiveNodes();
+		right.ensureExclusiveNodes();
+		if (!joinsByHeight(right)){
+			Node[] left = inOrderNodes();
+			Node[] rightNodes = right.inOrderNodes();
+			Node[] nodes = Arrays.copyOf(left, left.length + rightNodes.length);
+			System.arraycopy(rightNodes, 0, nodes, left.length, rightNodes.length);
+			rebuild(nodes, 0, nodes.length);
+		}
+		else {
+			setRoot(AvlJoins.join(root, right.root));
+		}
+		right.setRoot(null);
+	}
+
+	/**
+	 * Adds all the values of the given tree to this tree. For trees of m <= n values this takes
+	 * O(m log(n/m + 1)) time, by splitting and joining sub trees rather than adding the values one by one.
+	 * The given tree is emptied: its nodes are moved into this tree. A value that is in both trees keeps
+	 * this tree's node (in a map, this map's value). Unless both trees are AVL trees, their values are
+	 * merged and this tree is rebuilt in O(n + m) time instead.
+	 * @param other a tree of the same class as this one.
+	 * @throws IllegalArgumentException if other is this tree or of another class.
+	 */
+	public void union(AvlTree other){
+		combine(AvlJoins.Operation.UNION, other, false);
+	}
+
+	/**
+	 * Like union(other), but when parallel is true, large trees are split into sub problems that are
+	 * computed in parallel in the common ForkJoinPool.
+	 * @param other a tree of the same class as this one.
+	 * @param parallel true to use the common ForkJoinPool for large trees.
+	 * @throws IllegalArgumentException if other is this tree or of another class.
+	 */
+	public void union(AvlTree other, boolean parallel){
+		combine(AvlJoins.Operation.UNION, other, parallel);
+	}
+
+	/**
+	 * Removes from this tree the values that are not in the given tree, in O(m log(n/m + 1)) time like
+	 * union. The given tree is emptied.
+	 * @param other a tree of the same class as this one.
+	 * @throws IllegalArgumentException if other is this tree or of another class.
+	 */
+	public void intersection(AvlTree other){
+		combine(AvlJoins.Operation.INTERSECTION, other, false);
+	}
+
+	/**
+	 * Like intersection(other), optionally computed in parallel for large trees (see union).
+	 * @param other a tree of the same class as this one.
+	 * @param parallel true to use the common ForkJoinPool for large trees.
+	 * @throws IllegalArgumentException if other is this tree or of another class.
+	 */
+	public void intersection(AvlTree other, boolean parallel){
+		combine(AvlJoins.Operation.INTERSECTION, other, parallel);
+	}
+
+	/**
+	 * Removes from this tree the values that are in the given tree, in O(m log(n/m + 1)) time like union.
+	 * The given tree is emptied.
+	 * @param other a tree of the same class as this one.
+	 * @throws IllegalArgumentException if other is this tree or of another class.
+	 */
+	public void difference(AvlTree other){
+		combine(AvlJoins.Operation.DIFFERENCE, other, false);
+	}
+
+	/**
+	 * Like difference(other), optionally computed in parallel for large trees (see union).
+	 * @param other a tree of the same class as this one.
+	 * @param parallel true to use the common ForkJoinPool for large trees.
+	 * @throws IllegalArgumentException if other is this tree or of another class.
+	 */
+	public void difference(AvlTree other, boolean parallel){
+		combine(AvlJoins.Operation.DIFFERENCE, other, parallel);
 	}
 
 	/*
-	 * This function delete a node that has two sons. It swaps the data of the successor with the data of
-	 * the node to delete, and deletes the successor node.
-	 * @param toDeleteNode The node to be deleted.
-	 * @return true when deleted is accomplished.
-	 */
-	private boolean twoSonsNodeDelete(Node toDeleteNode) {
-		int successor = successor(toDeleteNode).getData(); // Find successor data
-		// Delete the successor with the delete function (so it will take care of it's children if exists)
-		delete(successor);
-		// set the data of the successor instead of the data to delete.
-		toDeleteNode.setData(successor);
-		return true;
+	 * Replaces this tree's values with the result of the given operation on this tree and other, and
+	 * empties other.
+	 */
+	private void combine(AvlJoins.Operation operation, AvlTree other, boolean parallel){
+		checkCombinable(other);
+		ensureExclusiveNodes();
+		other.ensureExclusiveNodes();
+		if (!joinsByHeight(other)){
+			Node[] nodes = mergeNodes(operation, inOrderNodes(), other.inOrderNodes());
+			rebuild(nodes, 0, nodes.length);
+		}
+		else {
+			setRoot(AvlJoins.combine(operation, root, other.root, parallel));
+		}
+		other.setRoot(null);
+	}
+
+	/*
+	 * Merges the nodes of two trees, each in ascending order, by the given set operation. A value that is in
+	 * both keeps the first tree's node.
+	 * @return the nodes of the result, in ascending order.
+	 */
+	private static Node[] mergeNodes(AvlJoins.Operation operation, Node[] first, Node[] second){
+		Node[] merged = new Node[operation == AvlJoins.Operation.UNION ? first.length + second.length :
+				first.length];
+		int count = 0, next = 0;
+		for (Node node : first){
+			int data = node.getData();
+			while (next < second.length && second[next].getData() < data){
+				if (operation == AvlJoins.Operation.UNION){
+					merged[count++] = second[next];
+				}
+				next++;
+			}
+			boolean inSecond = next < second.length && second[next].getData() == data;
+			if (inSecond){
+				next++;
+			}
+			if (inSecond ? operation != AvlJoins.Operation.DIFFERENCE :
+					operation != AvlJoins.Operation.INTERSECTION){
+				merged[count++] = node;
+			}
+		}
+		for (; operation == AvlJoins.Operation.UNION && next < second.length; next++){
+			merged[count++] = second[next];
+		}
+		return count == merged.length ? merged : Arrays.copyOf(merged, count);
+	}
+
+	/*
+	 * @return true if this tree and the given one can be joined by their heights: the joins rely on the AVL
+	 * balance of the heights to keep the trees they build balanced, so other trees are merged and rebuilt.
+	 */
+	private boolean joinsByHeight(AvlTree other){
+		return policy == BalancePolicy.AVL && other.policy == BalancePolicy.AVL;
+	}
+
+	/*
+	 * @return the tree's nodes in ascending order, collected by an in-order walk with an explicit stack.
+	 */
+	private Node[] inOrderNodes(){
+		Node[] nodes = new Node[size()];
+		Node[] stack = new Node[root == null ? 0 : root.getHeight() + 1];
+		int count = 0, top = 0;
+		Node curNode = root;
+		while (curNode != null || top > 0){
+			while (curNode != null){
+				stack[top++] = curNode;
+				curNode = curNode.getLeftChild();
+			}
+			Node visited = stack[--top];
+			nodes[count++] = visited;
+			curNode = visited.getRightChild();
+		}
+		return nodes;
+	}
+
+	/*
+	 * Replaces the tree with the given range of nodes, linked balanced (see linkBalanced), and sets their
+	 * ranks for the tree's balancing policy.
+	 * @param nodes the nodes, in ascending order of their data.
+	 * @param from the first index of the range (inclusive).
+	 * @param to the last index of the range (exclusive).
+	 */
+	private void rebuild(Node[] nodes, int from, int to){
+		loadBalanced(linkBalanced(nodes, from, to));
 	}
 
 	/*
-	 * This function rotates the given node left.
+	 * Replaces the tree with the given tree, built balanced like buildBalanced builds one (the sizes of the
+	 * two sub trees of every node differ by at most one), and sets its nodes' ranks for the tree's balancing
+	 * policy.
+	 * @param newRoot the root of the new tree, may be null.
 	 */
-	private void rotateLeft(Node toRotate){
-		Node parentNode = toRotate.getParent();
-		Node grandParent = parentNode.getParent();
-		Node lChild = toRotate.getLeftChild();
+	void loadBalanced(Node newRoot){
+		setRoot(newRoot);
+		rebalancer.initialize(root);
+	}
 
-		// Don't balance the tree at this point, the rotation is taking care of the balancing factor.
-		insertChildInCorrectPlace(grandParent,toRotate, !REBALANCE_TREE);
+	/*
+	 * Throws IllegalArgumentException if the given tree can't be joined or combined with this one: only
+	 * trees of the same class have the same kind of nodes.
+	 */
+	private void checkCombinable(AvlTree other){
+		if (other == this){
+			throw new IllegalArgumentException("A tree can't be combined with itself");
+		}
+		if (other.getClass() != getClass()){
+			throw new IllegalArgumentException("Can't combine a " + getClass().getSimpleName() + " with a "
+					+ other.getClass().getSimpleName());
+		}
+	}
 
-		toRotate.setLeftChild(parentNode);
-		parentNode.setRightChild(lChild);
+	/*
+	 * Sets the tree's root, making it the top of the tree, and invalidates the tree's iterators.
+	 */
+	private void setRoot(Node newRoot){
+		modCount++;
+		root = newRoot;
+		if (newRoot != null){
+			newRoot.setParent(null);
+		}
 	}
 
 	/*
-	 * This function rotates the given node right.
+	 * Creates an empty tree of the same class (and settings) as this one, for split and snapshot. Subclasses
+	 * override it.
+	 * @return a new empty tree.
+	 */
+	AvlTree newEmptyTree(){
+		return new AvlTree(policy);
+	}
+
+	/**
+	 * Returns the rank of the given value: the number of values in the tree that are smaller than it.
+	 * The value itself doesn't have to be in the tree. Takes O(logn) time, using the sub tree sizes cached
+	 * in the nodes.
+	 * @param data the value.
+	 * @return the number of values smaller than data, from 0 to size().
+	 */
+	public int rank(int data){
+		return countBelow(data, false);
+	}
+
+	/**
+	 * Returns the value of the given rank: select(0) is the minimum, and select(size() - 1) the maximum.
+	 * Takes O(logn) time, using the sub tree sizes cached in the nodes.
+	 * @param index the rank of the value, from 0 to size() - 1.
+	 * @return the value that has exactly index smaller values in the tree.
+	 * @throws IndexOutOfBoundsException if index is negative or not smaller than the tree's size.
 	 */
-	private void rotateRight(Node toRotate) {
-		Node parentNode = toRotate.getParent();
-		Node grandParent = parentNode.getParent();
-		Node rChild = toRotate.getRightChild();
+	public int select(int index){
+		if (index < 0 || index >= size()){
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		Node curNode = root;
+		int remaining = index;
+		while (true){
+			int leftSize = sizeOf(curNode.getLeftChild());
+			if (remaining < leftSize){
+				curNode = curNode.getLeftChild();
+			}
+			else if (remaining == leftSize){
+				return curNode.getData();
+			}
+			else {
+				remaining -= leftSize + 1;
+				curNode = curNode.getRightChild();
+			}
+		}
+	}
 
-		// Don't balance the tree at this point, the rotation is taking care of the balancing factor.
-		insertChildInCorrectPlace(grandParent, toRotate, !REBALANCE_TREE);
+	/**
+	 * Counts the values in the tree between the two given values, both included. Takes O(logn) time.
+	 * @param low the lower bound.
+	 * @param high the upper bound.
+	 * @return the number of values v in the tree with low <= v <= high, 0 if low is greater than high.
+	 */
+	public int countInRange(int low, int high){
+		if (low > high){
+			return 0;
+		}
+		return countBelow(high, true) - countBelow(low, false);
+	}
 
-		toRotate.setRightChild(parentNode);
-		parentNode.setLeftChild(rChild);
+	/*
+	 * Counts the values smaller than (or equal to) the given one in one walk from the root: whenever the
+	 * walk goes right, the node and its whole left sub tree are below the value.
+	 * @param data the value.
+	 * @param inclusive true to count the value itself too, if it is in the tree.
+	 * @return the number of values below data.
+	 */
+	private int countBelow(int data, boolean inclusive){
+		int count = 0;
+		Node curNode = root;
+		while (curNode != null){
+			int nodeData = curNode.getData();
+			if (nodeData < data || (inclusive && nodeData == data)){
+				count += sizeOf(curNode.getLeftChild()) + 1;
+				curNode = curNode.getRightChild();
+			}
+			else {
+				curNode = curNode.getLeftChild();
+			}
+		}
+		return count;
+	}
 
+	/*
+	 * @return the size of the sub tree rooted in the given node, 0 for null.
+	 */
+	private static int sizeOf(Node node){
+		return node == null ? 0 : node.size();
 	}
 
 	/**
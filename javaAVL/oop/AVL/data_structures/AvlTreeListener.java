@@ -0,0 +1,58 @@
+package oop.ex4.data_structures;
+
+/**
+ * Receives the internal events of an AvlTree: its rotations, the length of every rebalancing walk, and the
+ * number of comparisons and the time of every add, delete and contains. Attach one with
+ * AvlTree.setListener; AvlTreeStats is a listener that counts the events and exports them through JMX.
+ * The events are only reported when the JVM runs with -Doop.ex4.data_structures.metrics=true. Otherwise
+ * METRICS_ENABLED is a false constant, and the JIT compiles the reporting code away, so the tree costs
+ * exactly what it costs without a listener.
+ * The listener is called synchronously by the thread that uses the tree, so it should be cheap.
+ * @author shaharna13
+ */
+public interface AvlTreeListener {
+
+	/**
+	 * Whether the trees report events to their listeners, read once from the system property
+	 * oop.ex4.data_structures.metrics.
+	 */
+	boolean METRICS_ENABLED = Boolean.getBoolean("oop.ex4.data_structures.metrics");
+
+	/**
+	 * The kinds of rebalancing rotations, named after the violation they fix. LL and RR are single
+	 * rotations, LR and RL double ones.
+	 */
+	enum Rotation {
+		LL, LR, RR, RL
+	}
+
+	/**
+	 * The measured operations.
+	 */
+	enum Operation {
+		ADD, DELETE, CONTAINS
+	}
+
+	/**
+	 * Called for every rebalancing rotation.
+	 * @param rotation the kind of rotation.
+	 */
+	default void rotated(Rotation rotation){
+	}
+
+	/**
+	 * Called at the end of every rebalancing walk up the tree, after an insertion or a deletion.
+	 * @param pathLength the number of nodes whose height was checked before the walk stopped.
+	 */
+	default void rebalanced(int pathLength){
+	}
+
+	/**
+	 * Called at the end of every add, delete and contains.
+	 * @param operation the operation.
+	 * @param comparisons the number of nodes the search for the value compared it with.
+	 * @param nanos the time the operation took, in nanoseconds.
+	 */
+	default void operationCompleted(Operation operation, int comparisons, long nanos){
+	}
+}
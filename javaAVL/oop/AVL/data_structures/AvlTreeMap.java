@@ -0,0 +1,177 @@
+package oop.ex4.data_structures;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+/**
+ * An ordered map from int keys to values, built on AvlTree: the keys are the tree's values, and each node
+ * also carries the value of its key. Inserting, removing and balancing use AvlTree's code, so all the
+ * operations take O(logn) time, and one lookup finds both the key and its value.
+ * As an AvlTree, the map iterates over its keys in ascending order; add(key) adds a key whose value is null.
+ * @param <V> the type of the values.
+ * @author shaharna13
+ */
+public class AvlTreeMap<V> extends AbstractAvlTreeMap<AvlTreeMap.Entry<V>> {
+
+	/**
+	 * The default constructor, creates an empty map.
+	 */
+	public AvlTreeMap(){
+		super();
+	}
+
+	/**
+	 * A copy constructor that creates a deep copy of the given map, in the same structure. The values
+	 * themselves are shared, not copied.
+	 * @param map The map to be copied.
+	 */
+	public AvlTreeMap(AvlTreeMap<V> map){
+		super(map);
+	}
+
+	/**
+	 * Returns a copy of this map in O(1), see AvlTree.snapshot().
+	 * @return a lazy copy of this map.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public AvlTreeMap<V> snapshot(){
+		return (AvlTreeMap<V>) super.snapshot();
+	}
+
+	/**
+	 * Splits the map in two in O(logn), see AvlTree.split(int).
+	 * @param key the smallest key the new map may hold.
+	 * @return a map of this map's keys that are >= key, with their values.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public AvlTreeMap<V> split(int key){
+		return (AvlTreeMap<V>) super.split(key);
+	}
+
+	@Override
+	AvlTreeMap<V> newEmptyTree(){
+		return new AvlTreeMap<>();
+	}
+
+	@Override
+	Entry<V> createNode(int data){
+		return new Entry<>(data);
+	}
+
+	/**
+	 * Returns the value of the given key.
+	 * @param key the key to look up.
+	 * @return the key's value, or null if the key is not in the map.
+	 */
+	public V get(int key){
+		Entry<V> entry = getEntry(key);
+		return entry == null ? null : entry.value;
+	}
+
+	/**
+	 * Associates the given value with the given key, replacing the key's previous value if it has one.
+	 * @param key the key.
+	 * @param value the key's new value.
+	 * @return the key's previous value, or null if the key was not in the map.
+	 */
+	public V put(int key, V value){
+		Entry<V> entry = entryForWrite(key);
+		if (entry == null){
+			addEntry(key).value = value;
+			return null;
+		}
+		V oldValue = entry.value;
+		entry.value = value;
+		return oldValue;
+	}
+
+	/**
+	 * Removes the given key and its value from the map.
+	 * @param key the key to remove.
+	 * @return the key's value, or null if the key was not in the map.
+	 */
+	public V remove(int key){
+		Entry<V> entry = removeEntry(key);
+		return entry == null ? null : entry.value;
+	}
+
+	/**
+	 * Returns the value of the given key, computing it with the given function (and adding it) if the key
+	 * is not in the map.
+	 * @param key the key.
+	 * @param mappingFunction computes the value of a key that is not in the map. If it returns null,
+	 * nothing is added.
+	 * @return the key's current value, or null if it was computed as null.
+	 */
+	public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction){
+		Objects.requireNonNull(mappingFunction);
+		Entry<V> entry = getEntry(key);
+		if (entry != null){
+			return entry.value;
+		}
+		V value = mappingFunction.apply(key);
+		if (value != null){
+			addEntry(key).value = value;
+		}
+		return value;
+	}
+
+	/**
+	 * Adds the given value for a key that is not in the map (or whose value is null), or otherwise
+	 * replaces the key's value with the result of the given function on the old and given values.
+	 * If the function returns null, the key is removed.
+	 * @param key the key.
+	 * @param value the value to add, or to merge with the key's current value.
+	 * @param remappingFunction combines the current value and the given one.
+	 * @return the key's new value, or null if it was removed.
+	 */
+	public V merge(int key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction){
+		Objects.requireNonNull(value);
+		Objects.requireNonNull(remappingFunction);
+		Entry<V> entry = entryForWrite(key);
+		if (entry == null){
+			addEntry(key).value = value;
+			return value;
+		}
+		V newValue = entry.value == null ? value : remappingFunction.apply(entry.value, value);
+		if (newValue == null){
+			delete(key);
+		}
+		else {
+			entry.value = newValue;
+		}
+		return newValue;
+	}
+
+	/*
+	 * A node of the map: the key is the node's data, and the node also holds the key's value.
+	 */
+	static final class Entry<V> extends Node {
+
+		/* The key's value */
+		private V value;
+
+		/*
+		 * Creates an entry for the given key, with a null value.
+		 */
+		Entry(int key){
+			super(key);
+		}
+
+		/*
+		 * Copies the given entry's key, value and metadata, but not its links.
+		 */
+		Entry(Entry<V> oldEntry){
+			super(oldEntry);
+			this.value = oldEntry.value;
+		}
+
+		@Override
+		Node copy(){
+			return new Entry<>(this);
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package oop.ex4.data_structures;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.PrimitiveIterator;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes AvlTrees in a compact binary format and reads them back.
+ * The format is a 16 byte header (the magic number "AVLS", the format version, the tree's BalancePolicy and
+ * the number of values), the values in ascending order, and a CRC32C checksum of everything before it. The first value is written
+ * as a zigzag varint and every other value as a varint of its distance from the previous one (minus one),
+ * so dense sets of values take about one byte per value. All the fixed size fields are little endian.
+ * Both directions stream through a fixed size buffer. Reading builds the tree as the values arrive: the
+ * number of values is known from the header, so the tree is built balanced, in order, in one pass with no
+ * rotations and no intermediate array, and loading is bound by the I/O rather than the CPU. The tree that
+ * is read keeps itself balanced by the policy of the tree that was written: the ranks (or colors) of the
+ * built tree's nodes are set for it in another linear pass. Files of version 1, which had no policy in
+ * their 12 byte header, are read as AVL trees.
+ * Only the tree's values are written; the values of a map are not.
+ * @author shaharna13
+ */
+public final class AvlTreeSerializer {
+
+	/* Identifies the format: "AVLS" */
+	private static final int MAGIC = 0x534C5641;
+
+	/* The version of the format, and the first version that stores the balancing policy */
+	private static final int VERSION = 2;
+	private static final int POLICY_VERSION = 2;
+
+	/* The size of the magic number and the version, and of each of the header fields after them */
+	private static final int PREFIX_BYTES = 8;
+	private static final int FIELD_BYTES = 4;
+
+	/* The size of the checksum at the end */
+	private static final int CHECKSUM_BYTES = 4;
+
+	/* The longest varint of an int or of a distance between two ints */
+	private static final int MAX_VARINT_BYTES = 5;
+
+	/* The size of the I/O buffer */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private AvlTreeSerializer(){
+	}
+
+	/**
+	 * Writes the given tree to the given file, replacing its content, and forces it to the disk.
+	 * @param tree the tree to write.
+	 * @param file the file to write to, created if it doesn't exist.
+	 * @throws IOException if the file can't be written.
+	 */
+	public static void write(AvlTree tree, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)){
+			write(tree, channel);
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Writes the given tree to the given channel. The channel is not closed.
+	 * @param tree the tree to write.
+	 * @param channel the channel to write to.
+	 * @throws IOException if the channel can't be written.
+	 */
+	public static void write(AvlTree tree, WritableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		CRC32C checksum = new CRC32C();
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		// The policies are identified by their ordinal, so new ones must be added at the end of the enum.
+		buffer.putInt(tree.getBalancePolicy().ordinal());
+		buffer.putInt(tree.size());
+		PrimitiveIterator.OfInt iterator = tree.intIterator();
+		if (iterator.hasNext()){
+			int previous = iterator.nextInt();
+			putVarint(buffer, Integer.toUnsignedLong((previous << 1) ^ (previous >> 31)));
+			while (iterator.hasNext()){
+				if (buffer.remaining() < MAX_VARINT_BYTES){
+					flush(buffer, checksum, channel);
+				}
+				int data = iterator.nextInt();
+				putVarint(buffer, (long) data - previous - 1);
+				previous = data;
+			}
+		}
+		flush(buffer, checksum, channel);
+		buffer.putInt((int) checksum.getValue());
+		buffer.flip();
+		writeFully(buffer, channel);
+	}
+
+	/*
+	 * Writes the given unsigned value as a varint: 7 bits per byte, low bits first, the high bit set on all
+	 * the bytes but the last.
+	 */
+	private static void putVarint(ByteBuffer buffer, long value){
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0){
+			buffer.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		buffer.put((byte) remaining);
+	}
+
+	/*
+	 * Adds the buffer's content to the checksum, writes it to the channel and empties the buffer.
+	 */
+	private static void flush(ByteBuffer buffer, CRC32C checksum, WritableByteChannel channel)
+			throws IOException {
+		buffer.flip();
+		buffer.mark();
+		checksum.update(buffer);
+		buffer.reset();
+		writeFully(buffer, channel);
+		buffer.clear();
+	}
+
+	/*
+	 * Writes all of the buffer's remaining bytes to the channel.
+	 */
+	private static void writeFully(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Reads a tree from the given file.
+	 * @param file the file to read, written by write.
+	 * @return the tree.
+	 * @throws IOException if the file can't be read, is not in the format, or fails the checksum.
+	 */
+	public static AvlTree read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			return read(channel);
+		}
+	}
+
+	/**
+	 * Reads a tree from the given channel. The channel is not closed. The tree has the balancing policy of
+	 * the tree that was written.
+	 * The channel is read ahead through a buffer, as the length of the tree's data is only known once it is
+	 * decoded. A SeekableByteChannel (such as a FileChannel) is then positioned back at the first byte after
+	 * the tree's checksum, so whatever is stored after the tree can be read next. Any other channel may be
+	 * consumed past the tree's data, up to the buffer's size: the bytes after the tree are lost.
+	 * @param channel the channel to read from.
+	 * @return the tree.
+	 * @throws IOException if the channel can't be read, the data is not in the format, or fails the
+	 * checksum.
+	 */
+	public static AvlTree read(ReadableByteChannel channel) throws IOException {
+		ValueReader reader = new ValueReader(channel);
+		reader.require(PREFIX_BYTES);
+		int version = reader.buffer.getInt() == MAGIC ? reader.buffer.getInt() : -1;
+		if (version < 1 || version > VERSION){
+			throw new IOException("Not a serialized AVL tree");
+		}
+		BalancePolicy policy = BalancePolicy.AVL;
+		if (version >= POLICY_VERSION){
+			reader.require(FIELD_BYTES);
+			int ordinal = reader.buffer.getInt();
+			BalancePolicy[] policies = BalancePolicy.values();
+			if (ordinal < 0 || ordinal >= policies.length){
+				throw new IOException("Corrupt AVL tree: unknown balance policy " + ordinal);
+			}
+			policy = policies[ordinal];
+		}
+		reader.require(FIELD_BYTES);
+		int count = reader.buffer.getInt();
+		if (count < 0){
+			throw new IOException("Corrupt AVL tree: negative size " + count);
+		}
+		AvlTree tree = new AvlTree(policy);
+		tree.loadBalanced(build(reader, count));
+		int expected = (int) reader.checksum();
+		reader.require(CHECKSUM_BYTES);
+		if (reader.buffer.getInt() != expected){
+			throw new IOException("Corrupt AVL tree: checksum mismatch");
+		}
+		if (channel instanceof SeekableByteChannel){
+			// Give back the bytes read ahead past the checksum.
+			SeekableByteChannel seekable = (SeekableByteChannel) channel;
+			seekable.position(seekable.position() - reader.buffer.remaining());
+		}
+		return tree;
+	}
+
+	/*
+	 * Builds a balanced tree of the next given number of values, in order: the left sub tree takes the
+	 * first half of them, then the root takes the middle one, and the right sub tree the rest, which is the
+	 * shape AvlTree.buildBalanced gives a sorted array.
+	 * @return the root of the tree, or null if count is 0.
+	 */
+	private static Node build(ValueReader reader, int count) throws IOException {
+		if (count == 0){
+			return null;
+		}
+		int leftCount = count >>> 1;
+		Node left = build(reader, leftCount);
+		Node node = new Node(reader.next());
+		node.setLeftChild(left);
+		node.setRightChild(build(reader, count - leftCount - 1));
+		node.updateMetadata();
+		return node;
+	}
+
+	/*
+	 * Decodes the values from a channel through a buffer, keeping a checksum of the bytes it consumed.
+	 */
+	private static final class ValueReader {
+
+		/* The channel read from */
+		private final ReadableByteChannel channel;
+
+		/* The bytes read and not consumed yet, between the position and the limit */
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+		/* The checksum of the bytes consumed before checksumFrom */
+		private final CRC32C checksum = new CRC32C();
+
+		/* The position of the first consumed byte that is not in the checksum yet */
+		private int checksumFrom;
+
+		/* Whether the channel has no more bytes */
+		private boolean endOfStream;
+
+		/* The last value read, and whether any value was read yet */
+		private long previous;
+		private boolean started;
+
+		ValueReader(ReadableByteChannel channel){
+			this.channel = channel;
+			buffer.flip();
+		}
+
+		/*
+		 * Reads from the channel until at least the given number of bytes are in the buffer, or the channel
+		 * ends.
+		 */
+		private void fill(int bytes) throws IOException {
+			if (buffer.remaining() >= bytes || endOfStream){
+				return;
+			}
+			updateChecksum();
+			buffer.compact();
+			while (buffer.position() < bytes && !endOfStream){
+				endOfStream = channel.read(buffer) < 0;
+			}
+			buffer.flip();
+			checksumFrom = 0;
+		}
+
+		/*
+		 * Makes sure the buffer holds at least the given number of bytes.
+		 * @throws EOFException if the channel ends before them.
+		 */
+		void require(int bytes) throws IOException {
+			fill(bytes);
+			if (buffer.remaining() < bytes){
+				throw new EOFException("Truncated AVL tree");
+			}
+		}
+
+		/*
+		 * Adds the bytes consumed since the last update to the checksum.
+		 */
+		private void updateChecksum(){
+			checksum.update(buffer.array(), checksumFrom, buffer.position() - checksumFrom);
+			checksumFrom = buffer.position();
+		}
+
+		/*
+		 * @return the checksum of all the bytes consumed so far.
+		 */
+		long checksum(){
+			updateChecksum();
+			return checksum.getValue();
+		}
+
+		/*
+		 * Decodes the next value.
+		 * @throws IOException if the data ends or the value is out of the int range.
+		 */
+		int next() throws IOException {
+			fill(MAX_VARINT_BYTES);
+			// Decode straight from the backing array, the buffer's position is updated once at the end.
+			byte[] bytes = buffer.array();
+			int position = buffer.position();
+			int end = Math.min(buffer.limit(), position + MAX_VARINT_BYTES);
+			long value = 0;
+			int shift = 0;
+			byte current;
+			do {
+				if (position == end){
+					throw new EOFException("Truncated or corrupt AVL tree");
+				}
+				current = bytes[position++];
+				value |= (long) (current & 0x7F) << shift;
+				shift += 7;
+			} while (current < 0);
+			buffer.position(position);
+			long data;
+			if (started){
+				data = previous + value + 1;
+			}
+			else {
+				data = (value >>> 1) ^ -(value & 1);
+				started = true;
+			}
+			if (data > Integer.MAX_VALUE || data < Integer.MIN_VALUE){
+				throw new IOException("Corrupt AVL tree: value out of range");
+			}
+			previous = data;
+			return (int) data;
+		}
+	}
+}
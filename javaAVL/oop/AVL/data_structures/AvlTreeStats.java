@@ -0,0 +1,193 @@
+package oop.ex4.data_structures;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A listener that counts an AvlTree's rotations, rebalancing walks and operations, and exports them, with
+ * the tree's height and the AVL bounds on it, through JMX. The counters only move when the JVM runs with
+ * -Doop.ex4.data_structures.metrics=true (see AvlTreeListener).
+ * The counters are LongAdders, so the tree's thread updates them cheaply and a JMX client can read them at
+ * any time. The tree's height and size are read without synchronizing with it, so while it changes they are
+ * only a recent value.
+ * @author shaharna13
+ */
+public class AvlTreeStats implements AvlTreeListener, AvlTreeStatsMXBean {
+
+	/* The domain and type of the registered MBeans */
+	private static final String OBJECT_NAME_PREFIX = "oop.ex4.data_structures:type=AvlTree,name=";
+
+	/* The number of buckets of the rebalancing path histogram, the last one collects the longer paths */
+	private static final int HISTOGRAM_BUCKETS = 48;
+
+	/* The greatest height whose node count bounds fit in an int */
+	private static final int MAX_BOUNDED_HEIGHT = 44;
+
+	/* The tree measured */
+	private final AvlTree tree;
+
+	/* The counters, indexed by the ordinal of the rotation or the operation */
+	private final LongAdder[] rotations = newAdders(Rotation.values().length);
+	private final LongAdder[] operations = newAdders(Operation.values().length);
+	private final LongAdder[] comparisons = newAdders(Operation.values().length);
+	private final LongAdder[] nanos = newAdders(Operation.values().length);
+	private final LongAdder[] pathLengths = newAdders(HISTOGRAM_BUCKETS);
+
+	/* The name this was registered under, null if it isn't registered */
+	private ObjectName objectName;
+
+	/**
+	 * Creates the statistics of the given tree and sets them as the tree's listener.
+	 * @param tree the tree to measure.
+	 */
+	public AvlTreeStats(AvlTree tree){
+		this.tree = tree;
+		tree.setListener(this);
+	}
+
+	/*
+	 * @return an array of the given number of new adders.
+	 */
+	private static LongAdder[] newAdders(int count){
+		LongAdder[] adders = new LongAdder[count];
+		for (int i = 0; i < count; i++){
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	/*
+	 * @return the current sums of the given adders.
+	 */
+	private static long[] sums(LongAdder[] adders){
+		long[] sums = new long[adders.length];
+		for (int i = 0; i < adders.length; i++){
+			sums[i] = adders[i].sum();
+		}
+		return sums;
+	}
+
+	/*
+	 * @return the sums of the given adders divided by the operation counts, 0 for an operation that never ran.
+	 */
+	private double[] averages(LongAdder[] adders){
+		double[] averages = new double[adders.length];
+		for (int i = 0; i < adders.length; i++){
+			long count = operations[i].sum();
+			averages[i] = count == 0 ? 0 : (double) adders[i].sum() / count;
+		}
+		return averages;
+	}
+
+	@Override
+	public void rotated(Rotation rotation){
+		rotations[rotation.ordinal()].increment();
+	}
+
+	@Override
+	public void rebalanced(int pathLength){
+		pathLengths[Math.min(pathLength, HISTOGRAM_BUCKETS - 1)].increment();
+	}
+
+	@Override
+	public void operationCompleted(Operation operation, int comparisonCount, long elapsedNanos){
+		int index = operation.ordinal();
+		operations[index].increment();
+		comparisons[index].add(comparisonCount);
+		nanos[index].add(elapsedNanos);
+	}
+
+	@Override
+	public long[] getRotations(){
+		return sums(rotations);
+	}
+
+	@Override
+	public long[] getOperationCounts(){
+		return sums(operations);
+	}
+
+	@Override
+	public double[] getAverageComparisons(){
+		return averages(comparisons);
+	}
+
+	@Override
+	public double[] getAverageNanos(){
+		return averages(nanos);
+	}
+
+	@Override
+	public long[] getRebalancePathHistogram(){
+		return sums(pathLengths);
+	}
+
+	@Override
+	public int getHeight(){
+		Node root = tree.root;
+		return root == null ? -1 : root.getHeight();
+	}
+
+	@Override
+	public int getSize(){
+		return tree.size();
+	}
+
+	@Override
+	public int getMinimumHeight(){
+		// The least height whose full tree holds all the values.
+		int size = getSize();
+		int height = 0;
+		while (height < MAX_BOUNDED_HEIGHT && AvlTree.findMaxNodes(height) < size){
+			height++;
+		}
+		return height;
+	}
+
+	@Override
+	public int getMaximumHeight(){
+		// The greatest height whose sparsest AVL tree doesn't need more values than there are.
+		int size = getSize();
+		int height = 0;
+		while (height < MAX_BOUNDED_HEIGHT && AvlTree.findMinNodes(height + 1) <= size){
+			height++;
+		}
+		return height;
+	}
+
+	@Override
+	public void reset(){
+		for (LongAdder[] adders : new LongAdder[][] {rotations, operations, comparisons, nanos, pathLengths}){
+			for (LongAdder adder : adders){
+				adder.reset();
+			}
+		}
+	}
+
+	/**
+	 * Registers these statistics in the platform MBean server, as
+	 * oop.ex4.data_structures:type=AvlTree,name=&lt;name&gt;.
+	 * @param name the name of the tree, unique among the registered trees.
+	 * @throws JMException if the name is not valid or is already registered.
+	 */
+	public synchronized void register(String name) throws JMException {
+		ObjectName newName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+		objectName = newName;
+	}
+
+	/**
+	 * Removes these statistics from the platform MBean server, if they were registered.
+	 * @throws JMException if they can't be removed.
+	 */
+	public synchronized void unregister() throws JMException {
+		if (objectName != null){
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+}
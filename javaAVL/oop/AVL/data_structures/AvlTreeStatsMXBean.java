@@ -0,0 +1,59 @@
+package oop.ex4.data_structures;
+
+/**
+ * The JMX view of an AvlTreeStats: the counters it collected and the shape of its tree.
+ * @author shaharna13
+ */
+public interface AvlTreeStatsMXBean {
+
+	/**
+	 * @return the number of rotations of each kind, in the order LL, LR, RR, RL.
+	 */
+	long[] getRotations();
+
+	/**
+	 * @return the number of add, delete and contains operations, in this order.
+	 */
+	long[] getOperationCounts();
+
+	/**
+	 * @return the average number of comparisons of the add, delete and contains operations, in this order.
+	 */
+	double[] getAverageComparisons();
+
+	/**
+	 * @return the average time of the add, delete and contains operations in nanoseconds, in this order.
+	 */
+	double[] getAverageNanos();
+
+	/**
+	 * @return the number of rebalancing walks of each length: the walks of length i at index i, and all the
+	 * walks that are at least as long as the last index at the last index.
+	 */
+	long[] getRebalancePathHistogram();
+
+	/**
+	 * @return the current height of the tree, -1 if it is empty.
+	 */
+	int getHeight();
+
+	/**
+	 * @return the current number of values in the tree.
+	 */
+	int getSize();
+
+	/**
+	 * @return the least height an AVL tree of the current size can have.
+	 */
+	int getMinimumHeight();
+
+	/**
+	 * @return the greatest height an AVL tree of the current size can have.
+	 */
+	int getMaximumHeight();
+
+	/**
+	 * Sets all the counters back to zero.
+	 */
+	void reset();
+}
@@ -0,0 +1,53 @@
+package oop.ex4.data_structures;
+
+/**
+ * The ways an AvlTree can keep itself balanced (see AvlTree(BalancePolicy)). All of them keep the tree's
+ * height logarithmic, and the tree's cached heights and sub tree sizes up to date, so searching, ranks and
+ * iteration work the same; they differ in how much restructuring an update costs.
+ * The join-based operations (split, join, union, intersection and difference) rely on AVL's height
+ * balance, so they take logarithmic time only on AVL trees; other trees are merged and rebuilt in linear
+ * time.
+ * @author shaharna13
+ */
+public enum BalancePolicy {
+
+	/**
+	 * AVL: the heights of the sub trees of every node differ by at most one. The shallowest trees (at most
+	 * 1.44logn high), but a deletion may rotate at every level on the way up.
+	 */
+	AVL {
+		@Override
+		Rebalancer newRebalancer(AvlTree tree){
+			return new AvlRebalancer(tree);
+		}
+	},
+
+	/**
+	 * Weak AVL (Haeupler, Sen and Tarjan, "Rank-Balanced Trees"): every node has a rank, and the rank
+	 * differences of its children are 1 or 2. Insertions balance exactly like AVL, and a tree built by
+	 * insertions alone is an AVL tree; a deletion does at most two rotations. At most 2logn high.
+	 */
+	WAVL {
+		@Override
+		Rebalancer newRebalancer(AvlTree tree){
+			return new WavlRebalancer(tree);
+		}
+	},
+
+	/**
+	 * Red-black: every path from a node down to a missing child passes through the same number of black
+	 * nodes, and a red node has no red child. At most two rotations per insertion and three per deletion.
+	 * At most 2logn high.
+	 */
+	RED_BLACK {
+		@Override
+		Rebalancer newRebalancer(AvlTree tree){
+			return new RedBlackRebalancer(tree);
+		}
+	};
+
+	/*
+	 * Creates the object that rebalances the given tree after its updates.
+	 */
+	abstract Rebalancer newRebalancer(AvlTree tree);
+}
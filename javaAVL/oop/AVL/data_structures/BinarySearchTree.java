@@ -1,7 +1,16 @@
 package oop.ex4.data_structures;
 
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * This is an implementation of a basic Binary search Tree.
@@ -20,6 +29,58 @@ public abstract class BinarySearchTree implements Iterable<Integer>{
 	/* Flag for the default value */
 	private static final int DEFAULT_RETURN_VALUE = -1;
 
+	/*
+	 * Like findNode, but starts from the given node of the tree (a finger) instead of the root: it climbs
+	 * from the finger to the lowest ancestor whose sub tree may hold the data, and searches down from there.
+	 * When the data is close to the finger's, this is O(log d) for a distance of d values, and it is never
+	 * much worse than searching from the root.
+	 * @param finger a node of the tree, or null to search from the root.
+	 * @param data The data search value
+	 * @return the node with the data given (if found),otherwise the designated parent of the future node.
+	 */
+	Node findNodeFrom(Node finger, int data){
+		if (finger == null){
+			return findNode(data);
+		}
+		Node curNode = finger;
+		boolean ascending = data >= finger.getData();
+		// Climb until the data is on the inner side of an ancestor: all of curNode's sub tree is then between
+		// the finger's data and that ancestor's, and the search path from the root passes through curNode.
+		while (curNode.getParent() != null){
+			Node parent = curNode.getParent();
+			boolean leftChild = parent.getLeftChild() == curNode;
+			if (ascending && leftChild && data < parent.getData()){
+				break;
+			}
+			if (!ascending && !leftChild && data > parent.getData()){
+				break;
+			}
+			curNode = parent;
+		}
+		Node lastNode = curNode;
+		while (curNode != null){
+			lastNode = curNode;
+			int nodeData = curNode.getData();
+			if (nodeData == data){
+				return curNode;
+			}
+			curNode = nodeData > data ? curNode.getLeftChild() : curNode.getRightChild();
+		}
+		return lastNode;
+	}
+
+	/*
+	 * The owner count of nodes shared with snapshots, null when the nodes belong to this tree alone.
+	 * Shared nodes are never modified: the first tree to change copies them first (copy-on-write).
+	 */
+	private SharedNodes sharedNodes;
+
+	/* Receives the tree's events when AvlTreeListener.METRICS_ENABLED is true, may be null */
+	AvlTreeListener listener;
+
+	/* The number of structural changes (values added or removed, trees relinked), checked by the iterators */
+	int modCount;
+
 	/**
 	 * default constructor.
 	 */
@@ -46,18 +107,51 @@ public abstract class BinarySearchTree implements Iterable<Integer>{
 
 	/**
 	 * A copy constructor that creates a deep copy of the given AvlTree.
-	 * The new tree contains all the values of the given tree, but not necessarily in the same structure.
+	 * The new tree contains all the values of the given tree, in the same structure. The copy is made
+	 * iteratively, so it is linear in the tree size and independent of the tree's depth.
 	 * @param tree The BS tree to be copied.
 	 */
 	public BinarySearchTree(AvlTree tree){
 		if (tree!= null && tree.getTreeRoot() != null){
-			this.root = new Node(tree.getTreeRoot());
+			this.root = Node.copyTree(tree.getTreeRoot());
 		}
 		else {
 			this.root = null;
 		}
 	}
 
+	/*
+	 * Makes the given tree share this tree's nodes, in O(1). Until one of the trees is modified, both
+	 * read the same nodes; the tree that is modified first copies them (see ensureExclusiveNodes).
+	 * @param other an empty tree that becomes a copy of this one.
+	 */
+	void shareNodesWith(BinarySearchTree other){
+		if (sharedNodes == null){
+			sharedNodes = new SharedNodes();
+		}
+		sharedNodes.owners++;
+		other.sharedNodes = sharedNodes;
+		other.root = root;
+	}
+
+	/*
+	 * Must be called before modifying the tree's nodes. If the nodes are shared with another tree, this
+	 * tree replaces them with a private copy, leaving the shared ones to the other trees.
+	 * @return true if the nodes were replaced (so node references taken before the call are stale).
+	 */
+	boolean ensureExclusiveNodes(){
+		if (sharedNodes == null){
+			return false;
+		}
+		boolean stillShared = sharedNodes.owners > 1;
+		sharedNodes.owners--;
+		sharedNodes = null;
+		if (stillShared){
+			root = Node.copyTree(root);
+		}
+		return stillShared;
+	}
+
 	/*
 	 * Getter. Get tree root.
 	 */
@@ -66,13 +160,283 @@ public abstract class BinarySearchTree implements Iterable<Integer>{
 	}
 	/**
 	 * Returns an iterator for the Avl Tree. The returned iterator iterates over the tree nodes in an
-	 * ascending order, and does NOT implement the remove() method.
+	 * ascending order, and does NOT implement the remove() method. It is fail-fast, like intIterator().
 	 * @return an iterator for the Avl Tree.
 	 */
 	public java.util.Iterator<java.lang.Integer> iterator(){
 		return new BinarySearchTreeIterator(this);
 	}
 
+	/**
+	 * Returns a primitive iterator over the tree's values in ascending order. Unlike iterator(), the values
+	 * are not boxed. Each step is amortized O(1), as the iterator keeps the path it walks on a stack
+	 * instead of searching for the successor from the current node.
+	 * The iterator is fail-fast: if the tree is structurally modified after the iterator was created, its
+	 * next call to nextInt throws a ConcurrentModificationException, rather than returning values from
+	 * nodes that have moved. See weaklyConsistentIterator for an iterator that keeps going.
+	 * @return a primitive iterator over the tree's values in ascending order.
+	 */
+	public PrimitiveIterator.OfInt intIterator(){
+		return new InOrderIterator(false);
+	}
+
+	/**
+	 * Returns a weakly consistent primitive iterator over the tree's values in ascending order, for scans
+	 * that are interleaved with changes to the tree. The iterator never throws a
+	 * ConcurrentModificationException: after the tree changes, it finds its place again by searching for the
+	 * value after the last one it returned, in O(logn). It returns every value that is in the tree during
+	 * the whole iteration exactly once, in ascending order; values added or removed during the iteration may
+	 * or may not be returned. Between changes it costs the same as intIterator().
+	 * The tree must still be modified by one thread at a time, and not while the iterator is in a call.
+	 * @return a weakly consistent iterator over the tree's values in ascending order.
+	 */
+	public PrimitiveIterator.OfInt weaklyConsistentIterator(){
+		return new InOrderIterator(true);
+	}
+
+	/**
+	 * Performs the given action on each of the tree's values, in ascending order, without boxing them.
+	 * It is named apart from Iterable.forEach(Consumer), so a lambda passed to it needs no parameter type.
+	 * @param action the action to perform on each value.
+	 */
+	public void forEachInt(IntConsumer action){
+		Objects.requireNonNull(action);
+		if (root == null){
+			return;
+		}
+		Node[] stack = new Node[root.getHeight() + 1];
+		int top = 0;
+		Node curNode = root;
+		int expectedModCount = modCount;
+		while (true){
+			// Push the left spine of the current sub tree, its minimum ends on the top of the stack.
+			while (curNode != null){
+				stack[top++] = curNode;
+				curNode = curNode.getLeftChild();
+			}
+			if (top == 0){
+				return;
+			}
+			Node visited = stack[--top];
+			action.accept(visited.getData());
+			if (modCount != expectedModCount){
+				throw new ConcurrentModificationException();
+			}
+			curNode = visited.getRightChild();
+		}
+	}
+
+	/**
+	 * Returns a spliterator over the tree's values in ascending order, which splits in O(1) by the values'
+	 * ranks, so a parallel stream divides the tree into parts of equal, exactly known sizes. Each part finds
+	 * its first value in one O(logn) walk down the cached sub tree sizes, and then iterates like
+	 * intIterator(). The tree must not be modified while the spliterator or its parts are used; a part that
+	 * notices a change throws a ConcurrentModificationException.
+	 * @return an ORDERED, SORTED, DISTINCT, SIZED and SUBSIZED spliterator over the tree's values.
+	 */
+	@Override
+	public Spliterator.OfInt spliterator(){
+		return new RankSpliterator(0, size(), modCount);
+	}
+
+	/**
+	 * Returns a sequential stream of the tree's values in ascending order. The stream is sized, and
+	 * stream().parallel() splits the tree evenly between the threads (see spliterator()).
+	 * @return an IntStream of the tree's values.
+	 */
+	public IntStream stream(){
+		return StreamSupport.intStream(spliterator(), false);
+	}
+
+	/**
+	 * Returns the tree's smallest value.
+	 * @return the minimum value.
+	 * @throws NoSuchElementException if the tree is empty.
+	 */
+	public int first(){
+		if (root == null){
+			throw new NoSuchElementException();
+		}
+		return findMinNode(root).getData();
+	}
+
+	/**
+	 * Returns the tree's largest value.
+	 * @return the maximum value.
+	 * @throws NoSuchElementException if the tree is empty.
+	 */
+	public int last(){
+		if (root == null){
+			throw new NoSuchElementException();
+		}
+		return findMaxNode(root).getData();
+	}
+
+	/**
+	 * Returns the largest value in the tree that is smaller than or equal to the given one.
+	 * @param data the value to search for.
+	 * @return the greatest value <= data, or an empty OptionalInt if there is none.
+	 */
+	public OptionalInt floor(int data){
+		return toOptional(findBelow(data, true));
+	}
+
+	/**
+	 * Returns the largest value in the tree that is strictly smaller than the given one.
+	 * @param data the value to search for.
+	 * @return the greatest value < data, or an empty OptionalInt if there is none.
+	 */
+	public OptionalInt lower(int data){
+		return toOptional(findBelow(data, false));
+	}
+
+	/**
+	 * Returns the smallest value in the tree that is greater than or equal to the given one.
+	 * @param data the value to search for.
+	 * @return the least value >= data, or an empty OptionalInt if there is none.
+	 */
+	public OptionalInt ceiling(int data){
+		return toOptional(findAbove(data, true));
+	}
+
+	/**
+	 * Returns the smallest value in the tree that is strictly greater than the given one.
+	 * @param data the value to search for.
+	 * @return the least value > data, or an empty OptionalInt if there is none.
+	 */
+	public OptionalInt higher(int data){
+		return toOptional(findAbove(data, false));
+	}
+
+	/**
+	 * Removes the tree's smallest value.
+	 * @return the removed value, or an empty OptionalInt if the tree was empty.
+	 */
+	public OptionalInt pollFirst(){
+		if (root == null){
+			return OptionalInt.empty();
+		}
+		int first = findMinNode(root).getData();
+		delete(first);
+		return OptionalInt.of(first);
+	}
+
+	/**
+	 * Removes the tree's largest value.
+	 * @return the removed value, or an empty OptionalInt if the tree was empty.
+	 */
+	public OptionalInt pollLast(){
+		if (root == null){
+			return OptionalInt.empty();
+		}
+		int last = findMaxNode(root).getData();
+		delete(last);
+		return OptionalInt.of(last);
+	}
+
+	/**
+	 * Returns a primitive iterator over the tree's values between the given bounds, in ascending order.
+	 * Finding the first value takes O(logn), and each further step is amortized O(1); the iterator stops at
+	 * the upper bound, so a range of k values costs O(logn + k) however large the tree is.
+	 * The iterator is fail-fast, like intIterator().
+	 * @param low the lower bound.
+	 * @param lowInclusive true if the lower bound itself is in the range.
+	 * @param high the upper bound.
+	 * @param highInclusive true if the upper bound itself is in the range.
+	 * @return an iterator over the values in the range, smallest first.
+	 * @throws IllegalArgumentException if low is greater than high.
+	 */
+	public PrimitiveIterator.OfInt rangeIterator(int low, boolean lowInclusive, int high, boolean highInclusive){
+		checkRange(low, high);
+		return new RangeIterator(true, low, lowInclusive, high, highInclusive);
+	}
+
+	/**
+	 * Returns a primitive iterator over the tree's values between the given bounds, in descending order,
+	 * with the same costs as rangeIterator.
+	 * @param low the lower bound.
+	 * @param lowInclusive true if the lower bound itself is in the range.
+	 * @param high the upper bound.
+	 * @param highInclusive true if the upper bound itself is in the range.
+	 * @return an iterator over the values in the range, largest first.
+	 * @throws IllegalArgumentException if low is greater than high.
+	 */
+	public PrimitiveIterator.OfInt descendingRangeIterator(int low, boolean lowInclusive, int high,
+														   boolean highInclusive){
+		checkRange(low, high);
+		return new RangeIterator(false, low, lowInclusive, high, highInclusive);
+	}
+
+	/**
+	 * Returns a primitive iterator over all the tree's values in descending order.
+	 * @return an iterator over the tree's values, largest first.
+	 */
+	public PrimitiveIterator.OfInt descendingIterator(){
+		return new RangeIterator(false, Integer.MIN_VALUE, true, Integer.MAX_VALUE, true);
+	}
+
+	/*
+	 * Throws IllegalArgumentException if the given range bounds are reversed.
+	 */
+	private static void checkRange(int low, int high){
+		if (low > high){
+			throw new IllegalArgumentException("low (" + low + ") is greater than high (" + high + ")");
+		}
+	}
+
+	/*
+	 * @return an OptionalInt of the node's data, empty for null.
+	 */
+	private static OptionalInt toOptional(Node node){
+		return node == null ? OptionalInt.empty() : OptionalInt.of(node.getData());
+	}
+
+	/*
+	 * Finds the node of the greatest value below the given one, in one walk from the root: the answer is
+	 * the last node the walk went right from.
+	 * @param data the value.
+	 * @param inclusive true to accept the value itself.
+	 * @return the node, or null if there is no such value.
+	 */
+	Node findBelow(int data, boolean inclusive){
+		Node found = null;
+		Node curNode = root;
+		while (curNode != null){
+			int nodeData = curNode.getData();
+			if (nodeData < data || (inclusive && nodeData == data)){
+				found = curNode;
+				curNode = curNode.getRightChild();
+			}
+			else {
+				curNode = curNode.getLeftChild();
+			}
+		}
+		return found;
+	}
+
+	/*
+	 * Finds the node of the least value above the given one, in one walk from the root: the answer is the
+	 * last node the walk went left from.
+	 * @param data the value.
+	 * @param inclusive true to accept the value itself.
+	 * @return the node, or null if there is no such value.
+	 */
+	Node findAbove(int data, boolean inclusive){
+		Node found = null;
+		Node curNode = root;
+		while (curNode != null){
+			int nodeData = curNode.getData();
+			if (nodeData > data || (inclusive && nodeData == data)){
+				found = curNode;
+				curNode = curNode.getLeftChild();
+			}
+			else {
+				curNode = curNode.getRightChild();
+			}
+		}
+		return found;
+	}
+
 	/**
 	 * Check whether the tree contains the given input value.
 	 * @param searchVal value to search for
@@ -80,17 +444,104 @@ public abstract class BinarySearchTree implements Iterable<Integer>{
 	 * value if it was found in the tree, -1 otherwise
 	 */
 	public int contains(int searchVal){
-		// Find the node with the data or the parent of where the node should have been.
-		Node potentialLoc = findNode(searchVal);
-		if (potentialLoc == null){
-			return DEFAULT_RETURN_VALUE;
+		if (AvlTreeListener.METRICS_ENABLED && listener != null){
+			long start = System.nanoTime();
+			int found = findDepth(searchVal);
+			long nanos = System.nanoTime() - start;
+			// A miss compared the value with every node down to the missing child, a hit also with its node.
+			int comparisons = found < 0 ? -found - 1 : found + 1;
+			listener.operationCompleted(AvlTreeListener.Operation.CONTAINS, comparisons, nanos);
+			return found < 0 ? DEFAULT_RETURN_VALUE : found;
+		}
+		int found = findDepth(searchVal);
+		return found < 0 ? DEFAULT_RETURN_VALUE : found;
+	}
+
+	/*
+	 * Searches for the given value from the root, counting the depth on the way down (rather than walking
+	 * the parents back up from the node that was found). A miss returns the number of nodes it passed
+	 * instead, encoded as a negative number, so the metrics get the search's length from its result rather
+	 * than from a field that concurrent readers would share.
+	 * @param searchVal value to search for
+	 * @return the depth of the value's node, or -1 - d if it is not in the tree and the search passed d
+	 * nodes.
+	 */
+	private int findDepth(int searchVal){
+		Node curNode = root;
+		int depth = 0;
+		while (curNode != null){
+			int nodeData = curNode.getData();
+			if (nodeData == searchVal){
+				return depth;
+			}
+			curNode = nodeData > searchVal ? curNode.getLeftChild() : curNode.getRightChild();
+			depth++;
+		}
+		return -1 - depth;
+	}
+
+	/*
+	 * Like findNode, but also counts the nodes the search compares the value with: the nodes from the root
+	 * down to the value's node, or down to the missing child where it would be. Used by the metrics of add
+	 * and delete, which count and time this one search. The count goes into an array the caller owns rather
+	 * than into a field, which concurrent readers would share.
+	 * @param data the value.
+	 * @param comparisons receives the number of comparisons at index 0.
+	 * @return the same node as findNode.
+	 */
+	Node findNode(int data, int[] comparisons){
+		Node lastNode = root;
+		Node curNode = root;
+		int count = 0;
+		while (curNode != null){
+			lastNode = curNode;
+			count++;
+			int nodeData = curNode.getData();
+			if (nodeData == data){
+				break;
+			}
+			curNode = nodeData > data ? curNode.getLeftChild() : curNode.getRightChild();
 		}
-		if (potentialLoc.getData() == searchVal){
-			return potentialLoc.getDepth();
+		comparisons[0] = count;
+		return lastNode;
+	}
+
+	/**
+	 * Checks which of the given values are in the tree. The values must be sorted, so each search starts
+	 * from the node the previous one ended at and only climbs as far as needed (a finger search) instead of
+	 * starting from the root: k values cost O(k log(n/k)) rather than O(k logn).
+	 * @param sorted the values to look up, in ascending order (duplicates are allowed).
+	 * @param results receives true at index i if sorted[i] is in the tree, false otherwise; must be at least
+	 * as long as sorted.
+	 * @return the number of values found.
+	 * @throws IllegalArgumentException if sorted is not in ascending order, or results is too short.
+	 */
+	public int containsAll(int[] sorted, boolean[] results){
+		checkSorted(sorted);
+		if (results.length < sorted.length){
+			throw new IllegalArgumentException("results is shorter than the values (" + results.length + " < "
+					+ sorted.length + ")");
 		}
-		// If the node found's data doesn't match the data given, the data doesn't exist in the tree
-		else {
-			return DEFAULT_RETURN_VALUE; // Default
+		int found = 0;
+		Node finger = null;
+		for (int i = 0; i < sorted.length; i++){
+			finger = findNodeFrom(finger, sorted[i]);
+			results[i] = finger != null && finger.getData() == sorted[i];
+			if (results[i]){
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/*
+	 * Throws IllegalArgumentException if the given values are not in ascending order.
+	 */
+	static void checkSorted(int[] sorted){
+		for (int i = 1; i < sorted.length; i++){
+			if (sorted[i - 1] > sorted[i]){
+				throw new IllegalArgumentException("The values are not sorted at index " + i);
+			}
 		}
 	}
 
@@ -139,6 +590,23 @@ public abstract class BinarySearchTree implements Iterable<Integer>{
 		return curNode;
 	}
 
+	/*
+	 * This function finds the maximum node of the sub tree rooted in the given node.
+	 * @param startNode the root of the sub tree
+	 * @return the Node which is the maximum node in the sub tree
+	 */
+	Node findMaxNode(Node startNode){
+		if(startNode==null){
+			return startNode;
+		}
+		Node curNode = startNode;
+
+		while (curNode.getRightChild() != null){
+			curNode = curNode.getRightChild();
+		}
+		return curNode;
+	}
+
 	/*
 	 * The function returns the successor of the received node;
 	 * @param toSuccess An Node to whom to find it's successor
@@ -158,6 +626,19 @@ public abstract class BinarySearchTree implements Iterable<Integer>{
 		}
 	}
 
+	/*
+	 * This function returns the node with the data given.
+	 * @param data The data search value
+	 * @return the node with the data given, or null if the data is not in the tree.
+	 */
+	Node getNode(int data){
+		Node potentialLoc = findNode(data);
+		if (potentialLoc == null || potentialLoc.getData() != data){
+			return null;
+		}
+		return potentialLoc;
+	}
+
 	/*
 	 * This function returns the node with the data given, or the designated parent of the future node.
 	 * The designated parent will always have a left/right/both children null (otherwise the while loop
@@ -191,26 +672,387 @@ public abstract class BinarySearchTree implements Iterable<Integer>{
 		return lastNode;
 	}
 
+	/*
+	 * The owner count of a set of nodes shared between trees.
+	 */
+	private static final class SharedNodes {
+
+		/* The number of trees whose root is in the shared nodes. A tree that owns them alone can modify them */
+		private int owners = 1;
+	}
+
+	/*
+	 * An in-order iterator that keeps the path to the next node on an explicit stack. The stack holds the
+	 * nodes whose own value was not returned yet, and whose right sub tree was not visited yet; the next
+	 * node is always on its top. The tree's height bounds the stack, so it is allocated once.
+	 * The stack is only valid while the tree's modCount is unchanged. After a change, a fail-fast iterator
+	 * throws, and a weakly consistent one rebuilds the stack from the root: the path to the first value
+	 * greater than the last one returned.
+	 */
+	private class InOrderIterator implements PrimitiveIterator.OfInt {
+
+		/* The pending nodes, the next one on top */
+		private Node[] stack;
+
+		/* The number of nodes on the stack */
+		private int top;
+
+		/* True to find the place again after a change instead of throwing */
+		private final boolean weaklyConsistent;
+
+		/* The tree's modCount when the stack was built */
+		private int expectedModCount;
+
+		/* The last value returned, and whether any value was returned yet */
+		private int lastReturned;
+		private boolean started;
+
+		/*
+		 * Creates an iterator that starts at the tree's minimum.
+		 */
+		InOrderIterator(boolean weaklyConsistent){
+			this.weaklyConsistent = weaklyConsistent;
+			expectedModCount = modCount;
+			stack = new Node[root == null ? 0 : root.getHeight() + 1];
+			pushLeftSpine(root);
+		}
+
+		/*
+		 * Checks that the tree didn't change since the stack was built, or rebuilds the stack if it did and
+		 * the iterator is weakly consistent.
+		 * @throws ConcurrentModificationException if the tree changed and the iterator is fail-fast.
+		 */
+		private void checkForChanges(){
+			if (modCount == expectedModCount){
+				return;
+			}
+			if (!weaklyConsistent){
+				throw new ConcurrentModificationException();
+			}
+			expectedModCount = modCount;
+			top = 0;
+			if (root != null && stack.length < root.getHeight() + 1){
+				stack = new Node[root.getHeight() + 1];
+			}
+			if (!started){
+				pushLeftSpine(root);
+				return;
+			}
+			// Push the nodes the search for the next value turns left from, the first one ends on top.
+			Node curNode = root;
+			while (curNode != null){
+				if (curNode.getData() > lastReturned){
+					stack[top++] = curNode;
+					curNode = curNode.getLeftChild();
+				}
+				else {
+					curNode = curNode.getRightChild();
+				}
+			}
+		}
+
+		/*
+		 * Pushes the given node and all its left descendants on the stack.
+		 */
+		private void pushLeftSpine(Node node){
+			Node curNode = node;
+			while (curNode != null){
+				stack[top++] = curNode;
+				curNode = curNode.getLeftChild();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (weaklyConsistent){
+				checkForChanges();
+			}
+			return top > 0;
+		}
+
+		@Override
+		public int nextInt() {
+			checkForChanges();
+			if (top == 0){
+				throw new NoSuchElementException();
+			}
+			Node curNode = stack[--top];
+			pushLeftSpine(curNode.getRightChild());
+			lastReturned = curNode.getData();
+			started = true;
+			return lastReturned;
+		}
+	}
+
+	/*
+	 * A spliterator over the values of ranks from (inclusive) to to (exclusive). Splitting halves the range
+	 * of ranks without touching the tree. The first traversal walks from the root to the value of rank
+	 * from, choosing the side by the sizes of the left sub trees, and pushes the nodes whose value and right
+	 * sub tree come later (like InOrderIterator's stack); from then on each value is amortized O(1).
+	 */
+	private final class RankSpliterator implements Spliterator.OfInt {
+
+		/* The rank of the next value, and the rank after the last one */
+		private int from;
+		private final int to;
+
+		/* The tree's modCount when the root spliterator was created */
+		private final int expectedModCount;
+
+		/* The pending nodes, the next one on top; null until the traversal starts */
+		private Node[] stack;
+
+		/* The number of nodes on the stack */
+		private int top;
+
+		RankSpliterator(int from, int to, int expectedModCount){
+			this.from = from;
+			this.to = to;
+			this.expectedModCount = expectedModCount;
+		}
+
+		/*
+		 * Throws ConcurrentModificationException if the tree changed since the spliterator was created.
+		 */
+		private void checkForChanges(){
+			if (modCount != expectedModCount){
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		/*
+		 * Builds the stack of the path to the value of rank from.
+		 */
+		private void seek(){
+			checkForChanges();
+			stack = new Node[root.getHeight() + 1];
+			int rank = from;
+			Node curNode = root;
+			while (curNode != null){
+				Node lChild = curNode.getLeftChild();
+				int leftSize = lChild == null ? 0 : lChild.size();
+				if (rank <= leftSize){
+					stack[top++] = curNode;
+					curNode = rank == leftSize ? null : lChild;
+				}
+				else {
+					rank -= leftSize + 1;
+					curNode = curNode.getRightChild();
+				}
+			}
+		}
+
+		/*
+		 * Pops the next node and pushes the left spine of its right sub tree.
+		 * @return the next value.
+		 */
+		private int nextData(){
+			Node curNode = stack[--top];
+			for (Node child = curNode.getRightChild(); child != null; child = child.getLeftChild()){
+				stack[top++] = child;
+			}
+			from++;
+			return curNode.getData();
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action){
+			Objects.requireNonNull(action);
+			if (from >= to){
+				return false;
+			}
+			// A stale stack may hold nodes that moved, so the tree is checked before each step, not only after.
+			if (stack == null){
+				seek();
+			}
+			else {
+				checkForChanges();
+			}
+			action.accept(nextData());
+			checkForChanges();
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action){
+			Objects.requireNonNull(action);
+			if (from >= to){
+				return;
+			}
+			if (stack == null){
+				seek();
+			}
+			while (from < to){
+				action.accept(nextData());
+				checkForChanges();
+			}
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit(){
+			// Once the traversal started the stack belongs to this part, so it is no longer split.
+			if (stack != null || to - from < 2){
+				return null;
+			}
+			int middle = (from + to) >>> 1;
+			RankSpliterator prefix = new RankSpliterator(from, middle, expectedModCount);
+			from = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize(){
+			return to - from;
+		}
+
+		@Override
+		public int characteristics(){
+			return Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL
+					| Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
+
+		@Override
+		public Comparator<? super Integer> getComparator(){
+			// The values are in their natural order.
+			return null;
+		}
+	}
+
+	/*
+	 * An in-order iterator over the values between two bounds, in either direction. It starts by pushing
+	 * the path to the first value in the range (the nodes it turns towards the range's far end from), and
+	 * stops as soon as it passes the range's far bound, so it never visits the values outside the range
+	 * except along those two paths. Ascending, the stack holds the nodes whose value and right sub tree
+	 * are still to come; descending, the nodes whose value and left sub tree are.
+	 */
+	private class RangeIterator implements PrimitiveIterator.OfInt {
+
+		/* The pending nodes, the next one on top */
+		private final Node[] stack;
+
+		/* The number of nodes on the stack */
+		private int top;
+
+		/* The direction of the iteration */
+		private final boolean ascending;
+
+		/* The bound the iteration stops at: the upper one ascending, the lower one descending */
+		private final int endBound;
+		private final boolean endInclusive;
+
+		/* The tree's modCount when the iterator was created */
+		private final int expectedModCount = modCount;
+
+		/*
+		 * Creates an iterator that starts at the first value of the range in the given direction.
+		 */
+		RangeIterator(boolean ascending, int low, boolean lowInclusive, int high, boolean highInclusive){
+			this.ascending = ascending;
+			this.endBound = ascending ? high : low;
+			this.endInclusive = ascending ? highInclusive : lowInclusive;
+			stack = new Node[root == null ? 0 : root.getHeight() + 1];
+			int startBound = ascending ? low : high;
+			boolean startInclusive = ascending ? lowInclusive : highInclusive;
+			Node curNode = root;
+			while (curNode != null){
+				if (beforeStart(curNode.getData(), startBound, startInclusive)){
+					// The node and everything on its near side are out of the range.
+					curNode = far(curNode);
+				}
+				else {
+					stack[top++] = curNode;
+					curNode = near(curNode);
+				}
+			}
+			dropIfPastEnd();
+		}
+
+		/*
+		 * @return true if the given value comes before the range's starting bound.
+		 */
+		private boolean beforeStart(int data, int bound, boolean inclusive){
+			if (ascending){
+				return inclusive ? data < bound : data <= bound;
+			}
+			return inclusive ? data > bound : data >= bound;
+		}
+
+		/*
+		 * @return the child on the side the iteration comes from: the left one ascending.
+		 */
+		private Node near(Node node){
+			return ascending ? node.getLeftChild() : node.getRightChild();
+		}
+
+		/*
+		 * @return the child on the side the iteration goes to: the right one ascending.
+		 */
+		private Node far(Node node){
+			return ascending ? node.getRightChild() : node.getLeftChild();
+		}
+
+		/*
+		 * Empties the stack if the next value is past the range's end bound, which ends the iteration.
+		 */
+		private void dropIfPastEnd(){
+			if (top == 0){
+				return;
+			}
+			int data = stack[top - 1].getData();
+			boolean pastEnd;
+			if (ascending){
+				pastEnd = endInclusive ? data > endBound : data >= endBound;
+			}
+			else {
+				pastEnd = endInclusive ? data < endBound : data <= endBound;
+			}
+			if (pastEnd){
+				top = 0;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		@Override
+		public int nextInt() {
+			if (modCount != expectedModCount){
+				throw new ConcurrentModificationException();
+			}
+			if (top == 0){
+				throw new NoSuchElementException();
+			}
+			Node curNode = stack[--top];
+			for (Node child = far(curNode); child != null; child = near(child)){
+				stack[top++] = child;
+			}
+			dropIfPastEnd();
+			return curNode.getData();
+		}
+	}
+
 	/**
 	 * This class implements an iterator for the Binary Search tree.
+	 * It walks the tree with the same explicit stack as intIterator() (rather than searching for each node's
+	 * successor through the parent links), so each step is amortized O(1), and it is fail-fast: a structural
+	 * change of the tree after the iterator was created makes the next call to next() throw a
+	 * ConcurrentModificationException.
 	 * @author Yael.Sarusi
 	 * @author shaharna13
 	 */
 	public class BinarySearchTreeIterator implements Iterator<Integer> {
 
-		/* Save the binary tree that this iterator iterates on */
-		private BinarySearchTree BSTree;
-
-		/* The current node in the iteration. */
-		private Node nextNode;
+		/* The in-order walk over the tree's values */
+		private final PrimitiveIterator.OfInt values;
 
 		/**
 		 * a costructor from a tree
 		 * @param tree a binary search tree
 		 */
 		public BinarySearchTreeIterator(BinarySearchTree tree){
-			this.BSTree = tree;
-			nextNode = this.BSTree.findMinNode(this.BSTree.getTreeRoot());
+			values = tree.new InOrderIterator(false);
 		}
 
 		/**
@@ -220,7 +1062,7 @@ public abstract class BinarySearchTree implements Iterable<Integer>{
 		 */
 		@Override
 		public boolean hasNext() {
-			return nextNode != null;
+			return values.hasNext();
 		}
 
 		/**
@@ -228,21 +1070,11 @@ public abstract class BinarySearchTree implements Iterable<Integer>{
 		 * If one does not exists it will raise an exception ("NoSuchElementException")
 		 * @return next node if it exists.
 		 * @throws NoSuchElementException when there are no more elements to iterate over.
+		 * @throws ConcurrentModificationException if the tree was modified since the iterator was created.
 		 */
 		@Override
 		public Integer next() throws NoSuchElementException {
-			// Save a pointer to the current node to throw.
-			Node curNode = nextNode;
-			// Check if the next node to Throw isn't null, if so Throw an exception.
-			if (!hasNext()) {
-				throw new NoSuchElementException();
-			}
-			else {
-				// Update pointer to the nextNode for the next time
-				nextNode = this.BSTree.successor(this.nextNode);
-			}
-
-			return curNode.getData();
+			return values.nextInt();
 		}
 
 	}
@@ -0,0 +1,315 @@
+package oop.ex4.data_structures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A thread safe AVL tree of int values. The values are kept in an AvlTree, so the balancing is the same.
+ * Writers (add and delete) take the write lock of a StampedLock and run one at a time. Readers don't take
+ * any lock: contains, size and the iterators read the nodes optimistically, and then check that no writer
+ * ran meanwhile (StampedLock.validate). Only a reader that keeps losing that race to writers falls back to
+ * the read lock, so reads scale with the number of threads and never wait for other readers.
+ * The iterators are weakly consistent: they never fail and never return a value twice, and return every
+ * value that was in the tree for the whole iteration, in ascending order; values added or deleted while
+ * iterating may or may not be returned.
+ * @author shaharna13
+ */
+public class ConcurrentAvlTree implements Iterable<Integer> {
+
+	/* Flag for the default value */
+	private static final int DEFAULT_RETURN_VALUE = -1;
+
+	/*
+	 * The most nodes an optimistic read walks down from the root. An AVL tree of 2^31 values is less than
+	 * 45 levels high, so a longer path can only be seen in the middle of a rotation; the read is then
+	 * retried.
+	 */
+	private static final int MAX_PATH = 64;
+
+	/* The number of optimistic attempts of a read before it takes the read lock */
+	private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+	/* The number of values an iterator reads ahead in one optimistic read */
+	private static final int CHUNK = 64;
+
+	/* Marks an optimistic read that saw an inconsistent tree */
+	private static final int INCONSISTENT = Integer.MIN_VALUE;
+
+	/* The values, guarded by lock */
+	private final AvlTree tree;
+
+	/* Guards tree: writers lock it, readers validate optimistic stamps */
+	private final StampedLock lock = new StampedLock();
+
+	/**
+	 * The default constructor.
+	 */
+	public ConcurrentAvlTree(){
+		tree = new AvlTree();
+	}
+
+	/**
+	 * A constructor that builds the tree from the elements in the input array, like AvlTree(int[]).
+	 * @param data values to add to tree
+	 */
+	public ConcurrentAvlTree(int[] data){
+		tree = new AvlTree(data);
+	}
+
+	/**
+	 * This function adds the data provided to the tree, if it's not already there.
+	 * @param data To add to the tree
+	 * @return True if add successful, False if the data was already in the tree.
+	 */
+	public boolean add(int data){
+		long stamp = lock.writeLock();
+		try {
+			return tree.add(data);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Removes the node with the given value from the tree, if it exists.
+	 * @param toDelete the value to remove from the tree.
+	 * @return true if the given value was found and deleted, false otherwise.
+	 */
+	public boolean delete(int toDelete){
+		long stamp = lock.writeLock();
+		try {
+			return tree.delete(toDelete);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Check whether the tree contains the given input value, without blocking.
+	 * @param searchVal value to search for
+	 * @return if val is found in the tree, return the depth of the node (0 for the root) with the given
+	 * value if it was found in the tree, -1 otherwise
+	 */
+	public int contains(int searchVal){
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++){
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0){
+				int depth = findDepth(searchVal);
+				if (lock.validate(stamp) && depth != INCONSISTENT){
+					return depth;
+				}
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return findDepth(searchVal);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/*
+	 * Walks down from the root to the given value, counting the depth on the way (rather than walking the
+	 * parents back up, as Node.getDepth does, which could loop on links seen in the middle of a rotation).
+	 * @return the value's depth, -1 if it is not in the tree, or INCONSISTENT if the path was too long.
+	 */
+	private int findDepth(int searchVal){
+		Node curNode = tree.getTreeRoot();
+		for (int depth = 0; depth < MAX_PATH; depth++){
+			if (curNode == null){
+				return DEFAULT_RETURN_VALUE;
+			}
+			int nodeData = curNode.getData();
+			if (nodeData == searchVal){
+				return depth;
+			}
+			curNode = nodeData > searchVal ? curNode.getLeftChild() : curNode.getRightChild();
+		}
+		return INCONSISTENT;
+	}
+
+	/**
+	 * Get the tree size, without blocking.
+	 * @return The number of values in the tree
+	 */
+	public int size(){
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0){
+			int size = tree.size();
+			if (lock.validate(stamp)){
+				return size;
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return tree.size();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over the tree's values in ascending order. The returned iterator
+	 * does NOT implement the remove() method.
+	 * @return an iterator for the tree.
+	 */
+	@Override
+	public Iterator<Integer> iterator(){
+		return intIterator();
+	}
+
+	/**
+	 * Returns a weakly consistent primitive iterator over the tree's values in ascending order.
+	 * @return a primitive iterator over the tree's values.
+	 */
+	public PrimitiveIterator.OfInt intIterator(){
+		return new ChunkedIterator();
+	}
+
+	/**
+	 * Performs the given action on each of the tree's values, in ascending order, with the same weak
+	 * consistency as the iterators.
+	 * @param action the action to perform on each value.
+	 */
+	public void forEachInt(IntConsumer action){
+		Objects.requireNonNull(action);
+		PrimitiveIterator.OfInt iterator = intIterator();
+		while (iterator.hasNext()){
+			action.accept(iterator.nextInt());
+		}
+	}
+
+	/**
+	 * Returns a sequential, weakly consistent stream of the tree's values in ascending order.
+	 * @return an IntStream of the tree's values.
+	 */
+	public IntStream stream(){
+		return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(intIterator(),
+				Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL
+						| Spliterator.CONCURRENT), false);
+	}
+
+	/*
+	 * Reads the values that follow the given one into the given buffer, in ascending order, walking the
+	 * tree in-order with an explicit stack from the first node above the given value.
+	 * @param after only values greater than this one are read, unless fromStart is true.
+	 * @param fromStart true to read from the tree's minimum.
+	 * @param buffer receives the values.
+	 * @return the number of values read (less than the buffer's length at the end of the tree), or
+	 * INCONSISTENT if the walk saw links that can't be those of a balanced tree.
+	 */
+	private int readChunk(int after, boolean fromStart, int[] buffer){
+		Node[] stack = new Node[MAX_PATH];
+		int top = 0;
+		int steps = 0;
+		Node curNode = tree.getTreeRoot();
+		// Push the path to the first value above after: the nodes we go left from are still to be visited.
+		while (curNode != null){
+			if (top == MAX_PATH || ++steps > MAX_PATH){
+				return INCONSISTENT;
+			}
+			if (fromStart || curNode.getData() > after){
+				stack[top++] = curNode;
+				curNode = curNode.getLeftChild();
+			}
+			else {
+				curNode = curNode.getRightChild();
+			}
+		}
+		int count = 0;
+		int last = after;
+		while (top > 0 && count < buffer.length){
+			Node visited = stack[--top];
+			int data = visited.getData();
+			if ((count > 0 || !fromStart) && data <= last){
+				return INCONSISTENT;
+			}
+			buffer[count++] = data;
+			last = data;
+			for (curNode = visited.getRightChild(); curNode != null; curNode = curNode.getLeftChild()){
+				if (top == MAX_PATH){
+					return INCONSISTENT;
+				}
+				stack[top++] = curNode;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * A weakly consistent iterator. It reads the values ahead in chunks, each in one optimistic read that
+	 * starts from the last value returned, so it holds no node references across writers.
+	 */
+	private class ChunkedIterator implements PrimitiveIterator.OfInt {
+
+		/* The values read ahead */
+		private final int[] buffer = new int[CHUNK];
+
+		/* The number of values in the buffer, and the position of the next one */
+		private int count, position;
+
+		/* Whether any value was read yet, the last value read, and whether the tree has no more values */
+		private boolean started, exhausted;
+		private int lastRead;
+
+		/*
+		 * Reads the next chunk of values after the last one read.
+		 */
+		private void fill(){
+			int read = INCONSISTENT;
+			for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS && read == INCONSISTENT; attempt++){
+				long stamp = lock.tryOptimisticRead();
+				if (stamp != 0){
+					read = readChunk(lastRead, !started, buffer);
+					if (!lock.validate(stamp)){
+						read = INCONSISTENT;
+					}
+				}
+			}
+			if (read == INCONSISTENT){
+				long stamp = lock.readLock();
+				try {
+					read = readChunk(lastRead, !started, buffer);
+				}
+				finally {
+					lock.unlockRead(stamp);
+				}
+			}
+			count = read;
+			position = 0;
+			if (read > 0){
+				started = true;
+				lastRead = buffer[read - 1];
+			}
+			exhausted = read < buffer.length;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (position == count && !exhausted){
+				fill();
+			}
+			return position < count;
+		}
+
+		@Override
+		public int nextInt() {
+			if (!hasNext()){
+				throw new NoSuchElementException();
+			}
+			return buffer[position++];
+		}
+	}
+}
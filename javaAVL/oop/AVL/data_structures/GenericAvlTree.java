@@ -0,0 +1,277 @@
+package oop.ex4.data_structures;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An AVL tree of keys of any type, ordered by a Comparator (or by their natural ordering). It is balanced
+ * and iterated exactly like AvlTree, so composite keys don't need to be mapped to ints.
+ * Two keys the comparator finds equal are the same key: the tree is a set.
+ * @param <K> the type of the keys.
+ * @author shaharna13
+ */
+public class GenericAvlTree<K> extends LinkedAvlTree<GenericAvlTree.Entry<K>> implements Iterable<K> {
+
+	/* Flag for the default value */
+	private static final int DEFAULT_RETURN_VALUE = -1;
+
+	/* Arrays at least this long are sorted with Arrays.parallelSort when bulk loading */
+	private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+	/* The order of the keys */
+	private final Comparator<? super K> comparator;
+
+	/**
+	 * Creates an empty tree ordered by the given comparator.
+	 * @param comparator the order of the keys, or null for their natural ordering (the keys must then be
+	 * Comparable).
+	 */
+	public GenericAvlTree(Comparator<? super K> comparator){
+		this.comparator = comparator;
+	}
+
+	/**
+	 * A constructor that builds the tree from the given keys in linear time (after sorting), like
+	 * AvlTree(int[]). The tree is a set, so keys that appear more than once are added only once.
+	 * @param data keys to add to tree
+	 * @param comparator the order of the keys, or null for their natural ordering.
+	 */
+	@SuppressWarnings("unchecked")
+	public GenericAvlTree(Collection<? extends K> data, Comparator<? super K> comparator){
+		this(comparator);
+		if (data != null){
+			K[] sorted = (K[]) data.toArray();
+			if (sorted.length >= PARALLEL_SORT_THRESHOLD){
+				Arrays.parallelSort(sorted, this::compare);
+			}
+			else {
+				Arrays.sort(sorted, this::compare);
+			}
+			int distinct = 0;
+			for (int i = 0; i < sorted.length; i++){
+				if (distinct == 0 || compare(sorted[i], sorted[distinct - 1]) != 0){
+					sorted[distinct++] = sorted[i];
+				}
+			}
+			root = buildBalanced(sorted, 0, distinct);
+		}
+	}
+
+	/**
+	 * A copy constructor that creates a deep copy of the given tree, in the same structure. The keys
+	 * themselves are shared, not copied.
+	 * @param tree The tree to be copied.
+	 */
+	public GenericAvlTree(GenericAvlTree<K> tree){
+		this.comparator = tree.comparator;
+		if (tree.root != null){
+			root = copyTree(tree.root);
+		}
+	}
+
+	/*
+	 * Compares two keys with the tree's comparator, or by their natural ordering if it has none.
+	 */
+	@SuppressWarnings("unchecked")
+	private int compare(K first, K second){
+		if (comparator == null){
+			return ((Comparable<? super K>) first).compareTo(second);
+		}
+		return comparator.compare(first, second);
+	}
+
+	/**
+	 * @return the comparator that orders the keys, or null if they are in their natural ordering.
+	 */
+	public Comparator<? super K> comparator(){
+		return comparator;
+	}
+
+	/*
+	 * Builds a balanced tree of the given range of a sorted array of distinct values, the middle value at
+	 * the root (see AvlTree.buildBalanced).
+	 */
+	private static <K> Entry<K> buildBalanced(K[] sorted, int from, int to){
+		if (from >= to){
+			return null;
+		}
+		int middle = (from + to) >>> 1;
+		Entry<K> node = new Entry<>(sorted[middle]);
+		node.setLeft(buildBalanced(sorted, from, middle));
+		node.setRight(buildBalanced(sorted, middle + 1, to));
+		node.updateMetadata();
+		return node;
+	}
+
+	/**
+	 * Check whether the tree contains the given input value.
+	 * @param searchVal value to search for
+	 * @return if val is found in the tree, return the depth of the node (0 for the root) with the given
+	 * value if it was found in the tree, -1 otherwise
+	 */
+	public int contains(K searchVal){
+		Entry<K> curNode = root;
+		int depth = 0;
+		while (curNode != null){
+			int comparison = compare(searchVal, curNode.data);
+			if (comparison == 0){
+				return depth;
+			}
+			curNode = comparison < 0 ? curNode.left : curNode.right;
+			depth++;
+		}
+		return DEFAULT_RETURN_VALUE;
+	}
+
+	/**
+	 * This function adds the data provided to the tree, if it's not already there.
+	 * @param data To add to the tree
+	 * @return True if add successful, False if the data was already in the tree.
+	 */
+	public boolean add(K data){
+		Entry<K> lastNode = null;
+		Entry<K> curNode = root;
+		int comparison = 0;
+		while (curNode != null){
+			lastNode = curNode;
+			comparison = compare(data, curNode.data);
+			if (comparison == 0){
+				return false;
+			}
+			curNode = comparison < 0 ? curNode.left : curNode.right;
+		}
+		if (lastNode == null){
+			// Checks the key's type (and nullness) the same way as the comparisons of a non empty tree do.
+			compare(data, data);
+		}
+		insertLeaf(lastNode, new Entry<>(data), comparison < 0);
+		return true;
+	}
+
+	/**
+	 * Removes the node with the given value from the tree, if it exists.
+	 * @param toDelete the value to remove from the tree.
+	 * @return true if the given value was found and deleted, false otherwise.
+	 */
+	public boolean delete(K toDelete){
+		Entry<K> node = root;
+		while (node != null){
+			int comparison = compare(toDelete, node.data);
+			if (comparison == 0){
+				break;
+			}
+			node = comparison < 0 ? node.left : node.right;
+		}
+		if (node == null){
+			return false;
+		}
+		removeNode(node);
+		return true;
+	}
+
+	/**
+	 * Returns an iterator for the tree. The returned iterator iterates over the keys in an ascending order,
+	 * and does NOT implement the remove() method.
+	 * @return an iterator for the tree.
+	 */
+	@Override
+	public Iterator<K> iterator(){
+		return new InOrderIterator();
+	}
+
+	/**
+	 * Returns a sequential stream of the tree's keys in ascending order.
+	 * @return a Stream of the tree's keys.
+	 */
+	public Stream<K> stream(){
+		return StreamSupport.stream(Spliterators.spliterator(iterator(), size(),
+				Spliterator.ORDERED | Spliterator.DISTINCT), false);
+	}
+
+	/*
+	 * An in-order iterator that keeps the path to the next node on an explicit stack (see
+	 * BinarySearchTree.InOrderIterator).
+	 */
+	private class InOrderIterator implements Iterator<K> {
+
+		/* The pending nodes, the next one on top */
+		private final Entry<K>[] stack;
+
+		/* The number of nodes on the stack */
+		private int top;
+
+		/*
+		 * Creates an iterator that starts at the tree's minimum.
+		 */
+		@SuppressWarnings("unchecked")
+		InOrderIterator(){
+			stack = (Entry<K>[]) new Entry<?>[height(root) + 1];
+			pushLeftSpine(root);
+		}
+
+		/*
+		 * Pushes the given node and all its left descendants on the stack.
+		 */
+		private void pushLeftSpine(Entry<K> node){
+			for (Entry<K> curNode = node; curNode != null; curNode = curNode.left){
+				stack[top++] = curNode;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		@Override
+		public K next() {
+			if (top == 0){
+				throw new NoSuchElementException();
+			}
+			Entry<K> curNode = stack[--top];
+			pushLeftSpine(curNode.right);
+			return curNode.data;
+		}
+	}
+
+	/*
+	 * A node of the tree: a key, and the links and cached metadata of LinkedNode.
+	 */
+	static final class Entry<K> extends LinkedNode<Entry<K>> {
+
+		/* The node's data */
+		private K data;
+
+		/*
+		 * Creates a leaf with the given data.
+		 */
+		Entry(K data){
+			this.data = data;
+		}
+
+		/*
+		 * Copies the given node's data and metadata, but not its links.
+		 */
+		Entry(Entry<K> oldNode){
+			super(oldNode);
+			this.data = oldNode.data;
+		}
+
+		@Override
+		Entry<K> copy(){
+			return new Entry<>(this);
+		}
+
+		@Override
+		void takeDataOf(Entry<K> other){
+			data = other.data;
+		}
+	}
+}
@@ -0,0 +1,444 @@
+package oop.ex4.data_structures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The AVL tree algorithms over nodes that are int indices rather than Node objects. A node is a slot whose
+ * value, left child, right child, parent and height are read and written through the abstract accessors,
+ * so the subclasses decide where the slots are stored: ArrayAvlTree keeps them in parallel arrays on the
+ * heap, MappedAvlTree in a memory-mapped file. The slots of deleted nodes are kept in a free list and
+ * reused by the next insertions.
+ * The tree supports the same operations as AvlTree, with the same results.
+ * @author shaharna13
+ */
+abstract class IndexedAvlTree implements Iterable<Integer> {
+
+	/* The index that stands for "no node" */
+	static final int NIL = -1;
+
+	/* The height of an empty sub tree */
+	private static final int LEAF = -1;
+
+	/* Flag for the default value */
+	private static final int DEFAULT_RETURN_VALUE = -1;
+
+	/* The index of the root, NIL if the tree is empty */
+	int root = NIL;
+
+	/* The number of nodes in the tree */
+	int size;
+
+	/* The number of slots ever used; slots from this index on were never allocated */
+	int used;
+
+	/* The first free slot below used, NIL if there is none. Free slots are linked through their left child */
+	int freeHead = NIL;
+
+	/*
+	 * Getters and setters of the slots' fields.
+	 */
+	abstract int getKey(int node);
+
+	abstract void setKey(int node, int key);
+
+	abstract int getLeft(int node);
+
+	abstract void setLeft(int node, int leftChild);
+
+	abstract int getRight(int node);
+
+	abstract void setRight(int node, int rightChild);
+
+	abstract int getParent(int node);
+
+	abstract void setParent(int node, int parentNode);
+
+	abstract int getHeight(int node);
+
+	abstract void setHeight(int node, int height);
+
+	/*
+	 * @return the number of slots the storage currently has room for.
+	 */
+	abstract int capacity();
+
+	/*
+	 * Makes room for at least the given number of slots.
+	 */
+	abstract void ensureCapacity(int slots);
+
+	/*
+	 * Called after every change of root, size, used or freeHead. Does nothing by default; storages that
+	 * keep these values outside of the object store them here.
+	 */
+	void headerChanged(){
+	}
+
+	/*
+	 * Replaces the tree's content with a balanced tree of the given sorted distinct values, built into the
+	 * first slots of the storage.
+	 */
+	void load(int[] sorted){
+		ensureCapacity(sorted.length);
+		used = 0;
+		freeHead = NIL;
+		root = buildBalanced(sorted, 0, sorted.length, NIL);
+		size = sorted.length;
+		headerChanged();
+	}
+
+	/*
+	 * Builds a balanced tree of the given range of a sorted array of distinct values into fresh slots, the
+	 * middle value at the root (see AvlTree.buildBalanced).
+	 * @return the index of the root of the new tree, NIL if the range is empty.
+	 */
+	private int buildBalanced(int[] sorted, int from, int to, int parentNode){
+		if (from >= to){
+			return NIL;
+		}
+		int middle = (from + to) >>> 1;
+		int node = used++;
+		setKey(node, sorted[middle]);
+		setParent(node, parentNode);
+		setLeft(node, buildBalanced(sorted, from, middle, node));
+		setRight(node, buildBalanced(sorted, middle + 1, to, node));
+		updateHeight(node);
+		return node;
+	}
+
+	/**
+	 * Check whether the tree contains the given input value.
+	 * @param searchVal value to search for
+	 * @return if val is found in the tree, return the depth of the node (0 for the root) with the given
+	 * value if it was found in the tree, -1 otherwise
+	 */
+	public int contains(int searchVal){
+		int node = root;
+		int depth = 0;
+		while (node != NIL){
+			int nodeData = getKey(node);
+			if (nodeData == searchVal){
+				return depth;
+			}
+			node = nodeData > searchVal ? getLeft(node) : getRight(node);
+			depth++;
+		}
+		return DEFAULT_RETURN_VALUE;
+	}
+
+	/**
+	 * Get the tree size
+	 * @return The number of values in the tree
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * This function adds the data provided to the tree, if it's not already there.
+	 * @param data To add to the tree
+	 * @return True if add successful, False if the data was already in the tree.
+	 */
+	public boolean add(int data){
+		int lastNode = NIL;
+		int node = root;
+		while (node != NIL){
+			lastNode = node;
+			int nodeData = getKey(node);
+			if (nodeData == data){
+				return false;
+			}
+			node = nodeData > data ? getLeft(node) : getRight(node);
+		}
+		int newNode = newNode(data, lastNode);
+		if (lastNode == NIL){
+			root = newNode;
+		}
+		else {
+			if (getKey(lastNode) > data){
+				setLeft(lastNode, newNode);
+			}
+			else {
+				setRight(lastNode, newNode);
+			}
+			balanceTree(lastNode);
+		}
+		size++;
+		headerChanged();
+		return true;
+	}
+
+	/**
+	 * Removes the node with the given value from the tree, if it exists.
+	 * @param toDelete the value to remove from the tree.
+	 * @return true if the given value was found and deleted, false otherwise.
+	 */
+	public boolean delete(int toDelete){
+		int node = root;
+		while (node != NIL && getKey(node) != toDelete){
+			node = getKey(node) > toDelete ? getLeft(node) : getRight(node);
+		}
+		if (node == NIL){
+			return false;
+		}
+		// A node with two children takes its successor's value, and the successor's node is removed instead.
+		if (getLeft(node) != NIL && getRight(node) != NIL){
+			int successor = getRight(node);
+			while (getLeft(successor) != NIL){
+				successor = getLeft(successor);
+			}
+			setKey(node, getKey(successor));
+			node = successor;
+		}
+		int child = getLeft(node) != NIL ? getLeft(node) : getRight(node);
+		int nodeParent = getParent(node);
+		replaceChild(nodeParent, node, child);
+		freeNode(node);
+		size--;
+		balanceTree(nodeParent);
+		headerChanged();
+		return true;
+	}
+
+	/*
+	 * Takes a slot for a new leaf with the given value, from the free list or from the unused capacity.
+	 * @return the index of the new node.
+	 */
+	private int newNode(int data, int parentNode){
+		int node;
+		if (freeHead != NIL){
+			node = freeHead;
+			freeHead = getLeft(node);
+		}
+		else {
+			if (used == capacity()){
+				ensureCapacity(used + 1);
+			}
+			node = used++;
+		}
+		setKey(node, data);
+		setLeft(node, NIL);
+		setRight(node, NIL);
+		setParent(node, parentNode);
+		setHeight(node, 0);
+		return node;
+	}
+
+	/*
+	 * Puts the given slot on the free list.
+	 */
+	private void freeNode(int node){
+		setLeft(node, freeHead);
+		freeHead = node;
+	}
+
+	/*
+	 * Replaces the child of the given parent (or the root, if parentNode is NIL) with a new child.
+	 */
+	private void replaceChild(int parentNode, int oldChild, int newChild){
+		if (parentNode == NIL){
+			root = newChild;
+		}
+		else if (getLeft(parentNode) == oldChild){
+			setLeft(parentNode, newChild);
+		}
+		else {
+			setRight(parentNode, newChild);
+		}
+		if (newChild != NIL){
+			setParent(newChild, parentNode);
+		}
+	}
+
+	/*
+	 * Goes up from the given node to the root, refreshing the heights and rotating unbalanced nodes. Stops
+	 * as soon as a sub tree's height is the same as before the change.
+	 * @param node the lowest node whose sub tree changed.
+	 */
+	private void balanceTree(int node){
+		int curNode = node;
+		while (curNode != NIL){
+			int oldHeight = getHeight(curNode);
+			updateHeight(curNode);
+			int subTreeRoot = rebalance(curNode);
+			if (getHeight(subTreeRoot) == oldHeight){
+				return;
+			}
+			curNode = getParent(subTreeRoot);
+		}
+	}
+
+	/*
+	 * Rotates the given node if its sub trees' heights differ by 2 (the LL, LR, RR and RL cases).
+	 * @return the root of the sub tree the node used to root.
+	 */
+	private int rebalance(int node){
+		int balance = getBalance(node);
+		if (balance == -2){
+			if (getBalance(getLeft(node)) == 1){ // LR
+				rotateLeft(getLeft(node));
+			}
+			return rotateRight(node);
+		}
+		if (balance == 2){
+			if (getBalance(getRight(node)) == -1){ // RL
+				rotateRight(getRight(node));
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	/*
+	 * Rotates the given node down to the left, its right child takes its place.
+	 * @return the node's right child, the new root of the sub tree.
+	 */
+	private int rotateLeft(int node){
+		int rChild = getRight(node);
+		int moved = getLeft(rChild);
+		setRight(node, moved);
+		if (moved != NIL){
+			setParent(moved, node);
+		}
+		replaceChild(getParent(node), node, rChild);
+		setLeft(rChild, node);
+		setParent(node, rChild);
+		updateHeight(node);
+		updateHeight(rChild);
+		return rChild;
+	}
+
+	/*
+	 * Rotates the given node down to the right, its left child takes its place.
+	 * @return the node's left child, the new root of the sub tree.
+	 */
+	private int rotateRight(int node){
+		int lChild = getLeft(node);
+		int moved = getRight(lChild);
+		setLeft(node, moved);
+		if (moved != NIL){
+			setParent(moved, node);
+		}
+		replaceChild(getParent(node), node, lChild);
+		setRight(lChild, node);
+		setParent(node, lChild);
+		updateHeight(node);
+		updateHeight(lChild);
+		return lChild;
+	}
+
+	/*
+	 * @return the height of the given node, LEAF for NIL.
+	 */
+	private int height(int node){
+		return node == NIL ? LEAF : getHeight(node);
+	}
+
+	/*
+	 * Recalculates the height of the given node from its children's heights.
+	 */
+	private void updateHeight(int node){
+		setHeight(node, Math.max(height(getLeft(node)), height(getRight(node))) + 1);
+	}
+
+	/*
+	 * @return the right sub tree's height minus the left one's.
+	 */
+	private int getBalance(int node){
+		return height(getRight(node)) - height(getLeft(node));
+	}
+
+	/**
+	 * Returns an iterator for the tree. The returned iterator iterates over the values in an ascending order,
+	 * and does NOT implement the remove() method.
+	 * @return an iterator for the tree.
+	 */
+	@Override
+	public Iterator<Integer> iterator(){
+		return intIterator();
+	}
+
+	/**
+	 * Returns a primitive iterator over the tree's values in ascending order.
+	 * @return a primitive iterator over the tree's values in ascending order.
+	 */
+	public PrimitiveIterator.OfInt intIterator(){
+		return new InOrderIterator();
+	}
+
+	/**
+	 * Performs the given action on each of the tree's values, in ascending order, without boxing them.
+	 * @param action the action to perform on each value.
+	 */
+	public void forEachInt(IntConsumer action){
+		Objects.requireNonNull(action);
+		PrimitiveIterator.OfInt iterator = intIterator();
+		while (iterator.hasNext()){
+			action.accept(iterator.nextInt());
+		}
+	}
+
+	/**
+	 * Returns a sequential stream of the tree's values in ascending order.
+	 * @return an IntStream of the tree's values.
+	 */
+	public IntStream stream(){
+		return StreamSupport.intStream(Spliterators.spliterator(intIterator(), size,
+				Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/*
+	 * An in-order iterator that keeps the path to the next node on a stack of indices (see
+	 * BinarySearchTree.InOrderIterator).
+	 */
+	private class InOrderIterator implements PrimitiveIterator.OfInt {
+
+		/* The pending nodes, the next one on top */
+		private final int[] stack;
+
+		/* The number of nodes on the stack */
+		private int top;
+
+		/*
+		 * Creates an iterator that starts at the tree's minimum.
+		 */
+		InOrderIterator(){
+			stack = new int[height(root) + 1];
+			pushLeftSpine(root);
+		}
+
+		/*
+		 * Pushes the given node and all its left descendants on the stack.
+		 */
+		private void pushLeftSpine(int node){
+			int curNode = node;
+			while (curNode != NIL){
+				stack[top++] = curNode;
+				curNode = getLeft(curNode);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		@Override
+		public int nextInt() {
+			if (top == 0){
+				throw new NoSuchElementException();
+			}
+			int curNode = stack[--top];
+			pushLeftSpine(getRight(curNode));
+			return getKey(curNode);
+		}
+	}
+}
@@ -0,0 +1,575 @@
+package oop.ex4.data_structures;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A sorted set of int values in a B+ tree: a cache-conscious alternative to AvlTree with the same
+ * operations (add, delete, contains, size and ascending iteration).
+ * The values are kept in leaves of up to 128 sorted ints, chained left to right, and the leaves are
+ * indexed by inner nodes of up to 128 children. A search reads one node per level and binary searches its
+ * array, which sits in a few consecutive cache lines, so a tree of 100M values is only 4 to 5 levels high
+ * instead of the 27 to 38 levels (and cache misses) of a binary tree. Iterating walks the leaf arrays in
+ * order. Inserting splits full nodes, and deleting merges a node that is less than half full with a
+ * neighbour or borrows a value from it, so every node but the root is at least half full.
+ * Like AvlTree, the tree is not thread safe.
+ * @author shaharna13
+ */
+public class IntBPlusTree implements Iterable<Integer> {
+
+	/* The most values a leaf holds */
+	private static final int LEAF_CAPACITY = 128;
+
+	/* The most children an inner node has */
+	private static final int INNER_CAPACITY = 128;
+
+	/* The fewest values a leaf other than the root holds */
+	private static final int LEAF_MIN = LEAF_CAPACITY / 2;
+
+	/* The fewest children an inner node other than the root has */
+	private static final int INNER_MIN = INNER_CAPACITY / 2;
+
+	/* Flag for the default value */
+	private static final int DEFAULT_RETURN_VALUE = -1;
+
+	/* The root, null when the tree is empty */
+	private Page root;
+
+	/* The number of inner levels above the leaves, which is the depth of every leaf */
+	private int height;
+
+	/* The number of values in the tree */
+	private int size;
+
+	/* The first key of the sibling made by the last split, passed up to the parent */
+	private int splitKey;
+
+	/**
+	 * The default constructor.
+	 */
+	public IntBPlusTree(){
+		root = null;
+	}
+
+	/**
+	 * A constructor that builds the tree from the elements in the input array in linear time (after
+	 * sorting), like AvlTree(int[]): the leaves are filled in order, and each level of inner nodes is built
+	 * over the level below it. The tree is a set, so values that appear more than once are added only once.
+	 * The input array is not modified.
+	 * @param data values to add to tree
+	 */
+	public IntBPlusTree(int[] data){
+		if (data != null && data.length > 0){
+			load(AvlTree.sortedDistinct(data));
+		}
+	}
+
+	/*
+	 * Builds the tree bottom up from sorted distinct values. Each level spreads its entries evenly over
+	 * as few nodes as possible, so every node is at least half full.
+	 */
+	private void load(int[] sorted){
+		int leafCount = (sorted.length + LEAF_CAPACITY - 1) / LEAF_CAPACITY;
+		Page[] level = new Page[leafCount];
+		int[] firstKeys = new int[leafCount];
+		Leaf previous = null;
+		for (int i = 0, from = 0; i < leafCount; i++){
+			int to = (int) ((long) sorted.length * (i + 1) / leafCount);
+			Leaf leaf = new Leaf();
+			System.arraycopy(sorted, from, leaf.keys, 0, to - from);
+			leaf.count = to - from;
+			if (previous != null){
+				previous.next = leaf;
+			}
+			previous = leaf;
+			level[i] = leaf;
+			firstKeys[i] = sorted[from];
+			from = to;
+		}
+		while (level.length > 1){
+			int innerCount = (level.length + INNER_CAPACITY - 1) / INNER_CAPACITY;
+			Page[] upper = new Page[innerCount];
+			int[] upperFirstKeys = new int[innerCount];
+			for (int i = 0, from = 0; i < innerCount; i++){
+				int to = (int) ((long) level.length * (i + 1) / innerCount);
+				Inner inner = new Inner();
+				System.arraycopy(level, from, inner.children, 0, to - from);
+				// The separator before each child but the first is the child's smallest value.
+				System.arraycopy(firstKeys, from + 1, inner.keys, 0, to - from - 1);
+				inner.count = to - from;
+				upper[i] = inner;
+				upperFirstKeys[i] = firstKeys[from];
+				from = to;
+			}
+			level = upper;
+			firstKeys = upperFirstKeys;
+			height++;
+		}
+		root = level[0];
+		size = sorted.length;
+	}
+
+	/*
+	 * @return the index of the child of the given inner node whose sub tree may hold the given value: the
+	 * number of separators that are not greater than the value.
+	 */
+	private static int childIndex(Inner inner, int data){
+		int index = Arrays.binarySearch(inner.keys, 0, inner.count - 1, data);
+		return index >= 0 ? index + 1 : -(index + 1);
+	}
+
+	/**
+	 * Check whether the tree contains the given input value.
+	 * @param searchVal value to search for
+	 * @return if val is found in the tree, the depth of the leaf that holds it (all the leaves are at the
+	 * same depth, 0 when the root is a leaf), -1 otherwise
+	 */
+	public int contains(int searchVal){
+		Page page = root;
+		if (page == null){
+			return DEFAULT_RETURN_VALUE;
+		}
+		for (int level = 0; level < height; level++){
+			Inner inner = (Inner) page;
+			page = inner.children[childIndex(inner, searchVal)];
+		}
+		Leaf leaf = (Leaf) page;
+		return Arrays.binarySearch(leaf.keys, 0, leaf.count, searchVal) >= 0 ? height : DEFAULT_RETURN_VALUE;
+	}
+
+	/**
+	 * Get the tree size
+	 * @return The number of values in the tree
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * This function adds the data provided to the tree, if it's not already there.
+	 * @param data To add to the tree
+	 * @return True if add successful, False if the data was already in the tree.
+	 */
+	public boolean add(int data){
+		if (root == null){
+			Leaf leaf = new Leaf();
+			leaf.keys[0] = data;
+			leaf.count = 1;
+			root = leaf;
+			size = 1;
+			return true;
+		}
+		int oldSize = size;
+		Page sibling = insert(root, height, data);
+		if (sibling != null){
+			// The root was split: the tree grows a level.
+			Inner newRoot = new Inner();
+			newRoot.children[0] = root;
+			newRoot.children[1] = sibling;
+			newRoot.keys[0] = splitKey;
+			newRoot.count = 2;
+			root = newRoot;
+			height++;
+		}
+		return size != oldSize;
+	}
+
+	/*
+	 * Inserts the value into the sub tree rooted in the given page, splitting the pages that overflow.
+	 * @param level the number of inner levels below and including the page, 0 for a leaf.
+	 * @return the new right sibling of the page if it was split (its first key in splitKey), null
+	 * otherwise.
+	 */
+	private Page insert(Page page, int level, int data){
+		if (level == 0){
+			return insertIntoLeaf((Leaf) page, data);
+		}
+		Inner inner = (Inner) page;
+		int index = childIndex(inner, data);
+		Page sibling = insert(inner.children[index], level - 1, data);
+		if (sibling == null){
+			return null;
+		}
+		return insertIntoInner(inner, index + 1, splitKey, sibling);
+	}
+
+	/*
+	 * Inserts the value into the leaf, if it is not there. A full leaf is split in two halves first.
+	 * @return the new right sibling if the leaf was split, null otherwise.
+	 */
+	private Leaf insertIntoLeaf(Leaf leaf, int data){
+		int position = Arrays.binarySearch(leaf.keys, 0, leaf.count, data);
+		if (position >= 0){
+			return null;
+		}
+		position = -(position + 1);
+		size++;
+		if (leaf.count < LEAF_CAPACITY){
+			insertAt(leaf.keys, leaf.count, position, data);
+			leaf.count++;
+			return null;
+		}
+		Leaf sibling = new Leaf();
+		int half = LEAF_CAPACITY / 2;
+		System.arraycopy(leaf.keys, half, sibling.keys, 0, LEAF_CAPACITY - half);
+		sibling.count = LEAF_CAPACITY - half;
+		leaf.count = half;
+		if (position <= half){
+			insertAt(leaf.keys, leaf.count, position, data);
+			leaf.count++;
+		}
+		else {
+			insertAt(sibling.keys, sibling.count, position - half, data);
+			sibling.count++;
+		}
+		sibling.next = leaf.next;
+		leaf.next = sibling;
+		splitKey = sibling.keys[0];
+		return sibling;
+	}
+
+	/*
+	 * Inserts a child (and the separator before it) into the inner node at the given child index. A full
+	 * node is split in two halves, and the separator between the halves moves up.
+	 * @return the new right sibling if the node was split (the separator in splitKey), null otherwise.
+	 */
+	private Inner insertIntoInner(Inner inner, int childPosition, int key, Page child){
+		if (inner.count < INNER_CAPACITY){
+			insertAt(inner.keys, inner.count - 1, childPosition - 1, key);
+			insertAt(inner.children, inner.count, childPosition, child);
+			inner.count++;
+			return null;
+		}
+		// Lay the CAPACITY + 1 children and their separators out in order, then cut them in two.
+		int[] keys = new int[INNER_CAPACITY];
+		Page[] children = new Page[INNER_CAPACITY + 1];
+		System.arraycopy(inner.keys, 0, keys, 0, INNER_CAPACITY - 1);
+		System.arraycopy(inner.children, 0, children, 0, INNER_CAPACITY);
+		insertAt(keys, INNER_CAPACITY - 1, childPosition - 1, key);
+		insertAt(children, INNER_CAPACITY, childPosition, child);
+		int leftCount = (INNER_CAPACITY + 1) / 2;
+		Inner sibling = new Inner();
+		System.arraycopy(keys, 0, inner.keys, 0, leftCount - 1);
+		System.arraycopy(children, 0, inner.children, 0, leftCount);
+		Arrays.fill(inner.children, leftCount, INNER_CAPACITY, null);
+		inner.count = leftCount;
+		sibling.count = INNER_CAPACITY + 1 - leftCount;
+		System.arraycopy(keys, leftCount, sibling.keys, 0, sibling.count - 1);
+		System.arraycopy(children, leftCount, sibling.children, 0, sibling.count);
+		splitKey = keys[leftCount - 1];
+		return sibling;
+	}
+
+	/*
+	 * Shifts the array's elements from the given position right by one and puts the value there.
+	 */
+	private static void insertAt(int[] array, int length, int position, int value){
+		System.arraycopy(array, position, array, position + 1, length - position);
+		array[position] = value;
+	}
+
+	/*
+	 * Shifts the array's elements from the given position right by one and puts the value there.
+	 */
+	private static void insertAt(Page[] array, int length, int position, Page value){
+		System.arraycopy(array, position, array, position + 1, length - position);
+		array[position] = value;
+	}
+
+	/**
+	 * Removes the given value from the tree, if it exists.
+	 * @param toDelete the value to remove from the tree.
+	 * @return true if the given value was found and deleted, false otherwise.
+	 */
+	public boolean delete(int toDelete){
+		if (root == null || !remove(root, height, toDelete)){
+			return false;
+		}
+		size--;
+		if (height > 0 && root.count == 1){
+			// The root's children were merged into one: the tree shrinks a level.
+			root = ((Inner) root).children[0];
+			height--;
+		}
+		else if (size == 0){
+			root = null;
+		}
+		return true;
+	}
+
+	/*
+	 * Removes the value from the sub tree rooted in the given page, and fixes the child it was removed
+	 * from if it is less than half full.
+	 * @param level the number of inner levels below and including the page, 0 for a leaf.
+	 * @return true if the value was found and removed.
+	 */
+	private boolean remove(Page page, int level, int data){
+		if (level == 0){
+			Leaf leaf = (Leaf) page;
+			int position = Arrays.binarySearch(leaf.keys, 0, leaf.count, data);
+			if (position < 0){
+				return false;
+			}
+			System.arraycopy(leaf.keys, position + 1, leaf.keys, position, leaf.count - position - 1);
+			leaf.count--;
+			return true;
+		}
+		Inner inner = (Inner) page;
+		int index = childIndex(inner, data);
+		Page child = inner.children[index];
+		if (!remove(child, level - 1, data)){
+			return false;
+		}
+		if (child.count < (level == 1 ? LEAF_MIN : INNER_MIN)){
+			rebalance(inner, index, level == 1);
+		}
+		return true;
+	}
+
+	/*
+	 * Fixes a child that is less than half full, by borrowing an entry from a neighbour that has more than
+	 * half, or otherwise merging it with the neighbour. The left neighbour is preferred.
+	 * @param parent the child's parent, which has at least two children.
+	 * @param index the child's index in the parent.
+	 * @param leaves whether the children are leaves.
+	 */
+	private static void rebalance(Inner parent, int index, boolean leaves){
+		int min = leaves ? LEAF_MIN : INNER_MIN;
+		if (index > 0){
+			Page left = parent.children[index - 1];
+			if (left.count > min){
+				if (leaves){
+					borrowFromLeftLeaf(parent, index);
+				}
+				else {
+					borrowFromLeftInner(parent, index);
+				}
+			}
+			else {
+				merge(parent, index - 1, leaves);
+			}
+		}
+		else {
+			Page right = parent.children[index + 1];
+			if (right.count > min){
+				if (leaves){
+					borrowFromRightLeaf(parent, index);
+				}
+				else {
+					borrowFromRightInner(parent, index);
+				}
+			}
+			else {
+				merge(parent, index, leaves);
+			}
+		}
+	}
+
+	/*
+	 * Moves the last value of the left neighbour to the front of the leaf at the given index.
+	 */
+	private static void borrowFromLeftLeaf(Inner parent, int index){
+		Leaf left = (Leaf) parent.children[index - 1];
+		Leaf leaf = (Leaf) parent.children[index];
+		insertAt(leaf.keys, leaf.count, 0, left.keys[left.count - 1]);
+		leaf.count++;
+		left.count--;
+		parent.keys[index - 1] = leaf.keys[0];
+	}
+
+	/*
+	 * Moves the first value of the right neighbour to the end of the leaf at the given index.
+	 */
+	private static void borrowFromRightLeaf(Inner parent, int index){
+		Leaf leaf = (Leaf) parent.children[index];
+		Leaf right = (Leaf) parent.children[index + 1];
+		leaf.keys[leaf.count++] = right.keys[0];
+		System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+		right.count--;
+		parent.keys[index] = right.keys[0];
+	}
+
+	/*
+	 * Moves the last child of the left neighbour to the front of the inner node at the given index. The
+	 * separator between the two nodes moves down in front of the node's keys, and the neighbour's last key
+	 * moves up to replace it.
+	 */
+	private static void borrowFromLeftInner(Inner parent, int index){
+		Inner left = (Inner) parent.children[index - 1];
+		Inner inner = (Inner) parent.children[index];
+		insertAt(inner.keys, inner.count - 1, 0, parent.keys[index - 1]);
+		insertAt(inner.children, inner.count, 0, left.children[left.count - 1]);
+		inner.count++;
+		parent.keys[index - 1] = left.keys[left.count - 2];
+		left.children[left.count - 1] = null;
+		left.count--;
+	}
+
+	/*
+	 * Moves the first child of the right neighbour to the end of the inner node at the given index, the
+	 * mirror image of borrowFromLeftInner.
+	 */
+	private static void borrowFromRightInner(Inner parent, int index){
+		Inner inner = (Inner) parent.children[index];
+		Inner right = (Inner) parent.children[index + 1];
+		inner.keys[inner.count - 1] = parent.keys[index];
+		inner.children[inner.count] = right.children[0];
+		inner.count++;
+		parent.keys[index] = right.keys[0];
+		System.arraycopy(right.keys, 1, right.keys, 0, right.count - 2);
+		System.arraycopy(right.children, 1, right.children, 0, right.count - 1);
+		right.children[right.count - 1] = null;
+		right.count--;
+	}
+
+	/*
+	 * Merges the child at the given index with its right neighbour, and removes the neighbour and the
+	 * separator between them from the parent. Merged inner nodes take the separator as the key between
+	 * their children.
+	 */
+	private static void merge(Inner parent, int index, boolean leaves){
+		if (leaves){
+			Leaf left = (Leaf) parent.children[index];
+			Leaf right = (Leaf) parent.children[index + 1];
+			System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+			left.count += right.count;
+			left.next = right.next;
+		}
+		else {
+			Inner left = (Inner) parent.children[index];
+			Inner right = (Inner) parent.children[index + 1];
+			left.keys[left.count - 1] = parent.keys[index];
+			System.arraycopy(right.keys, 0, left.keys, left.count, right.count - 1);
+			System.arraycopy(right.children, 0, left.children, left.count, right.count);
+			left.count += right.count;
+		}
+		System.arraycopy(parent.keys, index + 1, parent.keys, index, parent.count - index - 2);
+		System.arraycopy(parent.children, index + 2, parent.children, index + 1, parent.count - index - 2);
+		parent.children[parent.count - 1] = null;
+		parent.count--;
+	}
+
+	/*
+	 * @return the leftmost leaf, null if the tree is empty.
+	 */
+	private Leaf firstLeaf(){
+		Page page = root;
+		for (int level = 0; level < height; level++){
+			page = ((Inner) page).children[0];
+		}
+		return (Leaf) page;
+	}
+
+	/**
+	 * Returns an iterator over the tree's values in ascending order. The returned iterator does NOT
+	 * implement the remove() method.
+	 * @return an iterator for the tree.
+	 */
+	@Override
+	public Iterator<Integer> iterator(){
+		return intIterator();
+	}
+
+	/**
+	 * Returns a primitive iterator over the tree's values in ascending order, walking the chain of leaves.
+	 * @return a primitive iterator over the tree's values.
+	 */
+	public PrimitiveIterator.OfInt intIterator(){
+		return new LeafIterator();
+	}
+
+	/**
+	 * Performs the given action on each of the tree's values, in ascending order, without boxing them.
+	 * @param action the action to perform on each value.
+	 */
+	public void forEachInt(IntConsumer action){
+		Objects.requireNonNull(action);
+		for (Leaf leaf = firstLeaf(); leaf != null; leaf = leaf.next){
+			for (int i = 0; i < leaf.count; i++){
+				action.accept(leaf.keys[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns a sequential stream of the tree's values in ascending order.
+	 * @return an IntStream of the tree's values.
+	 */
+	public IntStream stream(){
+		return StreamSupport.intStream(Spliterators.spliterator(intIterator(), size(),
+				Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/*
+	 * An iterator over the values of the chained leaves.
+	 */
+	private final class LeafIterator implements PrimitiveIterator.OfInt {
+
+		/* The leaf of the next value, null at the end */
+		private Leaf leaf = firstLeaf();
+
+		/* The index of the next value in the leaf */
+		private int index;
+
+		@Override
+		public boolean hasNext() {
+			return leaf != null;
+		}
+
+		@Override
+		public int nextInt() {
+			if (leaf == null){
+				throw new NoSuchElementException();
+			}
+			int data = leaf.keys[index++];
+			if (index == leaf.count){
+				leaf = leaf.next;
+				index = 0;
+			}
+			return data;
+		}
+	}
+
+	/*
+	 * A node of the tree. count is the number of values of a leaf, or the number of children of an inner
+	 * node.
+	 */
+	private abstract static class Page {
+
+		/* The number of entries in the page */
+		int count;
+	}
+
+	/*
+	 * A leaf: sorted values, and the next leaf to the right.
+	 */
+	private static final class Leaf extends Page {
+
+		/* The values, sorted, in the first count slots */
+		final int[] keys = new int[LEAF_CAPACITY];
+
+		/* The next leaf in ascending order, null for the last one */
+		Leaf next;
+	}
+
+	/*
+	 * An inner node: count children, and count - 1 separators between them. Every value in children[i] is
+	 * smaller than keys[i], and every value in children[i + 1] is greater than or equal to it.
+	 */
+	private static final class Inner extends Page {
+
+		/* The separators, sorted, in the first count - 1 slots */
+		final int[] keys = new int[INNER_CAPACITY - 1];
+
+		/* The children, in the first count slots */
+		final Page[] children = new Page[INNER_CAPACITY];
+	}
+}
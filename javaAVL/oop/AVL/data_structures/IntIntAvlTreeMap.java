@@ -0,0 +1,185 @@
+package oop.ex4.data_structures;
+
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An ordered map from int keys to int values, built on AvlTree like AvlTreeMap, but keeping the values as
+ * primitive ints so nothing is boxed. Lookups of keys that are not in the map return the map's missing
+ * value (0 unless given otherwise).
+ * As an AvlTree, the map iterates over its keys in ascending order; add(key) adds a key whose value is the
+ * missing value.
+ * @author shaharna13
+ */
+public class IntIntAvlTreeMap extends AbstractAvlTreeMap<IntIntAvlTreeMap.Entry> {
+
+	/* The value returned for keys that are not in the map */
+	private final int missingValue;
+
+	/**
+	 * The default constructor, creates an empty map whose missing value is 0.
+	 */
+	public IntIntAvlTreeMap(){
+		this(0);
+	}
+
+	/**
+	 * Creates an empty map.
+	 * @param missingValue the value returned by the lookups of keys that are not in the map.
+	 */
+	public IntIntAvlTreeMap(int missingValue){
+		super();
+		this.missingValue = missingValue;
+	}
+
+	/**
+	 * A copy constructor that creates a deep copy of the given map, in the same structure.
+	 * @param map The map to be copied.
+	 */
+	public IntIntAvlTreeMap(IntIntAvlTreeMap map){
+		super(map);
+		this.missingValue = map.missingValue;
+	}
+
+	/**
+	 * Returns a copy of this map in O(1), see AvlTree.snapshot().
+	 * @return a lazy copy of this map.
+	 */
+	@Override
+	public IntIntAvlTreeMap snapshot(){
+		return (IntIntAvlTreeMap) super.snapshot();
+	}
+
+	/**
+	 * Splits the map in two in O(logn), see AvlTree.split(int).
+	 * @param key the smallest key the new map may hold.
+	 * @return a map of this map's keys that are >= key, with their values.
+	 */
+	@Override
+	public IntIntAvlTreeMap split(int key){
+		return (IntIntAvlTreeMap) super.split(key);
+	}
+
+	@Override
+	IntIntAvlTreeMap newEmptyTree(){
+		return new IntIntAvlTreeMap(missingValue);
+	}
+
+	@Override
+	Entry createNode(int data){
+		Entry entry = new Entry(data);
+		entry.value = missingValue;
+		return entry;
+	}
+
+	/**
+	 * @return the value returned by the lookups of keys that are not in the map.
+	 */
+	public int getMissingValue(){
+		return missingValue;
+	}
+
+	/**
+	 * Returns the value of the given key.
+	 * @param key the key to look up.
+	 * @return the key's value, or the missing value if the key is not in the map.
+	 */
+	public int get(int key){
+		Entry entry = getEntry(key);
+		return entry == null ? missingValue : entry.value;
+	}
+
+	/**
+	 * Associates the given value with the given key, replacing the key's previous value if it has one.
+	 * @param key the key.
+	 * @param value the key's new value.
+	 * @return the key's previous value, or the missing value if the key was not in the map.
+	 */
+	public int put(int key, int value){
+		Entry entry = entryForWrite(key);
+		if (entry == null){
+			addEntry(key).value = value;
+			return missingValue;
+		}
+		int oldValue = entry.value;
+		entry.value = value;
+		return oldValue;
+	}
+
+	/**
+	 * Removes the given key and its value from the map.
+	 * @param key the key to remove.
+	 * @return the key's value, or the missing value if the key was not in the map.
+	 */
+	public int remove(int key){
+		Entry entry = removeEntry(key);
+		return entry == null ? missingValue : entry.value;
+	}
+
+	/**
+	 * Returns the value of the given key, computing it with the given function (and adding it) if the key
+	 * is not in the map.
+	 * @param key the key.
+	 * @param mappingFunction computes the value of a key that is not in the map.
+	 * @return the key's current value.
+	 */
+	public int computeIfAbsent(int key, IntUnaryOperator mappingFunction){
+		Objects.requireNonNull(mappingFunction);
+		Entry entry = getEntry(key);
+		if (entry != null){
+			return entry.value;
+		}
+		int value = mappingFunction.applyAsInt(key);
+		addEntry(key).value = value;
+		return value;
+	}
+
+	/**
+	 * Adds the given value for a key that is not in the map, or otherwise replaces the key's value with the
+	 * result of the given function on the old and given values (for example Integer::sum for counters).
+	 * @param key the key.
+	 * @param value the value to add, or to merge with the key's current value.
+	 * @param remappingFunction combines the current value and the given one.
+	 * @return the key's new value.
+	 */
+	public int merge(int key, int value, IntBinaryOperator remappingFunction){
+		Objects.requireNonNull(remappingFunction);
+		Entry entry = entryForWrite(key);
+		if (entry == null){
+			addEntry(key).value = value;
+			return value;
+		}
+		entry.value = remappingFunction.applyAsInt(entry.value, value);
+		return entry.value;
+	}
+
+	/*
+	 * A node of the map: the key is the node's data, and the node also holds the key's value.
+	 */
+	static final class Entry extends Node {
+
+		/* The key's value */
+		private int value;
+
+		/*
+		 * Creates an entry for the given key.
+		 */
+		Entry(int key){
+			super(key);
+		}
+
+		/*
+		 * Copies the given entry's key, value and metadata, but not its links.
+		 */
+		Entry(Entry oldEntry){
+			super(oldEntry);
+			this.value = oldEntry.value;
+		}
+
+		@Override
+		Node copy(){
+			return new Entry(this);
+		}
+	}
+}
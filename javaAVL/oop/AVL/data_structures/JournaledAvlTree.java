@@ -0,0 +1,741 @@
+package oop.ex4.data_structures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * A thread safe AVL tree of int values that survives crashes: every add and delete that changes the tree is
+ * recorded in an append-only journal, and opening the tree's directory again replays the journal on top of
+ * the last snapshot of the tree.
+ * The journal is written in frames of records (a type byte and the value), each frame with its length and
+ * a CRC32C checksum, so a frame torn by a crash is detected and dropped on recovery. Records are appended
+ * to a buffer in memory, and written and forced to the disk in batches (group commit): the thread that
+ * forces the journal writes the records of all the threads that appended meanwhile, so concurrent writers
+ * share each fsync. With a sync interval of 0 (the default), add and delete return only once their record
+ * is on the disk. With a positive interval they return as soon as the record is in the buffer, and a
+ * background thread forces the journal every interval, so a crash loses at most the last interval of
+ * changes, and a single writer doesn't wait for the disk at all; sync() forces the journal on demand.
+ * When the journal grows past the compaction size, a background thread starts a new journal, takes an
+ * O(1) snapshot() of the tree at that point, writes it with AvlTreeSerializer, and then deletes the older
+ * journals and snapshots. The first change of the tree after that copies all its nodes in memory (see
+ * AvlTree.snapshot), in O(n) while holding the tree's lock: once per compaction, that change and every
+ * change and read waiting behind it see a latency spike of the copy, tens of milliseconds per million
+ * values (more if the copy sets off a garbage collection). The compaction takes that spike rather than
+ * holding up the writers while the whole snapshot is written to the disk.
+ * Replaying a record is idempotent on a set: after a record of a value, the value is in the set exactly if
+ * the record is an add, whatever came before. So records written to the new journal that the snapshot
+ * already includes replay harmlessly.
+ * The files in the directory are snapshot.G and journal.G: snapshot.G holds the values of all the journals
+ * before G, and the journals from G on are replayed on top of it.
+ * A failed write, sync or compaction makes the tree refuse any further change (with an
+ * UncheckedIOException); reopening the directory recovers everything that was synced.
+ * @author shaharna13
+ */
+public class JournaledAvlTree implements Iterable<Integer>, Closeable {
+
+	/* The default journal size that starts a compaction: 64MB */
+	private static final long DEFAULT_COMPACTION_BYTES = 64L << 20;
+
+	/* The record types */
+	private static final byte ADD = 1;
+	private static final byte DELETE = 2;
+
+	/* The size of a record: the type and the value */
+	private static final int RECORD_BYTES = 5;
+
+	/* The size of a frame's header: the length of its records and their checksum */
+	private static final int FRAME_HEADER_BYTES = 8;
+
+	/* The most bytes of records in one frame; a writer that finds the buffer full writes it first */
+	private static final int BATCH_BYTES = RECORD_BYTES << 12;
+
+	/* The size of the buffer the journals are read through on recovery */
+	private static final int READ_BUFFER_BYTES = 1 << 20;
+
+	/* The number of values an iterator reads in one chunk */
+	private static final int CHUNK = 64;
+
+	/* The file names of the snapshot and the journal of a generation, and of a snapshot being written */
+	private static final String SNAPSHOT_PREFIX = "snapshot.";
+	private static final String JOURNAL_PREFIX = "journal.";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	/* The directory of the files */
+	private final Path directory;
+
+	/* The most microseconds between a change and its sync, 0 to sync before returning */
+	private final long syncIntervalMicros;
+
+	/* The size of the records logged since the last compaction that starts a new one */
+	private final long compactionBytes;
+
+	/* The values, guarded by treeLock */
+	private final AvlTree tree;
+
+	/* Guards the tree, the pending records and the journal's size; held briefly by every change */
+	private final ReentrantLock treeLock = new ReentrantLock();
+
+	/* Held by the thread that writes and forces a batch, and while switching journals; taken before treeLock */
+	private final ReentrantLock syncLock = new ReentrantLock();
+
+	/* Serializes the compactions */
+	private final Object compactionLock = new Object();
+
+	/* The records appended and not written yet (guarded by treeLock), and the buffer being written */
+	private ByteBuffer pending, writing;
+
+	/* The number of records appended (guarded by treeLock), and of records on the disk */
+	private long appended;
+	private volatile long durable;
+
+	/* The current journal and its generation, replaced while holding both locks */
+	private FileChannel journal;
+	private long generation;
+
+	/* The size of the records logged since the last compaction, guarded by treeLock */
+	private long loggedBytes;
+
+	/* The checksum of the frames, used while holding syncLock */
+	private final CRC32C checksum = new CRC32C();
+
+	/* The frame header buffer, used while holding syncLock */
+	private final ByteBuffer frameHeader = ByteBuffer.allocateDirect(FRAME_HEADER_BYTES)
+			.order(ByteOrder.LITTLE_ENDIAN);
+
+	/* The number of journal syncs */
+	private volatile long syncCount;
+
+	/* Runs the periodic syncs and the compactions */
+	private final ScheduledThreadPoolExecutor background;
+
+	/* Whether a background compaction is scheduled or running */
+	private final AtomicBoolean compacting = new AtomicBoolean();
+
+	/* The failure that stopped the tree, if any */
+	private volatile IOException failure;
+
+	/* Whether the tree was closed, guarded by treeLock */
+	private boolean closed;
+
+	/**
+	 * Opens the tree stored in the given directory, or creates an empty tree in it if it has no tree. Every
+	 * change is synced before add or delete returns, and the journal is compacted every 64MB.
+	 * @param directory the directory of the tree's files, created if it doesn't exist.
+	 * @throws IOException if the files can't be read or written, or are corrupt.
+	 */
+	public JournaledAvlTree(Path directory) throws IOException {
+		this(directory, 0, DEFAULT_COMPACTION_BYTES);
+	}
+
+	/**
+	 * Opens the tree stored in the given directory, or creates an empty tree in it if it has no tree.
+	 * @param directory the directory of the tree's files, created if it doesn't exist.
+	 * @param syncIntervalMicros 0 to sync every change before add or delete returns (grouped with the
+	 * changes of other threads), or the most microseconds a change may wait for its sync; a crash may lose
+	 * the changes of the last interval.
+	 * @param compactionBytes the size of the records journaled since the last snapshot that starts a new
+	 * snapshot in the background.
+	 * @throws IOException if the files can't be read or written, or are corrupt.
+	 * @throws IllegalArgumentException if the interval is negative or the compaction size is not positive.
+	 */
+	public JournaledAvlTree(Path directory, long syncIntervalMicros, long compactionBytes) throws IOException {
+		if (syncIntervalMicros < 0 || compactionBytes <= 0){
+			throw new IllegalArgumentException("Invalid sync interval or compaction size");
+		}
+		this.directory = directory;
+		this.syncIntervalMicros = syncIntervalMicros;
+		this.compactionBytes = compactionBytes;
+		Files.createDirectories(directory);
+		tree = recover();
+		journal = FileChannel.open(journalPath(generation), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.WRITE);
+		forceDirectory();
+		pending = ByteBuffer.allocateDirect(BATCH_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		writing = ByteBuffer.allocateDirect(BATCH_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		background = new ScheduledThreadPoolExecutor(2, task -> {
+			Thread thread = new Thread(task, "JournaledAvlTree " + directory.getFileName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (syncIntervalMicros > 0){
+			background.scheduleWithFixedDelay(this::syncInBackground, syncIntervalMicros, syncIntervalMicros,
+					TimeUnit.MICROSECONDS);
+		}
+	}
+
+	/*
+	 * Loads the newest snapshot, replays the journals from its generation on, and deletes the files the
+	 * snapshot makes obsolete. Sets the generation of the new journal, after all the existing ones.
+	 * @return the recovered tree.
+	 */
+	private AvlTree recover() throws IOException {
+		long snapshotGeneration = -1;
+		List<Long> journals = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+			for (Path file : files){
+				String name = file.getFileName().toString();
+				if (name.endsWith(TEMP_SUFFIX)){
+					// A snapshot whose writing was interrupted.
+					Files.delete(file);
+				}
+				else if (name.startsWith(SNAPSHOT_PREFIX)){
+					snapshotGeneration = Math.max(snapshotGeneration, parseGeneration(name, SNAPSHOT_PREFIX));
+				}
+				else if (name.startsWith(JOURNAL_PREFIX)){
+					journals.add(parseGeneration(name, JOURNAL_PREFIX));
+				}
+			}
+		}
+		Collections.sort(journals);
+		AvlTree recovered = snapshotGeneration < 0 ? new AvlTree() :
+				AvlTreeSerializer.read(snapshotPath(snapshotGeneration));
+		generation = Math.max(snapshotGeneration, 0);
+		for (int i = 0; i < journals.size(); i++){
+			long journalGeneration = journals.get(i);
+			if (journalGeneration >= snapshotGeneration){
+				replay(recovered, journalPath(journalGeneration), i == journals.size() - 1);
+				generation = journalGeneration + 1;
+			}
+		}
+		deleteBefore(snapshotGeneration);
+		return recovered;
+	}
+
+	/*
+	 * @return the generation in the given file name.
+	 * @throws IOException if the name has no generation.
+	 */
+	private static long parseGeneration(String name, String prefix) throws IOException {
+		try {
+			return Long.parseLong(name.substring(prefix.length()));
+		}
+		catch (NumberFormatException e){
+			throw new IOException("Unexpected file in a journaled tree's directory: " + name, e);
+		}
+	}
+
+	/*
+	 * Applies the records of the given journal to the tree. A frame that is cut short or fails its checksum
+	 * can only be the last one written before a crash, and is only accepted at the end of the last journal,
+	 * which is then truncated before it.
+	 * @param last true if this is the newest journal.
+	 * @throws IOException if the journal can't be read, or is corrupt before its end.
+	 */
+	private void replay(AvlTree recovered, Path file, boolean last) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+			ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.flip();
+			long validBytes = 0;
+			while (fill(channel, buffer, FRAME_HEADER_BYTES)){
+				int start = buffer.position();
+				int length = buffer.getInt(start);
+				int expected = buffer.getInt(start + Integer.BYTES);
+				if (length <= 0 || length > BATCH_BYTES || length % RECORD_BYTES != 0
+						|| !fill(channel, buffer, FRAME_HEADER_BYTES + length)){
+					break;
+				}
+				start = buffer.position();
+				int end = start + FRAME_HEADER_BYTES + length;
+				ByteBuffer records = buffer.duplicate();
+				records.position(start + FRAME_HEADER_BYTES).limit(end);
+				checksum.reset();
+				checksum.update(records);
+				if ((int) checksum.getValue() != expected){
+					break;
+				}
+				for (int record = start + FRAME_HEADER_BYTES; record < end; record += RECORD_BYTES){
+					byte type = buffer.get(record);
+					int data = buffer.getInt(record + 1);
+					if (type == ADD){
+						recovered.add(data);
+					}
+					else if (type == DELETE){
+						recovered.delete(data);
+					}
+					else {
+						throw new IOException("Corrupt journal " + file + ": record type " + type);
+					}
+				}
+				buffer.position(end);
+				validBytes += end - start;
+			}
+			if (validBytes != channel.size()){
+				if (!last){
+					throw new IOException("Corrupt journal " + file + " at byte " + validBytes);
+				}
+				channel.truncate(validBytes);
+				channel.force(true);
+			}
+		}
+	}
+
+	/*
+	 * Reads from the channel until the buffer holds at least the given number of bytes, or the channel
+	 * ends.
+	 * @return true if the buffer holds the bytes.
+	 */
+	private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+		if (buffer.remaining() >= bytes){
+			return true;
+		}
+		buffer.compact();
+		boolean endOfFile = false;
+		while (buffer.position() < bytes && !endOfFile){
+			endOfFile = channel.read(buffer) < 0;
+		}
+		buffer.flip();
+		return buffer.remaining() >= bytes;
+	}
+
+	/**
+	 * This function adds the data provided to the tree, if it's not already there, and journals the change.
+	 * @param data To add to the tree
+	 * @return True if add successful, False if the data was already in the tree.
+	 * @throws UncheckedIOException if the journal can't be written.
+	 * @throws IllegalStateException if the tree is closed.
+	 */
+	public boolean add(int data){
+		return update(ADD, data);
+	}
+
+	/**
+	 * Removes the node with the given value from the tree, if it exists, and journals the change.
+	 * @param toDelete the value to remove from the tree.
+	 * @return true if the given value was found and deleted, false otherwise.
+	 * @throws UncheckedIOException if the journal can't be written.
+	 * @throws IllegalStateException if the tree is closed.
+	 */
+	public boolean delete(int toDelete){
+		return update(DELETE, toDelete);
+	}
+
+	/*
+	 * Applies a change to the tree and appends its record, if it changed the tree. In the synchronous mode,
+	 * waits until the record (or, for a change that changed nothing, every record before it) is synced, so
+	 * a caller never acts on a state that a crash could undo.
+	 */
+	private boolean update(byte type, int data){
+		boolean changed, compact = false;
+		long sequence;
+		lockForAppend();
+		try {
+			changed = type == ADD ? tree.add(data) : tree.delete(data);
+			if (changed){
+				pending.put(type).putInt(data);
+				appended++;
+				loggedBytes += RECORD_BYTES;
+				compact = loggedBytes >= compactionBytes;
+			}
+			sequence = appended;
+		}
+		finally {
+			treeLock.unlock();
+		}
+		if (compact && compacting.compareAndSet(false, true)){
+			background.execute(this::compactInBackground);
+		}
+		if (syncIntervalMicros == 0){
+			awaitDurable(sequence);
+		}
+		return changed;
+	}
+
+	/*
+	 * Takes treeLock once the pending buffer has room for a record, writing the buffer first if it is full.
+	 * @throws IllegalStateException if the tree is closed.
+	 * @throws UncheckedIOException if the tree failed.
+	 */
+	private void lockForAppend(){
+		while (true){
+			treeLock.lock();
+			if (closed || failure != null){
+				treeLock.unlock();
+				checkUsable();
+			}
+			if (pending.remaining() >= RECORD_BYTES){
+				return;
+			}
+			long sequence = appended;
+			treeLock.unlock();
+			awaitDurable(sequence);
+		}
+	}
+
+	/*
+	 * @throws IllegalStateException if the tree is closed.
+	 * @throws UncheckedIOException if the tree failed.
+	 */
+	private void checkUsable(){
+		if (failure != null){
+			throw new UncheckedIOException("The journaled tree failed", failure);
+		}
+		if (closed){
+			throw new IllegalStateException("The journaled tree is closed");
+		}
+	}
+
+	/*
+	 * Returns once the given number of records are on the disk. If they aren't, the thread that gets
+	 * syncLock first writes and forces all the pending records, including the ones of the threads waiting
+	 * for it, which then find their records synced.
+	 */
+	private void awaitDurable(long sequence){
+		if (durable >= sequence){
+			return;
+		}
+		syncLock.lock();
+		try {
+			if (durable < sequence){
+				writePending();
+			}
+		}
+		catch (IOException e){
+			failure = e;
+			throw new UncheckedIOException("The journal can't be written", e);
+		}
+		finally {
+			syncLock.unlock();
+		}
+	}
+
+	/*
+	 * Writes the pending records to the journal as one frame, and forces it. Must hold syncLock.
+	 */
+	private void writePending() throws IOException {
+		ByteBuffer batch;
+		long sequence;
+		treeLock.lock();
+		try {
+			batch = pending;
+			pending = writing;
+			writing = batch;
+			sequence = appended;
+		}
+		finally {
+			treeLock.unlock();
+		}
+		batch.flip();
+		if (batch.hasRemaining()){
+			checksum.reset();
+			checksum.update(batch.duplicate());
+			frameHeader.clear();
+			frameHeader.putInt(batch.remaining()).putInt((int) checksum.getValue()).flip();
+			ByteBuffer[] frame = {frameHeader, batch};
+			while (batch.hasRemaining()){
+				journal.write(frame);
+			}
+			journal.force(false);
+			syncCount++;
+		}
+		batch.clear();
+		durable = sequence;
+	}
+
+	/**
+	 * Forces all the changes made so far to the disk. Only needed with a positive sync interval.
+	 * @throws IOException if the journal can't be written.
+	 */
+	public void sync() throws IOException {
+		syncLock.lock();
+		try {
+			checkUsable();
+			writePending();
+		}
+		catch (IOException e){
+			failure = e;
+			throw e;
+		}
+		finally {
+			syncLock.unlock();
+		}
+	}
+
+	/*
+	 * The periodic sync of the asynchronous mode.
+	 */
+	private void syncInBackground(){
+		if (failure == null){
+			try {
+				sync();
+			}
+			catch (IOException | RuntimeException e){
+				// The failure is reported by the next change.
+			}
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the tree now, and deletes the journals and snapshots it makes obsolete. Also done
+	 * in the background whenever the journal grows past the compaction size.
+	 * @throws IOException if the files can't be written.
+	 */
+	public void compact() throws IOException {
+		synchronized (compactionLock){
+			AvlTree snapshot;
+			long snapshotGeneration;
+			syncLock.lock();
+			try {
+				checkUsable();
+				// The records written so far are synced, since every write is forced before syncLock is
+				// released; the pending records will be written to the new journal.
+				FileChannel next = FileChannel.open(journalPath(generation + 1), StandardOpenOption.CREATE_NEW,
+						StandardOpenOption.WRITE);
+				forceDirectory();
+				FileChannel previous = journal;
+				treeLock.lock();
+				try {
+					journal = next;
+					snapshotGeneration = ++generation;
+					loggedBytes = 0;
+					snapshot = tree.snapshot();
+				}
+				finally {
+					treeLock.unlock();
+				}
+				previous.close();
+			}
+			catch (IOException e){
+				failure = e;
+				throw e;
+			}
+			finally {
+				syncLock.unlock();
+			}
+			Path temp = directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + TEMP_SUFFIX);
+			AvlTreeSerializer.write(snapshot, temp);
+			Files.move(temp, snapshotPath(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE);
+			forceDirectory();
+			deleteBefore(snapshotGeneration);
+		}
+	}
+
+	/*
+	 * The compaction started by a change that found the journal large enough.
+	 */
+	private void compactInBackground(){
+		try {
+			compact();
+		}
+		catch (IOException e){
+			failure = e;
+		}
+		catch (RuntimeException e){
+			// The tree was closed or had already failed.
+		}
+		finally {
+			compacting.set(false);
+		}
+	}
+
+	/*
+	 * Deletes the snapshots and journals of the generations before the given one.
+	 */
+	private void deleteBefore(long snapshotGeneration) throws IOException {
+		for (long older = snapshotGeneration - 1; older >= 0; older--){
+			boolean deleted = Files.deleteIfExists(snapshotPath(older));
+			deleted |= Files.deleteIfExists(journalPath(older));
+			if (!deleted){
+				// The older generations were deleted by the previous compaction.
+				break;
+			}
+		}
+	}
+
+	/*
+	 * Forces the directory's entries to the disk, so new and renamed files survive a crash. Not every
+	 * platform can open a directory; there the rename itself has to do.
+	 */
+	private void forceDirectory(){
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)){
+			channel.force(true);
+		}
+		catch (IOException e){
+			// Directories can't be forced on this platform.
+		}
+	}
+
+	/*
+	 * @return the path of the given generation's snapshot.
+	 */
+	private Path snapshotPath(long snapshotGeneration){
+		return directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration);
+	}
+
+	/*
+	 * @return the path of the given generation's journal.
+	 */
+	private Path journalPath(long journalGeneration){
+		return directory.resolve(JOURNAL_PREFIX + journalGeneration);
+	}
+
+	/**
+	 * Check whether the tree contains the given input value.
+	 * @param searchVal value to search for
+	 * @return if val is found in the tree, return the depth of the node (0 for the root) with the given
+	 * value if it was found in the tree, -1 otherwise
+	 */
+	public int contains(int searchVal){
+		treeLock.lock();
+		try {
+			return tree.contains(searchVal);
+		}
+		finally {
+			treeLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of nodes in the tree.
+	 */
+	public int size(){
+		treeLock.lock();
+		try {
+			return tree.size();
+		}
+		finally {
+			treeLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over the tree's values in ascending order. The returned iterator
+	 * does NOT implement the remove() method.
+	 * @return an iterator for the tree.
+	 */
+	@Override
+	public Iterator<Integer> iterator(){
+		return intIterator();
+	}
+
+	/**
+	 * Returns a weakly consistent primitive iterator over the tree's values in ascending order, like
+	 * ConcurrentAvlTree's: it never fails and never returns a value twice, and returns every value that was
+	 * in the tree for the whole iteration; values added or deleted while iterating may or may not be
+	 * returned. The values are read in chunks under the tree's lock, so the iteration doesn't make the
+	 * writers copy the tree, as an iteration over a snapshot would.
+	 * @return a primitive iterator over the tree's values.
+	 */
+	public PrimitiveIterator.OfInt intIterator(){
+		return new ChunkedIterator();
+	}
+
+	/**
+	 * @return the number of times the journal was forced to the disk since the tree was opened; the number
+	 * of changes divided by it is the average size of a group commit.
+	 */
+	public long getSyncCount(){
+		return syncCount;
+	}
+
+	/**
+	 * Syncs the pending changes, waits for a running compaction to end, and closes the journal. The tree
+	 * can't be changed after it is closed.
+	 * @throws IOException if the journal can't be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		treeLock.lock();
+		try {
+			if (closed){
+				return;
+			}
+			closed = true;
+		}
+		finally {
+			treeLock.unlock();
+		}
+		background.shutdown();
+		try {
+			background.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the compaction");
+		}
+		syncLock.lock();
+		try {
+			if (failure == null){
+				writePending();
+			}
+			journal.close();
+		}
+		finally {
+			syncLock.unlock();
+		}
+	}
+
+	/*
+	 * A weakly consistent iterator. It reads the values ahead in chunks, each under treeLock and starting
+	 * after the last value read, so it holds no node references while the tree changes.
+	 */
+	private class ChunkedIterator implements PrimitiveIterator.OfInt {
+
+		/* The values read ahead */
+		private final int[] buffer = new int[CHUNK];
+
+		/* The number of values in the buffer, and the position of the next one */
+		private int count, position;
+
+		/* The smallest value the next chunk may hold, past Integer.MAX_VALUE at the end */
+		private long nextFrom = Integer.MIN_VALUE;
+
+		/*
+		 * Reads the next chunk of values from nextFrom on.
+		 */
+		private void fill(){
+			count = 0;
+			position = 0;
+			if (nextFrom > Integer.MAX_VALUE){
+				return;
+			}
+			treeLock.lock();
+			try {
+				PrimitiveIterator.OfInt values = tree.rangeIterator((int) nextFrom, true, Integer.MAX_VALUE, true);
+				while (count < CHUNK && values.hasNext()){
+					buffer[count++] = values.nextInt();
+				}
+			}
+			finally {
+				treeLock.unlock();
+			}
+			nextFrom = count == CHUNK ? buffer[count - 1] + 1L : Integer.MAX_VALUE + 1L;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (position == count){
+				fill();
+			}
+			return position < count;
+		}
+
+		@Override
+		public int nextInt() {
+			if (!hasNext()){
+				throw new NoSuchElementException();
+			}
+			return buffer[position++];
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package oop.ex4.data_structures;
+
+/**
+ * The AVL tree algorithms over linked nodes that hold any type of data: the structural part of add and
+ * delete, the rotations and the walk up the tree that rebalances it after a change, and the structural copy.
+ * The subclasses define the nodes' data and search the tree by it, so LongAvlTree and GenericAvlTree keep
+ * only the code that compares their values, like the subclasses of IndexedAvlTree keep only their storage.
+ * @param <N> the type of the tree's nodes.
+ * @author shaharna13
+ */
+abstract class LinkedAvlTree<N extends LinkedAvlTree.LinkedNode<N>> {
+
+	/* The height of an empty sub tree */
+	private static final int LEAF = -1;
+
+	/* Pointer to the tree's root */
+	N root;
+
+	/**
+	 * Get the tree size
+	 * @return The number of values in the tree
+	 */
+	public int size(){
+		return root == null ? 0 : root.size;
+	}
+
+	/*
+	 * @return the height of the given node, LEAF for null.
+	 */
+	static int height(LinkedNode<?> node){
+		return node == null ? LEAF : node.height;
+	}
+
+	/*
+	 * Links a new leaf under the given parent (or makes it the root, if parent is null), and rebalances the
+	 * tree.
+	 * @param left true if the leaf is the parent's left child, false if it is the right one.
+	 */
+	void insertLeaf(N parent, N leaf, boolean left){
+		if (parent == null){
+			root = leaf;
+			return;
+		}
+		if (left){
+			parent.setLeft(leaf);
+		}
+		else {
+			parent.setRight(leaf);
+		}
+		balanceTree(parent);
+	}
+
+	/*
+	 * Removes the given node from the tree, and rebalances the tree.
+	 */
+	void removeNode(N node){
+		N removed = node;
+		// A node with two children takes its successor's data, and the successor's node is removed instead.
+		if (node.left != null && node.right != null){
+			N successor = node.right;
+			while (successor.left != null){
+				successor = successor.left;
+			}
+			node.takeDataOf(successor);
+			removed = successor;
+		}
+		N child = removed.left != null ? removed.left : removed.right;
+		N parent = removed.parent;
+		replaceChild(parent, removed, child);
+		balanceTree(parent);
+	}
+
+	/*
+	 * Replaces the child of the given parent (or the root, if parent is null) with a new child.
+	 */
+	private void replaceChild(N parent, N oldChild, N newChild){
+		if (parent == null){
+			root = newChild;
+		}
+		else if (parent.left == oldChild){
+			parent.left = newChild;
+		}
+		else {
+			parent.right = newChild;
+		}
+		if (newChild != null){
+			newChild.parent = parent;
+		}
+	}
+
+	/*
+	 * Goes up from the given node to the root, refreshing the cached heights and sizes and rotating
+	 * unbalanced nodes. Once a sub tree's height is the same as before the change, only the sizes are
+	 * refreshed for the rest of the way (see AvlRebalancer.balanceTree).
+	 * @param node the lowest node whose sub tree changed.
+	 */
+	private void balanceTree(N node){
+		N curNode = node;
+		while (curNode != null){
+			int oldHeight = curNode.height;
+			curNode.updateMetadata();
+			N subTreeRoot = rebalance(curNode);
+			if (subTreeRoot.height == oldHeight){
+				for (N ancestor = subTreeRoot.parent; ancestor != null; ancestor = ancestor.parent){
+					ancestor.updateSize();
+				}
+				return;
+			}
+			curNode = subTreeRoot.parent;
+		}
+	}
+
+	/*
+	 * Rotates the given node if its sub trees' heights differ by 2 (the LL, LR, RR and RL cases).
+	 * @return the root of the sub tree the node used to root.
+	 */
+	private N rebalance(N node){
+		int balance = getBalance(node);
+		if (balance == -2){
+			if (getBalance(node.left) == 1){ // LR
+				rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		}
+		if (balance == 2){
+			if (getBalance(node.right) == -1){ // RL
+				rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	/*
+	 * Rotates the given node down to the left, its right child takes its place.
+	 * @return the new root of the sub tree.
+	 */
+	private N rotateLeft(N node){
+		N rChild = node.right;
+		node.setRight(rChild.left);
+		replaceChild(node.parent, node, rChild);
+		rChild.setLeft(node);
+		node.updateMetadata();
+		rChild.updateMetadata();
+		return rChild;
+	}
+
+	/*
+	 * Rotates the given node down to the right, its left child takes its place.
+	 * @return the new root of the sub tree.
+	 */
+	private N rotateRight(N node){
+		N lChild = node.left;
+		node.setLeft(lChild.right);
+		replaceChild(node.parent, node, lChild);
+		lChild.setRight(node);
+		node.updateMetadata();
+		lChild.updateMetadata();
+		return lChild;
+	}
+
+	/*
+	 * @return the right sub tree's height minus the left one's.
+	 */
+	private static int getBalance(LinkedNode<?> node){
+		return height(node.right) - height(node.left);
+	}
+
+	/*
+	 * Copies the sub tree rooted in the given node iteratively, in pre-order (see Node.copyTree).
+	 */
+	@SuppressWarnings("unchecked")
+	static <N extends LinkedNode<N>> N copyTree(N source){
+		N[] originals = (N[]) new LinkedNode<?>[source.height + 1];
+		N[] copies = (N[]) new LinkedNode<?>[source.height + 1];
+		N rootCopy = source.copy();
+		originals[0] = source;
+		copies[0] = rootCopy;
+		int top = 1;
+		while (top > 0){
+			top--;
+			N original = originals[top];
+			N copy = copies[top];
+			if (original.right != null){
+				copy.setRight(original.right.copy());
+				originals[top] = original.right;
+				copies[top++] = copy.right;
+			}
+			if (original.left != null){
+				copy.setLeft(original.left.copy());
+				originals[top] = original.left;
+				copies[top++] = copy.left;
+			}
+		}
+		return rootCopy;
+	}
+
+	/*
+	 * A node of the tree: links to its children and parent, and the cached height and size of its sub tree
+	 * (see Node). The subclasses add the data.
+	 */
+	abstract static class LinkedNode<N extends LinkedNode<N>> {
+
+		/* The node's links */
+		N parent, left, right;
+
+		/* The height and size of the sub tree rooted in the node */
+		int height;
+		int size = 1;
+
+		/*
+		 * Creates a leaf.
+		 */
+		LinkedNode(){
+		}
+
+		/*
+		 * Copies the given node's metadata, but not its links.
+		 */
+		LinkedNode(LinkedNode<N> oldNode){
+			this.height = oldNode.height;
+			this.size = oldNode.size;
+		}
+
+		/*
+		 * @return a copy of the node's data and metadata, without its links.
+		 */
+		abstract N copy();
+
+		/*
+		 * Replaces the node's data with the given node's data.
+		 */
+		abstract void takeDataOf(N other);
+
+		/*
+		 * @return this node, as the subclass it is.
+		 */
+		@SuppressWarnings("unchecked")
+		private N self(){
+			return (N) this;
+		}
+
+		/*
+		 * Sets the left child and the child's parent.
+		 */
+		void setLeft(N leftChild){
+			left = leftChild;
+			if (leftChild != null){
+				leftChild.parent = self();
+			}
+		}
+
+		/*
+		 * Sets the right child and the child's parent.
+		 */
+		void setRight(N rightChild){
+			right = rightChild;
+			if (rightChild != null){
+				rightChild.parent = self();
+			}
+		}
+
+		/*
+		 * Recalculates the height and size from the children's cached values.
+		 */
+		void updateMetadata(){
+			height = Math.max(height(left), height(right)) + 1;
+			updateSize();
+		}
+
+		/*
+		 * Recalculates the size from the children's cached values.
+		 */
+		void updateSize(){
+			size = (left == null ? 0 : left.size) + (right == null ? 0 : right.size) + 1;
+		}
+	}
+}
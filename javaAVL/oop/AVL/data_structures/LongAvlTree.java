@@ -0,0 +1,256 @@
+package oop.ex4.data_structures;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An AVL tree of long values. It is balanced and iterated exactly like AvlTree, but keeps the values as
+ * primitive longs, so 64 bit ids don't need to be mapped to ints or boxed.
+ * @author shaharna13
+ */
+public class LongAvlTree extends LinkedAvlTree<LongAvlTree.LongNode> implements Iterable<Long> {
+
+	/* Flag for the default value */
+	private static final int DEFAULT_RETURN_VALUE = -1;
+
+	/* Arrays at least this long are sorted with Arrays.parallelSort when bulk loading */
+	private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+	/**
+	 * The default constructor.
+	 */
+	public LongAvlTree(){
+	}
+
+	/**
+	 * A constructor that builds the tree from the elements in the input array in linear time (after sorting),
+	 * like AvlTree(int[]). The tree is a set, so values that appear more than once are added only once.
+	 * The input array is not modified.
+	 * @param data values to add to tree
+	 */
+	public LongAvlTree(long[] data){
+		if (data != null){
+			long[] sorted = Arrays.copyOf(data, data.length);
+			if (sorted.length >= PARALLEL_SORT_THRESHOLD){
+				Arrays.parallelSort(sorted);
+			}
+			else {
+				Arrays.sort(sorted);
+			}
+			int distinct = 0;
+			for (int i = 0; i < sorted.length; i++){
+				if (distinct == 0 || sorted[i] != sorted[distinct - 1]){
+					sorted[distinct++] = sorted[i];
+				}
+			}
+			root = buildBalanced(sorted, 0, distinct);
+		}
+	}
+
+	/**
+	 * A copy constructor that creates a deep copy of the given tree, in the same structure.
+	 * @param tree The tree to be copied.
+	 */
+	public LongAvlTree(LongAvlTree tree){
+		if (tree != null && tree.root != null){
+			root = copyTree(tree.root);
+		}
+	}
+
+	/*
+	 * Builds a balanced tree of the given range of a sorted array of distinct values, the middle value at
+	 * the root (see AvlTree.buildBalanced).
+	 */
+	private static LongNode buildBalanced(long[] sorted, int from, int to){
+		if (from >= to){
+			return null;
+		}
+		int middle = (from + to) >>> 1;
+		LongNode node = new LongNode(sorted[middle]);
+		node.setLeft(buildBalanced(sorted, from, middle));
+		node.setRight(buildBalanced(sorted, middle + 1, to));
+		node.updateMetadata();
+		return node;
+	}
+
+	/**
+	 * Check whether the tree contains the given input value.
+	 * @param searchVal value to search for
+	 * @return if val is found in the tree, return the depth of the node (0 for the root) with the given
+	 * value if it was found in the tree, -1 otherwise
+	 */
+	public int contains(long searchVal){
+		LongNode curNode = root;
+		int depth = 0;
+		while (curNode != null){
+			if (curNode.data == searchVal){
+				return depth;
+			}
+			curNode = curNode.data > searchVal ? curNode.left : curNode.right;
+			depth++;
+		}
+		return DEFAULT_RETURN_VALUE;
+	}
+
+	/**
+	 * This function adds the data provided to the tree, if it's not already there.
+	 * @param data To add to the tree
+	 * @return True if add successful, False if the data was already in the tree.
+	 */
+	public boolean add(long data){
+		LongNode lastNode = null;
+		LongNode curNode = root;
+		while (curNode != null){
+			lastNode = curNode;
+			if (curNode.data == data){
+				return false;
+			}
+			curNode = curNode.data > data ? curNode.left : curNode.right;
+		}
+		insertLeaf(lastNode, new LongNode(data), lastNode != null && lastNode.data > data);
+		return true;
+	}
+
+	/**
+	 * Removes the node with the given value from the tree, if it exists.
+	 * @param toDelete the value to remove from the tree.
+	 * @return true if the given value was found and deleted, false otherwise.
+	 */
+	public boolean delete(long toDelete){
+		LongNode node = root;
+		while (node != null && node.data != toDelete){
+			node = node.data > toDelete ? node.left : node.right;
+		}
+		if (node == null){
+			return false;
+		}
+		removeNode(node);
+		return true;
+	}
+
+	/**
+	 * Returns an iterator for the tree. The returned iterator iterates over the values in an ascending order,
+	 * and does NOT implement the remove() method.
+	 * @return an iterator for the tree.
+	 */
+	@Override
+	public Iterator<Long> iterator(){
+		return longIterator();
+	}
+
+	/**
+	 * Returns a primitive iterator over the tree's values in ascending order.
+	 * @return a primitive iterator over the tree's values in ascending order.
+	 */
+	public PrimitiveIterator.OfLong longIterator(){
+		return new InOrderIterator();
+	}
+
+	/**
+	 * Performs the given action on each of the tree's values, in ascending order, without boxing them.
+	 * @param action the action to perform on each value.
+	 */
+	public void forEachLong(LongConsumer action){
+		Objects.requireNonNull(action);
+		PrimitiveIterator.OfLong iterator = longIterator();
+		while (iterator.hasNext()){
+			action.accept(iterator.nextLong());
+		}
+	}
+
+	/**
+	 * Returns a sequential stream of the tree's values in ascending order.
+	 * @return a LongStream of the tree's values.
+	 */
+	public LongStream stream(){
+		return StreamSupport.longStream(Spliterators.spliterator(longIterator(), size(),
+				Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/*
+	 * An in-order iterator that keeps the path to the next node on an explicit stack (see
+	 * BinarySearchTree.InOrderIterator).
+	 */
+	private class InOrderIterator implements PrimitiveIterator.OfLong {
+
+		/* The pending nodes, the next one on top */
+		private final LongNode[] stack;
+
+		/* The number of nodes on the stack */
+		private int top;
+
+		/*
+		 * Creates an iterator that starts at the tree's minimum.
+		 */
+		InOrderIterator(){
+			stack = new LongNode[height(root) + 1];
+			pushLeftSpine(root);
+		}
+
+		/*
+		 * Pushes the given node and all its left descendants on the stack.
+		 */
+		private void pushLeftSpine(LongNode node){
+			for (LongNode curNode = node; curNode != null; curNode = curNode.left){
+				stack[top++] = curNode;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		@Override
+		public long nextLong() {
+			if (top == 0){
+				throw new NoSuchElementException();
+			}
+			LongNode curNode = stack[--top];
+			pushLeftSpine(curNode.right);
+			return curNode.data;
+		}
+	}
+
+	/*
+	 * A node of the tree: a long value, and the links and cached metadata of LinkedNode.
+	 */
+	static final class LongNode extends LinkedNode<LongNode> {
+
+		/* The node's data */
+		private long data;
+
+		/*
+		 * Creates a leaf with the given data.
+		 */
+		LongNode(long data){
+			this.data = data;
+		}
+
+		/*
+		 * Copies the given node's data and metadata, but not its links.
+		 */
+		LongNode(LongNode oldNode){
+			super(oldNode);
+			this.data = oldNode.data;
+		}
+
+		@Override
+		LongNode copy(){
+			return new LongNode(this);
+		}
+
+		@Override
+		void takeDataOf(LongNode other){
+			data = other.data;
+		}
+	}
+}
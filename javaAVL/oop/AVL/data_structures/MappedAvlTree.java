@@ -0,0 +1,240 @@
+package oop.ex4.data_structures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An AVL tree of int values whose nodes live in a memory-mapped file instead of the Java heap.
+ * The file starts with a small header (the root, the size and the slot allocation state), followed by
+ * fixed size node records of the value, the left child, right child and parent indices and the height.
+ * The records are mapped in segments of 2^16 nodes, and a new segment is mapped whenever the tree outgrows
+ * the existing ones, so the tree is not limited by the heap or by the 2GB limit of a single mapping; the
+ * operating system pages the records in and out as needed.
+ * Reopening a file gives back the tree as it was, without rebuilding anything. The changes reach the file
+ * as they are made; force() (or close()) also flushes them to the disk. A tree whose process was killed in
+ * the middle of an add or delete may be left inconsistent.
+ * The tree supports the same operations as AvlTree, with the same results. Like AvlTree, it is not thread
+ * safe, and it must not be used after it is closed.
+ * @author shaharna13
+ */
+public class MappedAvlTree extends IndexedAvlTree implements Closeable {
+
+	/* Identifies the file format: "AVLM" */
+	private static final int MAGIC = 0x4D4C5641;
+
+	/* The version of the file format */
+	private static final int VERSION = 1;
+
+	/* The byte offsets of the header's fields, and the size reserved for the header */
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int ROOT_OFFSET = 8;
+	private static final int SIZE_OFFSET = 12;
+	private static final int USED_OFFSET = 16;
+	private static final int FREE_HEAD_OFFSET = 20;
+	private static final int HEADER_BYTES = 64;
+
+	/* The byte offsets of a node record's fields, and the size of a record */
+	private static final int KEY_OFFSET = 0;
+	private static final int LEFT_OFFSET = 4;
+	private static final int RIGHT_OFFSET = 8;
+	private static final int PARENT_OFFSET = 12;
+	private static final int HEIGHT_OFFSET = 16;
+	private static final int RECORD_BYTES = 20;
+
+	/* A segment holds 2^SEGMENT_SHIFT node records */
+	private static final int SEGMENT_SHIFT = 16;
+	private static final int SEGMENT_NODES = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = SEGMENT_NODES - 1;
+	private static final long SEGMENT_BYTES = (long) SEGMENT_NODES * RECORD_BYTES;
+
+	/* The open file */
+	private final FileChannel channel;
+
+	/* The mapped header */
+	private final MappedByteBuffer header;
+
+	/* The mapped node segments, of which the first segmentCount are in use */
+	private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	private int segmentCount;
+
+	/**
+	 * Opens the tree stored in the given file, or creates an empty tree in it if the file doesn't exist or
+	 * is empty.
+	 * @param file the file that holds the tree.
+	 * @throws IOException if the file can't be opened or mapped, or is not a tree file.
+	 */
+	public MappedAvlTree(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			long fileSize = channel.size();
+			if (fileSize != 0 && (fileSize < HEADER_BYTES || (fileSize - HEADER_BYTES) % SEGMENT_BYTES != 0)){
+				throw new IOException("Not an AVL tree file: " + file);
+			}
+			header = map(0, HEADER_BYTES);
+			if (fileSize == 0){
+				header.putInt(MAGIC_OFFSET, MAGIC);
+				header.putInt(VERSION_OFFSET, VERSION);
+				headerChanged();
+			}
+			else {
+				if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION){
+					throw new IOException("Not an AVL tree file: " + file);
+				}
+				root = header.getInt(ROOT_OFFSET);
+				size = header.getInt(SIZE_OFFSET);
+				used = header.getInt(USED_OFFSET);
+				freeHead = header.getInt(FREE_HEAD_OFFSET);
+				mapSegments((int) ((fileSize - HEADER_BYTES) / SEGMENT_BYTES));
+			}
+		}
+		catch (IOException | RuntimeException e){
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens the tree stored in the given file, and replaces its content with the given values, built in
+	 * linear time (after sorting) like AvlTree(int[]).
+	 * @param file the file that holds the tree.
+	 * @param data values to add to tree
+	 * @throws IOException if the file can't be opened or mapped, or is not a tree file.
+	 */
+	public MappedAvlTree(Path file, int[] data) throws IOException {
+		this(file);
+		load(data == null ? new int[0] : AvlTree.sortedDistinct(data));
+	}
+
+	/*
+	 * Maps the given region of the file, with little endian byte order so the file is portable.
+	 */
+	private MappedByteBuffer map(long position, long length) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	/*
+	 * Maps segments until there are the given number of them, growing the file if needed.
+	 */
+	private void mapSegments(int count) throws IOException {
+		if (count > segments.length){
+			segments = Arrays.copyOf(segments, Math.max(count, 2 * segments.length));
+		}
+		while (segmentCount < count){
+			segments[segmentCount] = map(HEADER_BYTES + segmentCount * SEGMENT_BYTES, SEGMENT_BYTES);
+			segmentCount++;
+		}
+	}
+
+	/*
+	 * @return the byte offset of the given field of the given node in its segment.
+	 */
+	private static int offset(int node, int field){
+		return (node & SEGMENT_MASK) * RECORD_BYTES + field;
+	}
+
+	@Override
+	int getKey(int node){
+		return segments[node >>> SEGMENT_SHIFT].getInt(offset(node, KEY_OFFSET));
+	}
+
+	@Override
+	void setKey(int node, int key){
+		segments[node >>> SEGMENT_SHIFT].putInt(offset(node, KEY_OFFSET), key);
+	}
+
+	@Override
+	int getLeft(int node){
+		return segments[node >>> SEGMENT_SHIFT].getInt(offset(node, LEFT_OFFSET));
+	}
+
+	@Override
+	void setLeft(int node, int leftChild){
+		segments[node >>> SEGMENT_SHIFT].putInt(offset(node, LEFT_OFFSET), leftChild);
+	}
+
+	@Override
+	int getRight(int node){
+		return segments[node >>> SEGMENT_SHIFT].getInt(offset(node, RIGHT_OFFSET));
+	}
+
+	@Override
+	void setRight(int node, int rightChild){
+		segments[node >>> SEGMENT_SHIFT].putInt(offset(node, RIGHT_OFFSET), rightChild);
+	}
+
+	@Override
+	int getParent(int node){
+		return segments[node >>> SEGMENT_SHIFT].getInt(offset(node, PARENT_OFFSET));
+	}
+
+	@Override
+	void setParent(int node, int parentNode){
+		segments[node >>> SEGMENT_SHIFT].putInt(offset(node, PARENT_OFFSET), parentNode);
+	}
+
+	@Override
+	int getHeight(int node){
+		return segments[node >>> SEGMENT_SHIFT].getInt(offset(node, HEIGHT_OFFSET));
+	}
+
+	@Override
+	void setHeight(int node, int height){
+		segments[node >>> SEGMENT_SHIFT].putInt(offset(node, HEIGHT_OFFSET), height);
+	}
+
+	@Override
+	int capacity(){
+		return segmentCount << SEGMENT_SHIFT;
+	}
+
+	@Override
+	void ensureCapacity(int slots){
+		try {
+			mapSegments((int) (((long) slots + SEGMENT_NODES - 1) >>> SEGMENT_SHIFT));
+		}
+		catch (IOException e){
+			throw new IllegalStateException("Can't grow the tree file", e);
+		}
+	}
+
+	/*
+	 * Writes the root, size and slot allocation state to the header.
+	 */
+	@Override
+	void headerChanged(){
+		header.putInt(ROOT_OFFSET, root);
+		header.putInt(SIZE_OFFSET, size);
+		header.putInt(USED_OFFSET, used);
+		header.putInt(FREE_HEAD_OFFSET, freeHead);
+	}
+
+	/**
+	 * Flushes all the changes made to the tree to the disk.
+	 */
+	public void force(){
+		for (int i = 0; i < segmentCount; i++){
+			segments[i].force();
+		}
+		header.force();
+	}
+
+	/**
+	 * Flushes all the changes to the disk and closes the file.
+	 * @throws IOException if the file can't be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+}
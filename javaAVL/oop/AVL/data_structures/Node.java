@@ -19,19 +19,89 @@ public class Node {
 	/* The node's leftChild */
 	private Node leftChild;
 
+	/* The height of the sub tree rooted in the node (0 for a leaf), kept up to date by the tree */
+	private int height;
+
+	/* The number of nodes in the sub tree rooted in the node, kept up to date by the tree */
+	private int size;
+
+	/*
+	 * The balancing data of the tree's BalancePolicy: the rank of a WAVL tree, or the color of a red-black
+	 * tree. Unused by AVL, which balances by the height.
+	 */
+	private int rank;
+
 	/*
-	 * This is a constructor building a new node from an existing one. Meaning this constructor is
-	 * copying the node.
+	 * This is a constructor building a new node from an existing one. It copies the node's data, cached
+	 * height and size, and rank, but not its links; see copyTree for copying a whole sub tree.
 	 * @param oldNode the node to copy.
 	 */
 	Node (Node oldNode){
 		this.data = oldNode.data;
-		if (oldNode.leftChild != null){
-			setLeftChild(new Node(oldNode.leftChild));
+		copyMetadata(oldNode);
+	}
+
+	/*
+	 * Takes the given node's cached height and size and its rank, for a node that takes the other node's
+	 * place in the tree.
+	 * @param source the node whose metadata to take.
+	 */
+	void copyMetadata(Node source){
+		this.height = source.height;
+		this.size = source.size;
+		this.rank = source.rank;
+	}
+
+	/*
+	 * Copies this node's entry and cached metadata, but not its links. Subclasses that carry more than the
+	 * data (such as the values of a map) override it to copy that too.
+	 * @return an unlinked copy of this node.
+	 */
+	Node copy(){
+		return new Node(this);
+	}
+
+	/*
+	 * Copies the sub tree rooted in the given node, keeping its exact structure and cached metadata.
+	 * The copy is iterative: it walks the sub tree in pre-order with an explicit stack of (original, copy)
+	 * pairs, which never holds more than height + 1 pairs, and links every copied child to its copied
+	 * parent directly.
+	 * @param source the root of the sub tree to copy, may be null.
+	 * @return the root of the copy (with no parent), or null if source is null.
+	 */
+	static Node copyTree(Node source){
+		if (source == null){
+			return null;
 		}
-		if (oldNode.rightChild != null) {
-			setRightChild(new Node(oldNode.rightChild));
+		Node[] originals = new Node[source.height + 1];
+		Node[] copies = new Node[source.height + 1];
+		Node rootCopy = source.copy();
+		originals[0] = source;
+		copies[0] = rootCopy;
+		int top = 1;
+		while (top > 0){
+			top--;
+			Node original = originals[top];
+			Node copy = copies[top];
+			// Push the right child first, so the left sub tree is copied first.
+			if (original.rightChild != null){
+				Node childCopy = original.rightChild.copy();
+				childCopy.parent = copy;
+				copy.rightChild = childCopy;
+				originals[top] = original.rightChild;
+				copies[top] = childCopy;
+				top++;
+			}
+			if (original.leftChild != null){
+				Node childCopy = original.leftChild.copy();
+				childCopy.parent = copy;
+				copy.leftChild = childCopy;
+				originals[top] = original.leftChild;
+				copies[top] = childCopy;
+				top++;
+			}
 		}
+		return rootCopy;
 	}
 
 	/*
@@ -54,6 +124,7 @@ public class Node {
 		setLeftChild(leftChild);
 		setRightChild(rightChild);
 		setParent(parent);
+		updateMetadata();
 	}
 
 	/*
@@ -65,25 +136,18 @@ public class Node {
 		this.leftChild = null;
 		this.rightChild = null;
 		this.parent = null;
+		this.height = 0;
+		this.size = 1;
+		this.rank = 0;
 	}
 
 
 	/*
-	 * Recursive function. Calculates the size of the sub tree rooted in the current Node.
+	 * Getter. Get the size of the sub tree rooted in the current Node.
 	 * @return the number of nodes in the sub tree rooted in the current Node.
 	 */
 	int size() {
-		int subTreeSizeLeft = 0;
-		int subTreeSizeRight = 0;
-		if (this.leftChild != null) {
-			subTreeSizeLeft = leftChild.size();
-		}
-
-		if (this.rightChild != null) {
-			subTreeSizeRight= rightChild.size();
-		}
-
-		return subTreeSizeLeft + subTreeSizeRight +1;
+		return size;
 	}
 
 	/*
@@ -153,27 +217,57 @@ public class Node {
 	 * @return the nodes height
 	 */
 	int getHeight(){
-		return calculateHeight();
+		return height;
 	}
 
 	/*
-	 * Calculates the node's height, recursively.
+	 * @return the node's rank (see BalancePolicy)
 	 */
-	int calculateHeight(){
-		int leftTreeHeight = 0;
-		int rightTreeHeight = 0;
+	int getRank(){
+		return rank;
+	}
 
-		if (getLeftChild() == null && getRightChild() == null){
-			return 0;
+	/*
+	 * Setter. Sets the node's rank.
+	 */
+	void setRank(int rank){
+		this.rank = rank;
+	}
+
+	/*
+	 * Recalculates the node's height and sub tree size from its children's cached values. Must be called
+	 * whenever the node's children change, after the children themselves are up to date.
+	 * @return true if the node's height changed, false otherwise.
+	 */
+	boolean updateMetadata(){
+		int oldHeight = height;
+		int leftHeight = -1, rightHeight = -1;
+		int leftSize = 0, rightSize = 0;
+		if (leftChild != null){
+			leftHeight = leftChild.height;
+			leftSize = leftChild.size;
 		}
+		if (rightChild != null){
+			rightHeight = rightChild.height;
+			rightSize = rightChild.size;
+		}
+		height = Math.max(leftHeight, rightHeight) + 1;
+		size = leftSize + rightSize + 1;
+		return height != oldHeight;
+	}
 
-		if (getLeftChild() != null ){
-			leftTreeHeight = getLeftChild().calculateHeight();
+	/*
+	 * Recalculates only the sub tree size of the node from its children's cached values.
+	 */
+	void updateSize(){
+		int newSize = 1;
+		if (leftChild != null){
+			newSize += leftChild.size;
 		}
-		if (getRightChild() != null){
-			rightTreeHeight = getRightChild().calculateHeight();
+		if (rightChild != null){
+			newSize += rightChild.size;
 		}
-		return Math.max(leftTreeHeight, rightTreeHeight) + 1;
+		size = newSize;
 	}
 
 	/*
@@ -0,0 +1,340 @@
+package oop.ex4.data_structures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable (persistent) AVL tree of int values. add and delete don't change the tree: they return a new
+ * version of it, which copies only the O(logn) nodes on the path to the changed value and shares all the
+ * other sub trees with the version it was made from. Every version stays valid and unchanged for as long as
+ * it is referenced, so keeping a version is an O(1) snapshot, and going back to an older version is an O(1)
+ * rollback.
+ * The nodes have no parent links (a shared sub tree has a different parent in every version), and all the
+ * fields are final, so a version can be handed to any number of threads without locks or copying.
+ * @author shaharna13
+ */
+public final class PersistentAvlTree implements Iterable<Integer> {
+
+	/* The height of an empty sub tree */
+	private static final int LEAF = -1;
+
+	/* Flag for the default value */
+	private static final int DEFAULT_RETURN_VALUE = -1;
+
+	/* The empty tree, which all the trees built by the default constructor share */
+	private static final PersistentAvlTree EMPTY = new PersistentAvlTree((PersistentNode) null);
+
+	/* Pointer to the tree's root */
+	private final PersistentNode root;
+
+	/**
+	 * The default constructor, creates an empty tree.
+	 */
+	public PersistentAvlTree(){
+		root = null;
+	}
+
+	/**
+	 * A constructor that builds the tree from the elements in the input array in linear time (after sorting),
+	 * like AvlTree(int[]). The tree is a set, so values that appear more than once are added only once.
+	 * The input array is not modified.
+	 * @param data values to add to tree
+	 */
+	public PersistentAvlTree(int[] data){
+		if (data == null){
+			root = null;
+		}
+		else {
+			int[] sorted = AvlTree.sortedDistinct(data);
+			root = buildBalanced(sorted, 0, sorted.length);
+		}
+	}
+
+	/*
+	 * Creates a version with the given root.
+	 */
+	private PersistentAvlTree(PersistentNode root){
+		this.root = root;
+	}
+
+	/**
+	 * Returns the empty tree.
+	 * @return an empty tree.
+	 */
+	public static PersistentAvlTree empty(){
+		return EMPTY;
+	}
+
+	/*
+	 * @return the version with the given root: this one if the root didn't change.
+	 */
+	private PersistentAvlTree withRoot(PersistentNode newRoot){
+		if (newRoot == root){
+			return this;
+		}
+		return newRoot == null ? EMPTY : new PersistentAvlTree(newRoot);
+	}
+
+	/*
+	 * Builds a balanced tree of the given range of a sorted array of distinct values, the middle value at
+	 * the root (see AvlTree.buildBalanced).
+	 */
+	private static PersistentNode buildBalanced(int[] sorted, int from, int to){
+		if (from >= to){
+			return null;
+		}
+		int middle = (from + to) >>> 1;
+		return new PersistentNode(buildBalanced(sorted, from, middle), sorted[middle],
+				buildBalanced(sorted, middle + 1, to));
+	}
+
+	/**
+	 * Returns a version of the tree with the given value added, in O(logn) time.
+	 * @param data the value to add.
+	 * @return the new version, or this tree itself if the value is already in it.
+	 */
+	public PersistentAvlTree add(int data){
+		return withRoot(insert(root, data));
+	}
+
+	/**
+	 * Returns a version of the tree without the given value, in O(logn) time.
+	 * @param toDelete the value to remove.
+	 * @return the new version, or this tree itself if the value is not in it.
+	 */
+	public PersistentAvlTree delete(int toDelete){
+		return withRoot(remove(root, toDelete));
+	}
+
+	/*
+	 * Inserts the given value into the sub tree, copying the path to it.
+	 * @return the root of the new sub tree, or the given node itself if the value was already there.
+	 */
+	private static PersistentNode insert(PersistentNode node, int data){
+		if (node == null){
+			return new PersistentNode(null, data, null);
+		}
+		if (data < node.data){
+			PersistentNode newLeft = insert(node.left, data);
+			return newLeft == node.left ? node : balance(newLeft, node.data, node.right);
+		}
+		if (data > node.data){
+			PersistentNode newRight = insert(node.right, data);
+			return newRight == node.right ? node : balance(node.left, node.data, newRight);
+		}
+		return node;
+	}
+
+	/*
+	 * Removes the given value from the sub tree, copying the path to it. A node with two children is
+	 * replaced by a copy holding its successor's value, and the successor is removed from the right sub tree.
+	 * @return the root of the new sub tree, or the given node itself if the value was not there.
+	 */
+	private static PersistentNode remove(PersistentNode node, int data){
+		if (node == null){
+			return null;
+		}
+		if (data < node.data){
+			PersistentNode newLeft = remove(node.left, data);
+			return newLeft == node.left ? node : balance(newLeft, node.data, node.right);
+		}
+		if (data > node.data){
+			PersistentNode newRight = remove(node.right, data);
+			return newRight == node.right ? node : balance(node.left, node.data, newRight);
+		}
+		if (node.left == null){
+			return node.right;
+		}
+		if (node.right == null){
+			return node.left;
+		}
+		PersistentNode successor = node.right;
+		while (successor.left != null){
+			successor = successor.left;
+		}
+		return balance(node.left, successor.data, remove(node.right, successor.data));
+	}
+
+	/*
+	 * Creates a node from the given children and value, rotating if their heights differ by two (which is
+	 * the most a single insertion or deletion below can cause). The rotations create new nodes instead of
+	 * relinking the old ones, which may be shared with other versions.
+	 * @return the root of the balanced sub tree.
+	 */
+	private static PersistentNode balance(PersistentNode left, int data, PersistentNode right){
+		int leftHeight = height(left), rightHeight = height(right);
+		if (leftHeight > rightHeight + 1){
+			if (height(left.left) >= height(left.right)){
+				// LL: rotate right.
+				return new PersistentNode(left.left, left.data, new PersistentNode(left.right, data, right));
+			}
+			// LR: rotate the left child left, then right.
+			PersistentNode pivot = left.right;
+			return new PersistentNode(new PersistentNode(left.left, left.data, pivot.left), pivot.data,
+					new PersistentNode(pivot.right, data, right));
+		}
+		if (rightHeight > leftHeight + 1){
+			if (height(right.right) >= height(right.left)){
+				// RR: rotate left.
+				return new PersistentNode(new PersistentNode(left, data, right.left), right.data, right.right);
+			}
+			// RL: rotate the right child right, then left.
+			PersistentNode pivot = right.left;
+			return new PersistentNode(new PersistentNode(left, data, pivot.left), pivot.data,
+					new PersistentNode(pivot.right, right.data, right.right));
+		}
+		return new PersistentNode(left, data, right);
+	}
+
+	/*
+	 * @return the height of the given sub tree, -1 for an empty one.
+	 */
+	private static int height(PersistentNode node){
+		return node == null ? LEAF : node.height;
+	}
+
+	/**
+	 * Check whether the tree contains the given input value.
+	 * @param searchVal value to search for
+	 * @return if val is found in the tree, return the depth of the node (0 for the root) with the given
+	 * value if it was found in the tree, -1 otherwise
+	 */
+	public int contains(int searchVal){
+		PersistentNode curNode = root;
+		int depth = 0;
+		while (curNode != null){
+			if (curNode.data == searchVal){
+				return depth;
+			}
+			curNode = curNode.data > searchVal ? curNode.left : curNode.right;
+			depth++;
+		}
+		return DEFAULT_RETURN_VALUE;
+	}
+
+	/**
+	 * Get the tree size
+	 * @return The number of values in the tree
+	 */
+	public int size(){
+		return root == null ? 0 : root.size;
+	}
+
+	/**
+	 * Returns an iterator over the tree's values in ascending order. The returned iterator does NOT
+	 * implement the remove() method.
+	 * @return an iterator for the tree.
+	 */
+	@Override
+	public Iterator<Integer> iterator(){
+		return intIterator();
+	}
+
+	/**
+	 * Returns a primitive iterator over the tree's values in ascending order.
+	 * @return a primitive iterator over the tree's values.
+	 */
+	public PrimitiveIterator.OfInt intIterator(){
+		return new InOrderIterator();
+	}
+
+	/**
+	 * Performs the given action on each of the tree's values, in ascending order, without boxing them.
+	 * @param action the action to perform on each value.
+	 */
+	public void forEachInt(IntConsumer action){
+		Objects.requireNonNull(action);
+		PrimitiveIterator.OfInt iterator = intIterator();
+		while (iterator.hasNext()){
+			action.accept(iterator.nextInt());
+		}
+	}
+
+	/**
+	 * Returns a sequential stream of the tree's values in ascending order.
+	 * @return an IntStream of the tree's values.
+	 */
+	public IntStream stream(){
+		return StreamSupport.intStream(Spliterators.spliterator(intIterator(), size(),
+				Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL
+						| Spliterator.IMMUTABLE), false);
+	}
+
+	/*
+	 * An in-order iterator with an explicit stack (see BinarySearchTree's). The version it iterates over
+	 * never changes, so it can't be invalidated.
+	 */
+	private final class InOrderIterator implements PrimitiveIterator.OfInt {
+
+		/* The pending nodes, the next one on top */
+		private final PersistentNode[] stack = new PersistentNode[root == null ? 0 : root.height + 1];
+
+		/* The number of nodes on the stack */
+		private int top;
+
+		/*
+		 * Creates an iterator that starts at the tree's minimum.
+		 */
+		InOrderIterator(){
+			pushLeftSpine(root);
+		}
+
+		/*
+		 * Pushes the given node and all its left descendants on the stack.
+		 */
+		private void pushLeftSpine(PersistentNode node){
+			for (PersistentNode curNode = node; curNode != null; curNode = curNode.left){
+				stack[top++] = curNode;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		@Override
+		public int nextInt() {
+			if (top == 0){
+				throw new NoSuchElementException();
+			}
+			PersistentNode curNode = stack[--top];
+			pushLeftSpine(curNode.right);
+			return curNode.data;
+		}
+	}
+
+	/*
+	 * An immutable node. Its height and size are computed once, from its children, when it is created.
+	 */
+	private static final class PersistentNode {
+
+		/* The node's data */
+		private final int data;
+
+		/* The node's children */
+		private final PersistentNode left, right;
+
+		/* The height and size of the sub tree rooted in the node */
+		private final int height;
+		private final int size;
+
+		/*
+		 * Creates a node with the given children.
+		 */
+		PersistentNode(PersistentNode left, int data, PersistentNode right){
+			this.data = data;
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(PersistentAvlTree.height(left), PersistentAvlTree.height(right)) + 1;
+			this.size = (left == null ? 0 : left.size) + (right == null ? 0 : right.size) + 1;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package oop.ex4.data_structures;
+
+/*
+ * Restores the balance of an AvlTree after a node was linked into it or unlinked from it, according to
+ * one BalancePolicy. Besides the balance itself, every implementation leaves the cached heights and sub tree
+ * sizes of all the nodes up to date, as the rest of the tree relies on them.
+ * This class holds the restructuring that all the policies share: relinking a sub tree under a new parent,
+ * and rotations.
+ * @author shaharna13
+ */
+abstract class Rebalancer {
+
+	/* The rotations reported to the listener, in the order of AvlTreeListener.Rotation */
+	private static final AvlTreeListener.Rotation[] ROTATIONS = AvlTreeListener.Rotation.values();
+
+	/* The tree balanced */
+	final AvlTree tree;
+
+	Rebalancer(AvlTree tree){
+		this.tree = tree;
+	}
+
+	/*
+	 * Rebalances the tree after the given node was linked into it as a new leaf.
+	 * @param node the new leaf; its parent, or the tree's root if it has no parent, links to it.
+	 */
+	abstract void inserted(Node node);
+
+	/*
+	 * Rebalances the tree after a node with at most one child was unlinked from it, and replaced by that
+	 * child. If the unlinked node had the value to delete, that's all; otherwise it was the successor of a
+	 * node with two children, and it has already taken that node's place and rank.
+	 * @param parent the node the unlinked node hung from, or null if it was the root.
+	 * @param leftSide true if it was its parent's left child.
+	 * @param removedRank the rank the unlinked node had before it was unlinked (or moved).
+	 */
+	abstract void removed(Node parent, boolean leftSide, int removedRank);
+
+	/*
+	 * Sets the ranks of a tree built balanced by AvlTree.buildBalanced or linkBalanced (whose sub tree
+	 * heights never differ by more than one, and whose leaves are all on the last two levels), whose heights
+	 * and sizes are already up to date.
+	 * @param root the root of the tree, may be null.
+	 */
+	void initialize(Node root){
+	}
+
+	/*
+	 * @return the given node's rank, -1 for a missing node.
+	 */
+	static int rank(Node node){
+		return node == null ? -1 : node.getRank();
+	}
+
+	/*
+	 * @return the height of the given sub tree, -1 for an empty one.
+	 */
+	static int height(Node node){
+		return node == null ? -1 : node.getHeight();
+	}
+
+	/*
+	 * Makes newChild take oldChild's place under the given parent, or as the tree's root if parent is null.
+	 */
+	void replaceChild(Node parent, Node oldChild, Node newChild){
+		if (parent == null){
+			tree.root = newChild;
+			if (newChild != null){
+				newChild.setParent(null);
+			}
+		}
+		else if (parent.getLeftChild() == oldChild){
+			parent.setLeftChild(newChild);
+		}
+		else {
+			parent.setRightChild(newChild);
+		}
+	}
+
+	/*
+	 * Rotates the given node above its parent: right if it is the left child, left if it is the right one.
+	 * The heights and sizes of both nodes are refreshed, the lower one first.
+	 * @param node the node to rotate up; it must have a parent.
+	 */
+	void rotateUp(Node node){
+		Node parent = node.getParent();
+		Node grandParent = parent.getParent();
+		if (parent.getLeftChild() == node){
+			parent.setLeftChild(node.getRightChild());
+			node.setRightChild(parent);
+		}
+		else {
+			parent.setRightChild(node.getLeftChild());
+			node.setLeftChild(parent);
+		}
+		replaceChild(grandParent, parent, node);
+		parent.updateMetadata();
+		node.updateMetadata();
+	}
+
+	/*
+	 * Rotates the given node above its parent and then above its grandparent: a double rotation, which
+	 * lifts the inner grandchild of the grandparent to the grandparent's place.
+	 * @param node the inner grandchild.
+	 */
+	void rotateUpTwice(Node node){
+		rotateUp(node);
+		rotateUp(node);
+	}
+
+	/*
+	 * Refreshes the cached height and size of the given node and all of its ancestors.
+	 */
+	static void updateMetadataToRoot(Node node){
+		for (Node curNode = node; curNode != null; curNode = curNode.getParent()){
+			curNode.updateMetadata();
+		}
+	}
+
+	/*
+	 * Reports a rotation to the tree's listener, if the metrics are enabled.
+	 * @param leftHeavy true if the rotation fixed a left sub tree that was too deep (a right rotation).
+	 * @param inner true for a double rotation, of the inner grandchild.
+	 */
+	void reportRotation(boolean leftHeavy, boolean inner){
+		if (AvlTreeListener.METRICS_ENABLED && tree.listener != null){
+			// The rotations are LL, LR, RR, RL.
+			tree.listener.rotated(ROTATIONS[(leftHeavy ? 0 : 2) + (inner ? 1 : 0)]);
+		}
+	}
+
+	/*
+	 * Reports the length of a rebalancing walk to the tree's listener, if the metrics are enabled.
+	 */
+	void reportWalk(int pathLength){
+		if (AvlTreeListener.METRICS_ENABLED && tree.listener != null){
+			tree.listener.rebalanced(pathLength);
+		}
+	}
+}
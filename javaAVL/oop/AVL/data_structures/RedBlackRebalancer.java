@@ -0,0 +1,148 @@
+package oop.ex4.data_structures;
+
+/*
+ * Balances an AvlTree as a red-black tree (Cormen, Leiserson, Rivest and Stein, "Introduction to
+ * Algorithms", chapter 13). The node's rank holds its color. The rules are that the root is black, that a
+ * red node has no red child, and that every path from a node down to a missing child passes through the
+ * same number of black nodes; missing nodes count as black.
+ * An insertion recolors nodes up the tree while that is enough, and ends with at most two rotations; a
+ * deletion ends with at most three.
+ * The nodes' cached heights and sizes are refreshed in one walk up from the changed node at the end.
+ * @author shaharna13
+ */
+class RedBlackRebalancer extends Rebalancer {
+
+	/* The colors, as ranks */
+	private static final int BLACK = 0;
+	private static final int RED = 1;
+
+	RedBlackRebalancer(AvlTree tree){
+		super(tree);
+	}
+
+	/*
+	 * @return true if the given node is red; missing nodes are black.
+	 */
+	private static boolean isRed(Node node){
+		return node != null && node.getRank() == RED;
+	}
+
+	@Override
+	void inserted(Node node){
+		node.setRank(RED);
+		Node bottom = node.getParent();
+		int pathLength = 0;
+		Node curNode = node;
+		while (isRed(curNode.getParent())){
+			pathLength++;
+			// A red parent is not the root, so the grandparent exists.
+			Node parent = curNode.getParent();
+			Node grandParent = parent.getParent();
+			boolean parentLeft = grandParent.getLeftChild() == parent;
+			Node uncle = parentLeft ? grandParent.getRightChild() : grandParent.getLeftChild();
+			if (isRed(uncle)){
+				parent.setRank(BLACK);
+				uncle.setRank(BLACK);
+				grandParent.setRank(RED);
+				curNode = grandParent;
+				continue;
+			}
+			boolean inner = (parent.getLeftChild() == curNode) != parentLeft;
+			Node top = inner ? curNode : parent;
+			if (inner){
+				rotateUpTwice(curNode);
+			}
+			else {
+				rotateUp(parent);
+			}
+			top.setRank(BLACK);
+			grandParent.setRank(RED);
+			reportRotation(parentLeft, inner);
+			break;
+		}
+		tree.root.setRank(BLACK);
+		reportWalk(pathLength);
+		updateMetadataToRoot(bottom);
+	}
+
+	@Override
+	void removed(Node parent, boolean leftSide, int removedRank){
+		if (removedRank == RED){
+			// Removing a red node changes no black count.
+			updateMetadataToRoot(parent);
+			return;
+		}
+		Node bottom = parent;
+		Node curParent = parent;
+		boolean curLeft = leftSide;
+		Node curNode = parent == null ? tree.root : leftSide ? parent.getLeftChild() : parent.getRightChild();
+		int pathLength = 0;
+		// curNode carries an extra black: the paths through it are one black node short.
+		while (curParent != null && !isRed(curNode)){
+			pathLength++;
+			// The paths through curNode's sibling have at least one black node, so it exists.
+			Node sibling = curLeft ? curParent.getRightChild() : curParent.getLeftChild();
+			if (isRed(sibling)){
+				rotateUp(sibling);
+				sibling.setRank(BLACK);
+				curParent.setRank(RED);
+				reportRotation(!curLeft, false);
+				sibling = curLeft ? curParent.getRightChild() : curParent.getLeftChild();
+			}
+			Node outer = curLeft ? sibling.getRightChild() : sibling.getLeftChild();
+			Node inner = curLeft ? sibling.getLeftChild() : sibling.getRightChild();
+			if (!isRed(outer) && !isRed(inner)){
+				// Move the extra black up.
+				sibling.setRank(RED);
+				curNode = curParent;
+				curParent = curNode.getParent();
+				curLeft = curParent != null && curParent.getLeftChild() == curNode;
+				continue;
+			}
+			boolean doubleRotation = !isRed(outer);
+			if (doubleRotation){
+				// Make the red inner child the sibling, with the old sibling as its red outer child.
+				rotateUp(inner);
+				inner.setRank(BLACK);
+				sibling.setRank(RED);
+				outer = sibling;
+				sibling = inner;
+			}
+			rotateUp(sibling);
+			sibling.setRank(curParent.getRank());
+			curParent.setRank(BLACK);
+			outer.setRank(BLACK);
+			reportRotation(!curLeft, doubleRotation);
+			curNode = tree.root;
+			break;
+		}
+		if (curNode != null){
+			curNode.setRank(BLACK);
+		}
+		reportWalk(pathLength);
+		updateMetadataToRoot(bottom);
+	}
+
+	@Override
+	void initialize(Node root){
+		// The leaves of a tree built balanced are all on its last two levels: the nodes on the last level
+		// are red and all the others black, so every path to a missing child has height black nodes.
+		if (root != null){
+			initializeColors(root, 0, root.getHeight());
+			root.setRank(BLACK);
+		}
+	}
+
+	/*
+	 * Colors the given sub tree, whose root is at the given depth of a tree of the given height.
+	 */
+	private static void initializeColors(Node node, int depth, int height){
+		node.setRank(depth == height ? RED : BLACK);
+		if (node.getLeftChild() != null){
+			initializeColors(node.getLeftChild(), depth + 1, height);
+		}
+		if (node.getRightChild() != null){
+			initializeColors(node.getRightChild(), depth + 1, height);
+		}
+	}
+}
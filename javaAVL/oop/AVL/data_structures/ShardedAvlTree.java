@@ -0,0 +1,447 @@
+package oop.ex4.data_structures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread safe sorted set of int values, partitioned by value range into shards: each shard is an AvlTree
+ * of the values in its range, with its own lock. Writers of values in different shards don't contend at
+ * all, so write throughput grows with the number of cores as long as the writes spread over the shards;
+ * a single tree has one root, and every write to it contends on the same top levels.
+ * The shards split the range of the values between them. Each shard counts its changes, and every 1024th
+ * change checks the shards' sizes: when a shard holds more than twice the average of the other shards
+ * (because the values skew towards part of the range), the boundaries are all moved so the shards hold
+ * equal shares. The move
+ * joins the shards' trees into one and splits it again at equal ranks, O(shards * logn) while holding all
+ * the shards' locks, which is short enough to do whenever the skew returns.
+ * Iteration is in ascending order, shard after shard (the ranges are ordered, so no merge is needed), and
+ * weakly consistent like ConcurrentAvlTree's: the values are read in chunks under a shard's read lock,
+ * each chunk starting after the last value returned. size() sums the shards' sizes without locking.
+ * @author shaharna13
+ */
+public class ShardedAvlTree implements Iterable<Integer> {
+
+	/* Every shard checks the balance of the shards after this many changes, a power of 2 */
+	private static final int CHECK_INTERVAL = 1024;
+
+	/* A shard is rebalanced when it holds more than this many times the average size of the other shards */
+	private static final int SKEW_FACTOR = 2;
+
+	/* Shards smaller than this are never rebalanced, the move wouldn't pay off */
+	private static final int MIN_REBALANCE_SIZE = 1024;
+
+	/* The number of values an iterator reads in one chunk */
+	private static final int CHUNK = 64;
+
+	/* The shards, in the order of their ranges */
+	private final Shard[] shards;
+
+	/* The lowest value of every shard's range, republished whenever a boundary moves; read without locking */
+	private volatile int[] lows;
+
+	/* Set while the shards are being rebalanced, so one thread rebalances at a time */
+	private final AtomicBoolean rebalancing = new AtomicBoolean();
+
+	/* The number of times the boundaries were moved, updated while rebalancing */
+	private volatile long rebalanceCount;
+
+	/*
+	 * A range of the values, with the tree of the values in it and the lock that guards them.
+	 */
+	private static final class Shard {
+
+		/* Guards all the fields but size */
+		final StampedLock lock = new StampedLock();
+
+		/* The values in the range */
+		AvlTree tree;
+
+		/* The range: from low (inclusive) to high (exclusive), a long so the last shard can end after MAX */
+		int low;
+		long high;
+
+		/* The tree's size, published for size() */
+		volatile int size;
+
+		/* The number of changes to the tree, for the balance checks */
+		int changes;
+
+		Shard(AvlTree tree, int low, long high){
+			this.tree = tree;
+			this.low = low;
+			this.high = high;
+			this.size = tree.size();
+		}
+
+		/*
+		 * @return true if the value is in the shard's range.
+		 */
+		boolean covers(int data){
+			return data >= low && data < high;
+		}
+	}
+
+	/**
+	 * Creates an empty set of one shard per available processor, which split the whole int range evenly
+	 * until the values show where they are.
+	 */
+	public ShardedAvlTree(){
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an empty set of the given number of shards, which split the whole int range evenly until the
+	 * values show where they are.
+	 * @param shardCount the number of shards.
+	 * @throws IllegalArgumentException if shardCount is not positive.
+	 */
+	public ShardedAvlTree(int shardCount){
+		this(shardCount, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates an empty set of the given number of shards, which split the given range of values evenly, so
+	 * values that are spread over that range start out spread over the shards. Values out of the range are
+	 * allowed; they go to the first and the last shard, and the rebalancing moves the boundaries if needed.
+	 * @param shardCount the number of shards.
+	 * @param low the lowest expected value.
+	 * @param high the highest expected value.
+	 * @throws IllegalArgumentException if shardCount is not positive or low is greater than high.
+	 */
+	public ShardedAvlTree(int shardCount, int low, int high){
+		if (shardCount <= 0 || low > high){
+			throw new IllegalArgumentException("Invalid shard count or range");
+		}
+		shards = new Shard[shardCount];
+		lows = new int[shardCount];
+		long width = Math.max(1, ((long) high - low + 1) / shardCount);
+		// A range narrower than the number of shards leaves the last shards with empty ranges, until the
+		// rebalancing gives them values.
+		lows[0] = Integer.MIN_VALUE;
+		for (int i = 1; i < shardCount; i++){
+			lows[i] = (int) Math.min(low + i * width, Integer.MAX_VALUE);
+		}
+		for (int i = 0; i < shardCount; i++){
+			long shardHigh = i == shardCount - 1 ? Integer.MAX_VALUE + 1L : lows[i + 1];
+			shards[i] = new Shard(new AvlTree(), lows[i], shardHigh);
+		}
+	}
+
+	/**
+	 * Creates a set of the given number of shards from the values of the given array, split between the
+	 * shards evenly by count; each shard is built balanced like AvlTree(int[]).
+	 * @param shardCount the number of shards.
+	 * @param data the values (duplicates are added once).
+	 * @throws IllegalArgumentException if shardCount is not positive.
+	 */
+	public ShardedAvlTree(int shardCount, int[] data){
+		this(shardCount);
+		int[] sorted = AvlTree.sortedDistinct(data);
+		if (sorted.length < shardCount){
+			// Too few values to give every shard one; the even split of the int range will do.
+			for (int value : sorted){
+				add(value);
+			}
+			return;
+		}
+		int[] newLows = new int[shardCount];
+		newLows[0] = Integer.MIN_VALUE;
+		for (int i = 1; i < shardCount; i++){
+			newLows[i] = sorted[(int) ((long) sorted.length * i / shardCount)];
+		}
+		for (int i = 0; i < shardCount; i++){
+			int from = (int) ((long) sorted.length * i / shardCount);
+			int to = (int) ((long) sorted.length * (i + 1) / shardCount);
+			AvlTree tree = new AvlTree();
+			tree.root = AvlTree.buildBalanced(sorted, from, to);
+			long shardHigh = i == shardCount - 1 ? Integer.MAX_VALUE + 1L : newLows[i + 1];
+			shards[i] = new Shard(tree, newLows[i], shardHigh);
+		}
+		lows = newLows;
+	}
+
+	/*
+	 * @return the index of the shard whose range held the given value when the boundaries were last
+	 * published (the last shard whose lowest value is not above it, which skips shards of empty ranges);
+	 * the caller checks it again under the shard's lock.
+	 */
+	private int route(int data){
+		int[] currentLows = lows;
+		int from = 0, to = currentLows.length - 1;
+		while (from < to){
+			int middle = (from + to + 1) >>> 1;
+			if (currentLows[middle] <= data){
+				from = middle;
+			}
+			else {
+				to = middle - 1;
+			}
+		}
+		return from;
+	}
+
+	/**
+	 * This function adds the data provided to the set, if it's not already there.
+	 * @param data To add to the set
+	 * @return True if add successful, False if the data was already in the set.
+	 */
+	public boolean add(int data){
+		return update(data, true);
+	}
+
+	/**
+	 * Removes the given value from the set, if it exists.
+	 * @param toDelete the value to remove from the set.
+	 * @return true if the given value was found and deleted, false otherwise.
+	 */
+	public boolean delete(int toDelete){
+		return update(toDelete, false);
+	}
+
+	/*
+	 * Adds or deletes the value in its shard, and checks the balance of the shards every CHECK_INTERVAL
+	 * changes of the shard.
+	 */
+	private boolean update(int data, boolean add){
+		while (true){
+			Shard shard = shards[route(data)];
+			boolean changed, check = false;
+			long stamp = shard.lock.writeLock();
+			try {
+				if (!shard.covers(data)){
+					// A boundary moved after the routing: route again.
+					continue;
+				}
+				changed = add ? shard.tree.add(data) : shard.tree.delete(data);
+				if (changed){
+					shard.size = shard.tree.size();
+					check = (++shard.changes & (CHECK_INTERVAL - 1)) == 0;
+				}
+			}
+			finally {
+				shard.lock.unlockWrite(stamp);
+			}
+			if (check){
+				rebalanceIfSkewed();
+			}
+			return changed;
+		}
+	}
+
+	/**
+	 * Check whether the set contains the given input value.
+	 * @param searchVal value to search for
+	 * @return the depth of the value's node in its shard's tree (0 for the root) if it is in the set, -1
+	 * otherwise.
+	 */
+	public int contains(int searchVal){
+		while (true){
+			Shard shard = shards[route(searchVal)];
+			long stamp = shard.lock.readLock();
+			try {
+				if (shard.covers(searchVal)){
+					return shard.tree.contains(searchVal);
+				}
+			}
+			finally {
+				shard.lock.unlockRead(stamp);
+			}
+		}
+	}
+
+	/**
+	 * Get the set's size, without locking: the sum of the shards' sizes. Values that move between shards
+	 * while it is summed may be counted twice or not at all.
+	 * @return The number of values in the set
+	 */
+	public int size(){
+		int size = 0;
+		for (Shard shard : shards){
+			size += shard.size;
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of shards.
+	 */
+	public int getShardCount(){
+		return shards.length;
+	}
+
+	/**
+	 * @return the current size of every shard, in the order of their ranges; shows how evenly the values
+	 * are spread.
+	 */
+	public int[] getShardSizes(){
+		int[] sizes = new int[shards.length];
+		for (int i = 0; i < shards.length; i++){
+			sizes[i] = shards[i].size;
+		}
+		return sizes;
+	}
+
+	/**
+	 * @return the number of times the shards' boundaries were moved to even out their sizes.
+	 */
+	public long getRebalanceCount(){
+		return rebalanceCount;
+	}
+
+	/*
+	 * Repartitions the shards if the largest one holds more than SKEW_FACTOR times the average of the
+	 * others. The largest shard is left out of the average, as it would hide the skew of a few shards: with
+	 * two shards, the largest one can never hold twice the average of both. Skipped if another thread is
+	 * already rebalancing.
+	 */
+	private void rebalanceIfSkewed(){
+		if (shards.length == 1 || !rebalancing.compareAndSet(false, true)){
+			return;
+		}
+		try {
+			long total = 0;
+			int largestSize = 0;
+			for (Shard shard : shards){
+				int size = shard.size;
+				total += size;
+				largestSize = Math.max(largestSize, size);
+			}
+			// largest > SKEW_FACTOR * (total - largest) / (shards - 1), without rounding the average.
+			long others = total - largestSize;
+			if (largestSize >= MIN_REBALANCE_SIZE
+					&& (long) largestSize * (shards.length - 1) > SKEW_FACTOR * others){
+				repartition();
+			}
+		}
+		finally {
+			rebalancing.set(false);
+		}
+	}
+
+	/*
+	 * Moves the boundaries so every shard holds an equal share of the values (within one): joins all the
+	 * shards' trees into one, in order, and splits it again from the top at the values of ranks
+	 * size * i / shardCount, each split value becoming the lowest value of its shard. Must hold the
+	 * rebalancing flag.
+	 */
+	private void repartition(){
+		long[] stamps = new long[shards.length];
+		// Always lock the shards in the order of their ranges, so two threads never wait for each other.
+		for (int i = 0; i < shards.length; i++){
+			stamps[i] = shards[i].lock.writeLock();
+		}
+		try {
+			AvlTree all = shards[0].tree;
+			for (int i = 1; i < shards.length; i++){
+				all.join(shards[i].tree);
+			}
+			int total = all.size();
+			int[] newLows = new int[shards.length];
+			long high = Integer.MAX_VALUE + 1L;
+			for (int i = shards.length - 1; i > 0; i--){
+				int from = (int) ((long) total * i / shards.length);
+				// A shard with no values at all gets an empty range at the next shard's lowest value.
+				int boundary = from < all.size() ? all.select(from) : (int) Math.min(high, Integer.MAX_VALUE);
+				Shard shard = shards[i];
+				shard.tree = all.split(boundary);
+				shard.low = boundary;
+				shard.high = high;
+				shard.size = shard.tree.size();
+				newLows[i] = boundary;
+				high = boundary;
+			}
+			shards[0].tree = all;
+			shards[0].high = high;
+			shards[0].size = all.size();
+			newLows[0] = Integer.MIN_VALUE;
+			lows = newLows;
+			rebalanceCount++;
+		}
+		finally {
+			for (int i = shards.length - 1; i >= 0; i--){
+				shards[i].lock.unlockWrite(stamps[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over the set's values in ascending order. The returned iterator
+	 * does NOT implement the remove() method.
+	 * @return an iterator for the set.
+	 */
+	@Override
+	public Iterator<Integer> iterator(){
+		return intIterator();
+	}
+
+	/**
+	 * Returns a weakly consistent primitive iterator over the set's values in ascending order.
+	 * @return a primitive iterator over the set's values.
+	 */
+	public PrimitiveIterator.OfInt intIterator(){
+		return new ChunkedIterator();
+	}
+
+	/*
+	 * A weakly consistent iterator. It reads the values ahead in chunks, each under the read lock of the
+	 * shard that holds the next value, so it holds no node references between chunks, and a boundary that
+	 * moves between chunks doesn't make it skip or repeat values.
+	 */
+	private class ChunkedIterator implements PrimitiveIterator.OfInt {
+
+		/* The values read ahead */
+		private final int[] buffer = new int[CHUNK];
+
+		/* The number of values in the buffer, and the position of the next one */
+		private int count, position;
+
+		/* The smallest value the next chunk may hold, past Integer.MAX_VALUE at the end */
+		private long nextFrom = Integer.MIN_VALUE;
+
+		/*
+		 * Reads the next chunk of values, moving on to the next shard's range while a shard has no values
+		 * from nextFrom on.
+		 */
+		private void fill(){
+			count = 0;
+			position = 0;
+			while (count == 0 && nextFrom <= Integer.MAX_VALUE){
+				int from = (int) nextFrom;
+				Shard shard = shards[route(from)];
+				long stamp = shard.lock.readLock();
+				try {
+					if (!shard.covers(from)){
+						continue;
+					}
+					PrimitiveIterator.OfInt values = shard.tree.rangeIterator(from, true, Integer.MAX_VALUE, true);
+					while (count < CHUNK && values.hasNext()){
+						buffer[count++] = values.nextInt();
+					}
+					nextFrom = count == CHUNK ? buffer[count - 1] + 1L : shard.high;
+				}
+				finally {
+					shard.lock.unlockRead(stamp);
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (position == count){
+				fill();
+			}
+			return position < count;
+		}
+
+		@Override
+		public int nextInt() {
+			if (!hasNext()){
+				throw new NoSuchElementException();
+			}
+			return buffer[position++];
+		}
+	}
+}
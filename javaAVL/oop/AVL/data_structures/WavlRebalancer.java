@@ -0,0 +1,147 @@
+package oop.ex4.data_structures;
+
+/*
+ * Balances an AvlTree as a weak AVL tree (Haeupler, Sen and Tarjan, "Rank-Balanced Trees", 2015). Every
+ * node has a rank, and a missing node has rank -1. The rank difference of a child is its parent's rank
+ * minus its own; a node whose child has rank difference i is called that child's i-parent, and the child an
+ * i-child. The rules are that every rank difference is 1 or 2, and that every leaf has rank 0.
+ * An insertion promotes nodes up the tree while that is enough, and ends with at most two rotations; a
+ * deletion demotes nodes up the tree, and also ends with at most two rotations. Neither walk is longer than
+ * the tree's height, and on average both stop after O(1) steps.
+ * The nodes' cached heights and sizes are refreshed in one walk up from the changed node at the end.
+ * @author shaharna13
+ */
+class WavlRebalancer extends Rebalancer {
+
+	WavlRebalancer(AvlTree tree){
+		super(tree);
+	}
+
+	@Override
+	void inserted(Node node){
+		node.setRank(0);
+		Node parent = node.getParent();
+		if (parent == null){
+			return;
+		}
+		int pathLength = 0;
+		Node curNode = node;
+		// A new leaf of rank 0 under a leaf of rank 0 is a 0-child, the only violation an insertion makes.
+		while (parent != null && parent.getRank() == curNode.getRank()){
+			pathLength++;
+			boolean leftSide = parent.getLeftChild() == curNode;
+			Node sibling = leftSide ? parent.getRightChild() : parent.getLeftChild();
+			if (parent.getRank() - rank(sibling) == 1){
+				// Promote the parent: curNode becomes a 1-child, but the parent may now be a 0-child.
+				parent.setRank(parent.getRank() + 1);
+				curNode = parent;
+				parent = curNode.getParent();
+				continue;
+			}
+			// The sibling is a 2-child: rotate. The inner child of curNode decides the kind of rotation.
+			Node inner = leftSide ? curNode.getRightChild() : curNode.getLeftChild();
+			boolean single = curNode.getRank() - rank(inner) == 2;
+			if (single){
+				rotateUp(curNode);
+				parent.setRank(parent.getRank() - 1);
+			}
+			else {
+				rotateUpTwice(inner);
+				inner.setRank(inner.getRank() + 1);
+				curNode.setRank(curNode.getRank() - 1);
+				parent.setRank(parent.getRank() - 1);
+			}
+			reportRotation(leftSide, !single);
+			break;
+		}
+		reportWalk(pathLength);
+		updateMetadataToRoot(node.getParent());
+	}
+
+	@Override
+	void removed(Node parent, boolean leftSide, int removedRank){
+		if (parent == null){
+			// The root was removed, and its only child's sub tree didn't change.
+			return;
+		}
+		Node bottom = parent;
+		Node curParent = parent;
+		boolean curLeft = leftSide;
+		int pathLength = 0;
+		// A unary node of rank 1 that lost its leaf is a 2,2 leaf: demote it, and go on from it.
+		if (curParent.getLeftChild() == null && curParent.getRightChild() == null && curParent.getRank() == 1){
+			pathLength++;
+			curParent.setRank(0);
+			Node grandParent = curParent.getParent();
+			curLeft = grandParent != null && grandParent.getLeftChild() == curParent;
+			curParent = grandParent;
+		}
+		while (curParent != null){
+			Node child = curLeft ? curParent.getLeftChild() : curParent.getRightChild();
+			if (curParent.getRank() - rank(child) != 3){
+				break;
+			}
+			pathLength++;
+			// curParent has rank at least 2, so the sibling of a 3-child is a real node.
+			Node sibling = curLeft ? curParent.getRightChild() : curParent.getLeftChild();
+			if (curParent.getRank() - sibling.getRank() == 2){
+				// Demote the parent: the 3-child becomes a 2-child, but the parent may now be a 3-child.
+				curParent.setRank(curParent.getRank() - 1);
+			}
+			else {
+				Node outer = curLeft ? sibling.getRightChild() : sibling.getLeftChild();
+				Node inner = curLeft ? sibling.getLeftChild() : sibling.getRightChild();
+				if (sibling.getRank() - rank(outer) == 2 && sibling.getRank() - rank(inner) == 2){
+					// The sibling is 2,2: demote both.
+					curParent.setRank(curParent.getRank() - 1);
+					sibling.setRank(sibling.getRank() - 1);
+				}
+				else if (sibling.getRank() - rank(outer) == 1){
+					rotateUp(sibling);
+					sibling.setRank(sibling.getRank() + 1);
+					curParent.setRank(curParent.getRank() - 1);
+					if (curParent.getLeftChild() == null && curParent.getRightChild() == null){
+						// A leaf must have rank 0.
+						curParent.setRank(curParent.getRank() - 1);
+					}
+					reportRotation(!curLeft, false);
+					break;
+				}
+				else {
+					rotateUpTwice(inner);
+					inner.setRank(inner.getRank() + 2);
+					sibling.setRank(sibling.getRank() - 1);
+					curParent.setRank(curParent.getRank() - 2);
+					reportRotation(!curLeft, true);
+					break;
+				}
+			}
+			Node grandParent = curParent.getParent();
+			curLeft = grandParent != null && grandParent.getLeftChild() == curParent;
+			curParent = grandParent;
+		}
+		reportWalk(pathLength);
+		updateMetadataToRoot(bottom);
+	}
+
+	@Override
+	void initialize(Node root){
+		// A tree balanced by height is a weak AVL tree when every node's rank is its height.
+		if (root != null){
+			initializeRanks(root);
+		}
+	}
+
+	/*
+	 * Sets the rank of every node in the given sub tree to its height.
+	 */
+	private static void initializeRanks(Node node){
+		node.setRank(node.getHeight());
+		if (node.getLeftChild() != null){
+			initializeRanks(node.getLeftChild());
+		}
+		if (node.getRightChild() != null){
+			initializeRanks(node.getRightChild());
+		}
+	}
+}
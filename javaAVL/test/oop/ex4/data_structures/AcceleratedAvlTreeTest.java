@@ -0,0 +1,126 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of AcceleratedAvlTree: its lookups give the depths of the tree behind it, whichever of the filter,
+ * the cache and the tree answers them, and its counters add up.
+ * @author shaharna13
+ */
+public class AcceleratedAvlTreeTest {
+
+	/*
+	 * Checks that the lookup counters account for every lookup.
+	 */
+	private static void checkCounters(AcceleratedAvlTree accelerated){
+		assertEquals(accelerated.getLookups(), accelerated.getFilterRejections()
+				+ accelerated.getFilterFalsePositives() + accelerated.getCacheHits() + accelerated.getCacheMisses());
+	}
+
+	/**
+	 * Random adds, deletes and lookups give the same results as on a TreeSet, and every lookup returns the
+	 * depth the tree behind the filters has for the value at that moment, for caches of every size.
+	 */
+	@Test
+	public void lookupsMatchTheTree(){
+		Random random = new Random(1);
+		for (int cacheSize : new int[]{0, 1, 16, 1024}){
+			AvlTree tree = new AvlTree();
+			AcceleratedAvlTree accelerated = new AcceleratedAvlTree(tree, 10, cacheSize);
+			TreeSet<Integer> expected = new TreeSet<>();
+			for (int i = 0; i < 100_000; i++){
+				// Lookups of a few hot values, so the cache has something to answer.
+				int data = random.nextInt(4) == 0 ? random.nextInt(20) : random.nextInt(20_000);
+				int choice = random.nextInt(10);
+				if (choice == 0){
+					assertEquals(expected.add(data), accelerated.add(data));
+				}
+				else if (choice == 1){
+					assertEquals(expected.remove(data), accelerated.delete(data));
+				}
+				else {
+					int depth = accelerated.contains(data);
+					assertEquals(tree.contains(data), depth);
+					assertEquals(expected.contains(data), depth >= 0);
+				}
+			}
+			assertEquals(expected.size(), accelerated.size());
+			assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+					accelerated.stream().toArray());
+			checkCounters(accelerated);
+			assertTrue(accelerated.getFilterRejections() > 0);
+			assertTrue(cacheSize == 0 ? accelerated.getCacheHits() == 0 : accelerated.getCacheHits() > 0);
+			assertTrue(accelerated.getFilterRebuilds() > 1, "The filter was never rebuilt");
+		}
+	}
+
+	/**
+	 * A depth found before a change that moves the value is not answered from the cache after it.
+	 */
+	@Test
+	public void changesInvalidateTheCache(){
+		AvlTree tree = new AvlTree();
+		AcceleratedAvlTree accelerated = new AcceleratedAvlTree(tree, 10, 64);
+		accelerated.add(1);
+		accelerated.add(2);
+		assertEquals(0, accelerated.contains(1));
+		assertEquals(0, accelerated.contains(1));
+		assertEquals(1, accelerated.getCacheHits());
+		// Rotates 2 up to the root, so 1 moves down.
+		accelerated.add(3);
+		assertEquals(1, accelerated.contains(1));
+		assertEquals(1, accelerated.getCacheHits());
+		assertEquals(-1, accelerated.contains(4));
+		accelerated.delete(1);
+		assertEquals(-1, accelerated.contains(1));
+		checkCounters(accelerated);
+	}
+
+	/**
+	 * A tree that grows past the filter's capacity, or loses many of its values, rebuilds the filter; the
+	 * deleted values are not found, and the filter keeps rejecting most of the values that were never added.
+	 */
+	@Test
+	public void filterFollowsGrowthAndDeletions(){
+		AcceleratedAvlTree accelerated = new AcceleratedAvlTree(new Random(2).ints(1000).toArray());
+		assertEquals(1, accelerated.getFilterRebuilds());
+		for (int data = 0; data < 100_000; data += 2){
+			accelerated.add(data);
+		}
+		assertTrue(accelerated.getFilterRebuilds() > 1, "Growth didn't rebuild the filter");
+		long rebuilds = accelerated.getFilterRebuilds();
+		for (int data = 0; data < 100_000; data += 4){
+			assertTrue(accelerated.delete(data));
+		}
+		assertTrue(accelerated.getFilterRebuilds() > rebuilds, "Deletions didn't rebuild the filter");
+		for (int data = 0; data < 100_000; data++){
+			assertEquals(data % 4 == 2, accelerated.contains(data) >= 0, "contains(" + data + ")");
+		}
+		checkCounters(accelerated);
+		// The values deleted since the last rebuild are still in the filter, the values never added aren't.
+		accelerated.resetStatistics();
+		for (int data = 1; data < 100_000; data += 2){
+			assertEquals(-1, accelerated.contains(data));
+		}
+		assertTrue(accelerated.getFilterFalsePositiveRate() < 0.05,
+				"False positive rate " + accelerated.getFilterFalsePositiveRate());
+		assertEquals(0, accelerated.getCacheHitRate());
+	}
+
+	/**
+	 * The constructor rejects filters of no bits and negative cache sizes.
+	 */
+	@Test
+	public void rejectsBadSizes(){
+		assertThrows(IllegalArgumentException.class, () -> new AcceleratedAvlTree(new AvlTree(), 0, 16));
+		assertThrows(IllegalArgumentException.class, () -> new AcceleratedAvlTree(new AvlTree(), 10, -1));
+	}
+}
@@ -0,0 +1,272 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the ordered maps built on AvlTree: AvlTreeMap, IntIntAvlTreeMap and IntLongAvlTreeMap.
+ * @author shaharna13
+ */
+public class AvlTreeMapTest {
+
+	/* The number of random operations of each differential test, and the range of their keys */
+	private static final int OPERATIONS = 20_000;
+	private static final int KEYS = 500;
+
+	/*
+	 * @return the keys of the given map, in ascending order.
+	 */
+	private static int[] keys(Map<Integer, ?> map){
+		return map.keySet().stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Random operations on an AvlTreeMap give the same results as on a TreeMap, and a snapshot taken in the
+	 * middle keeps the entries it was taken with.
+	 */
+	@Test
+	public void avlTreeMapMatchesTreeMap(){
+		Random random = new Random(1);
+		AvlTreeMap<String> map = new AvlTreeMap<>();
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		AvlTreeMap<String> snapshot = null;
+		TreeMap<Integer, String> snapshotExpected = null;
+		for (int i = 0; i < OPERATIONS; i++){
+			int key = random.nextInt(KEYS);
+			String value = "v" + random.nextInt(10);
+			switch (random.nextInt(7)){
+				case 0:
+					assertEquals(expected.put(key, value), map.put(key, value));
+					break;
+				case 1:
+					assertEquals(expected.remove(key), map.remove(key));
+					break;
+				case 2:
+					// A key that is in the map keeps its value, even a null one.
+					String computed = expected.containsKey(key) ? expected.get(key) : value;
+					expected.putIfAbsent(key, computed);
+					assertEquals(computed, map.computeIfAbsent(key, k -> value));
+					break;
+				case 3:
+					assertEquals(expected.merge(key, value, String::concat),
+							map.merge(key, value, String::concat));
+					break;
+				case 4:
+					assertEquals(!expected.containsKey(key), map.add(key));
+					expected.putIfAbsent(key, null);
+					break;
+				case 5:
+					assertEquals(expected.containsKey(key), map.delete(key));
+					expected.remove(key);
+					break;
+				default:
+					assertEquals(expected.containsKey(key), map.containsKey(key));
+					assertEquals(expected.get(key), map.get(key));
+			}
+			if (i == OPERATIONS / 2){
+				snapshot = map.snapshot();
+				snapshotExpected = new TreeMap<>(expected);
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		assertArrayEquals(keys(expected), map.stream().toArray());
+		for (Map.Entry<Integer, String> entry : expected.entrySet()){
+			assertEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+		assertArrayEquals(keys(snapshotExpected), snapshot.stream().toArray());
+		for (Map.Entry<Integer, String> entry : snapshotExpected.entrySet()){
+			assertEquals(entry.getValue(), snapshot.get(entry.getKey()));
+		}
+		AvlTreeMap<String> upper = map.split(KEYS / 2);
+		for (int key = 0; key < KEYS; key++){
+			assertEquals(expected.get(key), key < KEYS / 2 ? map.get(key) : upper.get(key));
+		}
+	}
+
+	/**
+	 * Random operations on an IntIntAvlTreeMap give the same results as on a TreeMap whose missing keys
+	 * have the map's missing value.
+	 */
+	@Test
+	public void intIntMapMatchesTreeMap(){
+		Random random = new Random(2);
+		int missing = -7;
+		IntIntAvlTreeMap map = new IntIntAvlTreeMap(missing);
+		TreeMap<Integer, Integer> expected = new TreeMap<>();
+		IntIntAvlTreeMap snapshot = null;
+		TreeMap<Integer, Integer> snapshotExpected = null;
+		for (int i = 0; i < OPERATIONS; i++){
+			int key = random.nextInt(KEYS);
+			int value = random.nextInt(100);
+			switch (random.nextInt(7)){
+				case 0:
+					assertEquals(orMissing(expected.put(key, value), missing), map.put(key, value));
+					break;
+				case 1:
+					assertEquals(orMissing(expected.remove(key), missing), map.remove(key));
+					break;
+				case 2:
+					assertEquals((int) expected.computeIfAbsent(key, k -> k * 3),
+							map.computeIfAbsent(key, k -> k * 3));
+					break;
+				case 3:
+					assertEquals((int) expected.merge(key, value, Integer::sum),
+							map.merge(key, value, Integer::sum));
+					break;
+				case 4:
+					assertEquals(!expected.containsKey(key), map.add(key));
+					expected.putIfAbsent(key, missing);
+					break;
+				case 5:
+					assertEquals(expected.containsKey(key), map.delete(key));
+					expected.remove(key);
+					break;
+				default:
+					assertEquals(expected.containsKey(key), map.containsKey(key));
+					assertEquals(orMissing(expected.get(key), missing), map.get(key));
+			}
+			if (i == OPERATIONS / 2){
+				snapshot = map.snapshot();
+				snapshotExpected = new TreeMap<>(expected);
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		assertArrayEquals(keys(expected), map.stream().toArray());
+		for (int key = 0; key < KEYS; key++){
+			assertEquals(orMissing(expected.get(key), missing), map.get(key));
+			assertEquals(orMissing(snapshotExpected.get(key), missing), snapshot.get(key));
+		}
+	}
+
+	/**
+	 * Random operations on an IntLongAvlTreeMap give the same results as on a TreeMap whose missing keys
+	 * have the map's missing value.
+	 */
+	@Test
+	public void intLongMapMatchesTreeMap(){
+		Random random = new Random(3);
+		long missing = Long.MIN_VALUE;
+		IntLongAvlTreeMap map = new IntLongAvlTreeMap(missing);
+		TreeMap<Integer, Long> expected = new TreeMap<>();
+		IntLongAvlTreeMap snapshot = null;
+		TreeMap<Integer, Long> snapshotExpected = null;
+		for (int i = 0; i < OPERATIONS; i++){
+			int key = random.nextInt(KEYS);
+			long value = random.nextLong() >> 8;
+			switch (random.nextInt(7)){
+				case 0:
+					assertEquals(orMissing(expected.put(key, value), missing), map.put(key, value));
+					break;
+				case 1:
+					assertEquals(orMissing(expected.remove(key), missing), map.remove(key));
+					break;
+				case 2:
+					assertEquals((long) expected.computeIfAbsent(key, k -> (long) k << 33),
+							map.computeIfAbsent(key, k -> (long) k << 33));
+					break;
+				case 3:
+					assertEquals((long) expected.merge(key, value, Long::max),
+							map.merge(key, value, Long::max));
+					break;
+				case 4:
+					assertEquals(!expected.containsKey(key), map.add(key));
+					expected.putIfAbsent(key, missing);
+					break;
+				case 5:
+					assertEquals(expected.containsKey(key), map.delete(key));
+					expected.remove(key);
+					break;
+				default:
+					assertEquals(expected.containsKey(key), map.containsKey(key));
+					assertEquals(orMissing(expected.get(key), missing), map.get(key));
+			}
+			if (i == OPERATIONS / 2){
+				snapshot = map.snapshot();
+				snapshotExpected = new TreeMap<>(expected);
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		assertArrayEquals(keys(expected), map.stream().toArray());
+		for (int key = 0; key < KEYS; key++){
+			assertEquals(orMissing(expected.get(key), missing), map.get(key));
+			assertEquals(orMissing(snapshotExpected.get(key), missing), snapshot.get(key));
+		}
+	}
+
+	/*
+	 * @return the given value, or the missing value if it is null.
+	 */
+	private static int orMissing(Integer value, int missing){
+		return value == null ? missing : value;
+	}
+
+	/*
+	 * @return the given value, or the missing value if it is null.
+	 */
+	private static long orMissing(Long value, long missing){
+		return value == null ? missing : value;
+	}
+
+	/**
+	 * add(key) on an empty map adds a key whose value is null, like it does on a map that has keys.
+	 */
+	@Test
+	public void addToEmptyMap(){
+		AvlTreeMap<String> map = new AvlTreeMap<>();
+		assertTrue(map.add(5));
+		assertTrue(map.containsKey(5));
+		assertNull(map.get(5));
+		assertNull(map.put(5, "five"));
+		assertEquals("five", map.get(5));
+		assertEquals("five", map.remove(5));
+		assertEquals(0, map.size());
+		assertTrue(map.add(7));
+		assertNull(map.remove(7));
+		assertFalse(map.containsKey(7));
+	}
+
+	/**
+	 * add(key) on an empty IntIntAvlTreeMap adds a key whose value is the missing value.
+	 */
+	@Test
+	public void addToEmptyIntIntMap(){
+		IntIntAvlTreeMap map = new IntIntAvlTreeMap(-1);
+		assertTrue(map.add(5));
+		assertTrue(map.containsKey(5));
+		assertEquals(-1, map.get(5));
+		assertEquals(-1, map.put(5, 50));
+		assertEquals(50, map.get(5));
+		assertEquals(50, map.remove(5));
+		assertEquals(0, map.size());
+		assertTrue(map.add(7));
+		assertEquals(-1, map.remove(7));
+		assertFalse(map.containsKey(7));
+	}
+
+	/**
+	 * add(key) on an empty IntLongAvlTreeMap adds a key whose value is the missing value.
+	 */
+	@Test
+	public void addToEmptyIntLongMap(){
+		IntLongAvlTreeMap map = new IntLongAvlTreeMap(-1L);
+		assertTrue(map.add(5));
+		assertTrue(map.containsKey(5));
+		assertEquals(-1L, map.get(5));
+		assertEquals(-1L, map.put(5, 1L << 40));
+		assertEquals(1L << 40, map.get(5));
+		assertEquals(1L << 40, map.remove(5));
+		assertEquals(0, map.size());
+		assertTrue(map.add(7));
+		assertEquals(-1L, map.remove(7));
+		assertFalse(map.containsKey(7));
+	}
+}
@@ -0,0 +1,111 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.zip.CRC32C;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Tests of AvlTreeSerializer: the trees it reads back, and its reading from channels that hold more than
+ * one tree.
+ * @author shaharna13
+ */
+public class AvlTreeSerializerTest {
+
+	/* The directory of the test files */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Reading a tree from a file channel leaves the channel right after the tree, so the data written after
+	 * it, here another tree and an int, can be read next.
+	 */
+	@Test
+	public void readLeavesTheChannelAfterTheTree() throws IOException {
+		int[] first = new int[100_000];
+		for (int i = 0; i < first.length; i++){
+			first[i] = i * 3;
+		}
+		int[] second = {-5, 7, 1 << 20};
+		Path file = directory.resolve("trees");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)){
+			AvlTreeSerializer.write(new AvlTree(first), channel);
+			AvlTreeSerializer.write(new AvlTree(second), channel);
+			channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 42));
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			assertArrayEquals(first, AvlTreeSerializer.read(channel).stream().toArray());
+			assertArrayEquals(second, AvlTreeSerializer.read(channel).stream().toArray());
+			ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES);
+			channel.read(trailer);
+			assertEquals(42, trailer.getInt(0));
+			assertEquals(channel.size(), channel.position());
+		}
+	}
+
+	/**
+	 * A tree is read back with the balancing policy it was written with, balanced by that policy, and keeps
+	 * balancing itself by it.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void readKeepsThePolicy(BalancePolicy policy) throws IOException {
+		Random random = new Random(policy.ordinal());
+		for (int range : new int[]{0, 1, 2, 3, 7, 100, 5000}){
+			TreeSet<Integer> values = new TreeSet<>();
+			AvlTree written = AvlTreeTest.randomTree(policy, random, range, values);
+			Path file = directory.resolve(policy + "-" + range);
+			AvlTreeSerializer.write(written, file);
+			AvlTree read = AvlTreeSerializer.read(file);
+			assertEquals(policy, read.getBalancePolicy());
+			AvlTreeTest.check(read, values);
+			for (int i = 0; i < 2 * range; i++){
+				int data = random.nextInt(range + 1);
+				if (random.nextBoolean()){
+					read.add(data);
+					values.add(data);
+				}
+				else {
+					read.delete(data);
+					values.remove(data);
+				}
+			}
+			AvlTreeTest.check(read, values);
+		}
+	}
+
+	/**
+	 * A file of version 1 of the format, whose header has no policy, is read as an AVL tree.
+	 */
+	@Test
+	public void readsVersionOneAsAvl() throws IOException {
+		ByteBuffer data = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+		data.putInt(0x534C5641).putInt(1).putInt(3);
+		// The values 1, 2 and 4: the first zigzag encoded, then the distances minus one.
+		data.put((byte) 2).put((byte) 0).put((byte) 1);
+		CRC32C checksum = new CRC32C();
+		checksum.update(data.array(), 0, data.position());
+		data.putInt((int) checksum.getValue());
+		data.flip();
+		Path file = directory.resolve("version1");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)){
+			channel.write(data);
+		}
+		AvlTree tree = AvlTreeSerializer.read(file);
+		assertEquals(BalancePolicy.AVL, tree.getBalancePolicy());
+		assertArrayEquals(new int[]{1, 2, 4}, tree.stream().toArray());
+	}
+}
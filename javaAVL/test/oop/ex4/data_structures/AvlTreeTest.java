@@ -0,0 +1,952 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Tests of AvlTree: its construction and copies, its queries and iterators against a TreeSet, the cost of
+ * its operations as it grows, the joins on every balancing policy, and the state kept between calls.
+ * @author shaharna13
+ */
+public class AvlTreeTest {
+
+	/* The most node accesses an add or delete may take per level of the tree's height */
+	private static final int WORK_PER_LEVEL = 8;
+
+	/*
+	 * @return the tree's values in ascending order.
+	 */
+	private static int[] values(BinarySearchTree tree){
+		return tree.stream().toArray();
+	}
+
+	/*
+	 * @return the values of the given set in ascending order.
+	 */
+	private static int[] values(TreeSet<Integer> set){
+		return set.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/*
+	 * Checks the links, order, cached heights and sizes of the given sub tree, and its balance by the given
+	 * policy: heights for AVL, rank differences for WAVL, and no red node under a red one for red-black.
+	 * @return the sub tree's height, -1 if it is empty.
+	 */
+	private static int checkBalance(Node node, Node parent, BalancePolicy policy){
+		if (node == null){
+			return -1;
+		}
+		assertTrue(node.getParent() == parent, "Broken parent link at " + node.getData());
+		Node left = node.getLeftChild(), right = node.getRightChild();
+		assertTrue(left == null || left.getData() < node.getData());
+		assertTrue(right == null || right.getData() > node.getData());
+		int leftHeight = checkBalance(left, node, policy);
+		int rightHeight = checkBalance(right, node, policy);
+		assertEquals(Math.max(leftHeight, rightHeight) + 1, node.getHeight());
+		assertEquals(1 + (left == null ? 0 : left.size()) + (right == null ? 0 : right.size()), node.size());
+		switch (policy){
+			case AVL:
+				assertTrue(Math.abs(leftHeight - rightHeight) <= 1, "Not AVL at " + node.getData());
+				break;
+			case WAVL:
+				boolean leaf = left == null && right == null;
+				assertTrue(!leaf || node.getRank() == 0, "A leaf of rank " + node.getRank());
+				for (Node child : new Node[]{left, right}){
+					int difference = node.getRank() - Rebalancer.rank(child);
+					assertTrue(difference == 1 || difference == 2, "Rank difference " + difference);
+				}
+				break;
+			default:
+				for (Node child : new Node[]{left, right}){
+					assertTrue(node.getRank() == 0 || child == null || child.getRank() == 0, "Red under red");
+				}
+		}
+		return Math.max(leftHeight, rightHeight) + 1;
+	}
+
+	/*
+	 * Checks that every path from the given red-black sub tree down to a missing child has as many black
+	 * nodes.
+	 * @return the number of black nodes on each path.
+	 */
+	private static int blackHeight(Node node){
+		if (node == null){
+			return 0;
+		}
+		int left = blackHeight(node.getLeftChild());
+		assertEquals(left, blackHeight(node.getRightChild()), "Black heights differ at " + node.getData());
+		return left + (node.getRank() == 0 ? 1 : 0);
+	}
+
+	/*
+	 * Checks that the tree is balanced by its policy and holds exactly the given values.
+	 */
+	static void check(AvlTree tree, TreeSet<Integer> expected){
+		checkBalance(tree.root, null, tree.getBalancePolicy());
+		if (tree.getBalancePolicy() == BalancePolicy.RED_BLACK){
+			blackHeight(tree.root);
+		}
+		assertArrayEquals(values(expected), values(tree));
+	}
+
+	/*
+	 * Builds a tree of the given policy from random adds and deletes, so its shape is not a rebuilt one.
+	 */
+	static AvlTree randomTree(BalancePolicy policy, Random random, int range, TreeSet<Integer> values){
+		AvlTree tree = new AvlTree(policy);
+		for (int i = 0; i < range; i++){
+			int data = random.nextInt(range);
+			if (random.nextInt(3) == 0){
+				tree.delete(data);
+				values.remove(data);
+			}
+			else {
+				tree.add(data);
+				values.add(data);
+			}
+		}
+		return tree;
+	}
+
+	/**
+	 * Split and join work on trees of every policy, and leave them balanced by it.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void splitAndJoinKeepEveryPolicy(BalancePolicy policy){
+		Random random = new Random(policy.ordinal());
+		for (int round = 0; round < 50; round++){
+			TreeSet<Integer> values = new TreeSet<>();
+			AvlTree tree = randomTree(policy, random, 200, values);
+			int at = random.nextInt(220) - 10;
+			AvlTree upper = tree.split(at);
+			TreeSet<Integer> upperValues = new TreeSet<>(values.tailSet(at));
+			values.removeAll(upperValues);
+			check(tree, values);
+			check(upper, upperValues);
+			assertEquals(policy, upper.getBalancePolicy());
+			if (round % 2 == 0){
+				tree.join(upper);
+			}
+			else if (!upperValues.contains(at)){
+				tree.join(at, upper);
+				values.add(at);
+			}
+			else {
+				tree.join(upper);
+			}
+			values.addAll(upperValues);
+			check(tree, values);
+			assertNull(upper.root);
+			// The rebuilt tree keeps balancing itself by its policy.
+			for (int i = 0; i < 100; i++){
+				int data = random.nextInt(300);
+				if (random.nextBoolean()){
+					tree.add(data);
+					values.add(data);
+				}
+				else {
+					tree.delete(data);
+					values.remove(data);
+				}
+			}
+			check(tree, values);
+		}
+	}
+
+	/**
+	 * Union, intersection and difference work on trees of every policy, including trees of different
+	 * policies, and leave this tree balanced by its own policy.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void setAlgebraKeepsEveryPolicy(BalancePolicy policy){
+		Random random = new Random(10 + policy.ordinal());
+		BalancePolicy[] policies = BalancePolicy.values();
+		for (int round = 0; round < 60; round++){
+			TreeSet<Integer> values = new TreeSet<>(), otherValues = new TreeSet<>();
+			AvlTree tree = randomTree(policy, random, 200, values);
+			AvlTree other = randomTree(policies[round % policies.length], random, 200, otherValues);
+			switch (round % 3){
+				case 0:
+					tree.union(other);
+					values.addAll(otherValues);
+					break;
+				case 1:
+					tree.intersection(other);
+					values.retainAll(otherValues);
+					break;
+				default:
+					tree.difference(other);
+					values.removeAll(otherValues);
+			}
+			check(tree, values);
+			assertNull(other.root);
+		}
+	}
+
+	/*
+	 * A tree that counts how many times its nodes are read or refreshed: each search step reads a node's
+	 * data and a child, and each step of a rebalancing walk refreshes a node's metadata, so the count is
+	 * the work of the operations.
+	 */
+	private static final class CountingTree extends AvlTree {
+
+		/* The number of node accesses so far */
+		long visits;
+
+		@Override
+		Node createNode(int data){
+			return new CountingNode(data);
+		}
+
+		/*
+		 * A node that counts its accesses in the tree's visits.
+		 */
+		private final class CountingNode extends Node {
+
+			CountingNode(int data){
+				super(data);
+			}
+
+			@Override
+			int getData(){
+				visits++;
+				return super.getData();
+			}
+
+			@Override
+			Node getLeftChild(){
+				visits++;
+				return super.getLeftChild();
+			}
+
+			@Override
+			Node getRightChild(){
+				visits++;
+				return super.getRightChild();
+			}
+
+			@Override
+			Node getParent(){
+				visits++;
+				return super.getParent();
+			}
+
+			@Override
+			boolean updateMetadata(){
+				visits++;
+				return super.updateMetadata();
+			}
+		}
+	}
+
+	/**
+	 * Grows a tree by orders of magnitude, from a thousand values to a million. At every size, size() reads
+	 * no node at all, the root's cached height is within the AVL bounds for the size, and an add or a
+	 * delete accesses a number of nodes proportional to the height, so the work per operation grows
+	 * logarithmically rather than with the size.
+	 */
+	@Test
+	public void addDeleteAndSizeScale(){
+		CountingTree tree = new CountingTree();
+		Random random = new Random(7);
+		int operations = 2000;
+		double firstWork = 0;
+		for (int size = 1000; size <= 1_000_000; size *= 10){
+			while (tree.size() < size){
+				tree.add(random.nextInt());
+			}
+			int height = tree.root.getHeight();
+			assertTrue(AvlTree.findMinNodes(height) <= size && size <= AvlTree.findMaxNodes(height),
+					"Height " + height + " for " + size + " values");
+			long before = tree.visits;
+			assertEquals(size, tree.size());
+			assertEquals(before, tree.visits, "size() read the nodes");
+			before = tree.visits;
+			for (int i = 0; i < operations; i++){
+				int data = random.nextInt();
+				if (tree.add(data)){
+					assertTrue(tree.delete(data));
+				}
+			}
+			double work = (tree.visits - before) / (2.0 * operations);
+			assertTrue(work <= WORK_PER_LEVEL * (height + 1), "An operation accessed " + work + " nodes of "
+					+ size);
+			if (firstWork == 0){
+				firstWork = work;
+			}
+			// Linear work would grow a thousand times from the first size to the last, logarithmic work about 2.
+			assertTrue(work < 3 * firstWork, "The work grew from " + firstWork + " to " + work);
+		}
+	}
+
+	/**
+	 * With a listener, add and delete report the comparisons of the same search they time: the tree is not
+	 * searched a second time to count them, so a measured operation reads as many nodes as an unmeasured one.
+	 */
+	@Test
+	public void metricsCountTheTimedSearch(){
+		assumeTrue(AvlTreeListener.METRICS_ENABLED, "Needs -Doop.ex4.data_structures.metrics=true");
+		CountingTree measured = new CountingTree(), unmeasured = new CountingTree();
+		for (int data = 0; data < 1000; data += 2){
+			measured.add(data);
+			unmeasured.add(data);
+		}
+		int[] reported = new int[1];
+		measured.setListener(new AvlTreeListener(){
+			@Override
+			public void operationCompleted(Operation operation, int comparisons, long nanos){
+				reported[0] = comparisons;
+			}
+		});
+		Random random = new Random(3);
+		for (int i = 0; i < 2000; i++){
+			int data = random.nextInt(1100);
+			// The search compares the value with the nodes down to its own node, or to the parent of its new one.
+			int expected = unmeasured.findNode(data).getDepth() + 1;
+			boolean add = random.nextBoolean();
+			long before = unmeasured.visits;
+			boolean changed = add ? unmeasured.add(data) : unmeasured.delete(data);
+			long work = unmeasured.visits - before;
+			before = measured.visits;
+			assertEquals(changed, add ? measured.add(data) : measured.delete(data));
+			assertEquals(work, measured.visits - before, "The measured operation searched again");
+			assertEquals(expected, reported[0]);
+		}
+	}
+
+	/**
+	 * A value replaced in a snapshotted map copies the map's nodes without a structural change; fingerAdd
+	 * must not keep using the finger and the maximum found in the nodes that now belong to the snapshot.
+	 */
+	@Test
+	public void fingerAddAfterCopyOnWriteLeavesSnapshotIntact(){
+		AvlTreeMap<String> map = new AvlTreeMap<>();
+		for (int key = 0; key < 100; key += 10){
+			map.put(key, "v" + key);
+		}
+		assertTrue(map.fingerContains(50));
+		AvlTreeMap<String> snapshot = map.snapshot();
+		map.put(50, "changed");
+		assertTrue(map.fingerAdd(55));
+		assertTrue(map.fingerAdd(1000));
+
+		assertEquals(10, snapshot.size());
+		assertEquals("v50", snapshot.get(50));
+		assertArrayEquals(new int[]{0, 10, 20, 30, 40, 50, 60, 70, 80, 90}, values(snapshot));
+		assertEquals(12, map.size());
+		assertEquals("changed", map.get(50));
+		assertArrayEquals(new int[]{0, 10, 20, 30, 40, 50, 55, 60, 70, 80, 90, 1000}, values(map));
+	}
+
+	/**
+	 * The array constructor builds a balanced tree of the distinct values of sorted, unsorted and repeating
+	 * arrays, without modifying them, and the tree then keeps itself balanced through adds and deletes.
+	 */
+	@Test
+	public void buildsFromArrays(){
+		Random random = new Random(4);
+		for (int length : new int[]{0, 1, 2, 3, 7, 8, 100, 20_000}){
+			int[] ascending = random.ints(length, -length, length + 1).sorted().distinct().toArray();
+			int[] repeating = random.ints(length, -length / 4 - 1, length / 4 + 1).toArray();
+			int[] descending = new int[ascending.length];
+			for (int i = 0; i < ascending.length; i++){
+				descending[i] = ascending[ascending.length - 1 - i];
+			}
+			for (int[] data : new int[][]{ascending, repeating, descending}){
+				int[] original = data.clone();
+				TreeSet<Integer> expected = new TreeSet<>();
+				for (int value : data){
+					expected.add(value);
+				}
+				AvlTree tree = new AvlTree(data);
+				assertArrayEquals(original, data, "The constructor modified its input");
+				assertEquals(expected.size(), tree.size());
+				check(tree, expected);
+				for (int i = 0; i < length; i++){
+					int value = random.nextInt(2 * length + 1) - length;
+					if (random.nextBoolean()){
+						assertEquals(expected.add(value), tree.add(value));
+					}
+					else {
+						assertEquals(expected.remove(value), tree.delete(value));
+					}
+				}
+				check(tree, expected);
+			}
+		}
+		assertEquals(0, new AvlTree((int[]) null).size());
+	}
+
+	/*
+	 * Checks that the given sub trees have the same structure, values, heights, sizes and ranks, but no
+	 * node in common.
+	 */
+	private static void assertSameShape(Node original, Node copy){
+		if (original == null){
+			assertNull(copy);
+			return;
+		}
+		assertTrue(original != copy, "The copy shares the node of " + original.getData());
+		assertEquals(original.getData(), copy.getData());
+		assertEquals(original.getHeight(), copy.getHeight());
+		assertEquals(original.size(), copy.size());
+		assertEquals(original.getRank(), copy.getRank());
+		assertSameShape(original.getLeftChild(), copy.getLeftChild());
+		assertSameShape(original.getRightChild(), copy.getRightChild());
+	}
+
+	/**
+	 * The copy constructor copies a tree of every policy in its exact shape, and snapshots (and snapshots
+	 * of snapshots) keep the values they were taken with; changes to a tree and to its copies are not
+	 * visible in each other.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void copiesAreIndependent(BalancePolicy policy){
+		Random random = new Random(policy.ordinal() + 10);
+		TreeSet<Integer> values = new TreeSet<>();
+		AvlTree tree = randomTree(policy, random, 50_000, values);
+		AvlTree copy = new AvlTree(tree);
+		assertEquals(policy, copy.getBalancePolicy());
+		assertSameShape(tree.root, copy.root);
+		assertNull(copy.root.getParent());
+		checkBalance(copy.root, null, policy);
+
+		AvlTree snapshot = tree.snapshot();
+		AvlTree snapshotOfSnapshot = snapshot.snapshot();
+		TreeSet<Integer> original = new TreeSet<>(values);
+		TreeSet<Integer> copyValues = new TreeSet<>(values), snapshotValues = new TreeSet<>(values);
+		for (int i = 0; i < 5000; i++){
+			int data = random.nextInt(50_000);
+			assertEquals(values.add(data), tree.add(data));
+			data = random.nextInt(50_000);
+			assertEquals(copyValues.remove(data), copy.delete(data));
+			data = random.nextInt(50_000);
+			assertEquals(snapshotValues.add(data), snapshot.add(data));
+		}
+		check(tree, values);
+		check(copy, copyValues);
+		check(snapshot, snapshotValues);
+		check(snapshotOfSnapshot, original);
+	}
+
+	/**
+	 * rank, select and countInRange give the same results as counting a TreeSet's views, on trees of every
+	 * policy and for values in and out of the tree, up to the extreme ints.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void orderStatisticsMatchTreeSet(BalancePolicy policy){
+		Random random = new Random(policy.ordinal() + 20);
+		TreeSet<Integer> values = new TreeSet<>();
+		AvlTree tree = randomTree(policy, random, 3000, values);
+		int[] sorted = values(values);
+		for (int index = 0; index < sorted.length; index++){
+			assertEquals(sorted[index], tree.select(index));
+			assertEquals(index, tree.rank(sorted[index]));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(sorted.length));
+		int[] bounds = {Integer.MIN_VALUE, -1, 0, 1500, 2999, 3000, Integer.MAX_VALUE};
+		for (int i = 0; i < 5000; i++){
+			int low = random.nextInt(10) == 0 ? bounds[random.nextInt(bounds.length)] : random.nextInt(3100) - 50;
+			int high = random.nextInt(10) == 0 ? bounds[random.nextInt(bounds.length)] : random.nextInt(3100) - 50;
+			assertEquals(values.headSet(low).size(), tree.rank(low));
+			int expected = low > high ? 0 : values.subSet(low, true, high, true).size();
+			assertEquals(expected, tree.countInRange(low, high), "countInRange(" + low + ", " + high + ")");
+		}
+		AvlTree empty = new AvlTree(policy);
+		assertEquals(0, empty.rank(5));
+		assertEquals(0, empty.countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		assertThrows(IndexOutOfBoundsException.class, () -> empty.select(0));
+	}
+
+	/**
+	 * rank, select and countInRange read a number of nodes proportional to the tree's height, not to the
+	 * number of values they count.
+	 */
+	@Test
+	public void orderStatisticsAreLogarithmic(){
+		CountingTree tree = new CountingTree();
+		for (int data = 0; data < 100_000; data++){
+			tree.add(data);
+		}
+		int limit = WORK_PER_LEVEL * (tree.root.getHeight() + 1);
+		Random random = new Random(5);
+		for (int i = 0; i < 1000; i++){
+			int data = random.nextInt(100_000);
+			long before = tree.visits;
+			assertEquals(data, tree.rank(data));
+			assertEquals(data, tree.select(data));
+			assertEquals(100_000 - data, tree.countInRange(data, Integer.MAX_VALUE));
+			assertTrue(tree.visits - before <= 3 * limit, (tree.visits - before) + " node reads");
+		}
+	}
+
+	/*
+	 * @return an OptionalInt of the given value, empty for null.
+	 */
+	private static OptionalInt optional(Integer value){
+		return value == null ? OptionalInt.empty() : OptionalInt.of(value);
+	}
+
+	/*
+	 * @return the values the iterator returns, in its order.
+	 */
+	private static int[] drain(PrimitiveIterator.OfInt iterator){
+		int[] values = new int[16];
+		int count = 0;
+		while (iterator.hasNext()){
+			if (count == values.length){
+				values = Arrays.copyOf(values, 2 * count);
+			}
+			values[count++] = iterator.nextInt();
+		}
+		assertThrows(NoSuchElementException.class, iterator::nextInt);
+		return Arrays.copyOf(values, count);
+	}
+
+	/*
+	 * @return the values of the given set in the order of its iterator.
+	 */
+	private static int[] ordered(NavigableSet<Integer> set){
+		return set.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * floor, lower, ceiling, higher, first, last, pollFirst and pollLast give the same results as a TreeSet,
+	 * and so do the ascending and descending range iterators, for every inclusion of their bounds.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void navigationMatchesTreeSet(BalancePolicy policy){
+		Random random = new Random(policy.ordinal() + 30);
+		TreeSet<Integer> values = new TreeSet<>();
+		AvlTree tree = randomTree(policy, random, 2000, values);
+		int[] extremes = {Integer.MIN_VALUE, -1, 0, 1999, 2000, Integer.MAX_VALUE};
+		for (int i = 0; i < 3000; i++){
+			int data = random.nextInt(8) == 0 ? extremes[random.nextInt(extremes.length)] : random.nextInt(2100) - 50;
+			assertEquals(optional(values.floor(data)), tree.floor(data));
+			assertEquals(optional(values.lower(data)), tree.lower(data));
+			assertEquals(optional(values.ceiling(data)), tree.ceiling(data));
+			assertEquals(optional(values.higher(data)), tree.higher(data));
+			int other = random.nextInt(8) == 0 ? extremes[random.nextInt(extremes.length)] : data + random.nextInt(60);
+			int low = Math.min(data, other), high = Math.max(data, other);
+			boolean lowInclusive = random.nextBoolean(), highInclusive = random.nextBoolean();
+			NavigableSet<Integer> range = values.subSet(low, lowInclusive, high, highInclusive);
+			assertArrayEquals(ordered(range), drain(tree.rangeIterator(low, lowInclusive, high, highInclusive)));
+			assertArrayEquals(ordered(range.descendingSet()),
+					drain(tree.descendingRangeIterator(low, lowInclusive, high, highInclusive)));
+		}
+		assertArrayEquals(ordered(values.descendingSet()), drain(tree.descendingIterator()));
+		assertThrows(IllegalArgumentException.class, () -> tree.rangeIterator(1, true, 0, true));
+		assertThrows(IllegalArgumentException.class, () -> tree.descendingRangeIterator(1, true, 0, true));
+		while (!values.isEmpty()){
+			assertEquals((int) values.first(), tree.first());
+			assertEquals((int) values.last(), tree.last());
+			boolean fromStart = random.nextBoolean();
+			assertEquals(optional(fromStart ? values.pollFirst() : values.pollLast()),
+					fromStart ? tree.pollFirst() : tree.pollLast());
+		}
+		check(tree, values);
+		assertThrows(NoSuchElementException.class, tree::first);
+		assertThrows(NoSuchElementException.class, tree::last);
+		assertEquals(OptionalInt.empty(), tree.pollFirst());
+		assertEquals(OptionalInt.empty(), tree.floor(0));
+		assertArrayEquals(new int[0], drain(tree.rangeIterator(0, false, 0, false)));
+	}
+
+	/*
+	 * @return the given number of random values below the given bound, sorted, with repeats.
+	 */
+	private static int[] sortedBatch(Random random, int count, int bound){
+		return random.ints(count, 0, bound).sorted().toArray();
+	}
+
+	/**
+	 * addAll, removeAll and containsAll give the same results as a TreeSet, both for batches small enough
+	 * to be searched for one by one and for batches large enough to rebuild the tree, and leave the tree
+	 * balanced by its policy without changing a snapshot taken before them.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void batchesMatchTreeSet(BalancePolicy policy){
+		Random random = new Random(policy.ordinal() + 40);
+		TreeSet<Integer> values = new TreeSet<>();
+		AvlTree tree = randomTree(policy, random, 20_000, values);
+		for (int round = 0; round < 200; round++){
+			// Mostly batches of less than a quarter of the tree, and sometimes larger ones.
+			int count = round % 10 == 0 ? random.nextInt(40_000) : random.nextInt(200);
+			int[] batch = sortedBatch(random, count, 20_000);
+			TreeSet<Integer> before = new TreeSet<>(values);
+			AvlTree snapshot = tree.snapshot();
+			if (random.nextBoolean()){
+				int added = 0;
+				for (int data : batch){
+					added += values.add(data) ? 1 : 0;
+				}
+				assertEquals(added, tree.addAll(batch));
+			}
+			else {
+				int removed = 0;
+				for (int data : batch){
+					removed += values.remove(data) ? 1 : 0;
+				}
+				assertEquals(removed, tree.removeAll(batch));
+			}
+			check(tree, values);
+			check(snapshot, before);
+			int[] lookups = sortedBatch(random, random.nextInt(500), 21_000);
+			boolean[] results = new boolean[lookups.length + 1];
+			int found = 0;
+			for (int data : lookups){
+				found += values.contains(data) ? 1 : 0;
+			}
+			assertEquals(found, tree.containsAll(lookups, results));
+			for (int i = 0; i < lookups.length; i++){
+				assertEquals(values.contains(lookups[i]), results[i]);
+			}
+		}
+		assertEquals(values.size(), tree.removeAll(values(values)));
+		check(tree, new TreeSet<>());
+		assertEquals(3, tree.addAll(new int[]{1, 1, 2, 3, 3}));
+		assertEquals(0, tree.addAll(new int[0]));
+		assertEquals(1, tree.containsAll(new int[]{0, 3}, new boolean[2]));
+	}
+
+	/**
+	 * The batch operations reject values that are not sorted, and containsAll a results array shorter than
+	 * the values, before changing anything.
+	 */
+	@Test
+	public void batchesRejectUnsortedValues(){
+		AvlTree tree = new AvlTree(new int[]{1, 2, 3});
+		assertThrows(IllegalArgumentException.class, () -> tree.addAll(new int[]{5, 4}));
+		assertThrows(IllegalArgumentException.class, () -> tree.removeAll(new int[]{3, 1}));
+		assertThrows(IllegalArgumentException.class, () -> tree.containsAll(new int[]{2, 1}, new boolean[2]));
+		assertThrows(IllegalArgumentException.class, () -> tree.containsAll(new int[]{1, 2}, new boolean[1]));
+		assertArrayEquals(new int[]{1, 2, 3}, values(tree));
+	}
+
+	/**
+	 * The batch operations of a map keep the values of the keys that stay in it, whether they add the keys
+	 * one by one or rebuild the map.
+	 */
+	@Test
+	public void mapBatchesKeepValues(){
+		AvlTreeMap<String> map = new AvlTreeMap<>();
+		for (int key = 0; key < 1000; key += 2){
+			map.put(key, "v" + key);
+		}
+		assertEquals(5, map.addAll(new int[]{1, 3, 5, 7, 9}));
+		assertEquals(495, map.addAll(IntStream.range(0, 1000).toArray()));
+		assertEquals(500, map.removeAll(IntStream.range(0, 1000).filter(key -> key % 2 == 1).toArray()));
+		for (int key = 0; key < 1000; key++){
+			assertEquals(key % 2 == 0 ? "v" + key : null, map.get(key));
+		}
+	}
+
+	/* The fail-fast iterators of a tree */
+	private static final List<Function<AvlTree, PrimitiveIterator.OfInt>> FAIL_FAST_ITERATORS = List.of(
+			BinarySearchTree::intIterator,
+			tree -> {
+				Iterator<Integer> iterator = tree.iterator();
+				return new PrimitiveIterator.OfInt(){
+					@Override
+					public boolean hasNext(){
+						return iterator.hasNext();
+					}
+
+					@Override
+					public int nextInt(){
+						return iterator.next();
+					}
+				};
+			},
+			BinarySearchTree::descendingIterator,
+			tree -> tree.rangeIterator(10, true, 90, false),
+			tree -> tree.descendingRangeIterator(10, false, 90, true));
+
+	/* Structural changes of a tree of the values 0 to 99 */
+	private static final List<Consumer<AvlTree>> CHANGES = List.of(
+			tree -> tree.add(1000),
+			tree -> tree.delete(50),
+			tree -> tree.pollFirst(),
+			tree -> tree.addAll(new int[]{200, 201}),
+			tree -> tree.addAll(IntStream.range(100, 200).toArray()),
+			tree -> tree.removeAll(new int[]{10}),
+			tree -> tree.removeAll(IntStream.range(0, 50).toArray()),
+			tree -> tree.split(50),
+			tree -> tree.join(new AvlTree(new int[]{500})),
+			tree -> tree.union(new AvlTree(new int[]{-5, 5})),
+			tree -> tree.difference(new AvlTree(new int[]{5})));
+
+	/* Calls that don't change the values of a tree of the values 0 to 99 */
+	private static final List<Consumer<AvlTree>> NO_CHANGES = List.of(
+			tree -> tree.add(5),
+			tree -> tree.delete(1000),
+			tree -> tree.addAll(new int[]{1, 2}),
+			tree -> tree.removeAll(new int[]{-2, -1}),
+			tree -> tree.contains(7),
+			tree -> tree.snapshot().add(1000),
+			tree -> tree.snapshot());
+
+	/**
+	 * Every structural change of a tree makes the next step of each of its fail-fast iterators throw a
+	 * ConcurrentModificationException, including a join that empties the tree it takes the values of.
+	 */
+	@Test
+	public void iteratorsFailFast(){
+		for (Function<AvlTree, PrimitiveIterator.OfInt> newIterator : FAIL_FAST_ITERATORS){
+			for (Consumer<AvlTree> change : CHANGES){
+				AvlTree tree = new AvlTree(IntStream.range(0, 100).toArray());
+				PrimitiveIterator.OfInt iterator = newIterator.apply(tree);
+				iterator.nextInt();
+				iterator.nextInt();
+				change.accept(tree);
+				assertThrows(ConcurrentModificationException.class, iterator::nextInt);
+			}
+			AvlTree right = new AvlTree(IntStream.range(0, 100).toArray());
+			PrimitiveIterator.OfInt iterator = newIterator.apply(right);
+			iterator.nextInt();
+			new AvlTree(new int[]{-1}).join(right);
+			assertThrows(ConcurrentModificationException.class, iterator::nextInt);
+		}
+		AvlTree tree = new AvlTree(IntStream.range(0, 100).toArray());
+		assertThrows(ConcurrentModificationException.class, () -> tree.forEachInt(value -> tree.add(-value - 1)));
+	}
+
+	/**
+	 * Calls that don't change a tree's values, and changes of its snapshots, don't stop its fail-fast
+	 * iterators, which go on to return all the values.
+	 */
+	@Test
+	public void iteratorsIgnoreCallsThatChangeNothing(){
+		for (Function<AvlTree, PrimitiveIterator.OfInt> newIterator : FAIL_FAST_ITERATORS){
+			AvlTree tree = new AvlTree(IntStream.range(0, 100).toArray());
+			int[] expected = drain(newIterator.apply(tree));
+			PrimitiveIterator.OfInt iterator = newIterator.apply(tree);
+			int[] values = new int[expected.length];
+			int count = 0;
+			for (Consumer<AvlTree> call : NO_CHANGES){
+				call.accept(tree);
+				values[count++] = assertDoesNotThrow(iterator::nextInt);
+			}
+			while (iterator.hasNext()){
+				values[count++] = iterator.nextInt();
+			}
+			assertArrayEquals(expected, Arrays.copyOf(values, count));
+		}
+	}
+
+	/**
+	 * A snapshot iterator returns exactly the values the tree had when it was created, however the tree
+	 * changes during the iteration, and the changes are all in the tree afterwards.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void snapshotIteratorKeepsTheOldValues(BalancePolicy policy){
+		Random random = new Random(policy.ordinal() + 50);
+		TreeSet<Integer> values = new TreeSet<>();
+		AvlTree tree = randomTree(policy, random, 5000, values);
+		int[] before = values(values);
+		PrimitiveIterator.OfInt iterator = tree.snapshotIterator();
+		int[] returned = new int[before.length];
+		int count = 0;
+		while (iterator.hasNext()){
+			returned[count++] = iterator.nextInt();
+			int data = random.nextInt(5000);
+			if (random.nextBoolean()){
+				assertEquals(values.add(data), tree.add(data));
+			}
+			else {
+				assertEquals(values.remove(data), tree.delete(data));
+			}
+		}
+		assertArrayEquals(before, Arrays.copyOf(returned, count));
+		check(tree, values);
+	}
+
+	/**
+	 * A weakly consistent iterator over a tree that changes between its steps returns ascending values,
+	 * every value that was in the tree for the whole iteration, and no value that never was in the tree.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void weaklyConsistentIteratorFollowsChanges(BalancePolicy policy){
+		Random random = new Random(policy.ordinal() + 60);
+		TreeSet<Integer> values = new TreeSet<>();
+		AvlTree tree = randomTree(policy, random, 5000, values);
+		TreeSet<Integer> everPresent = new TreeSet<>(values), alwaysPresent = new TreeSet<>(values);
+		PrimitiveIterator.OfInt iterator = tree.weaklyConsistentIterator();
+		TreeSet<Integer> returned = new TreeSet<>();
+		int last = Integer.MIN_VALUE;
+		while (iterator.hasNext()){
+			int value = iterator.nextInt();
+			assertTrue(returned.isEmpty() || value > last, value + " after " + last);
+			assertTrue(everPresent.contains(value), value + " was never in the tree");
+			returned.add(value);
+			last = value;
+			for (int i = random.nextInt(3); i > 0; i--){
+				int data = random.nextInt(5000);
+				if (random.nextBoolean()){
+					tree.add(data);
+					everPresent.add(data);
+				}
+				else {
+					tree.delete(data);
+					alwaysPresent.remove(data);
+				}
+			}
+			if (random.nextInt(50) == 0){
+				tree.addAll(IntStream.range(0, 5000).filter(data -> data % 7 == 0).toArray());
+				IntStream.range(0, 5000).filter(data -> data % 7 == 0).forEach(everPresent::add);
+			}
+		}
+		assertTrue(returned.containsAll(alwaysPresent), "A value that stayed in the tree was skipped");
+		assertThrows(NoSuchElementException.class, iterator::nextInt);
+	}
+
+	/*
+	 * Splits the spliterator as far as it goes, checking that each prefix and the rest have the exact sizes
+	 * of their values, and adds the values of the parts to the given array in order.
+	 * @return the number of values in the array after the parts' values.
+	 */
+	private static int splitAndDrain(Spliterator.OfInt spliterator, int[] values, int count, Random random){
+		long size = spliterator.estimateSize();
+		assertEquals(size, spliterator.getExactSizeIfKnown());
+		Spliterator.OfInt prefix = spliterator.trySplit();
+		if (prefix != null){
+			assertEquals(size, prefix.estimateSize() + spliterator.estimateSize());
+			assertTrue(prefix.estimateSize() >= 1 && spliterator.estimateSize() >= 1, "An empty part");
+			int end = splitAndDrain(prefix, values, count, random);
+			return splitAndDrain(spliterator, values, end, random);
+		}
+		assertTrue(size < 2, "A part of " + size + " values did not split");
+		int[] next = {count};
+		// Drain a part by single steps or in bulk, it must give the same values either way.
+		if (random.nextBoolean()){
+			while (spliterator.tryAdvance((int value) -> values[next[0]++] = value)){
+				assertEquals(size - (next[0] - count), spliterator.estimateSize());
+			}
+		}
+		else {
+			spliterator.forEachRemaining((int value) -> values[next[0]++] = value);
+		}
+		assertEquals(size, next[0] - count);
+		assertEquals(0, spliterator.estimateSize());
+		assertFalse(spliterator.tryAdvance((int value) -> values[0] = value));
+		return next[0];
+	}
+
+	/**
+	 * Splitting a tree's spliterator as far as it goes gives parts of exact, equal sizes, which hold the
+	 * tree's values in order, for trees of every size from empty up; the characteristics say so.
+	 */
+	@Test
+	public void spliteratorSplitsExactly(){
+		Random random = new Random(8);
+		AvlTree tree = new AvlTree();
+		for (int size = 0; size <= 300; size++){
+			int[] values = new int[size];
+			assertEquals(size, splitAndDrain(tree.spliterator(), values, 0, random));
+			assertArrayEquals(values(tree), values);
+			tree.add(random.nextInt());
+		}
+		Spliterator.OfInt spliterator = tree.spliterator();
+		int expected = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL
+				| Spliterator.SIZED | Spliterator.SUBSIZED;
+		assertEquals(expected, spliterator.characteristics() & expected);
+		assertNull(spliterator.getComparator());
+		Spliterator.OfInt prefix = spliterator.trySplit();
+		assertEquals(tree.size() / 2, prefix.estimateSize());
+		assertEquals(tree.size() - tree.size() / 2, spliterator.estimateSize());
+	}
+
+	/**
+	 * A part of a spliterator that started its traversal is not split any more, and still gives the rest of
+	 * its values.
+	 */
+	@Test
+	public void spliteratorDoesNotSplitOnceStarted(){
+		AvlTree tree = new AvlTree(IntStream.range(0, 100).toArray());
+		Spliterator.OfInt spliterator = tree.spliterator();
+		int[] first = new int[1];
+		assertTrue(spliterator.tryAdvance((int value) -> first[0] = value));
+		assertEquals(0, first[0]);
+		assertNull(spliterator.trySplit());
+		assertEquals(99, spliterator.estimateSize());
+		int[] rest = new int[99];
+		int[] count = new int[1];
+		spliterator.forEachRemaining((int value) -> rest[count[0]++] = value);
+		assertArrayEquals(IntStream.range(1, 100).toArray(), rest);
+	}
+
+	/**
+	 * A change of the tree after its spliterator was created makes the spliterator and the parts split from
+	 * it throw a ConcurrentModificationException, whether they advance one value at a time or in bulk.
+	 */
+	@Test
+	public void spliteratorFailsFast(){
+		AvlTree tree = new AvlTree(IntStream.range(0, 100).toArray());
+		Spliterator.OfInt spliterator = tree.spliterator();
+		Spliterator.OfInt prefix = spliterator.trySplit();
+		Spliterator.OfInt started = spliterator.trySplit();
+		assertTrue(started.tryAdvance((int value) -> {}));
+		tree.add(1000);
+		assertThrows(ConcurrentModificationException.class, () -> prefix.tryAdvance((int value) -> {}));
+		assertThrows(ConcurrentModificationException.class, () -> spliterator.forEachRemaining((int value) -> {}));
+		assertThrows(ConcurrentModificationException.class, () -> started.tryAdvance((int value) -> {}));
+		AvlTree other = new AvlTree(IntStream.range(0, 100).toArray());
+		assertThrows(ConcurrentModificationException.class,
+				() -> other.spliterator().forEachRemaining((int value) -> other.delete(value)));
+	}
+
+	/**
+	 * Parallel streams over trees of every policy give the same ordered values and results as sequential
+	 * ones.
+	 */
+	@ParameterizedTest
+	@EnumSource(BalancePolicy.class)
+	public void parallelStreamsMatchSequentialOnes(BalancePolicy policy){
+		Random random = new Random(policy.ordinal() + 70);
+		TreeSet<Integer> values = new TreeSet<>();
+		AvlTree tree = randomTree(policy, random, 200_000, values);
+		int[] expected = values(values);
+		assertArrayEquals(expected, tree.stream().parallel().toArray());
+		assertEquals(values.stream().mapToLong(Integer::longValue).sum(),
+				tree.stream().parallel().asLongStream().sum());
+		assertEquals(values.stream().filter(value -> value % 3 == 0).count(),
+				tree.stream().parallel().filter(value -> value % 3 == 0).count());
+		assertEquals(expected[expected.length / 2], tree.stream().parallel().skip(expected.length / 2)
+				.findFirst().getAsInt());
+		assertEquals(0, new AvlTree(policy).stream().parallel().count());
+	}
+}
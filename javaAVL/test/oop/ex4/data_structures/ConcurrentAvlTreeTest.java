@@ -0,0 +1,320 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A stress test of ConcurrentAvlTree: writers, readers and iterators run at the same time, every operation
+ * is recorded with the times it started and ended, and the results are then checked against the history.
+ * Each key is written by one writer only, so the writes of a key are ordered, and a read of the key must
+ * return a state the key had after the writes that ended before the read started and before the writes
+ * that started after it ended (the read is linearizable). An iteration must be ascending, return only
+ * values that were in the tree at some time during it, and return every value that was in the tree for
+ * all of it (it is weakly consistent).
+ * @author shaharna13
+ */
+public class ConcurrentAvlTreeTest {
+
+	/* The number of keys that are written, and of the keys above them that are never written */
+	private static final int KEYS = 512;
+	private static final int PERMANENT_KEYS = 64;
+
+	/* The number of writers, and the number of writes of each */
+	private static final int WRITERS = 3;
+	private static final int WRITES = 30_000;
+
+	/* The number of threads that call contains, and of threads that iterate */
+	private static final int READERS = 2;
+	private static final int ITERATORS = 1;
+
+	/*
+	 * The writes of one key that changed it, in order: the times each write started and ended, and the key's
+	 * state after it. Only the key's writer appends to it; it is read after the threads were joined.
+	 */
+	private static final class KeyHistory {
+
+		/* Whether the key was in the tree before the first write */
+		final boolean initial;
+
+		/* The writes' start and end times, and the state after each */
+		long[] starts = new long[16], ends = new long[16];
+		boolean[] states = new boolean[16];
+		int writes;
+
+		KeyHistory(boolean initial){
+			this.initial = initial;
+		}
+
+		void record(long start, long end, boolean state){
+			if (writes == starts.length){
+				starts = Arrays.copyOf(starts, writes * 2);
+				ends = Arrays.copyOf(ends, writes * 2);
+				states = Arrays.copyOf(states, writes * 2);
+			}
+			starts[writes] = start;
+			ends[writes] = end;
+			states[writes] = state;
+			writes++;
+		}
+
+		/*
+		 * @return the state after the given number of writes.
+		 */
+		boolean stateAfter(int count){
+			return count == 0 ? initial : states[count - 1];
+		}
+
+		/*
+		 * @return the number of writes that ended before the given time: they precede an operation that
+		 * started then.
+		 */
+		int writesEndedBefore(long time){
+			int count = 0;
+			while (count < writes && ends[count] < time){
+				count++;
+			}
+			return count;
+		}
+
+		/*
+		 * @return the number of writes that started before the given time: only they can precede an
+		 * operation that ended then.
+		 */
+		int writesStartedBefore(long time){
+			int count = 0;
+			while (count < writes && starts[count] < time){
+				count++;
+			}
+			return count;
+		}
+
+		/*
+		 * @return true if the key had the given state at some time between the given ones.
+		 */
+		boolean possibleBetween(long start, long end, boolean state){
+			for (int count = writesEndedBefore(start); count <= writesStartedBefore(end); count++){
+				if (stateAfter(count) == state){
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/*
+	 * A recorded call of contains.
+	 */
+	private static final class Read {
+
+		final int key;
+		final long start, end;
+		final boolean found;
+
+		Read(int key, long start, long end, boolean found){
+			this.key = key;
+			this.start = start;
+			this.end = end;
+			this.found = found;
+		}
+	}
+
+	/*
+	 * A recorded iteration over the whole tree.
+	 */
+	private static final class Scan {
+
+		final long start, end;
+		final int[] values;
+
+		Scan(long start, long end, int[] values){
+			this.start = start;
+			this.end = end;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Runs the writers, readers and iterators together, and checks every result against the history.
+	 */
+	@Test
+	public void historyIsLinearizable() throws InterruptedException {
+		ConcurrentAvlTree tree = new ConcurrentAvlTree();
+		KeyHistory[] histories = new KeyHistory[KEYS + PERMANENT_KEYS];
+		for (int key = 0; key < histories.length; key++){
+			boolean initial = key >= KEYS || key % 3 == 0;
+			histories[key] = new KeyHistory(initial);
+			if (initial){
+				tree.add(key);
+			}
+		}
+		List<List<Read>> reads = new ArrayList<>();
+		List<List<Scan>> scans = new ArrayList<>();
+		AtomicBoolean writing = new AtomicBoolean(true);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch writersDone = new CountDownLatch(WRITERS);
+		List<Thread> threads = new ArrayList<>();
+
+		for (int w = 0; w < WRITERS; w++){
+			int writer = w;
+			threads.add(new Thread(() -> {
+				Random random = new Random(writer);
+				boolean[] model = new boolean[KEYS];
+				for (int key = writer; key < KEYS; key += WRITERS){
+					model[key] = histories[key].initial;
+				}
+				awaitStart(start);
+				try {
+					for (int i = 0; i < WRITES; i++){
+						int key = writer + WRITERS * random.nextInt((KEYS - writer + WRITERS - 1) / WRITERS);
+						boolean add = random.nextBoolean();
+						long before = System.nanoTime();
+						boolean changed = add ? tree.add(key) : tree.delete(key);
+						long after = System.nanoTime();
+						// The writer is the only one to change its keys, so the results are known in advance.
+						if (changed != (model[key] != add)){
+							failure.compareAndSet(null, new AssertionError((add ? "add(" : "delete(") + key
+									+ ") returned " + changed));
+						}
+						if (changed){
+							model[key] = add;
+							histories[key].record(before, after, add);
+						}
+						if ((tree.contains(key) >= 0) != model[key]){
+							failure.compareAndSet(null, new AssertionError("The writer of " + key
+									+ " doesn't see its own write"));
+						}
+					}
+				}
+				finally {
+					writersDone.countDown();
+				}
+			}));
+		}
+		for (int r = 0; r < READERS; r++){
+			List<Read> log = new ArrayList<>();
+			reads.add(log);
+			int reader = r;
+			threads.add(new Thread(() -> {
+				Random random = new Random(100 + reader);
+				awaitStart(start);
+				while (writing.get()){
+					int key = random.nextInt(histories.length);
+					long before = System.nanoTime();
+					boolean found = tree.contains(key) >= 0;
+					long after = System.nanoTime();
+					log.add(new Read(key, before, after, found));
+				}
+			}));
+		}
+		for (int s = 0; s < ITERATORS; s++){
+			List<Scan> log = new ArrayList<>();
+			scans.add(log);
+			threads.add(new Thread(() -> {
+				awaitStart(start);
+				while (writing.get()){
+					long before = System.nanoTime();
+					int[] values = new int[histories.length];
+					int count = 0;
+					PrimitiveIterator.OfInt iterator = tree.intIterator();
+					while (iterator.hasNext()){
+						if (count == values.length){
+							failure.compareAndSet(null, new AssertionError("The iteration didn't end"));
+							return;
+						}
+						values[count++] = iterator.nextInt();
+					}
+					long after = System.nanoTime();
+					log.add(new Scan(before, after, Arrays.copyOf(values, count)));
+				}
+			}));
+		}
+		for (Thread thread : threads){
+			thread.setUncaughtExceptionHandler((t, e) -> failure.compareAndSet(null, e));
+			thread.start();
+		}
+		start.countDown();
+		writersDone.await();
+		writing.set(false);
+		for (Thread thread : threads){
+			thread.join();
+		}
+		if (failure.get() != null){
+			fail(failure.get());
+		}
+
+		int readCount = 0;
+		for (List<Read> log : reads){
+			for (Read read : log){
+				if (!histories[read.key].possibleBetween(read.start, read.end, read.found)){
+					fail("contains(" + read.key + ") returned " + read.found + ", which the key never was during"
+							+ " the call");
+				}
+				readCount++;
+			}
+		}
+		int scanCount = 0;
+		for (List<Scan> log : scans){
+			for (Scan scan : log){
+				checkScan(scan, histories);
+				scanCount++;
+			}
+		}
+		assertTrue(readCount > 0 && scanCount > 0, "The readers didn't run");
+		int size = 0;
+		for (int key = 0; key < histories.length; key++){
+			boolean present = histories[key].stateAfter(histories[key].writes);
+			assertEquals(present, tree.contains(key) >= 0);
+			size += present ? 1 : 0;
+		}
+		assertEquals(size, tree.size());
+	}
+
+	/*
+	 * Checks that the scan is ascending, returned only values that were in the tree at some time during it,
+	 * and returned every value that was in the tree all along.
+	 */
+	private static void checkScan(Scan scan, KeyHistory[] histories){
+		int next = 0;
+		for (int key = 0; key < histories.length; key++){
+			KeyHistory history = histories[key];
+			boolean returned = next < scan.values.length && scan.values[next] == key;
+			if (returned){
+				next++;
+				if (!history.possibleBetween(scan.start, scan.end, true)){
+					fail("The iteration returned " + key + ", which was not in the tree during it");
+				}
+			}
+			else if (!history.possibleBetween(scan.start, scan.end, false)){
+				fail("The iteration missed " + key + ", which was in the tree all along");
+			}
+		}
+		if (next != scan.values.length){
+			fail("The iteration is not ascending, or returned an unknown value: " + scan.values[next]);
+		}
+	}
+
+	/*
+	 * Waits for the start signal, so all the threads start together.
+	 */
+	private static void awaitStart(CountDownLatch start){
+		try {
+			start.await();
+		}
+		catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the trees that keep their nodes in int indexed slots through IndexedAvlTree.
+ * @author shaharna13
+ */
+public class IndexedAvlTreeTest {
+
+	/* The number of random operations of each differential test, and the range of their values */
+	private static final int OPERATIONS = 20_000;
+	private static final int VALUES = 2000;
+
+	/* The directory of the mapped trees' files */
+	@TempDir
+	Path directory;
+
+	/*
+	 * Checks the links, order and heights of the given sub tree, that it is AVL balanced, and that contains
+	 * finds each of its values at its depth.
+	 * @return the number of nodes in the sub tree.
+	 */
+	private static int checkBalance(IndexedAvlTree tree, int node, int parent, int depth){
+		if (node == IndexedAvlTree.NIL){
+			return 0;
+		}
+		assertEquals(parent, tree.getParent(node), "Broken parent link");
+		int left = tree.getLeft(node), right = tree.getRight(node);
+		assertTrue(left == IndexedAvlTree.NIL || tree.getKey(left) < tree.getKey(node));
+		assertTrue(right == IndexedAvlTree.NIL || tree.getKey(right) > tree.getKey(node));
+		int nodes = 1 + checkBalance(tree, left, node, depth + 1) + checkBalance(tree, right, node, depth + 1);
+		int leftHeight = height(tree, left), rightHeight = height(tree, right);
+		assertTrue(Math.abs(leftHeight - rightHeight) <= 1, "Not AVL");
+		assertEquals(Math.max(leftHeight, rightHeight) + 1, tree.getHeight(node));
+		assertEquals(depth, tree.contains(tree.getKey(node)));
+		return nodes;
+	}
+
+	/*
+	 * @return the height of the given node, -1 for NIL.
+	 */
+	private static int height(IndexedAvlTree tree, int node){
+		return node == IndexedAvlTree.NIL ? -1 : tree.getHeight(node);
+	}
+
+	/*
+	 * Checks that the tree is balanced and holds exactly the given values, through all the ways to read it.
+	 */
+	private static void check(IndexedAvlTree tree, TreeSet<Integer> expected){
+		int[] values = expected.stream().mapToInt(Integer::intValue).toArray();
+		assertEquals(expected.size(), tree.size());
+		assertEquals(expected.size(), checkBalance(tree, tree.root, IndexedAvlTree.NIL, 0));
+		assertArrayEquals(values, tree.stream().toArray());
+		int[] visited = new int[values.length];
+		int[] count = new int[1];
+		tree.forEachInt(value -> visited[count[0]++] = value);
+		assertArrayEquals(values, visited);
+	}
+
+	/*
+	 * Runs random adds, deletes and lookups on the tree and on a TreeSet, and checks that they agree.
+	 */
+	private static void matchTreeSet(IndexedAvlTree tree, TreeSet<Integer> expected, Random random){
+		for (int i = 0; i < OPERATIONS; i++){
+			int data = random.nextInt(VALUES) - VALUES / 2;
+			switch (random.nextInt(3)){
+				case 0:
+					assertEquals(expected.add(data), tree.add(data));
+					break;
+				case 1:
+					assertEquals(expected.remove(data), tree.delete(data));
+					break;
+				default:
+					assertEquals(expected.contains(data), tree.contains(data) >= 0);
+			}
+		}
+		check(tree, expected);
+	}
+
+	/**
+	 * Random operations on an ArrayAvlTree give the same results as on a TreeSet and keep it balanced, and
+	 * the slots of deleted values are reused, so a tree that shrinks and grows again needs no more room.
+	 */
+	@Test
+	public void arrayTreeMatchesTreeSet(){
+		Random random = new Random(1);
+		ArrayAvlTree tree = new ArrayAvlTree();
+		TreeSet<Integer> expected = new TreeSet<>();
+		matchTreeSet(tree, expected, random);
+		for (int data = -VALUES; data < VALUES; data++){
+			tree.add(data);
+		}
+		int capacity = tree.capacity();
+		for (int round = 0; round < 3; round++){
+			for (int data = -VALUES; data < VALUES; data++){
+				assertTrue(tree.delete(data));
+			}
+			check(tree, new TreeSet<>());
+			for (int data = VALUES - 1; data >= -VALUES; data--){
+				assertTrue(tree.add(data));
+			}
+		}
+		assertEquals(capacity, tree.capacity(), "The deleted slots were not reused");
+	}
+
+	/**
+	 * The array constructor builds a balanced ArrayAvlTree of the distinct values, and a copy keeps the
+	 * values and the balance but not the arrays: changes to one tree are not visible in the other.
+	 */
+	@Test
+	public void arrayTreeConstructors(){
+		Random random = new Random(2);
+		int[] data = random.ints(5000, 0, 3000).toArray();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int value : data){
+			expected.add(value);
+		}
+		ArrayAvlTree tree = new ArrayAvlTree(data);
+		check(tree, expected);
+		check(new ArrayAvlTree((int[]) null), new TreeSet<>());
+
+		ArrayAvlTree copy = new ArrayAvlTree(tree);
+		TreeSet<Integer> copyExpected = new TreeSet<>(expected);
+		check(copy, copyExpected);
+		matchTreeSet(tree, expected, random);
+		matchTreeSet(copy, copyExpected, random);
+	}
+
+	/**
+	 * Random operations on a MappedAvlTree give the same results as on a TreeSet, and a tree that is closed
+	 * and reopened is the same tree, and keeps working.
+	 */
+	@Test
+	public void mappedTreeMatchesTreeSetAcrossReopening() throws IOException {
+		Random random = new Random(3);
+		Path file = directory.resolve("tree");
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int round = 0; round < 3; round++){
+			try (MappedAvlTree tree = new MappedAvlTree(file)){
+				check(tree, expected);
+				matchTreeSet(tree, expected, random);
+			}
+		}
+	}
+
+	/**
+	 * A MappedAvlTree that outgrows a segment of the file maps more of it, and its nodes in all the segments
+	 * are there after reopening.
+	 */
+	@Test
+	public void mappedTreeGrowsPastASegment() throws IOException {
+		Path file = directory.resolve("large");
+		TreeSet<Integer> expected = new TreeSet<>();
+		try (MappedAvlTree tree = new MappedAvlTree(file)){
+			for (int data = 0; data < 200_000; data += 2){
+				assertTrue(tree.add(data));
+				expected.add(data);
+			}
+			for (int data = 0; data < 200_000; data += 6){
+				assertTrue(tree.delete(data));
+				expected.remove(data);
+			}
+			assertTrue(tree.capacity() > 1 << 16);
+		}
+		try (MappedAvlTree tree = new MappedAvlTree(file)){
+			check(tree, expected);
+		}
+	}
+
+	/**
+	 * The array constructor replaces the file's tree with a balanced tree of the distinct values, and a file
+	 * that is not a tree file is not opened.
+	 */
+	@Test
+	public void mappedTreeLoadsArraysAndRejectsOtherFiles() throws IOException {
+		Path file = directory.resolve("loaded");
+		try (MappedAvlTree tree = new MappedAvlTree(file)){
+			for (int data = 0; data < 1000; data++){
+				tree.add(data);
+			}
+		}
+		int[] data = new Random(4).ints(5000, -3000, 3000).toArray();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int value : data){
+			expected.add(value);
+		}
+		try (MappedAvlTree tree = new MappedAvlTree(file, data)){
+			check(tree, expected);
+		}
+		try (MappedAvlTree tree = new MappedAvlTree(file)){
+			check(tree, expected);
+		}
+		Path other = directory.resolve("other");
+		Files.write(other, new byte[100]);
+		assertThrows(IOException.class, () -> new MappedAvlTree(other));
+	}
+}
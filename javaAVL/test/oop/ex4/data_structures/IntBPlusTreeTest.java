@@ -0,0 +1,140 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of IntBPlusTree against TreeSets, through splits and merges of its nodes on every level.
+ * @author shaharna13
+ */
+public class IntBPlusTreeTest {
+
+	/* The fewest values a leaf and the fewest children an inner node hold, other than the root */
+	private static final int LEAF_MIN = 64;
+	private static final int INNER_MIN = 64;
+
+	/*
+	 * Checks that the tree holds exactly the given values, that they are all in leaves of the same depth,
+	 * and that the depth is no more than half full nodes would make it.
+	 */
+	private static void check(IntBPlusTree tree, TreeSet<Integer> expected){
+		int[] values = expected.stream().mapToInt(Integer::intValue).toArray();
+		assertEquals(values.length, tree.size());
+		assertArrayEquals(values, tree.stream().toArray());
+		int[] visited = new int[values.length];
+		int[] count = new int[1];
+		tree.forEachInt(value -> visited[count[0]++] = value);
+		assertArrayEquals(values, visited);
+		if (values.length == 0){
+			return;
+		}
+		int depth = tree.contains(values[0]);
+		for (int value : values){
+			assertEquals(depth, tree.contains(value), "The leaves are at different depths");
+		}
+		// A root with two half full children, each over inner nodes of INNER_MIN children and LEAF_MIN values.
+		long fewest = depth == 0 ? 1 : 2 * (long) Math.pow(INNER_MIN, depth - 1) * LEAF_MIN;
+		assertTrue(values.length >= fewest, depth + " levels for " + values.length + " values");
+	}
+
+	/*
+	 * Runs random adds, deletes and lookups on the tree and on a TreeSet, and checks that they agree.
+	 */
+	private static void matchTreeSet(IntBPlusTree tree, TreeSet<Integer> expected, Random random,
+									 int operations, int range, int deletePercent){
+		for (int i = 0; i < operations; i++){
+			int data = random.nextInt(range);
+			int choice = random.nextInt(100);
+			if (choice < deletePercent){
+				assertEquals(expected.remove(data), tree.delete(data));
+			}
+			else if (choice < 90){
+				assertEquals(expected.add(data), tree.add(data));
+			}
+			else {
+				assertEquals(expected.contains(data), tree.contains(data) >= 0);
+			}
+		}
+		check(tree, expected);
+	}
+
+	/**
+	 * Random operations give the same results as on a TreeSet while the tree grows to two levels of inner
+	 * nodes and shrinks back to a single leaf.
+	 */
+	@Test
+	public void matchesTreeSetWhileGrowingAndShrinking(){
+		Random random = new Random(1);
+		IntBPlusTree tree = new IntBPlusTree();
+		TreeSet<Integer> expected = new TreeSet<>();
+		matchTreeSet(tree, expected, random, 300_000, 400_000, 20);
+		assertTrue(tree.contains(expected.first()) >= 2, "The tree did not grow past two levels");
+		matchTreeSet(tree, expected, random, 300_000, 400_000, 70);
+		for (int data : expected.stream().mapToInt(Integer::intValue).toArray()){
+			assertTrue(tree.delete(data));
+			expected.remove(data);
+			if (expected.size() % 10_000 == 0 || expected.size() < 200){
+				check(tree, expected);
+			}
+		}
+		assertEquals(-1, tree.contains(0));
+		matchTreeSet(tree, expected, random, 1000, 500, 30);
+	}
+
+	/**
+	 * Ascending and descending runs of adds and deletes, which always split and merge the nodes on the same
+	 * side, give the same results as on a TreeSet.
+	 */
+	@Test
+	public void matchesTreeSetOnSequentialRuns(){
+		IntBPlusTree tree = new IntBPlusTree();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int data = 0; data < 50_000; data++){
+			assertTrue(tree.add(data));
+			expected.add(data);
+		}
+		for (int data = -1; data > -50_000; data--){
+			assertTrue(tree.add(data));
+			expected.add(data);
+		}
+		check(tree, expected);
+		for (int data = 0; data < 40_000; data++){
+			assertTrue(tree.delete(data));
+			expected.remove(data);
+		}
+		check(tree, expected);
+		for (int data = -49_999; data < -10_000; data++){
+			assertTrue(tree.delete(data));
+			expected.remove(data);
+		}
+		check(tree, expected);
+	}
+
+	/**
+	 * The array constructor builds the tree of the distinct values, with nodes at least half full, and the
+	 * tree it builds keeps working through adds and deletes.
+	 */
+	@Test
+	public void buildsFromArrays(){
+		Random random = new Random(2);
+		for (int length : new int[]{0, 1, 127, 128, 129, 8191, 16_385, 100_000}){
+			int[] data = random.ints(length, 0, 2 * length + 1).toArray();
+			int[] original = data.clone();
+			TreeSet<Integer> expected = new TreeSet<>();
+			for (int value : data){
+				expected.add(value);
+			}
+			IntBPlusTree tree = new IntBPlusTree(data);
+			assertArrayEquals(original, data);
+			check(tree, expected);
+			matchTreeSet(tree, expected, random, 2 * length, 2 * length + 1, 50);
+		}
+		check(new IntBPlusTree(null), new TreeSet<>());
+	}
+}
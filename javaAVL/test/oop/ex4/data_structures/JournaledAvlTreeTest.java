@@ -0,0 +1,59 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.PrimitiveIterator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of JournaledAvlTree's iteration and recovery.
+ * @author shaharna13
+ */
+public class JournaledAvlTreeTest {
+
+	/* The directory of the tree's files */
+	@TempDir
+	Path directory;
+
+	/**
+	 * An iteration interleaved with changes returns the values that were not changed, in ascending order,
+	 * and the changes are still recovered from the journal.
+	 */
+	@Test
+	public void iterationIsWeaklyConsistent() throws IOException {
+		int values = 1000;
+		try (JournaledAvlTree tree = new JournaledAvlTree(directory, 1000, 1L << 20)){
+			for (int data = 0; data < values; data += 2){
+				tree.add(data);
+			}
+			PrimitiveIterator.OfInt iterator = tree.intIterator();
+			int expected = 0;
+			int last = -1;
+			while (iterator.hasNext()){
+				int data = iterator.nextInt();
+				assertTrue(data > last);
+				last = data;
+				if (data % 2 == 0){
+					// Every even value stays in the tree, so none of them may be missed.
+					assertEquals(expected, data);
+					expected += 2;
+				}
+				tree.add(data + 1);
+			}
+			assertEquals(values, expected);
+			assertEquals(values, tree.size());
+		}
+		try (JournaledAvlTree reopened = new JournaledAvlTree(directory)){
+			assertEquals(values, reopened.size());
+			int expected = 0;
+			for (int data : reopened){
+				assertEquals(expected++, data);
+			}
+		}
+	}
+}
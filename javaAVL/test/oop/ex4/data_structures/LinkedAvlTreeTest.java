@@ -0,0 +1,92 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the balancing that LongAvlTree and GenericAvlTree share through LinkedAvlTree.
+ * @author shaharna13
+ */
+public class LinkedAvlTreeTest {
+
+	/*
+	 * Checks the links, cached heights and sizes of the given sub tree, and that it is AVL balanced (the
+	 * order of the values is checked by iterating).
+	 * @return the sub tree's height, -1 if it is empty.
+	 */
+	private static <N extends LinkedAvlTree.LinkedNode<N>> int checkBalance(N node, N parent){
+		if (node == null){
+			return -1;
+		}
+		assertTrue(node.parent == parent, "Broken parent link");
+		int leftHeight = checkBalance(node.left, node);
+		int rightHeight = checkBalance(node.right, node);
+		assertTrue(Math.abs(leftHeight - rightHeight) <= 1, "Not AVL");
+		assertEquals(Math.max(leftHeight, rightHeight) + 1, node.height);
+		assertEquals(1 + (node.left == null ? 0 : node.left.size) + (node.right == null ? 0 : node.right.size),
+				node.size);
+		return node.height;
+	}
+
+	/**
+	 * Random adds and deletes on a LongAvlTree keep it balanced and equal to a TreeSet, and a copy keeps
+	 * the values and the balance.
+	 */
+	@Test
+	public void longTreeMatchesTreeSet(){
+		Random random = new Random(1);
+		LongAvlTree tree = new LongAvlTree();
+		TreeSet<Long> expected = new TreeSet<>();
+		for (int i = 0; i < 20_000; i++){
+			long data = (random.nextInt(2000) - 1000) * (1L << 40);
+			if (random.nextInt(3) == 0){
+				assertEquals(expected.remove(data), tree.delete(data));
+			}
+			else {
+				assertEquals(expected.add(data), tree.add(data));
+			}
+		}
+		assertEquals(expected.size(), tree.size());
+		assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), tree.stream().toArray());
+		LongAvlTree copy = new LongAvlTree(tree);
+		assertArrayEquals(tree.stream().toArray(), copy.stream().toArray());
+		checkBalance(tree.root, null);
+		checkBalance(copy.root, null);
+	}
+
+	/**
+	 * Random adds and deletes on a GenericAvlTree with a reversed comparator keep it balanced and equal to a
+	 * TreeSet with the same comparator, and a copy keeps the keys and the balance.
+	 */
+	@Test
+	public void genericTreeMatchesTreeSet(){
+		Random random = new Random(2);
+		Comparator<String> comparator = Comparator.reverseOrder();
+		GenericAvlTree<String> tree = new GenericAvlTree<>(comparator);
+		TreeSet<String> expected = new TreeSet<>(comparator);
+		for (int i = 0; i < 20_000; i++){
+			String data = "key" + random.nextInt(2000);
+			if (random.nextInt(3) == 0){
+				assertEquals(expected.remove(data), tree.delete(data));
+			}
+			else {
+				assertEquals(expected.add(data), tree.add(data));
+			}
+		}
+		assertEquals(expected.size(), tree.size());
+		assertEquals(List.copyOf(expected), tree.stream().collect(Collectors.toList()));
+		GenericAvlTree<String> copy = new GenericAvlTree<>(tree);
+		assertEquals(List.copyOf(expected), copy.stream().collect(Collectors.toList()));
+		checkBalance(tree.root, null);
+		checkBalance(copy.root, null);
+	}
+}
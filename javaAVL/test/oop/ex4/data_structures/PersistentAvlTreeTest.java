@@ -0,0 +1,138 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of PersistentAvlTree: its versions against TreeSets, and the balance of each version.
+ * @author shaharna13
+ */
+public class PersistentAvlTreeTest {
+
+	/*
+	 * Checks that the version holds exactly the given values, and that each value's depth is within the
+	 * height of an AVL tree of the version's size.
+	 */
+	private static void check(PersistentAvlTree tree, TreeSet<Integer> expected){
+		int[] values = expected.stream().mapToInt(Integer::intValue).toArray();
+		assertEquals(values.length, tree.size());
+		assertArrayEquals(values, tree.stream().toArray());
+		int[] visited = new int[values.length];
+		int[] count = new int[1];
+		tree.forEachInt(value -> visited[count[0]++] = value);
+		assertArrayEquals(values, visited);
+		for (int value : values){
+			int depth = tree.contains(value);
+			assertTrue(depth >= 0 && AvlTree.findMinNodes(depth) <= values.length,
+					"Depth " + depth + " in a tree of " + values.length);
+		}
+	}
+
+	/**
+	 * Random adds and deletes give the same results as on a TreeSet, and every version made along the way
+	 * still holds its own values at the end, however many versions were made from it.
+	 */
+	@Test
+	public void versionsMatchTreeSets(){
+		Random random = new Random(1);
+		List<PersistentAvlTree> versions = new ArrayList<>();
+		List<TreeSet<Integer>> expectedVersions = new ArrayList<>();
+		PersistentAvlTree tree = new PersistentAvlTree();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int i = 0; i < 20_000; i++){
+			int data = random.nextInt(3000);
+			PersistentAvlTree next;
+			boolean changed;
+			if (random.nextInt(3) == 0){
+				changed = expected.remove(data);
+				next = tree.delete(data);
+			}
+			else {
+				changed = expected.add(data);
+				next = tree.add(data);
+			}
+			// A version is only made when the values change.
+			assertEquals(changed, next != tree);
+			assertEquals(expected.contains(data), next.contains(data) >= 0);
+			tree = next;
+			if (i % 500 == 0){
+				versions.add(tree);
+				expectedVersions.add(new TreeSet<>(expected));
+			}
+		}
+		check(tree, expected);
+		for (int i = 0; i < versions.size(); i++){
+			check(versions.get(i), expectedVersions.get(i));
+		}
+	}
+
+	/**
+	 * The array constructor builds a balanced version of the distinct values, and the versions made from it
+	 * by removing all of them, one at a time, end in the shared empty tree.
+	 */
+	@Test
+	public void buildsFromArraysAndEmptiesToTheEmptyTree(){
+		int[] data = new Random(2).ints(5000, -2000, 2000).toArray();
+		int[] original = data.clone();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int value : data){
+			expected.add(value);
+		}
+		PersistentAvlTree tree = new PersistentAvlTree(data);
+		assertArrayEquals(original, data);
+		check(tree, expected);
+		check(new PersistentAvlTree(null), new TreeSet<>());
+		PersistentAvlTree full = tree;
+		for (int value : original){
+			tree = tree.delete(value);
+		}
+		assertSame(PersistentAvlTree.empty(), tree);
+		check(full, expected);
+	}
+
+	/**
+	 * A version can be read by many threads at once while other versions are made from it.
+	 */
+	@Test
+	public void versionsAreReadConcurrently() throws InterruptedException {
+		PersistentAvlTree base = new PersistentAvlTree(new Random(3).ints(20_000).toArray());
+		int[] values = base.stream().toArray();
+		Thread[] threads = new Thread[4];
+		Throwable[] failures = new Throwable[threads.length];
+		for (int t = 0; t < threads.length; t++){
+			int index = t;
+			threads[t] = new Thread(() -> {
+				try {
+					PersistentAvlTree mine = base;
+					int deleted = 0;
+					for (int i = index; i < values.length; i += threads.length){
+						assertTrue(base.contains(values[i]) >= 0);
+						mine = mine.delete(values[i]);
+						deleted++;
+					}
+					assertEquals(values.length - deleted, mine.size());
+					assertArrayEquals(values, base.stream().toArray());
+				}
+				catch (Throwable e){
+					failures[index] = e;
+				}
+			});
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++){
+			threads[t].join();
+			if (failures[t] != null){
+				throw new AssertionError(failures[t]);
+			}
+		}
+	}
+}
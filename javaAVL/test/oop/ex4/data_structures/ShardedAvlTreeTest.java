@@ -0,0 +1,67 @@
+package oop.ex4.data_structures;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of ShardedAvlTree's rebalancing of skewed shards.
+ * @author shaharna13
+ */
+public class ShardedAvlTreeTest {
+
+	/* The number of values added in the skew tests */
+	private static final int VALUES = 160_000;
+
+	/*
+	 * Adds VALUES ascending values from 10000 on, all in the last shard of an evenly split int range, and
+	 * checks that the shards were rebalanced to within twice the average of the others.
+	 */
+	private static void checkSkewIsRebalanced(int shardCount){
+		ShardedAvlTree tree = new ShardedAvlTree(shardCount);
+		for (int i = 0; i < VALUES; i++){
+			tree.add(10000 + i);
+		}
+		assertEquals(VALUES, tree.size());
+		assertTrue(tree.getRebalanceCount() > 0);
+		int[] sizes = tree.getShardSizes();
+		int largest = 0;
+		for (int size : sizes){
+			largest = Math.max(largest, size);
+		}
+		long othersAverage = (VALUES - largest) / (shardCount - 1);
+		assertTrue(largest <= 2 * othersAverage + 1024, "Shard sizes " + Arrays.toString(sizes));
+		int expected = 10000;
+		for (int data : tree){
+			assertEquals(expected++, data);
+		}
+	}
+
+	/**
+	 * With two shards the largest one can never hold twice the average of both, so the skew must be found
+	 * against the other shard alone.
+	 */
+	@Test
+	public void twoShardsRebalance(){
+		checkSkewIsRebalanced(2);
+	}
+
+	/**
+	 * With three shards, a shard that holds most but not two thirds of the values is still skewed.
+	 */
+	@Test
+	public void threeShardsRebalance(){
+		checkSkewIsRebalanced(3);
+	}
+
+	/**
+	 * The original case of many shards keeps working.
+	 */
+	@Test
+	public void eightShardsRebalance(){
+		checkSkewIsRebalanced(8);
+	}
+}